@@ -0,0 +1,418 @@
+package com.mickaelg.lookanimation.model;
+
+import java.io.IOException;
+import java.io.Reader;
+
+/**
+ * Pull reader of a JSON document, reading one token at a time from a fixed size buffer. It follows the API of
+ * {@code android.util.JsonReader}, but doesn't depend on the platform so the catalog tools can run on the build
+ * machine.
+ * <p/>
+ * The reader only keeps the nesting of the containers it is in, so its memory doesn't depend on the size of the
+ * document.
+ */
+final class JsonPullReader {
+
+    // region Properties
+
+    /**
+     * Kind of the next token of the document.
+     */
+    enum Token {
+        BEGIN_ARRAY, END_ARRAY, BEGIN_OBJECT, END_OBJECT, NAME, STRING, NUMBER, BOOLEAN, NULL, END_DOCUMENT
+    }
+
+    private static final int BUFFER_SIZE = 8192;
+
+    private static final int SCOPE_EMPTY_ARRAY = 0;
+    private static final int SCOPE_ARRAY = 1;
+    private static final int SCOPE_EMPTY_OBJECT = 2;
+    private static final int SCOPE_NAME = 3;
+    private static final int SCOPE_VALUE = 4;
+    private static final int SCOPE_DOCUMENT = 5;
+    private static final int SCOPE_CLOSED = 6;
+
+    private final Reader mReader;
+    private final char[] mBuffer = new char[BUFFER_SIZE];
+    private int mPosition = 0;
+    private int mLimit = 0;
+    /**
+     * Characters read before the buffer, to locate the errors.
+     */
+    private long mOffset = 0;
+
+    private int[] mScopes = new int[16];
+    private int mDepth = 1;
+
+    /**
+     * Next token once peeked, or null.
+     */
+    private Token mPeeked;
+    private final StringBuilder mValue = new StringBuilder();
+
+    // endregion
+
+
+    // region Constructors
+
+    JsonPullReader(Reader reader) {
+        mReader = reader;
+        mScopes[0] = SCOPE_DOCUMENT;
+    }
+
+    // endregion
+
+
+    // region Tokens
+
+    Token peek() throws IOException {
+        if (mPeeked != null) {
+            return mPeeked;
+        }
+
+        int scope = mScopes[mDepth - 1];
+        int c;
+        switch (scope) {
+            case SCOPE_EMPTY_ARRAY:
+                c = nextNonWhitespace();
+                if (c == ']') {
+                    return setPeeked(Token.END_ARRAY);
+                }
+                mScopes[mDepth - 1] = SCOPE_ARRAY;
+                return peekValue(c);
+            case SCOPE_ARRAY:
+                c = nextNonWhitespace();
+                if (c == ']') {
+                    return setPeeked(Token.END_ARRAY);
+                } else if (c != ',') {
+                    throw syntaxError("Expected ',' or ']'");
+                }
+                return peekValue(nextNonWhitespace());
+            case SCOPE_EMPTY_OBJECT:
+            case SCOPE_VALUE:
+                c = nextNonWhitespace();
+                if (c == '}') {
+                    return setPeeked(Token.END_OBJECT);
+                }
+                if (scope == SCOPE_VALUE) {
+                    if (c != ',') {
+                        throw syntaxError("Expected ',' or '}'");
+                    }
+                    c = nextNonWhitespace();
+                }
+                if (c != '"') {
+                    throw syntaxError("Expected a name");
+                }
+                readString();
+                if (nextNonWhitespace() != ':') {
+                    throw syntaxError("Expected ':'");
+                }
+                mScopes[mDepth - 1] = SCOPE_NAME;
+                return setPeeked(Token.NAME);
+            case SCOPE_NAME:
+                mScopes[mDepth - 1] = SCOPE_VALUE;
+                return peekValue(nextNonWhitespace());
+            case SCOPE_DOCUMENT:
+                mScopes[mDepth - 1] = SCOPE_CLOSED;
+                return peekValue(nextNonWhitespace());
+            default:
+                if (nextNonWhitespace() != -1) {
+                    throw syntaxError("Expected the end of the document");
+                }
+                return setPeeked(Token.END_DOCUMENT);
+        }
+    }
+
+    private Token peekValue(int c) throws IOException {
+        switch (c) {
+            case '[':
+                return setPeeked(Token.BEGIN_ARRAY);
+            case '{':
+                return setPeeked(Token.BEGIN_OBJECT);
+            case '"':
+                readString();
+                return setPeeked(Token.STRING);
+            case 't':
+                readKeyword("rue");
+                mValue.setLength(0);
+                mValue.append("true");
+                return setPeeked(Token.BOOLEAN);
+            case 'f':
+                readKeyword("alse");
+                mValue.setLength(0);
+                mValue.append("false");
+                return setPeeked(Token.BOOLEAN);
+            case 'n':
+                readKeyword("ull");
+                return setPeeked(Token.NULL);
+            case -1:
+                throw syntaxError("Unexpected end of the document");
+            default:
+                if (c == '-' || (c >= '0' && c <= '9')) {
+                    readNumber((char) c);
+                    return setPeeked(Token.NUMBER);
+                }
+                throw syntaxError("Unexpected character '" + (char) c + "'");
+        }
+    }
+
+    private Token setPeeked(Token token) {
+        mPeeked = token;
+        return token;
+    }
+
+    private void consume(Token expected) throws IOException {
+        Token token = peek();
+        if (token != expected) {
+            throw syntaxError("Expected " + expected + " but was " + token);
+        }
+        mPeeked = null;
+    }
+
+    void beginArray() throws IOException {
+        consume(Token.BEGIN_ARRAY);
+        push(SCOPE_EMPTY_ARRAY);
+    }
+
+    void endArray() throws IOException {
+        consume(Token.END_ARRAY);
+        mDepth--;
+    }
+
+    void beginObject() throws IOException {
+        consume(Token.BEGIN_OBJECT);
+        push(SCOPE_EMPTY_OBJECT);
+    }
+
+    void endObject() throws IOException {
+        consume(Token.END_OBJECT);
+        mDepth--;
+    }
+
+    /**
+     * @return True if the current array or object has another element
+     */
+    boolean hasNext() throws IOException {
+        Token token = peek();
+        return token != Token.END_ARRAY && token != Token.END_OBJECT && token != Token.END_DOCUMENT;
+    }
+
+    String nextName() throws IOException {
+        consume(Token.NAME);
+        return mValue.toString();
+    }
+
+    String nextString() throws IOException {
+        Token token = peek();
+        if (token != Token.STRING && token != Token.NUMBER) {
+            throw syntaxError("Expected a string but was " + token);
+        }
+        mPeeked = null;
+        return mValue.toString();
+    }
+
+    double nextDouble() throws IOException {
+        Token token = peek();
+        if (token != Token.NUMBER && token != Token.STRING) {
+            throw syntaxError("Expected a number but was " + token);
+        }
+        try {
+            double value = Double.parseDouble(mValue.toString());
+            mPeeked = null;
+            return value;
+        } catch (NumberFormatException e) {
+            throw syntaxError("Invalid number " + mValue);
+        }
+    }
+
+    int nextInt() throws IOException {
+        double value = nextDouble();
+        if (value != (int) value) {
+            throw syntaxError("Expected an int but was " + value);
+        }
+        return (int) value;
+    }
+
+    boolean nextBoolean() throws IOException {
+        consume(Token.BOOLEAN);
+        return mValue.charAt(0) == 't';
+    }
+
+    void nextNull() throws IOException {
+        consume(Token.NULL);
+    }
+
+    /**
+     * Skip the next value, with everything it contains.
+     */
+    void skipValue() throws IOException {
+        int depth = 0;
+        do {
+            switch (peek()) {
+                case BEGIN_ARRAY:
+                    beginArray();
+                    depth++;
+                    break;
+                case BEGIN_OBJECT:
+                    beginObject();
+                    depth++;
+                    break;
+                case END_ARRAY:
+                    endArray();
+                    depth--;
+                    break;
+                case END_OBJECT:
+                    endObject();
+                    depth--;
+                    break;
+                case END_DOCUMENT:
+                    throw syntaxError("Unexpected end of the document");
+                default:
+                    mPeeked = null;
+                    break;
+            }
+        } while (depth > 0);
+    }
+
+    void close() throws IOException {
+        mPeeked = null;
+        mDepth = 1;
+        mScopes[0] = SCOPE_CLOSED;
+        mReader.close();
+    }
+
+    private void push(int scope) {
+        if (mDepth == mScopes.length) {
+            int[] scopes = new int[mDepth * 2];
+            System.arraycopy(mScopes, 0, scopes, 0, mDepth);
+            mScopes = scopes;
+        }
+        mScopes[mDepth++] = scope;
+    }
+
+    // endregion
+
+
+    // region Characters
+
+    /**
+     * @return The next character of the document, or -1 at its end
+     */
+    private int read() throws IOException {
+        if (mPosition == mLimit) {
+            mOffset += mLimit;
+            mPosition = 0;
+            mLimit = mReader.read(mBuffer, 0, mBuffer.length);
+            if (mLimit <= 0) {
+                mLimit = 0;
+                return -1;
+            }
+        }
+        return mBuffer[mPosition++];
+    }
+
+    private int nextNonWhitespace() throws IOException {
+        int c;
+        do {
+            c = read();
+        } while (c == ' ' || c == '\n' || c == '\r' || c == '\t');
+        return c;
+    }
+
+    /**
+     * Read a string into the value, after its opening quote.
+     */
+    private void readString() throws IOException {
+        mValue.setLength(0);
+        while (true) {
+            int c = read();
+            if (c == '"') {
+                return;
+            } else if (c == -1) {
+                throw syntaxError("Unterminated string");
+            } else if (c == '\\') {
+                mValue.append(readEscape());
+            } else {
+                mValue.append((char) c);
+            }
+        }
+    }
+
+    private char readEscape() throws IOException {
+        int c = read();
+        switch (c) {
+            case 'u':
+                int value = 0;
+                for (int i = 0; i < 4; i++) {
+                    int digit = Character.digit(read(), 16);
+                    if (digit < 0) {
+                        throw syntaxError("Invalid unicode escape");
+                    }
+                    value = (value << 4) | digit;
+                }
+                return (char) value;
+            case 't':
+                return '\t';
+            case 'b':
+                return '\b';
+            case 'n':
+                return '\n';
+            case 'r':
+                return '\r';
+            case 'f':
+                return '\f';
+            case '"':
+            case '\\':
+            case '/':
+                return (char) c;
+            default:
+                throw syntaxError("Invalid escape sequence");
+        }
+    }
+
+    private void readNumber(char first) throws IOException {
+        mValue.setLength(0);
+        mValue.append(first);
+        while (true) {
+            if (mPosition == mLimit && peekEnd()) {
+                return;
+            }
+            char c = mBuffer[mPosition];
+            if ((c >= '0' && c <= '9') || c == '.' || c == 'e' || c == 'E' || c == '+' || c == '-') {
+                mValue.append(c);
+                mPosition++;
+            } else {
+                return;
+            }
+        }
+    }
+
+    /**
+     * Refill the buffer without consuming a character.
+     *
+     * @return True at the end of the document
+     */
+    private boolean peekEnd() throws IOException {
+        int c = read();
+        if (c == -1) {
+            return true;
+        }
+        mPosition--;
+        return false;
+    }
+
+    private void readKeyword(String rest) throws IOException {
+        for (int i = 0; i < rest.length(); i++) {
+            if (read() != rest.charAt(i)) {
+                throw syntaxError("Invalid literal");
+            }
+        }
+    }
+
+    private IOException syntaxError(String message) {
+        return new IOException(message + " at character " + (mOffset + mPosition));
+    }
+
+    // endregion
+
+}
@@ -0,0 +1,562 @@
+package com.mickaelg.lookanimation.model;
+
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.RandomAccess;
+
+/**
+ * Catalog of looks stored in columns of primitives instead of one object per look, region and product.
+ * <p/>
+ * Each look points to its first region in the region columns and each region to its first product in the product
+ * columns, the next entry telling where they end. The name and zoom rectangle of a region are shared by most looks, so
+ * a region only stores the index of its kind in a small table. A look with two regions of three products costs 48
+ * bytes, and iterating the catalog reads contiguous arrays.
+ * <p/>
+ * {@link #getLook(int)} returns a flyweight {@link LookModel} reading the columns, so the rest of the app can use the
+ * catalog through the model accessors. The flyweights are read-only: a look creates its lists and their elements the
+ * first time they are read, then keeps them, so binding the same look again doesn't allocate. Two threads reading a
+ * look for the first time may each create an element, both read the same columns.
+ */
+public final class LookCatalog {
+
+    // region Properties
+
+    private static final int ZOOM_VALUES = 4;
+
+    private final int mLookCount;
+    private final int[] mLookPictureResIds;
+    /**
+     * Index of the first region of each look, followed by the number of regions.
+     */
+    private final int[] mLookRegionStarts;
+    private final int[] mRegionKinds;
+    /**
+     * Index of the first product of each region, followed by the number of products.
+     */
+    private final int[] mRegionProductStarts;
+    private final int[] mProductColorResIds;
+    private final String[] mKindNames;
+    /**
+     * Zoom rectangle of each region kind: left, top, right and bottom.
+     */
+    private final float[] mKindZoomRects;
+
+    // endregion
+
+
+    // region Constructors
+
+    private LookCatalog(int lookCount, int[] lookPictureResIds, int[] lookRegionStarts, int[] regionKinds,
+                        int[] regionProductStarts, int[] productColorResIds, String[] kindNames,
+                        float[] kindZoomRects) {
+        mLookCount = lookCount;
+        mLookPictureResIds = lookPictureResIds;
+        mLookRegionStarts = lookRegionStarts;
+        mRegionKinds = regionKinds;
+        mRegionProductStarts = regionProductStarts;
+        mProductColorResIds = productColorResIds;
+        mKindNames = kindNames;
+        mKindZoomRects = kindZoomRects;
+    }
+
+    /**
+     * Create a catalog of test looks, all the same.
+     */
+    public static LookCatalog createTestCatalog(int lookCount) {
+        LookModel look = LookModel.createLookModel();
+        Builder builder = new Builder();
+        for (int i = 0; i < lookCount; i++) {
+            builder.addLook(look);
+        }
+        return builder.build();
+    }
+
+    // endregion
+
+
+    // region Looks
+
+    public int getLookCount() {
+        return mLookCount;
+    }
+
+    public int getLookPictureResId(int lookIndex) {
+        return mLookPictureResIds[lookIndex];
+    }
+
+    /**
+     * @return Index of the first region of the look in the region columns
+     */
+    public int getFirstRegion(int lookIndex) {
+        return mLookRegionStarts[lookIndex];
+    }
+
+    public int getRegionCount(int lookIndex) {
+        return mLookRegionStarts[lookIndex + 1] - mLookRegionStarts[lookIndex];
+    }
+
+    /**
+     * @return Flyweight reading the look from the catalog
+     */
+    public LookModel getLook(int lookIndex) {
+        return new LookView(this, lookIndex);
+    }
+
+    /**
+     * @return The looks of the catalog, as flyweights created when they are read
+     */
+    public List<LookModel> asList() {
+        return new LookList(this);
+    }
+
+    // endregion
+
+
+    // region Regions and products
+
+    public String getRegionName(int regionIndex) {
+        return mKindNames[mRegionKinds[regionIndex]];
+    }
+
+    /**
+     * @param side 0 for the left, 1 for the top, 2 for the right and 3 for the bottom of the zoom rectangle
+     */
+    private float getRegionZoom(int regionIndex, int side) {
+        return mKindZoomRects[mRegionKinds[regionIndex] * ZOOM_VALUES + side];
+    }
+
+    public float getRegionZoomLeft(int regionIndex) {
+        return getRegionZoom(regionIndex, 0);
+    }
+
+    public float getRegionZoomTop(int regionIndex) {
+        return getRegionZoom(regionIndex, 1);
+    }
+
+    public float getRegionZoomRight(int regionIndex) {
+        return getRegionZoom(regionIndex, 2);
+    }
+
+    public float getRegionZoomBottom(int regionIndex) {
+        return getRegionZoom(regionIndex, 3);
+    }
+
+    /**
+     * @return Index of the first product of the region in the product columns
+     */
+    public int getFirstProduct(int regionIndex) {
+        return mRegionProductStarts[regionIndex];
+    }
+
+    public int getProductCount(int regionIndex) {
+        return mRegionProductStarts[regionIndex + 1] - mRegionProductStarts[regionIndex];
+    }
+
+    public int getProductColorResId(int productIndex) {
+        return mProductColorResIds[productIndex];
+    }
+
+    // endregion
+
+
+    // region Memory
+
+    /**
+     * @return Bytes used by the columns of the catalog, without the object headers
+     */
+    public long getByteCount() {
+        long byteCount = 4L * (mLookPictureResIds.length + mLookRegionStarts.length + mRegionKinds.length
+                + mRegionProductStarts.length + mProductColorResIds.length + mKindZoomRects.length);
+        for (String kindName : mKindNames) {
+            byteCount += 2L * kindName.length();
+        }
+        return byteCount;
+    }
+
+    // endregion
+
+
+    // region Builder
+
+    /**
+     * Append looks to the columns of a catalog, then trim them to their size.
+     */
+    public static final class Builder {
+
+        private static final int INITIAL_CAPACITY = 16;
+
+        private int mLookCount = 0;
+        private int mRegionCount = 0;
+        private int mProductCount = 0;
+        private int[] mLookPictureResIds = new int[INITIAL_CAPACITY];
+        private int[] mLookRegionStarts = new int[INITIAL_CAPACITY];
+        private int[] mRegionKinds = new int[INITIAL_CAPACITY];
+        private int[] mRegionProductStarts = new int[INITIAL_CAPACITY];
+        private int[] mProductColorResIds = new int[INITIAL_CAPACITY];
+
+        /**
+         * Index of each region kind, looked up with a reused key.
+         */
+        private final Map<RegionKind, Integer> mKindIndexes = new HashMap<>();
+        private final RegionKind mKindKey = new RegionKind();
+        private String[] mKindNames = new String[INITIAL_CAPACITY];
+        private float[] mKindZoomRects = new float[INITIAL_CAPACITY * ZOOM_VALUES];
+
+        /**
+         * Start a new look, the next regions are added to it.
+         */
+        public Builder addLook(int lookPictureResId) {
+            mLookPictureResIds = ensureCapacity(mLookPictureResIds, mLookCount + 1);
+            mLookRegionStarts = ensureCapacity(mLookRegionStarts, mLookCount + 1);
+            mLookPictureResIds[mLookCount] = lookPictureResId;
+            mLookRegionStarts[mLookCount] = mRegionCount;
+            mLookCount++;
+            return this;
+        }
+
+        /**
+         * Add a look with all its regions and products.
+         */
+        public Builder addLook(LookModel look) {
+            addLook(look.getLookPictureResId());
+            for (LookRegion region : look.getRegionList()) {
+                addRegion(region.getName(), region.getZoomLeft(), region.getZoomTop(), region.getZoomRight(),
+                        region.getZoomBottom());
+                for (ProductModel product : region.getProductList()) {
+                    addProduct(product.getProductColorResId());
+                }
+            }
+            return this;
+        }
+
+        /**
+         * Add a region to the last look, the next products are added to it.
+         */
+        public Builder addRegion(String name, float zoomLeft, float zoomTop, float zoomRight, float zoomBottom) {
+            if (mLookCount == 0) {
+                throw new IllegalStateException("A region must be added to a look");
+            }
+            mRegionKinds = ensureCapacity(mRegionKinds, mRegionCount + 1);
+            mRegionProductStarts = ensureCapacity(mRegionProductStarts, mRegionCount + 1);
+            mRegionKinds[mRegionCount] = getKind(name, zoomLeft, zoomTop, zoomRight, zoomBottom);
+            mRegionProductStarts[mRegionCount] = mProductCount;
+            mRegionCount++;
+            return this;
+        }
+
+        /**
+         * Add a product to the last region.
+         */
+        public Builder addProduct(int productColorResId) {
+            if (mRegionCount == 0) {
+                throw new IllegalStateException("A product must be added to a region");
+            }
+            mProductColorResIds = ensureCapacity(mProductColorResIds, mProductCount + 1);
+            mProductColorResIds[mProductCount] = productColorResId;
+            mProductCount++;
+            return this;
+        }
+
+        private int getKind(String name, float zoomLeft, float zoomTop, float zoomRight, float zoomBottom) {
+            mKindKey.set(name, zoomLeft, zoomTop, zoomRight, zoomBottom);
+            Integer kind = mKindIndexes.get(mKindKey);
+            if (kind != null) {
+                return kind;
+            }
+
+            int newKind = mKindIndexes.size();
+            RegionKind key = new RegionKind();
+            key.set(name, zoomLeft, zoomTop, zoomRight, zoomBottom);
+            mKindIndexes.put(key, newKind);
+            if (mKindNames.length <= newKind) {
+                mKindNames = Arrays.copyOf(mKindNames, mKindNames.length * 2);
+            }
+            mKindNames[newKind] = name;
+            mKindZoomRects = ensureCapacity(mKindZoomRects, (newKind + 1) * ZOOM_VALUES);
+            mKindZoomRects[newKind * ZOOM_VALUES] = zoomLeft;
+            mKindZoomRects[newKind * ZOOM_VALUES + 1] = zoomTop;
+            mKindZoomRects[newKind * ZOOM_VALUES + 2] = zoomRight;
+            mKindZoomRects[newKind * ZOOM_VALUES + 3] = zoomBottom;
+            return newKind;
+        }
+
+        public LookCatalog build() {
+            // The start of the next look and region closes the last ones
+            int[] lookRegionStarts = Arrays.copyOf(mLookRegionStarts, mLookCount + 1);
+            lookRegionStarts[mLookCount] = mRegionCount;
+            int[] regionProductStarts = Arrays.copyOf(mRegionProductStarts, mRegionCount + 1);
+            regionProductStarts[mRegionCount] = mProductCount;
+            int kindCount = mKindIndexes.size();
+            return new LookCatalog(mLookCount, Arrays.copyOf(mLookPictureResIds, mLookCount), lookRegionStarts,
+                    Arrays.copyOf(mRegionKinds, mRegionCount), regionProductStarts,
+                    Arrays.copyOf(mProductColorResIds, mProductCount), Arrays.copyOf(mKindNames, kindCount),
+                    Arrays.copyOf(mKindZoomRects, kindCount * ZOOM_VALUES));
+        }
+
+        private static int[] ensureCapacity(int[] array, int size) {
+            return size <= array.length ? array : Arrays.copyOf(array, Math.max(size, array.length * 2));
+        }
+
+        private static float[] ensureCapacity(float[] array, int size) {
+            return size <= array.length ? array : Arrays.copyOf(array, Math.max(size, array.length * 2));
+        }
+
+    }
+
+    /**
+     * Name and zoom rectangle shared by regions.
+     */
+    private static final class RegionKind {
+
+        private String mName;
+        private float mZoomLeft;
+        private float mZoomTop;
+        private float mZoomRight;
+        private float mZoomBottom;
+
+        void set(String name, float zoomLeft, float zoomTop, float zoomRight, float zoomBottom) {
+            mName = name;
+            mZoomLeft = zoomLeft;
+            mZoomTop = zoomTop;
+            mZoomRight = zoomRight;
+            mZoomBottom = zoomBottom;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (!(o instanceof RegionKind)) {
+                return false;
+            }
+            RegionKind kind = (RegionKind) o;
+            return mName.equals(kind.mName) && Float.compare(mZoomLeft, kind.mZoomLeft) == 0
+                    && Float.compare(mZoomTop, kind.mZoomTop) == 0 && Float.compare(mZoomRight, kind.mZoomRight) == 0
+                    && Float.compare(mZoomBottom, kind.mZoomBottom) == 0;
+        }
+
+        @Override
+        public int hashCode() {
+            int hash = mName.hashCode();
+            hash = 31 * hash + Float.floatToIntBits(mZoomLeft);
+            hash = 31 * hash + Float.floatToIntBits(mZoomTop);
+            hash = 31 * hash + Float.floatToIntBits(mZoomRight);
+            return 31 * hash + Float.floatToIntBits(mZoomBottom);
+        }
+
+    }
+
+    // endregion
+
+
+    // region Flyweights
+
+    private static final class LookList extends AbstractList<LookModel> implements RandomAccess {
+
+        private final LookCatalog mCatalog;
+
+        LookList(LookCatalog catalog) {
+            mCatalog = catalog;
+        }
+
+        @Override
+        public LookModel get(int location) {
+            return mCatalog.getLook(location);
+        }
+
+        @Override
+        public int size() {
+            return mCatalog.getLookCount();
+        }
+
+    }
+
+    private static final class LookView extends LookModel {
+
+        private final LookCatalog mCatalog;
+        private final int mLookIndex;
+        private RegionList mRegionList;
+
+        LookView(LookCatalog catalog, int lookIndex) {
+            mCatalog = catalog;
+            mLookIndex = lookIndex;
+        }
+
+        @Override
+        public int getLookPictureResId() {
+            return mCatalog.getLookPictureResId(mLookIndex);
+        }
+
+        @Override
+        public void setLookPictureResId(int lookPictureResId) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public List<LookRegion> getRegionList() {
+            if (mRegionList == null) {
+                mRegionList = new RegionList(mCatalog, mCatalog.getFirstRegion(mLookIndex),
+                        mCatalog.getRegionCount(mLookIndex));
+            }
+            return mRegionList;
+        }
+
+        @Override
+        public void setRegionList(List<LookRegion> regionList) {
+            throw new UnsupportedOperationException();
+        }
+
+    }
+
+    private static final class RegionList extends AbstractList<LookRegion> implements RandomAccess {
+
+        private final LookCatalog mCatalog;
+        private final int mFirstRegion;
+        private final int mRegionCount;
+        private final RegionView[] mRegions;
+
+        RegionList(LookCatalog catalog, int firstRegion, int regionCount) {
+            mCatalog = catalog;
+            mFirstRegion = firstRegion;
+            mRegionCount = regionCount;
+            mRegions = new RegionView[regionCount];
+        }
+
+        @Override
+        public LookRegion get(int location) {
+            if (location < 0 || location >= mRegionCount) {
+                throw new IndexOutOfBoundsException("Invalid region " + location + ", size is " + mRegionCount);
+            }
+            if (mRegions[location] == null) {
+                mRegions[location] = new RegionView(mCatalog, mFirstRegion + location);
+            }
+            return mRegions[location];
+        }
+
+        @Override
+        public int size() {
+            return mRegionCount;
+        }
+
+    }
+
+    private static final class RegionView extends LookRegion {
+
+        private final LookCatalog mCatalog;
+        private final int mRegionIndex;
+        private ProductList mProductList;
+
+        RegionView(LookCatalog catalog, int regionIndex) {
+            mCatalog = catalog;
+            mRegionIndex = regionIndex;
+        }
+
+        @Override
+        public String getName() {
+            return mCatalog.getRegionName(mRegionIndex);
+        }
+
+        @Override
+        public void setName(String name) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public float getZoomLeft() {
+            return mCatalog.getRegionZoomLeft(mRegionIndex);
+        }
+
+        @Override
+        public float getZoomTop() {
+            return mCatalog.getRegionZoomTop(mRegionIndex);
+        }
+
+        @Override
+        public float getZoomRight() {
+            return mCatalog.getRegionZoomRight(mRegionIndex);
+        }
+
+        @Override
+        public float getZoomBottom() {
+            return mCatalog.getRegionZoomBottom(mRegionIndex);
+        }
+
+        @Override
+        public void setZoomRect(float zoomLeft, float zoomTop, float zoomRight, float zoomBottom) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public List<ProductModel> getProductList() {
+            if (mProductList == null) {
+                mProductList = new ProductList(mCatalog, mCatalog.getFirstProduct(mRegionIndex),
+                        mCatalog.getProductCount(mRegionIndex));
+            }
+            return mProductList;
+        }
+
+        @Override
+        public void setProductList(List<ProductModel> productList) {
+            throw new UnsupportedOperationException();
+        }
+
+    }
+
+    private static final class ProductList extends AbstractList<ProductModel> implements RandomAccess {
+
+        private final LookCatalog mCatalog;
+        private final int mFirstProduct;
+        private final int mProductCount;
+        private final ProductView[] mProducts;
+
+        ProductList(LookCatalog catalog, int firstProduct, int productCount) {
+            mCatalog = catalog;
+            mFirstProduct = firstProduct;
+            mProductCount = productCount;
+            mProducts = new ProductView[productCount];
+        }
+
+        @Override
+        public ProductModel get(int location) {
+            if (location < 0 || location >= mProductCount) {
+                throw new IndexOutOfBoundsException("Invalid product " + location + ", size is " + mProductCount);
+            }
+            if (mProducts[location] == null) {
+                mProducts[location] = new ProductView(mCatalog, mFirstProduct + location);
+            }
+            return mProducts[location];
+        }
+
+        @Override
+        public int size() {
+            return mProductCount;
+        }
+
+    }
+
+    private static final class ProductView extends ProductModel {
+
+        private final LookCatalog mCatalog;
+        private final int mProductIndex;
+
+        ProductView(LookCatalog catalog, int productIndex) {
+            mCatalog = catalog;
+            mProductIndex = productIndex;
+        }
+
+        @Override
+        public int getProductColorResId() {
+            return mCatalog.getProductColorResId(mProductIndex);
+        }
+
+        @Override
+        public void setProductColorResId(int productColorResId) {
+            throw new UnsupportedOperationException();
+        }
+
+    }
+
+    // endregion
+
+}
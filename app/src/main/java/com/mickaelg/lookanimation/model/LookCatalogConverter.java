@@ -0,0 +1,211 @@
+package com.mickaelg.lookanimation.model;
+
+import java.io.BufferedReader;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.Reader;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Convert a JSON catalog of looks to the binary format read by {@link MappedLookCatalog}. The JSON catalog looks like:
+ * <pre>
+ * {"looks": [
+ *   {"picture": "suit", "regions": [
+ *     {"name": "upper_body", "zoom": [0.07, 0.1, 0.64, 0.67], "products": [{"color": "red"}, {"color": "indigo"}]}
+ *   ]}
+ * ]}
+ * </pre>
+ * Pictures and colors are referenced by the names of their resources, since the resource ids change with each build.
+ * Unknown fields are skipped. The JSON catalog is read one look at a time by a {@link LookFeedParser}.
+ * <p/>
+ * The converter runs on the build machine, with the JSON catalog and the binary file to write as arguments.
+ */
+public final class LookCatalogConverter {
+
+    // region Properties
+
+    private static final String ENCODING = "UTF-8";
+
+    /**
+     * Records of the looks converted so far, and the offset of each one from the first.
+     */
+    private final ByteArrayOutputStream mRecordBytes = new ByteArrayOutputStream();
+    private final DataOutputStream mRecords = new DataOutputStream(mRecordBytes);
+    private int[] mLookOffsets = new int[16];
+    private int mLookCount = 0;
+    /**
+     * Index of each string in the string table, in the order they were met.
+     */
+    private final Map<String, Integer> mStringIndexes = new LinkedHashMap<>();
+
+    // endregion
+
+
+    // region Constructors
+
+    private LookCatalogConverter() {
+    }
+
+    /**
+     * Convert the JSON catalog read from the reader, and write the binary catalog to the output. The reader is
+     * closed, not the output.
+     */
+    public static void convert(Reader json, OutputStream output) throws IOException {
+        LookCatalogConverter converter = new LookCatalogConverter();
+        LookFeedParser parser = new LookFeedParser(json, converter.mStringResolver);
+        try {
+            converter.readCatalog(parser);
+        } finally {
+            parser.close();
+        }
+        converter.write(output);
+    }
+
+    public static void main(String[] args) throws IOException {
+        if (args.length != 2) {
+            System.err.println("Usage: LookCatalogConverter <catalog.json> <catalog.lkc>");
+            System.exit(1);
+        }
+
+        Reader json = new BufferedReader(new InputStreamReader(new FileInputStream(args[0]), ENCODING));
+        OutputStream output = new FileOutputStream(args[1]);
+        try {
+            convert(json, output);
+        } finally {
+            output.close();
+        }
+    }
+
+    // endregion
+
+
+    // region Looks
+
+    /**
+     * Read the looks one by one, the names of their pictures and colors resolved to indexes in the string table.
+     */
+    private void readCatalog(LookFeedParser parser) throws IOException {
+        LookModel look;
+        while ((look = parser.nextLook()) != null) {
+            writeLook(look);
+        }
+    }
+
+    private void writeLook(LookModel look) throws IOException {
+        List<LookRegion> regionList = look.getRegionList();
+        if (regionList.size() > MappedLookCatalog.MAX_COUNT) {
+            throw new IOException("Look " + mLookCount + " has too many regions");
+        }
+        if (mLookCount == mLookOffsets.length) {
+            mLookOffsets = Arrays.copyOf(mLookOffsets, mLookCount * 2);
+        }
+        mLookOffsets[mLookCount++] = mRecords.size();
+        mRecords.writeInt(look.getLookPictureResId());
+        mRecords.writeShort(regionList.size());
+
+        for (LookRegion region : regionList) {
+            List<ProductModel> productList = region.getProductList();
+            if (productList.size() > MappedLookCatalog.MAX_COUNT) {
+                throw new IOException("Region " + region.getName() + " of look " + mLookCount
+                        + " has too many products");
+            }
+            mRecords.writeInt(getStringIndex(region.getName()));
+            mRecords.writeFloat(region.getZoomLeft());
+            mRecords.writeFloat(region.getZoomTop());
+            mRecords.writeFloat(region.getZoomRight());
+            mRecords.writeFloat(region.getZoomBottom());
+            mRecords.writeShort(productList.size());
+            for (ProductModel product : productList) {
+                mRecords.writeInt(product.getProductColorResId());
+            }
+        }
+    }
+
+    private int getStringIndex(String string) {
+        Integer index = mStringIndexes.get(string);
+        if (index == null) {
+            index = mStringIndexes.size();
+            mStringIndexes.put(string, index);
+        }
+        return index;
+    }
+
+    /**
+     * Store the names of the pictures and colors in the looks as their indexes in the string table.
+     */
+    private final MappedLookCatalog.ResourceResolver mStringResolver = new MappedLookCatalog.ResourceResolver() {
+        @Override
+        public int getDrawableResId(String name) {
+            return getStringIndex(name);
+        }
+
+        @Override
+        public int getColorResId(String name) {
+            return getStringIndex(name);
+        }
+    };
+
+    // endregion
+
+
+    // region Binary
+
+    /**
+     * Write the header, then the string table and its index, then the look index and the look records.
+     */
+    private void write(OutputStream output) throws IOException {
+        ByteArrayOutputStream stringBytes = new ByteArrayOutputStream();
+        DataOutputStream strings = new DataOutputStream(stringBytes);
+        int[] stringOffsets = new int[mStringIndexes.size()];
+        int stringIndex = 0;
+        for (String string : mStringIndexes.keySet()) {
+            byte[] bytes = string.getBytes(ENCODING);
+            if (bytes.length > MappedLookCatalog.MAX_COUNT) {
+                throw new IOException("String too long: " + string);
+            }
+            stringOffsets[stringIndex++] = strings.size();
+            strings.writeShort(bytes.length);
+            strings.write(bytes);
+        }
+
+        int stringCount = stringOffsets.length;
+        int stringIndexOffset = MappedLookCatalog.HEADER_SIZE;
+        int stringsOffset = stringIndexOffset + 4 * stringCount;
+        int lookIndexOffset = stringsOffset + strings.size();
+        int recordsOffset = lookIndexOffset + 4 * mLookCount;
+        long length = (long) recordsOffset + mRecords.size();
+        if (length > Integer.MAX_VALUE) {
+            throw new IOException("Catalog too large");
+        }
+
+        DataOutputStream out = new DataOutputStream(output);
+        out.writeInt(MappedLookCatalog.MAGIC);
+        out.writeInt(MappedLookCatalog.VERSION);
+        out.writeInt(mLookCount);
+        out.writeInt(stringCount);
+        out.writeInt(stringIndexOffset);
+        out.writeInt(lookIndexOffset);
+        out.writeInt((int) length);
+        out.writeInt(0);
+        for (int offset : stringOffsets) {
+            out.writeInt(stringsOffset + offset);
+        }
+        stringBytes.writeTo(out);
+        for (int i = 0; i < mLookCount; i++) {
+            out.writeInt(recordsOffset + mLookOffsets[i]);
+        }
+        mRecordBytes.writeTo(out);
+        out.flush();
+    }
+
+    // endregion
+
+}
@@ -0,0 +1,294 @@
+package com.mickaelg.lookanimation.model;
+
+import android.support.annotation.Nullable;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Looks serialized in a directory, one small file per look, kept within a budget of bytes. When a new look doesn't
+ * fit, the files read or written the least recently are deleted.
+ * <p/>
+ * The looks are stored with their resource ids, which change from a build to the other: the directory must be
+ * specific to the installed build. The index of the files is kept in memory, rebuilt from their dates when the cache
+ * is opened. Every method can be called from any thread.
+ */
+public final class LookDiskCache {
+
+    // region Properties
+
+    private static final int FORMAT_VERSION = 1;
+    private static final String EXTENSION = ".look";
+    private static final String TEMP_EXTENSION = ".tmp";
+    /**
+     * Largest number of regions or products read, so a corrupted file can't allocate much.
+     */
+    private static final int MAX_COUNT = 0xFFFF;
+
+    private final File mDirectory;
+    private final long mMaxBytes;
+    private long mBytes = 0;
+    /**
+     * Size of the file of each look, from the least recently used to the most recently used.
+     */
+    private final LinkedHashMap<Integer, Long> mFileSizes = new LinkedHashMap<>(16, 0.75f, true);
+
+    private int mHitCount = 0;
+    private int mMissCount = 0;
+    private int mEvictionCount = 0;
+
+    // endregion
+
+
+    // region Constructors
+
+    /**
+     * Open the cache in the given directory, creating it if needed. Lists the directory, so better called on a
+     * background thread.
+     */
+    public LookDiskCache(File directory, long maxBytes) throws IOException {
+        mDirectory = directory;
+        mMaxBytes = maxBytes;
+        if (!directory.isDirectory() && !directory.mkdirs()) {
+            throw new IOException("Can't create the look cache in " + directory);
+        }
+
+        File[] files = directory.listFiles();
+        if (files == null) {
+            throw new IOException("Can't list the look cache in " + directory);
+        }
+        // Oldest files first, so they are the first evicted
+        Arrays.sort(files, new Comparator<File>() {
+            @Override
+            public int compare(File lhs, File rhs) {
+                long lhsModified = lhs.lastModified();
+                long rhsModified = rhs.lastModified();
+                return lhsModified < rhsModified ? -1 : (lhsModified == rhsModified ? 0 : 1);
+            }
+        });
+        for (File file : files) {
+            Integer key = getKey(file);
+            if (key == null) {
+                // Left by a write that didn't complete
+                deleteFile(file);
+            } else {
+                mFileSizes.put(key, file.length());
+                mBytes += file.length();
+            }
+        }
+        trimToSize(mMaxBytes);
+    }
+
+    // endregion
+
+
+    // region Cache
+
+    /**
+     * @return The look stored under the key, or null if there is none or it can't be read
+     */
+    @Nullable
+    public synchronized LookModel get(int key) {
+        if (!mFileSizes.containsKey(key)) {
+            mMissCount++;
+            return null;
+        }
+
+        File file = getFile(key);
+        try {
+            DataInputStream input = new DataInputStream(new BufferedInputStream(new FileInputStream(file)));
+            try {
+                LookModel look = readLook(input);
+                // Most recently used now, also when the cache is opened again
+                mFileSizes.get(key);
+                //noinspection ResultOfMethodCallIgnored
+                file.setLastModified(System.currentTimeMillis());
+                mHitCount++;
+                return look;
+            } finally {
+                input.close();
+            }
+        } catch (IOException e) {
+            remove(key);
+            mMissCount++;
+            return null;
+        }
+    }
+
+    /**
+     * Store a look under the key, replacing the previous one, then evict the least recently used looks if the cache
+     * is over its budget.
+     */
+    public synchronized void put(int key, LookModel look) throws IOException {
+        File tempFile = new File(mDirectory, key + TEMP_EXTENSION);
+        DataOutputStream output = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(tempFile)));
+        try {
+            writeLook(look, output);
+        } finally {
+            output.close();
+        }
+
+        remove(key);
+        File file = getFile(key);
+        if (!tempFile.renameTo(file)) {
+            deleteFile(tempFile);
+            throw new IOException("Can't write the look " + key + " to the cache");
+        }
+        mFileSizes.put(key, file.length());
+        mBytes += file.length();
+        trimToSize(mMaxBytes);
+    }
+
+    public synchronized boolean contains(int key) {
+        return mFileSizes.containsKey(key);
+    }
+
+    /**
+     * Evict the least recently used looks until the cache uses at most the given number of bytes. The budget of the
+     * cache doesn't change.
+     */
+    public synchronized void trimToSize(long maxBytes) {
+        Iterator<Map.Entry<Integer, Long>> iterator = mFileSizes.entrySet().iterator();
+        while (mBytes > maxBytes && iterator.hasNext()) {
+            Map.Entry<Integer, Long> entry = iterator.next();
+            iterator.remove();
+            mBytes -= entry.getValue();
+            deleteFile(getFile(entry.getKey()));
+            mEvictionCount++;
+        }
+    }
+
+    /**
+     * Delete every look.
+     */
+    public synchronized void clear() {
+        List<Integer> keys = new ArrayList<>(mFileSizes.keySet());
+        for (Integer key : keys) {
+            remove(key);
+        }
+    }
+
+    private void remove(int key) {
+        Long size = mFileSizes.remove(key);
+        if (size != null) {
+            mBytes -= size;
+            deleteFile(getFile(key));
+        }
+    }
+
+    private File getFile(int key) {
+        return new File(mDirectory, key + EXTENSION);
+    }
+
+    @Nullable
+    private static Integer getKey(File file) {
+        String name = file.getName();
+        if (!name.endsWith(EXTENSION)) {
+            return null;
+        }
+        try {
+            return Integer.valueOf(name.substring(0, name.length() - EXTENSION.length()));
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
+    private static void deleteFile(File file) {
+        //noinspection ResultOfMethodCallIgnored
+        file.delete();
+    }
+
+    // endregion
+
+
+    // region Serialization
+
+    private static void writeLook(LookModel look, DataOutputStream output) throws IOException {
+        output.writeInt(FORMAT_VERSION);
+        output.writeInt(look.getLookPictureResId());
+        List<LookRegion> regionList = look.getRegionList();
+        output.writeInt(regionList.size());
+        for (LookRegion region : regionList) {
+            output.writeUTF(region.getName());
+            output.writeFloat(region.getZoomLeft());
+            output.writeFloat(region.getZoomTop());
+            output.writeFloat(region.getZoomRight());
+            output.writeFloat(region.getZoomBottom());
+            List<ProductModel> productList = region.getProductList();
+            output.writeInt(productList.size());
+            for (ProductModel product : productList) {
+                output.writeInt(product.getProductColorResId());
+            }
+        }
+    }
+
+    private static LookModel readLook(DataInputStream input) throws IOException {
+        if (input.readInt() != FORMAT_VERSION) {
+            throw new IOException("Unsupported look format");
+        }
+        int lookPictureResId = input.readInt();
+        int regionCount = input.readInt();
+        if (regionCount < 0 || regionCount > MAX_COUNT) {
+            throw new IOException("Invalid region count " + regionCount);
+        }
+        List<LookRegion> regionList = new ArrayList<>(regionCount);
+        for (int i = 0; i < regionCount; i++) {
+            String name = input.readUTF();
+            float zoomLeft = input.readFloat();
+            float zoomTop = input.readFloat();
+            float zoomRight = input.readFloat();
+            float zoomBottom = input.readFloat();
+            int productCount = input.readInt();
+            if (productCount < 0 || productCount > MAX_COUNT) {
+                throw new IOException("Invalid product count " + productCount);
+            }
+            List<ProductModel> productList = new ArrayList<>(productCount);
+            for (int j = 0; j < productCount; j++) {
+                productList.add(new ProductModel(input.readInt()));
+            }
+            regionList.add(new LookRegion(name, zoomLeft, zoomTop, zoomRight, zoomBottom, productList));
+        }
+        return new LookModel(lookPictureResId, regionList);
+    }
+
+    // endregion
+
+
+    // region Getters
+
+    public synchronized long getSize() {
+        return mBytes;
+    }
+
+    public synchronized long getMaxSize() {
+        return mMaxBytes;
+    }
+
+    public synchronized int getHitCount() {
+        return mHitCount;
+    }
+
+    public synchronized int getMissCount() {
+        return mMissCount;
+    }
+
+    public synchronized int getEvictionCount() {
+        return mEvictionCount;
+    }
+
+    // endregion
+
+}
@@ -0,0 +1,234 @@
+package com.mickaelg.lookanimation.model;
+
+import android.support.annotation.Nullable;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Pull parser of a JSON document of looks, in the format described by {@link LookCatalogConverter}. Each call to
+ * {@link #nextLook()} reads the document up to the end of the next look only, so the first looks can be displayed
+ * while the rest of the document is still being received.
+ * <p/>
+ * The parser only holds the look being read, a buffer of a few kilobytes and the resource ids of the names met, so its
+ * memory doesn't depend on the size of the document. Unknown fields are skipped.
+ */
+public final class LookFeedParser {
+
+    // region Properties
+
+    private final JsonPullReader mReader;
+    private final MappedLookCatalog.ResourceResolver mResolver;
+    /**
+     * True once the reader is inside the document.
+     */
+    private boolean mStarted = false;
+    private boolean mEnded = false;
+    private int mLookCount = 0;
+    /**
+     * Resource ids of the names already resolved, feeds repeating the same few pictures and colors.
+     */
+    private final Map<String, Integer> mDrawableResIds = new HashMap<>();
+    private final Map<String, Integer> mColorResIds = new HashMap<>();
+
+    // endregion
+
+
+    // region Constructors
+
+    /**
+     * @param reader   Document to parse, read by blocks as the looks are pulled
+     * @param resolver Resolver of the names of the pictures and colors
+     */
+    public LookFeedParser(Reader reader, MappedLookCatalog.ResourceResolver resolver) {
+        mReader = new JsonPullReader(reader);
+        mResolver = resolver;
+    }
+
+    // endregion
+
+
+    // region Parsing
+
+    /**
+     * Read the next look of the document.
+     *
+     * @return The next look, or null at the end of the document
+     * @throws IOException If the document can't be read or isn't a valid catalog
+     */
+    @Nullable
+    public LookModel nextLook() throws IOException {
+        if (mEnded) {
+            return null;
+        }
+        if (!mStarted) {
+            mStarted = true;
+            mReader.beginObject();
+            if (!findLooks()) {
+                finish();
+                return null;
+            }
+        }
+
+        if (!mReader.hasNext()) {
+            mReader.endArray();
+            finish();
+            return null;
+        }
+        LookModel look = readLook();
+        mLookCount++;
+        return look;
+    }
+
+    /**
+     * Read the remaining looks of the document into a compact store.
+     *
+     * @return The number of looks added
+     */
+    public int readInto(LookCatalog.Builder builder) throws IOException {
+        int lookCount = 0;
+        LookModel look;
+        while ((look = nextLook()) != null) {
+            builder.addLook(look);
+            lookCount++;
+        }
+        return lookCount;
+    }
+
+    /**
+     * @return Number of looks read so far
+     */
+    public int getLookCount() {
+        return mLookCount;
+    }
+
+    public void close() throws IOException {
+        mEnded = true;
+        mReader.close();
+    }
+
+    /**
+     * Move the reader into the array of looks of the document.
+     *
+     * @return False if the document has no looks
+     */
+    private boolean findLooks() throws IOException {
+        while (mReader.hasNext()) {
+            if ("looks".equals(mReader.nextName())) {
+                mReader.beginArray();
+                return true;
+            }
+            mReader.skipValue();
+        }
+        return false;
+    }
+
+    /**
+     * Skip the fields after the looks, still checking the document is complete.
+     */
+    private void finish() throws IOException {
+        while (mReader.hasNext()) {
+            mReader.nextName();
+            mReader.skipValue();
+        }
+        mReader.endObject();
+        mEnded = true;
+    }
+
+    private LookModel readLook() throws IOException {
+        String picture = null;
+        List<LookRegion> regionList = new ArrayList<>(2);
+
+        mReader.beginObject();
+        while (mReader.hasNext()) {
+            String name = mReader.nextName();
+            if ("picture".equals(name)) {
+                picture = mReader.nextString();
+            } else if ("regions".equals(name)) {
+                mReader.beginArray();
+                while (mReader.hasNext()) {
+                    regionList.add(readRegion());
+                }
+                mReader.endArray();
+            } else {
+                mReader.skipValue();
+            }
+        }
+        mReader.endObject();
+
+        if (picture == null) {
+            throw new IOException("Look " + mLookCount + " has no picture");
+        }
+        return new LookModel(getResId(picture, true), regionList);
+    }
+
+    private LookRegion readRegion() throws IOException {
+        String name = null;
+        float[] zoomRect = null;
+        List<ProductModel> productList = new ArrayList<>();
+
+        mReader.beginObject();
+        while (mReader.hasNext()) {
+            String field = mReader.nextName();
+            if ("name".equals(field)) {
+                name = mReader.nextString();
+            } else if ("zoom".equals(field)) {
+                zoomRect = new float[4];
+                mReader.beginArray();
+                for (int i = 0; i < zoomRect.length; i++) {
+                    zoomRect[i] = (float) mReader.nextDouble();
+                }
+                mReader.endArray();
+            } else if ("products".equals(field)) {
+                mReader.beginArray();
+                while (mReader.hasNext()) {
+                    productList.add(readProduct());
+                }
+                mReader.endArray();
+            } else {
+                mReader.skipValue();
+            }
+        }
+        mReader.endObject();
+
+        if (name == null || zoomRect == null) {
+            throw new IOException("A region of look " + mLookCount + " has no name or zoom rectangle");
+        }
+        return new LookRegion(name, zoomRect[0], zoomRect[1], zoomRect[2], zoomRect[3], productList);
+    }
+
+    private ProductModel readProduct() throws IOException {
+        String color = null;
+        mReader.beginObject();
+        while (mReader.hasNext()) {
+            if ("color".equals(mReader.nextName())) {
+                color = mReader.nextString();
+            } else {
+                mReader.skipValue();
+            }
+        }
+        mReader.endObject();
+
+        if (color == null) {
+            throw new IOException("A product of look " + mLookCount + " has no color");
+        }
+        return new ProductModel(getResId(color, false));
+    }
+
+    private int getResId(String name, boolean drawable) {
+        Map<String, Integer> resIds = drawable ? mDrawableResIds : mColorResIds;
+        Integer resId = resIds.get(name);
+        if (resId == null) {
+            resId = drawable ? mResolver.getDrawableResId(name) : mResolver.getColorResId(name);
+            resIds.put(name, resId);
+        }
+        return resId;
+    }
+
+    // endregion
+
+}
@@ -0,0 +1,42 @@
+package com.mickaelg.lookanimation.model;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.Reader;
+
+/**
+ * Source of a JSON document of looks, read by a {@link LookFeedParser} as it is received.
+ */
+public interface LookFeedSource {
+
+    /**
+     * Open the document, on a background thread. The caller closes the reader.
+     */
+    Reader open() throws IOException;
+
+    /**
+     * Stand-in for a remote feed, reading the document from a local file.
+     */
+    final class LocalFile implements LookFeedSource {
+
+        private final File mFile;
+
+        public LocalFile(File file) {
+            mFile = file;
+        }
+
+        @Override
+        public Reader open() throws IOException {
+            // Not buffered, the parser already reads by blocks
+            return new InputStreamReader(new FileInputStream(mFile), "UTF-8");
+        }
+
+        public boolean exists() {
+            return mFile.isFile();
+        }
+
+    }
+
+}
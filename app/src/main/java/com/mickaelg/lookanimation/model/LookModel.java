@@ -12,16 +12,46 @@ import java.util.List;
  */
 public class LookModel {
 
+    /**
+     * Zoom rectangle of the upper body of a look, in fractions of the picture size.
+     */
+    private static final float[] UPPER_BODY_ZOOM_RECT = {0.0714f, 0.1f, 0.6429f, 0.6714f};
+    /**
+     * Zoom rectangle of the lower body of a look, in fractions of the picture size.
+     */
+    private static final float[] LOWER_BODY_ZOOM_RECT = {0.0714f, 0.3286f, 0.6429f, 0.9f};
+
     @DrawableRes
     private int lookPictureResId;
-    private List<ProductModel> upperBodyProductList;
-    private List<ProductModel> lowerBodyProductList;
+    /**
+     * Regions of the look, ordered from the top to the bottom of the picture.
+     */
+    private List<LookRegion> regionList;
+
+    /**
+     * Used by the looks reading their values from somewhere else, like the flyweights of a {@link LookCatalog}.
+     */
+    protected LookModel() {
+    }
 
+    public LookModel(int lookPictureResId, List<LookRegion> regionList) {
+        this.lookPictureResId = lookPictureResId;
+        this.regionList = regionList;
+    }
+
+    /**
+     * Create a look with the two default regions, the upper body and the lower body.
+     */
     public LookModel(int lookPictureResId, List<ProductModel> upperBodyProductList,
                      List<ProductModel> lowerBodyProductList) {
         this.lookPictureResId = lookPictureResId;
-        this.upperBodyProductList = upperBodyProductList;
-        this.lowerBodyProductList = lowerBodyProductList;
+        this.regionList = new ArrayList<>(2);
+        this.regionList.add(createRegion("upper_body", UPPER_BODY_ZOOM_RECT, upperBodyProductList));
+        this.regionList.add(createRegion("lower_body", LOWER_BODY_ZOOM_RECT, lowerBodyProductList));
+    }
+
+    private static LookRegion createRegion(String name, float[] zoomRect, List<ProductModel> productList) {
+        return new LookRegion(name, zoomRect[0], zoomRect[1], zoomRect[2], zoomRect[3], productList);
     }
 
     public int getLookPictureResId() {
@@ -32,20 +62,28 @@ public class LookModel {
         this.lookPictureResId = lookPictureResId;
     }
 
+    public List<LookRegion> getRegionList() {
+        return regionList;
+    }
+
+    public void setRegionList(List<LookRegion> regionList) {
+        this.regionList = regionList;
+    }
+
     public List<ProductModel> getUpperBodyProductList() {
-        return upperBodyProductList;
+        return getRegionList().get(0).getProductList();
     }
 
     public void setUpperBodyProductList(List<ProductModel> upperBodyProductList) {
-        this.upperBodyProductList = upperBodyProductList;
+        getRegionList().get(0).setProductList(upperBodyProductList);
     }
 
     public List<ProductModel> getLowerBodyProductList() {
-        return lowerBodyProductList;
+        return getRegionList().get(1).getProductList();
     }
 
     public void setLowerBodyProductList(List<ProductModel> lowerBodyProductList) {
-        this.lowerBodyProductList = lowerBodyProductList;
+        getRegionList().get(1).setProductList(lowerBodyProductList);
     }
 
     /**
@@ -0,0 +1,77 @@
+package com.mickaelg.lookanimation.model;
+
+import java.util.List;
+
+/**
+ * Part of a look the picture can zoom on, for example the upper body or the shoes, with the products worn there.
+ * <p/>
+ * The zoom rectangle is expressed in fractions of the picture size, so it doesn't depend on the screen.
+ */
+public class LookRegion {
+
+    private String name;
+    private float zoomLeft;
+    private float zoomTop;
+    private float zoomRight;
+    private float zoomBottom;
+    private List<ProductModel> productList;
+
+    /**
+     * Used by the regions reading their values from somewhere else, like the flyweights of a {@link LookCatalog}.
+     */
+    protected LookRegion() {
+    }
+
+    public LookRegion(String name, float zoomLeft, float zoomTop, float zoomRight, float zoomBottom,
+                      List<ProductModel> productList) {
+        this.name = name;
+        this.zoomLeft = zoomLeft;
+        this.zoomTop = zoomTop;
+        this.zoomRight = zoomRight;
+        this.zoomBottom = zoomBottom;
+        this.productList = productList;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public void setName(String name) {
+        this.name = name;
+    }
+
+    public float getZoomLeft() {
+        return zoomLeft;
+    }
+
+    public float getZoomTop() {
+        return zoomTop;
+    }
+
+    public float getZoomRight() {
+        return zoomRight;
+    }
+
+    public float getZoomBottom() {
+        return zoomBottom;
+    }
+
+    /**
+     * Set the part of the picture to zoom on, in fractions of the picture size.
+     */
+    public void setZoomRect(float zoomLeft, float zoomTop, float zoomRight, float zoomBottom) {
+        this.zoomLeft = zoomLeft;
+        this.zoomTop = zoomTop;
+        this.zoomRight = zoomRight;
+        this.zoomBottom = zoomBottom;
+    }
+
+    public List<ProductModel> getProductList() {
+        return productList;
+    }
+
+    public void setProductList(List<ProductModel> productList) {
+        this.productList = productList;
+    }
+
+}
@@ -0,0 +1,305 @@
+package com.mickaelg.lookanimation.model;
+
+import android.content.Context;
+import android.content.res.AssetFileDescriptor;
+import android.content.res.AssetManager;
+import android.content.res.Resources;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.UnsupportedEncodingException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.RandomAccess;
+
+/**
+ * Catalog of looks read from a binary file mapped in memory, written by {@link LookCatalogConverter}. Opening the
+ * catalog only maps the file and checks its header, and a look is read through the index only when it is asked for,
+ * so neither the time to open the catalog nor its memory depend on its number of looks.
+ * <p/>
+ * The file starts with a header of {@value #HEADER_SIZE} bytes: the magic number, the version, the number of looks and
+ * of strings, the offsets of the string index and of the look index, and the length of the file. The string index
+ * gives the offset of each string, stored as its length in bytes followed by its UTF-8 bytes. The look index gives
+ * the offset of the record of each look: the string of its picture, its number of regions, then for each region the
+ * string of its name, its zoom rectangle, its number of products and the string of the color of each product. Counts
+ * are unsigned shorts, everything else is big endian ints and floats.
+ * <p/>
+ * The catalog only does absolute reads in the buffer, so looks can be read from any thread.
+ */
+public final class MappedLookCatalog {
+
+    // region Properties
+
+    /**
+     * Resolve the names of the pictures and colors stored in the catalog to resource ids.
+     */
+    public interface ResourceResolver {
+
+        int getDrawableResId(String name);
+
+        int getColorResId(String name);
+
+    }
+
+    static final int MAGIC = 0x4C4B4354; // "LKCT"
+    static final int VERSION = 1;
+    static final int HEADER_SIZE = 32;
+    /**
+     * Largest number of regions or products, and largest string length, a record can store.
+     */
+    static final int MAX_COUNT = 0xFFFF;
+
+    private static final int ZOOM_SIZE = 16;
+    private static final String ENCODING = "UTF-8";
+
+    private final ByteBuffer mBuffer;
+    private final ResourceResolver mResolver;
+    private final int mLookCount;
+    private final int mStringCount;
+    private final int mStringIndexOffset;
+    private final int mLookIndexOffset;
+
+    /**
+     * Strings and resource ids already read, by string index, the drawable and color ids of a string side by side.
+     * Created on the first look read, since they are as big as the string table. Filling them from several threads is
+     * harmless, they always receive the same values.
+     */
+    private String[] mStrings;
+    private int[] mResIds;
+
+    // endregion
+
+
+    // region Constructors
+
+    private MappedLookCatalog(ByteBuffer buffer, ResourceResolver resolver) throws IOException {
+        mBuffer = buffer;
+        mResolver = resolver;
+
+        if (buffer.capacity() < HEADER_SIZE || buffer.getInt(0) != MAGIC) {
+            throw new IOException("Not a look catalog");
+        }
+        if (buffer.getInt(4) != VERSION) {
+            throw new IOException("Unsupported look catalog version " + buffer.getInt(4));
+        }
+        mLookCount = buffer.getInt(8);
+        mStringCount = buffer.getInt(12);
+        mStringIndexOffset = buffer.getInt(16);
+        mLookIndexOffset = buffer.getInt(20);
+        if (buffer.getInt(24) != buffer.capacity() || mLookCount < 0 || mStringCount < 0
+                || !isInBuffer(mStringIndexOffset, 4L * mStringCount)
+                || !isInBuffer(mLookIndexOffset, 4L * mLookCount)) {
+            throw new IOException("Truncated look catalog");
+        }
+    }
+
+    /**
+     * Read a catalog from a buffer holding a whole catalog file.
+     */
+    public static MappedLookCatalog wrap(ByteBuffer buffer, ResourceResolver resolver) throws IOException {
+        return new MappedLookCatalog(buffer.slice(), resolver);
+    }
+
+    /**
+     * Map a catalog file of the app storage.
+     */
+    public static MappedLookCatalog open(File file, ResourceResolver resolver) throws IOException {
+        FileInputStream input = new FileInputStream(file);
+        try {
+            FileChannel channel = input.getChannel();
+            return wrap(channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()), resolver);
+        } finally {
+            // The mapping stays valid once the file is closed
+            input.close();
+        }
+    }
+
+    /**
+     * Map a catalog file of the assets. The assets of the catalog must not be compressed in the APK, see the
+     * {@code aaptOptions} of the build.
+     */
+    public static MappedLookCatalog openAsset(AssetManager assets, String assetName, ResourceResolver resolver)
+            throws IOException {
+        AssetFileDescriptor descriptor = assets.openFd(assetName);
+        try {
+            FileChannel channel = descriptor.createInputStream().getChannel();
+            return wrap(channel.map(FileChannel.MapMode.READ_ONLY, descriptor.getStartOffset(),
+                    descriptor.getDeclaredLength()), resolver);
+        } finally {
+            descriptor.close();
+        }
+    }
+
+    // endregion
+
+
+    // region Looks
+
+    public int getLookCount() {
+        return mLookCount;
+    }
+
+    /**
+     * Read a look from the catalog.
+     *
+     * @return A new look, independent from the catalog
+     */
+    public LookModel getLook(int lookIndex) {
+        if (lookIndex < 0 || lookIndex >= mLookCount) {
+            throw new IndexOutOfBoundsException("Invalid look " + lookIndex + ", size is " + mLookCount);
+        }
+
+        int position = getRecordOffset(mLookIndexOffset, lookIndex);
+        checkRecord(position, 6);
+        int lookPictureResId = getResId(mBuffer.getInt(position), true);
+        int regionCount = mBuffer.getShort(position + 4) & MAX_COUNT;
+        position += 6;
+
+        List<LookRegion> regionList = new ArrayList<>(regionCount);
+        for (int i = 0; i < regionCount; i++) {
+            checkRecord(position, 4 + ZOOM_SIZE + 2);
+            String name = getString(mBuffer.getInt(position));
+            float zoomLeft = mBuffer.getFloat(position + 4);
+            float zoomTop = mBuffer.getFloat(position + 8);
+            float zoomRight = mBuffer.getFloat(position + 12);
+            float zoomBottom = mBuffer.getFloat(position + 16);
+            int productCount = mBuffer.getShort(position + 4 + ZOOM_SIZE) & MAX_COUNT;
+            position += 4 + ZOOM_SIZE + 2;
+
+            checkRecord(position, 4 * productCount);
+            List<ProductModel> productList = new ArrayList<>(productCount);
+            for (int j = 0; j < productCount; j++) {
+                productList.add(new ProductModel(getResId(mBuffer.getInt(position), false)));
+                position += 4;
+            }
+            regionList.add(new LookRegion(name, zoomLeft, zoomTop, zoomRight, zoomBottom, productList));
+        }
+        return new LookModel(lookPictureResId, regionList);
+    }
+
+    /**
+     * @return The looks of the catalog, each one read when it is asked for
+     */
+    public List<LookModel> asList() {
+        return new LookList(this);
+    }
+
+    // endregion
+
+
+    // region Buffer
+
+    private boolean isInBuffer(int offset, long length) {
+        return offset >= 0 && offset + length <= mBuffer.capacity();
+    }
+
+    private int getRecordOffset(int indexOffset, int index) {
+        return mBuffer.getInt(indexOffset + 4 * index);
+    }
+
+    private void checkRecord(int offset, long length) {
+        if (!isInBuffer(offset, length)) {
+            throw new IllegalStateException("Corrupted look catalog at offset " + offset);
+        }
+    }
+
+    private String getString(int stringIndex) {
+        if (stringIndex < 0 || stringIndex >= mStringCount) {
+            throw new IllegalStateException("Corrupted look catalog, invalid string " + stringIndex);
+        }
+        if (mStrings == null) {
+            mStrings = new String[mStringCount];
+        }
+        String string = mStrings[stringIndex];
+        if (string != null) {
+            return string;
+        }
+
+        int position = getRecordOffset(mStringIndexOffset, stringIndex);
+        checkRecord(position, 2);
+        int length = mBuffer.getShort(position) & MAX_COUNT;
+        checkRecord(position + 2, length);
+        byte[] bytes = new byte[length];
+        ByteBuffer stringBuffer = mBuffer.duplicate();
+        stringBuffer.position(position + 2);
+        stringBuffer.get(bytes);
+        try {
+            string = new String(bytes, ENCODING);
+        } catch (UnsupportedEncodingException e) {
+            throw new IllegalStateException(e);
+        }
+        mStrings[stringIndex] = string;
+        return string;
+    }
+
+    private int getResId(int stringIndex, boolean drawable) {
+        String name = getString(stringIndex);
+        if (mResIds == null) {
+            mResIds = new int[2 * mStringCount];
+        }
+        // A name can be both a drawable and a color
+        int cacheIndex = 2 * stringIndex + (drawable ? 0 : 1);
+        int resId = mResIds[cacheIndex];
+        if (resId == 0) {
+            resId = drawable ? mResolver.getDrawableResId(name) : mResolver.getColorResId(name);
+            mResIds[cacheIndex] = resId;
+        }
+        return resId;
+    }
+
+    // endregion
+
+
+    // region Resources
+
+    /**
+     * Resolve the names with the resources of the app. The lookup is slow, but the catalog only does it once per name.
+     */
+    public static ResourceResolver createResourceResolver(Context context) {
+        final Resources resources = context.getResources();
+        final String packageName = context.getPackageName();
+        return new ResourceResolver() {
+            @Override
+            public int getDrawableResId(String name) {
+                return resources.getIdentifier(name, "drawable", packageName);
+            }
+
+            @Override
+            public int getColorResId(String name) {
+                return resources.getIdentifier(name, "color", packageName);
+            }
+        };
+    }
+
+    // endregion
+
+
+    // region LookList
+
+    private static final class LookList extends AbstractList<LookModel> implements RandomAccess {
+
+        private final MappedLookCatalog mCatalog;
+
+        LookList(MappedLookCatalog catalog) {
+            mCatalog = catalog;
+        }
+
+        @Override
+        public LookModel get(int location) {
+            return mCatalog.getLook(location);
+        }
+
+        @Override
+        public int size() {
+            return mCatalog.getLookCount();
+        }
+
+    }
+
+    // endregion
+
+}
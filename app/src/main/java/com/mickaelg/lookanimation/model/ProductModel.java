@@ -10,6 +10,12 @@ public class ProductModel {
     @ColorRes
     private int productPictureResId;
 
+    /**
+     * Used by the products reading their values from somewhere else, like the flyweights of a {@link LookCatalog}.
+     */
+    protected ProductModel() {
+    }
+
     public ProductModel(int productPictureResId) {
         this.productPictureResId = productPictureResId;
     }
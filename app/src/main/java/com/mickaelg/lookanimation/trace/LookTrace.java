@@ -0,0 +1,137 @@
+package com.mickaelg.lookanimation.trace;
+
+import android.os.Build;
+import android.os.Trace;
+
+import com.mickaelg.lookanimation.BuildConfig;
+
+import java.io.PrintWriter;
+
+/**
+ * Tracing of the hot paths of the looks: the gestures, the setup of the transitions and the binding of the pages.
+ * Sections are emitted with {@link Trace} from Jelly Bean MR2, so systrace and Perfetto captures show them, and events
+ * are recorded in a {@link TraceBuffer} printed by {@code adb shell dumpsys activity com.mickaelg.lookanimation}.
+ * <p/>
+ * Sections and events are ints, their names are constants: tracing never concatenates strings. Everything is guarded
+ * by {@link #ENABLED}, a constant of the build: in release builds the methods are empty and no buffer is allocated.
+ * <p/>
+ * Sections must be ended on the thread they began on, in the reverse order.
+ */
+public final class LookTrace {
+
+    // region Properties
+
+    /**
+     * True if the build traces, see the TRACE_ENABLED field of the build types.
+     */
+    public static final boolean ENABLED = BuildConfig.TRACE_ENABLED;
+
+    /**
+     * Handling of a touch event on a look.
+     */
+    public static final int SECTION_TOUCH = 0;
+    /**
+     * Setup of a transition of a look: its keyframes and animators.
+     */
+    public static final int SECTION_TRANSITION = 1;
+    /**
+     * Binding of a look to a page: its picture request and product strips.
+     */
+    public static final int SECTION_BIND = 2;
+    private static final String[] SECTION_NAMES = {"LookTouch", "LookTransition", "LookBind"};
+
+    /**
+     * Transition started by a tap, from a state to another one.
+     */
+    public static final int EVENT_TAP = 0;
+    /**
+     * Transition started by a fling, from a state to another one.
+     */
+    public static final int EVENT_FLING = 1;
+    /**
+     * Views released by the finger settling, from a state to another one.
+     */
+    public static final int EVENT_SETTLE = 2;
+    /**
+     * Pinch ended, from a state to the closest one.
+     */
+    public static final int EVENT_ZOOM = 3;
+    /**
+     * Look bound to a page: its picture and its state.
+     */
+    public static final int EVENT_BIND = 4;
+    /**
+     * Memory of the looks trimmed: the level of the request and the looks kept.
+     */
+    public static final int EVENT_TRIM = 5;
+    /**
+     * Transition, drag or settling of a look ended: the views drawn in a hardware layer and the frames of the views
+     * not drawn, see {@link com.mickaelg.lookanimation.ui.animation.LayerPolicy}.
+     */
+    public static final int EVENT_LAYERS = 6;
+    /**
+     * Moves of a frame handed to the gesture detectors as a single event: the moves merged and their samples.
+     */
+    public static final int EVENT_TOUCH_BATCH = 7;
+    private static final String[] EVENT_NAMES = {"TAP", "FLING", "SETTLE", "ZOOM", "BIND", "TRIM", "LAYERS",
+            "TOUCH_BATCH"};
+
+    /**
+     * Number of events kept, the most recent ones.
+     */
+    private static final int EVENT_CAPACITY = 512;
+
+    private static final TraceBuffer sEvents = ENABLED ? new TraceBuffer(EVENT_CAPACITY) : null;
+
+    // endregion
+
+
+    // region Constructors
+
+    private LookTrace() {
+    }
+
+    // endregion
+
+
+    // region Tracing
+
+    /**
+     * Begin a section, see {@link #SECTION_TOUCH}, {@link #SECTION_TRANSITION} and {@link #SECTION_BIND}.
+     */
+    public static void beginSection(int section) {
+        if (ENABLED && Build.VERSION.SDK_INT >= Build.VERSION_CODES.JELLY_BEAN_MR2) {
+            Trace.beginSection(SECTION_NAMES[section]);
+        }
+    }
+
+    /**
+     * End the last section begun on this thread.
+     */
+    public static void endSection() {
+        if (ENABLED && Build.VERSION.SDK_INT >= Build.VERSION_CODES.JELLY_BEAN_MR2) {
+            Trace.endSection();
+        }
+    }
+
+    /**
+     * Record an event, for example {@link #EVENT_TAP}, with two arguments whose meaning depends on the event.
+     */
+    public static void event(int event, int firstArg, int secondArg) {
+        if (ENABLED) {
+            sEvents.record(System.nanoTime(), event, firstArg, secondArg);
+        }
+    }
+
+    /**
+     * Print the events recorded, nothing in release builds.
+     */
+    public static void dump(String prefix, PrintWriter writer) {
+        if (ENABLED) {
+            sEvents.dump(prefix, writer, EVENT_NAMES);
+        }
+    }
+
+    // endregion
+
+}
@@ -0,0 +1,164 @@
+package com.mickaelg.lookanimation.trace;
+
+import java.io.PrintWriter;
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Ring buffer of trace events: the time of each event, its kind and two int arguments, in arrays allocated once.
+ * Recording an event neither allocates nor formats anything, the oldest events are overwritten once the buffer is
+ * full. The events are only turned into text when the buffer is dumped.
+ * <p/>
+ * Events can be recorded and dumped from any thread.
+ */
+public final class TraceBuffer {
+
+    // region Properties
+
+    private final long[] mTimes;
+    private final int[] mEvents;
+    private final int[] mFirstArgs;
+    private final int[] mSecondArgs;
+    /**
+     * Index the next event is written at.
+     */
+    private int mNext = 0;
+    /**
+     * Number of events recorded since the creation of the buffer or its last reset, overwritten ones included.
+     */
+    private long mRecordedCount = 0;
+
+    // endregion
+
+
+    // region Constructors
+
+    /**
+     * @param capacity Number of events kept, the most recent ones
+     */
+    public TraceBuffer(int capacity) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("The capacity must be positive: " + capacity);
+        }
+        mTimes = new long[capacity];
+        mEvents = new int[capacity];
+        mFirstArgs = new int[capacity];
+        mSecondArgs = new int[capacity];
+    }
+
+    // endregion
+
+
+    // region Recording
+
+    /**
+     * Record an event, overwriting the oldest one if the buffer is full.
+     *
+     * @param timeNanos Time of the event, in ns, see {@link System#nanoTime()}
+     * @param event     Kind of the event, an index in the names given to {@link #dump(String, PrintWriter, String[])}
+     */
+    public synchronized void record(long timeNanos, int event, int firstArg, int secondArg) {
+        mTimes[mNext] = timeNanos;
+        mEvents[mNext] = event;
+        mFirstArgs[mNext] = firstArg;
+        mSecondArgs[mNext] = secondArg;
+        mNext = (mNext + 1) % mTimes.length;
+        mRecordedCount++;
+    }
+
+    /**
+     * Forget every event recorded.
+     */
+    public synchronized void reset() {
+        mNext = 0;
+        mRecordedCount = 0;
+    }
+
+    // endregion
+
+
+    // region Getters
+
+    public int getCapacity() {
+        return mTimes.length;
+    }
+
+    /**
+     * @return Number of events kept, at most the capacity
+     */
+    public synchronized int size() {
+        return (int) Math.min(mRecordedCount, mTimes.length);
+    }
+
+    /**
+     * @return Number of events recorded, overwritten ones included
+     */
+    public synchronized long getRecordedCount() {
+        return mRecordedCount;
+    }
+
+    /**
+     * @param index Index of an event kept, from the oldest one
+     */
+    public synchronized int getEvent(int index) {
+        return mEvents[getSlot(index)];
+    }
+
+    public synchronized long getTimeNanos(int index) {
+        return mTimes[getSlot(index)];
+    }
+
+    public synchronized int getFirstArg(int index) {
+        return mFirstArgs[getSlot(index)];
+    }
+
+    public synchronized int getSecondArg(int index) {
+        return mSecondArgs[getSlot(index)];
+    }
+
+    private int getSlot(int index) {
+        int size = size();
+        if (index < 0 || index >= size) {
+            throw new IndexOutOfBoundsException("Invalid index " + index + ", size is " + size);
+        }
+        return (mNext - size + index + mTimes.length) % mTimes.length;
+    }
+
+    // endregion
+
+
+    // region Dump
+
+    /**
+     * Print the events kept, from the oldest one, one per line: the time since the oldest one, the name of the event
+     * and its arguments.
+     *
+     * @param eventNames Names of the kinds of events, by kind
+     */
+    public synchronized void dump(String prefix, PrintWriter writer, String[] eventNames) {
+        int size = size();
+        writer.print(prefix);
+        writer.println("Trace events: " + size + " kept, " + (mRecordedCount - size) + " overwritten");
+        long startNanos = size > 0 ? getTimeNanos(0) : 0;
+        for (int i = 0; i < size; i++) {
+            int slot = getSlot(i);
+            int event = mEvents[slot];
+            long elapsedMicros = TimeUnit.NANOSECONDS.toMicros(mTimes[slot] - startNanos);
+            writer.print(prefix);
+            writer.print("  +");
+            writer.print(elapsedMicros / 1000);
+            writer.print('.');
+            writer.print(String.format(Locale.US, "%03d", elapsedMicros % 1000));
+            writer.print(" ms ");
+            writer.print(event >= 0 && event < eventNames.length ? eventNames[event] : "EVENT_" + event);
+            writer.print(' ');
+            writer.print(mFirstArgs[slot]);
+            writer.print(' ');
+            writer.println(mSecondArgs[slot]);
+        }
+        writer.flush();
+    }
+
+    // endregion
+
+}
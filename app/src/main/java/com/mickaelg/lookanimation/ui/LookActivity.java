@@ -1,12 +1,23 @@
 package com.mickaelg.lookanimation.ui;
 
+import android.support.v4.app.Fragment;
 import android.support.v7.app.AppCompatActivity;
 import android.os.Bundle;
 
 import com.mickaelg.lookanimation.R;
+import com.mickaelg.lookanimation.trace.LookTrace;
+import com.mickaelg.lookanimation.ui.animation.TransitionFrameStats;
+import com.mickaelg.lookanimation.ui.feed.LookFeedFragment;
+import com.mickaelg.lookanimation.ui.picture.DecodeScheduler;
+
+import java.io.FileDescriptor;
+import java.io.PrintWriter;
 
 /**
- * Simple activity holding a LookFragment.
+ * Simple activity holding a LookFeedFragment. In debug builds, the frame timings of the transitions are measured and
+ * printed by {@code adb shell dumpsys activity com.mickaelg.lookanimation}, followed by the recent trace events, see
+ * {@link LookTrace}. The durations of the picture loads of the feed, and the queue depth and latencies of the
+ * decoding lanes, see {@link DecodeScheduler}, are printed in every build.
  */
 public class LookActivity extends AppCompatActivity {
 
@@ -15,9 +26,24 @@ public class LookActivity extends AppCompatActivity {
         super.onCreate(savedInstanceState);
         setContentView(R.layout.activity_look);
 
-        getSupportFragmentManager()
-                .beginTransaction()
-                .replace(R.id.activity_look_fragment_container, LookFragment.newInstance())
-                .commit();
+        if (savedInstanceState == null) {
+            // After a configuration change, the retained fragment is attached again with its state
+            getSupportFragmentManager()
+                    .beginTransaction()
+                    .replace(R.id.activity_look_fragment_container, LookFeedFragment.newInstance())
+                    .commit();
+        }
+    }
+
+    @Override
+    public void dump(String prefix, FileDescriptor fd, PrintWriter writer, String[] args) {
+        super.dump(prefix, fd, writer, args);
+        TransitionFrameStats.getInstance().dump(prefix, writer);
+        Fragment fragment = getSupportFragmentManager().findFragmentById(R.id.activity_look_fragment_container);
+        if (fragment instanceof LookFeedFragment) {
+            ((LookFeedFragment) fragment).dumpLoadStats(prefix, writer);
+        }
+        DecodeScheduler.getInstance().dump(prefix, writer);
+        LookTrace.dump(prefix, writer);
     }
 }
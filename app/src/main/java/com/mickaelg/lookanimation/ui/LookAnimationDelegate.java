@@ -1,15 +1,29 @@
 package com.mickaelg.lookanimation.ui;
 
-import android.support.annotation.IntDef;
-import android.support.v4.view.animation.FastOutSlowInInterpolator;
-import android.util.Log;
+import android.content.Context;
+import android.os.Build;
+import android.support.v4.view.GestureDetectorCompat;
+import android.support.v4.view.MotionEventCompat;
 import android.view.GestureDetector;
 import android.view.MotionEvent;
-import android.widget.ImageView;
-import android.widget.LinearLayout;
+import android.view.ScaleGestureDetector;
+import android.view.View;
+
+import com.mickaelg.lookanimation.model.LookRegion;
+import com.mickaelg.lookanimation.trace.LookTrace;
+import com.mickaelg.lookanimation.ui.animation.FrameMonitor;
+import com.mickaelg.lookanimation.ui.animation.KeyframeTrack;
+import com.mickaelg.lookanimation.ui.animation.LookGeometry;
+import com.mickaelg.lookanimation.ui.animation.LookTransition;
+import com.mickaelg.lookanimation.ui.animation.LookTransitionTable;
+import com.mickaelg.lookanimation.ui.animation.TimelineAnimator;
+import com.mickaelg.lookanimation.ui.animation.TransitionFrameStats;
+import com.mickaelg.lookanimation.ui.picture.TiledPictureView;
 
 import java.lang.annotation.Retention;
 import java.lang.annotation.RetentionPolicy;
+import java.util.ArrayList;
+import java.util.List;
 
 /**
  * This class manage the state of the view and execute animations based on it and on user interactions.
@@ -20,82 +34,224 @@ public class LookAnimationDelegate {
 
     // region Properties
 
-    private static final String TAG = LookAnimationDelegate.class.getSimpleName();
-
     /**
-     * Possible states of a the main picture.
+     * State of the main picture: {@link #STATE_NOT_ZOOMED}, or zoomed on a region of the look, see
+     * {@link LookTransitionTable#getState(int)}.
      */
-    @IntDef({STATE_NOT_ZOOMED, STATE_UPPER_BODY, STATE_LOWER_BODY})
     @Retention(RetentionPolicy.SOURCE)
     public @interface PictureState {
     }
 
-    private static final int STATE_NOT_ZOOMED = 0;
-    private static final int STATE_UPPER_BODY = 1;
-    private static final int STATE_LOWER_BODY = 2;
+    public static final int STATE_NOT_ZOOMED = 0;
+    /**
+     * States of the two regions of the default looks.
+     */
+    public static final int STATE_UPPER_BODY = 1;
+    public static final int STATE_LOWER_BODY = 2;
+    /**
+     * No state predicted for the current gesture.
+     */
+    private static final int STATE_NONE = -1;
 
     /**
      * Image of the look.
      */
-    private ImageView mIvLook;
+    private TiledPictureView mIvLook;
     /**
-     * Layout containing upper body products.
+     * Layout containing the products of each region of the look, null until they are built.
      */
-    private LinearLayout mLlUpperBodyProducts;
+    private View[] mProductStrips;
     /**
-     * Layout containing lower body products.
+     * Height of each product strip, updated on each layout.
      */
-    private LinearLayout mLlLowerBodyProducts;
+    private final float[] mStripHeights;
 
     /**
      * Current state of the view.
      */
     @PictureState
     private int mCurrentPictureState = STATE_NOT_ZOOMED;
+    /**
+     * State the current gesture is expected to bring the view to, whose tiles are decoded ahead, or
+     * {@link #STATE_NONE}.
+     */
+    private int mPredictedPictureState = STATE_NONE;
 
     /**
      * Animations duration in ms.
      */
     private static final int ANIMATION_DURATION = 400;
     /**
-     * Picture scale to apply when we zoom in.
+     * Ratio of the scale of the closest region above which a pinched picture stays where the fingers left it instead
+     * of snapping on the region.
      */
-    private static final float PICTURE_SCALE = 1.75f;
+    private static final float FREE_ZOOM_RATIO = 1.25f;
     /**
-     * Multiplier to apply for the translation on the X axis during the zoomIn.
+     * Number of touch events kept while the views are not ready, above which the moves are merged.
      */
-    private static float pictureZoomTranslationXMultiplier = 0.25f;
+    private static final int MAX_QUEUED_EVENTS = 64;
+
     /**
-     * Multiplier to apply for the translation on the Y axis during the zoomIn.
+     * Gesture listener giving us callbacks when selected gestures are executed.
      */
-    private static float pictureZoomTranslationYMultiplierUpperBody = 0.2f;
+    private LookGestureListener mGestureListener = new LookGestureListener();
     /**
-     * Multiplier to apply for the translation on the Y axis when changing the body part.
+     * Scale gesture listener giving us callbacks when the user pinches the picture.
      */
-    private static float pictureTranslationYMultiplier = -0.4f;
+    private LookScaleListener mScaleListener = new LookScaleListener();
     /**
-     * Percentage of the view height that need to be crossed to register a fling.
+     * Detector to detect gestures.
      */
-    private static final float SLIDE_THRESHOLD_MULTIPLIER = 0.05f;
-
+    private final GestureDetectorCompat mDetector;
     /**
-     * Gesture listener giving us callbacks when selected gestures are executed.
+     * Detector to detect pinches.
      */
-    private LookGestureListener mGestureListener = new LookGestureListener();
+    private final ScaleGestureDetector mScaleDetector;
+    /**
+     * Copies of the touch events received before the views were ready, played once they are.
+     */
+    private final List<MotionEvent> mQueuedEvents = new ArrayList<>();
+    /**
+     * Input stage merging the moves of each frame before the detectors, null before Jelly Bean.
+     */
+    private final TouchCoalescer mTouchCoalescer;
+    /**
+     * True while the views follow the finger.
+     */
+    private boolean mDragging = false;
+    /**
+     * True if the current gesture pinched the picture, the other gestures are then ignored until the next one.
+     */
+    private boolean mZooming = false;
+    /**
+     * True when the picture is zoomed deeper than its region by a pinch, the finger then pans the picture.
+     */
+    private boolean mFreeZoom = false;
     /**
      * We want to init the delegate only once.
      */
     private boolean isInit = false;
+    /**
+     * Transitions triggered by the gestures, allocated once for the whole life of the delegate.
+     */
+    private final LookTransitionTable mTransitionTable;
+    /**
+     * Transforms and thresholds depending on the size of the views, computed again only when a size changes.
+     */
+    private final LookGeometry mGeometry;
+    /**
+     * Single clock playing the transitions on every view, null until the product strips are built.
+     */
+    private TimelineAnimator mTimelineAnimator;
 
     // endregion
 
 
     // region Constructors
 
-    public LookAnimationDelegate(ImageView ivLook, LinearLayout llUpperBodyProducts, LinearLayout llLowerBodyProducts) {
+    /**
+     * Create a delegate whose product strips are built later, see {@link #setProductStrips(View[])}. The touch events
+     * received until then are queued.
+     *
+     * @param regionList Regions of the look, ordered from the top to the bottom of the picture
+     */
+    public LookAnimationDelegate(TiledPictureView ivLook, List<LookRegion> regionList) {
+        this(ivLook, createTransitionTable(regionList));
+    }
+
+    private LookAnimationDelegate(TiledPictureView ivLook, LookTransitionTable transitionTable) {
+        this(ivLook, transitionTable, new LookGeometry(transitionTable));
+    }
+
+    /**
+     * Create a delegate from the transitions and geometry of a look computed before, for example by a previous
+     * delegate of the same look. The geometry is only computed again if the size of the views changed.
+     *
+     * @param transitionTable Transitions of the look, see {@link #createTransitionTable(List)}
+     * @param geometry        Geometry of the transitions, not used by any other delegate meanwhile
+     */
+    public LookAnimationDelegate(TiledPictureView ivLook, LookTransitionTable transitionTable, LookGeometry geometry) {
         this.mIvLook = ivLook;
-        this.mLlUpperBodyProducts = llUpperBodyProducts;
-        this.mLlLowerBodyProducts = llLowerBodyProducts;
+        this.mStripHeights = new float[transitionTable.getRegionCount()];
+        this.mTransitionTable = transitionTable;
+        this.mGeometry = geometry;
+
+        Context context = ivLook.getContext();
+        this.mDetector = new GestureDetectorCompat(context, mGestureListener);
+        this.mScaleDetector = new ScaleGestureDetector(context, mScaleListener);
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.JELLY_BEAN) {
+            this.mTouchCoalescer = new TouchCoalescer(new TouchCoalescer.Listener() {
+                @Override
+                public void onTouchEvent(MotionEvent event) {
+                    handleTouchEvent(event);
+                }
+            });
+        } else {
+            this.mTouchCoalescer = null;
+        }
+
+        // Animations can't start before the views are measured, the geometry is updated on each size change
+        ivLook.addOnLayoutChangeListener(mLayoutChangeListener);
+    }
+
+    /**
+     * @param regionList    Regions of the look, ordered from the top to the bottom of the picture
+     * @param productStrips Layout containing the products of each region, in the same order
+     */
+    public LookAnimationDelegate(TiledPictureView ivLook, List<LookRegion> regionList, View[] productStrips) {
+        this(ivLook, regionList);
+        setProductStrips(productStrips);
+    }
+
+    /**
+     * @param regionList Regions of the look, ordered from the top to the bottom of the picture
+     * @return Transitions of a delegate of the look
+     */
+    public static LookTransitionTable createTransitionTable(List<LookRegion> regionList) {
+        return new LookTransitionTable(regionList, ANIMATION_DURATION);
+    }
+
+    /**
+     * Set the product strips once they are built and attached. The queued touch events are played as soon as the
+     * views are measured.
+     *
+     * @param productStrips Layout containing the products of each region, in the same order as the regions
+     */
+    public void setProductStrips(View[] productStrips) {
+        this.mProductStrips = productStrips;
+        this.mTimelineAnimator = new TimelineAnimator(mTransitionTable, mGeometry, mIvLook, productStrips);
+        if (TransitionFrameStats.ENABLED && Build.VERSION.SDK_INT >= Build.VERSION_CODES.JELLY_BEAN) {
+            // Frames of each transition recorded by kind, see TransitionFrameStats
+            mTimelineAnimator.setFrameMonitor(FrameMonitor.create(mIvLook.getContext()));
+        }
+        for (View productStrip : productStrips) {
+            productStrip.addOnLayoutChangeListener(mLayoutChangeListener);
+        }
+        if (mIvLook.getWidth() > 0) {
+            // Views recycled from another look are already measured
+            updateGeometry();
+        }
+    }
+
+    /**
+     * Stop listening to the views and stop their animations, so they can be used by another delegate.
+     */
+    public void release() {
+        mIvLook.removeOnLayoutChangeListener(mLayoutChangeListener);
+        if (mProductStrips != null) {
+            for (View productStrip : mProductStrips) {
+                productStrip.removeOnLayoutChangeListener(mLayoutChangeListener);
+            }
+            mTimelineAnimator.cancel();
+        }
+        if (mTouchCoalescer != null) {
+            mTouchCoalescer.cancel();
+        }
+        resolvePrediction(STATE_NONE);
+        for (MotionEvent event : mQueuedEvents) {
+            event.recycle();
+        }
+        mQueuedEvents.clear();
     }
 
     // endregion
@@ -104,167 +260,226 @@ public class LookAnimationDelegate {
     // region UI
 
     /**
-     * Apply the first animations to prepare the views.
+     * Place the views at their position in the current state. Called once the size of the views is known.
      */
     public void init() {
-        if (isInit) {
+        if (isInit || !mGeometry.isValid()) {
             return;
         }
         isInit = true;
 
-        mLlUpperBodyProducts.animate()
-                .setDuration(0)
-                .setInterpolator(new FastOutSlowInInterpolator())
-                .alpha(1)
-                .translationYBy(mLlUpperBodyProducts.getMeasuredHeight());
-
-        mLlLowerBodyProducts.animate()
-                .setDuration(0)
-                .setInterpolator(new FastOutSlowInInterpolator())
-                .alpha(1)
-                .translationYBy(mLlLowerBodyProducts.getMeasuredHeight());
-    }
-
-    // endregion
+        // Every product layout starts outside of the view, below it
+        mTimelineAnimator.jumpTo(mCurrentPictureState);
 
+        // Play the gestures started before the views were ready, in the order they came
+        for (MotionEvent event : mQueuedEvents) {
+            handleTouchEvent(event);
+            event.recycle();
+        }
+        mQueuedEvents.clear();
+    }
 
-    // region Getters and Setters
+    /**
+     * Listener updating the geometry when the size of one of the views changes. Layout passes that don't change any
+     * size only cost a comparison.
+     */
+    private final View.OnLayoutChangeListener mLayoutChangeListener = new View.OnLayoutChangeListener() {
+        @Override
+        public void onLayoutChange(View v, int left, int top, int right, int bottom,
+                                   int oldLeft, int oldTop, int oldRight, int oldBottom) {
+            if (right - left == oldRight - oldLeft && bottom - top == oldBottom - oldTop) {
+                return;
+            }
+            updateGeometry();
+        }
+    };
 
-    public LookGestureListener getGestureListener() {
-        return mGestureListener;
+    private void updateGeometry() {
+        if (mProductStrips == null) {
+            return;
+        }
+        for (int i = 0; i < mProductStrips.length; i++) {
+            mStripHeights[i] = mProductStrips[i].getHeight();
+        }
+        boolean changed = mGeometry.update(mIvLook.getWidth(), mIvLook.getHeight(), mStripHeights);
+        mTimelineAnimator.updatePicture();
+        if (!isInit) {
+            init();
+        } else if (changed && !mTimelineAnimator.isRunning()) {
+            // Keep the views consistent with the current state on the new sizes
+            mFreeZoom = false;
+            mTimelineAnimator.jumpTo(mCurrentPictureState);
+        }
     }
 
     // endregion
 
 
-    // region Animations
+    // region Getters and Setters
 
     /**
-     * Zoom in the look picture.
+     * @return True if the picture is zoomed, the gestures on it are then all meant for the look
      */
-    public void zoomInPicture() {
-        Log.d(TAG, "zoomInPicture");
-        final float translationXBy = mIvLook.getMeasuredWidth() * pictureZoomTranslationXMultiplier;
-        final float translationYBy = mIvLook.getMeasuredHeight() * pictureZoomTranslationYMultiplierUpperBody;
-
-        mIvLook.animate()
-                .setDuration(ANIMATION_DURATION)
-                .setInterpolator(new FastOutSlowInInterpolator())
-                .scaleX(PICTURE_SCALE)
-                .scaleY(PICTURE_SCALE)
-                .translationXBy(translationXBy)
-                .translationYBy(translationYBy);
+    public boolean isZoomed() {
+        return mCurrentPictureState != STATE_NOT_ZOOMED || mZooming;
     }
 
     /**
-     * Zoom out the look picture, restoring it to its default state.
+     * @return State to save for the look: the current state, or the state the running transition brings the views to
      */
-    public void zoomOutPicture() {
-        Log.d(TAG, "zoomOutPicture");
-        mIvLook.animate()
-                .setDuration(ANIMATION_DURATION)
-                .setInterpolator(new FastOutSlowInInterpolator())
-                .scaleX(1)
-                .scaleY(1)
-                .translationX(0)
-                .translationY(0);
+    @PictureState
+    public int getPictureState() {
+        return mCurrentPictureState;
     }
 
     /**
-     * Slide down the picture, so the view focus more on the lower body part.
+     * Restore a state saved from a previous delegate of the look, for example before a configuration change. The views
+     * jump to it, without animation, as soon as they are ready: before the first frame if the product strips are set
+     * before the first layout. A state the look doesn't have is ignored.
      */
-    public void slideDownPicture() {
-        Log.d(TAG, "slideDownPicture");
-        final float translationYBy = mIvLook.getMeasuredHeight() * pictureTranslationYMultiplier;
+    public void restorePictureState(@PictureState int state) {
+        if (state < STATE_NOT_ZOOMED || state >= mTransitionTable.getStateCount()) {
+            return;
+        }
+        mCurrentPictureState = state;
+        mFreeZoom = false;
+        if (isInit) {
+            mTimelineAnimator.jumpTo(state);
+        }
+    }
 
-        mIvLook.animate()
-                .setDuration(ANIMATION_DURATION)
-                .setInterpolator(new FastOutSlowInInterpolator())
-                .translationYBy(translationYBy);
+    /**
+     * Called when the look picture is loaded in its view, so its transform takes the size of the picture into
+     * account.
+     */
+    public void onPictureChanged() {
+        if (mTimelineAnimator != null) {
+            mTimelineAnimator.updatePicture();
+        }
     }
 
+    // endregion
+
+
+    // region Touch
+
     /**
-     * Slide up the picture, so the view focus more on the upper body part.
+     * Handle a touch event on the look. The moves are merged and handled once per frame, see {@link TouchCoalescer}.
+     * Until the views are ready, the event is copied and queued instead of dropped.
      */
-    public void slideUpPicture() {
-        Log.d(TAG, "slideUpPicture");
-        final float translationYBy = -1 * mIvLook.getMeasuredHeight() * pictureTranslationYMultiplier;
+    public boolean onTouchEvent(MotionEvent event) {
+        if (isInit) {
+            if (mTouchCoalescer != null) {
+                mTouchCoalescer.onTouchEvent(event);
+            } else {
+                handleTouchEvent(event);
+            }
+            return true;
+        }
+
+        int lastIndex = mQueuedEvents.size() - 1;
+        if (lastIndex >= MAX_QUEUED_EVENTS - 1 && MotionEventCompat.getActionMasked(event) == MotionEvent.ACTION_MOVE
+                && MotionEventCompat.getActionMasked(mQueuedEvents.get(lastIndex)) == MotionEvent.ACTION_MOVE) {
+            // Past the limit, consecutive moves are merged: the detectors only miss intermediate positions
+            mQueuedEvents.remove(lastIndex).recycle();
+        }
+        mQueuedEvents.add(MotionEvent.obtain(event));
+        return true;
+    }
 
-        mIvLook.animate()
-                .setDuration(ANIMATION_DURATION)
-                .setInterpolator(new FastOutSlowInInterpolator())
-                .translationYBy(translationYBy);
+    private void handleTouchEvent(MotionEvent event) {
+        LookTrace.beginSection(LookTrace.SECTION_TOUCH);
+        try {
+            // Send the events to our detectors that will manage them
+            mScaleDetector.onTouchEvent(event);
+            mDetector.onTouchEvent(event);
+            int action = MotionEventCompat.getActionMasked(event);
+            if (action == MotionEvent.ACTION_UP || action == MotionEvent.ACTION_CANCEL) {
+                onTouchEnd();
+            }
+        } finally {
+            LookTrace.endSection();
+        }
     }
 
     /**
-     * Make the upper body layout enters the view, from the outside to the view to the bottom.
+     * Called when the finger leaves the screen. A drag not ended by a fling settles on the closest region.
      */
-    public void slideInUpperBodyLayout() {
-        Log.d(TAG, "slideInUpperBodyPicture");
-        mLlUpperBodyProducts.animate()
-                .setDuration(ANIMATION_DURATION)
-                .setInterpolator(new FastOutSlowInInterpolator())
-                .alpha(1)
-                .translationY(0);
+    private void onTouchEnd() {
+        if (mDragging) {
+            settle(0f);
+        }
+        // The gesture is over, the prediction is either in use or wrong
+        resolvePrediction(mCurrentPictureState);
     }
 
+    // endregion
+
+
+    // region Animations
+
     /**
-     * Make the upper body layout quits the view, from the bottom of the view to the top.
+     * Update the current state and play the given transition on every view involved.
+     *
+     * @param event Gesture starting the transition, {@link LookTrace#EVENT_TAP} or {@link LookTrace#EVENT_FLING}
      */
-    public void slideUpUpperBodyLayout() {
-        Log.d(TAG, "slideUpUpperBodyPicture");
-        mLlUpperBodyProducts.animate()
-                .setDuration(ANIMATION_DURATION)
-                .setInterpolator(new FastOutSlowInInterpolator())
-                .alpha(0)
-                .translationYBy(-1 * mLlLowerBodyProducts.getMeasuredHeight());
+    private void startTransition(int event, LookTransition transition) {
+        LookTrace.beginSection(LookTrace.SECTION_TRANSITION);
+        LookTrace.event(event, mCurrentPictureState, transition.getToState());
+        mCurrentPictureState = transition.getToState();
+        resolvePrediction(mCurrentPictureState);
+        mTimelineAnimator.start(mCurrentPictureState);
+        LookTrace.endSection();
     }
 
     /**
-     * Make the upper body layout quits the view, from the bottom to the outside of the view.
-     * We need to replace the layout at its default place in case the picture is zoomed out while focusing the lower
-     * body.
+     * End the drag of the views and let them settle on a region with the velocity of the finger.
+     *
+     * @param velocityY Velocity of the finger when it left the screen, in px/s
      */
-    public void slideOutUpperBodyLayout() {
-        Log.d(TAG, "slideOutUpperBodyPicture");
+    private void settle(float velocityY) {
+        LookTrace.beginSection(LookTrace.SECTION_TRANSITION);
+        int fromState = mCurrentPictureState;
+        mDragging = false;
+        mCurrentPictureState = mTimelineAnimator.release(velocityY);
+        LookTrace.event(LookTrace.EVENT_SETTLE, fromState, mCurrentPictureState);
+        LookTrace.endSection();
+    }
+
+    // endregion
 
-        // In case the layout was above its default place, replace it before sliding it out
-        mLlUpperBodyProducts.animate()
-                .setDuration(0)
-                .setInterpolator(new FastOutSlowInInterpolator())
-                .alpha(0)
-                .translationY(0)
-                .start();
 
-        mLlUpperBodyProducts.animate()
-                .setDuration(ANIMATION_DURATION)
-                .setInterpolator(new FastOutSlowInInterpolator())
-                .alpha(0)
-                .translationYBy(mLlUpperBodyProducts.getMeasuredHeight());
-    }
+    // region Prediction
 
     /**
-     * Make the lower body layout enters the view, from the outside to the view to the bottom.
+     * Guess the state the gesture starting at the given position will bring the view to, and start decoding the
+     * tiles of the picture in that state. The decoding then overlaps the time taken to recognize the gesture.
      */
-    public void slideInLowerBodyLayout() {
-        Log.d(TAG, "slideInLowerBodyPicture");
-        mLlLowerBodyProducts.animate()
-                .setDuration(ANIMATION_DURATION)
-                .setInterpolator(new FastOutSlowInInterpolator())
-                .alpha(1)
-                .translationY(0);
+    private void predict(float y) {
+        int predictedState;
+        if (mCurrentPictureState == STATE_NOT_ZOOMED) {
+            // Flings have no effect, the only transition is the tap one
+            predictedState = mTransitionTable.getTapTransition(mCurrentPictureState).getToState();
+        } else {
+            // A fling up toward the next region usually starts in the lower half of the view, and the other way
+            LookTransition transition = mTransitionTable.getFlingTransition(mCurrentPictureState,
+                    y > mIvLook.getHeight() / 2f);
+            predictedState = transition != null ? transition.getToState()
+                    : mTransitionTable.getTapTransition(mCurrentPictureState).getToState();
+        }
+
+        mPredictedPictureState = predictedState;
+        mIvLook.prefetch(mTimelineAnimator.getPictureMatrix(predictedState));
     }
 
     /**
-     * Make the lower body layout quits the view, from the bottom to the outside of the view.
+     * Cancel the decoding started for the predicted state if the gesture brings the view to another state.
      */
-    public void slideOutLowerBodyLayout() {
-        Log.d(TAG, "slideOutLowerBodyPicture");
-        mLlLowerBodyProducts.animate()
-                .setDuration(ANIMATION_DURATION)
-                .setInterpolator(new FastOutSlowInInterpolator())
-                .alpha(0)
-                .translationYBy(mLlLowerBodyProducts.getMeasuredHeight());
+    private void resolvePrediction(@PictureState int state) {
+        if (mPredictedPictureState != STATE_NONE && mPredictedPictureState != state) {
+            mIvLook.cancelPrefetch();
+        }
+        mPredictedPictureState = STATE_NONE;
     }
 
     // endregion
@@ -276,48 +491,58 @@ public class LookAnimationDelegate {
 
         @Override
         public boolean onSingleTapUp(MotionEvent e) {
-            switch (mCurrentPictureState) {
-                case STATE_NOT_ZOOMED:
-                    mCurrentPictureState = STATE_UPPER_BODY;
-                    zoomInPicture();
-                    slideInUpperBodyLayout();
-                    break;
-                case STATE_UPPER_BODY:
-                    mCurrentPictureState = STATE_NOT_ZOOMED;
-                    zoomOutPicture();
-                    slideOutUpperBodyLayout();
-                    break;
-                case STATE_LOWER_BODY:
-                    mCurrentPictureState = STATE_NOT_ZOOMED;
-                    zoomOutPicture();
-                    slideOutUpperBodyLayout();
-                    slideOutLowerBodyLayout();
+            mFreeZoom = false;
+            startTransition(LookTrace.EVENT_TAP, mTransitionTable.getTapTransition(mCurrentPictureState));
+            return true;
+        }
+
+        @Override
+        public boolean onScroll(MotionEvent e1, MotionEvent e2, float distanceX, float distanceY) {
+            if (mZooming) {
+                return true;
+            }
+            if (mFreeZoom) {
+                // The distance is the previous position minus the new one
+                mTimelineAnimator.zoom(1f, e2.getX(), e2.getY(), -distanceX, -distanceY);
+                return true;
             }
+            if (!mDragging) {
+                if (!mTimelineAnimator.canDrag()) {
+                    // Not zoomed, or a transition is running: the fling will be handled when the finger leaves
+                    return true;
+                }
+                mDragging = true;
+                mTimelineAnimator.startDrag();
+            }
+            // The distance is the previous position minus the new one
+            mTimelineAnimator.drag(-distanceY);
             return true;
         }
 
         @Override
         public boolean onFling(MotionEvent e1, MotionEvent e2, float velocityX, float velocityY) {
+            if (mZooming || mFreeZoom) {
+                return true;
+            }
+            if (mDragging) {
+                // The views followed the finger, they keep its velocity to settle on a region
+                settle(velocityY);
+                resolvePrediction(mCurrentPictureState);
+                return true;
+            }
+
             if (mCurrentPictureState == STATE_NOT_ZOOMED) {
                 // Fling has no effect in not zoomed mode
                 return true;
             }
 
-            final float THRESHOLD_VALUE = SLIDE_THRESHOLD_MULTIPLIER * mIvLook.getMeasuredHeight();
-            boolean thresholdCrossed = Math.abs(e2.getY() - e1.getY()) > THRESHOLD_VALUE;
+            boolean thresholdCrossed = Math.abs(e2.getY() - e1.getY()) > mGeometry.getFlingThreshold();
             if (thresholdCrossed) {
-                if (e2.getY() > e1.getY() && mCurrentPictureState == STATE_LOWER_BODY) {
-                    Log.d(TAG, "Slide down");
-                    mCurrentPictureState = STATE_UPPER_BODY;
-                    slideUpPicture();
-                    slideInUpperBodyLayout();
-                    slideOutLowerBodyLayout();
-                } else if (e2.getY() < e1.getY() && mCurrentPictureState == STATE_UPPER_BODY) {
-                    Log.d(TAG, "Slide up");
-                    mCurrentPictureState = STATE_LOWER_BODY;
-                    slideDownPicture();
-                    slideUpUpperBodyLayout();
-                    slideInLowerBodyLayout();
+                // The finger moving up means the user wants to see the next region, lower on the body
+                boolean towardBottom = e2.getY() < e1.getY();
+                LookTransition transition = mTransitionTable.getFlingTransition(mCurrentPictureState, towardBottom);
+                if (transition != null) {
+                    startTransition(LookTrace.EVENT_FLING, transition);
                 }
             }
             return true;
@@ -325,6 +550,10 @@ public class LookAnimationDelegate {
 
         @Override
         public boolean onDown(MotionEvent e) {
+            mZooming = false;
+            if (isInit && !mFreeZoom) {
+                predict(e.getY());
+            }
             // We override and set the return to true for this method because every gesture starts with a Down event so
             // we want to listen to this event
             return true;
@@ -334,4 +563,55 @@ public class LookAnimationDelegate {
 
     // endregion
 
+
+    // region LookScaleListener
+
+    public class LookScaleListener extends ScaleGestureDetector.SimpleOnScaleGestureListener {
+
+        private float mLastFocusX;
+        private float mLastFocusY;
+
+        @Override
+        public boolean onScaleBegin(ScaleGestureDetector detector) {
+            if (!isInit) {
+                return false;
+            }
+            mZooming = true;
+            mDragging = false;
+            // The fingers zoom the picture wherever they want, not to the predicted state
+            resolvePrediction(STATE_NONE);
+            mTimelineAnimator.startZoom();
+            mLastFocusX = detector.getFocusX();
+            mLastFocusY = detector.getFocusY();
+            return true;
+        }
+
+        @Override
+        public boolean onScale(ScaleGestureDetector detector) {
+            float focusX = detector.getFocusX();
+            float focusY = detector.getFocusY();
+            mTimelineAnimator.zoom(detector.getScaleFactor(), focusX, focusY, focusX - mLastFocusX,
+                    focusY - mLastFocusY);
+            mLastFocusX = focusX;
+            mLastFocusY = focusY;
+            return true;
+        }
+
+        @Override
+        public void onScaleEnd(ScaleGestureDetector detector) {
+            LookTrace.beginSection(LookTrace.SECTION_TRANSITION);
+            // Snap on the closest state, unless the user zoomed deeper than it to look at the details
+            int fromState = mCurrentPictureState;
+            mCurrentPictureState = mTimelineAnimator.getClosestState();
+            mFreeZoom = mCurrentPictureState != STATE_NOT_ZOOMED && mTimelineAnimator.getPictureScale()
+                    > mGeometry.getPictureValue(mCurrentPictureState, KeyframeTrack.PROPERTY_SCALE_X) * FREE_ZOOM_RATIO;
+            LookTrace.event(LookTrace.EVENT_ZOOM, fromState, mCurrentPictureState);
+            mTimelineAnimator.endZoom(mCurrentPictureState, mFreeZoom);
+            LookTrace.endSection();
+        }
+
+    }
+
+    // endregion
+
 }
@@ -0,0 +1,167 @@
+package com.mickaelg.lookanimation.ui;
+
+import android.annotation.TargetApi;
+import android.os.Build;
+import android.support.v4.view.MotionEventCompat;
+import android.view.Choreographer;
+import android.view.MotionEvent;
+
+import com.mickaelg.lookanimation.trace.LookTrace;
+
+/**
+ * Input stage coalescing the touch events of a look received within a frame. The moves are merged in a single event
+ * whose historical samples are every position received, handed to the listener once per frame by a
+ * {@link Choreographer.FrameCallback}: the detectors track the velocity of all the samples in one pass, and the views
+ * follow the finger once per frame whatever the sampling rate of the touch screen.
+ * <p/>
+ * Any other event ends the batch: the pending move is handed over first, then the event itself right away, so the
+ * detectors get every event in order. The moves delivered during the input phase of a frame, the usual case, are
+ * handed over during its animation phase: coalescing them adds no latency.
+ * <p/>
+ * The coalescer needs the {@link Choreographer}, available from Jelly Bean, this class must not be loaded before.
+ * <p/>
+ * Only used on the main thread.
+ */
+@TargetApi(Build.VERSION_CODES.JELLY_BEAN)
+final class TouchCoalescer implements Choreographer.FrameCallback {
+
+    // region Properties
+
+    interface Listener {
+
+        /**
+         * Called with each touch event, the moves of a frame being merged in a single event. The event must not be
+         * kept once the call returns.
+         */
+        void onTouchEvent(MotionEvent event);
+
+    }
+
+    private final Choreographer mChoreographer = Choreographer.getInstance();
+    private final Listener mListener;
+    /**
+     * Copy of the moves received since the last frame, merged, null if there is none.
+     */
+    private MotionEvent mPendingMove;
+    /**
+     * Number of moves merged in the pending one.
+     */
+    private int mPendingMoveCount = 0;
+    /**
+     * Coordinates of each pointer of a sample, reused for every sample.
+     */
+    private MotionEvent.PointerCoords[] mPointerCoords = new MotionEvent.PointerCoords[0];
+
+    // endregion
+
+
+    // region Constructors
+
+    TouchCoalescer(Listener listener) {
+        mListener = listener;
+    }
+
+    // endregion
+
+
+    // region Coalescing
+
+    /**
+     * Hand the event over to the listener, or merge it with the other moves of the frame.
+     */
+    void onTouchEvent(MotionEvent event) {
+        if (MotionEventCompat.getActionMasked(event) != MotionEvent.ACTION_MOVE) {
+            flush();
+            mListener.onTouchEvent(event);
+            return;
+        }
+
+        if (mPendingMove != null && !hasSamePointers(mPendingMove, event)) {
+            flush();
+        }
+        if (mPendingMove == null) {
+            mPendingMove = MotionEvent.obtain(event);
+            mPendingMoveCount = 1;
+            mChoreographer.postFrameCallback(this);
+        } else {
+            merge(event);
+        }
+    }
+
+    /**
+     * Add the samples of the move to the pending one, its historical samples first.
+     */
+    private void merge(MotionEvent event) {
+        int pointerCount = event.getPointerCount();
+        if (mPointerCoords.length < pointerCount) {
+            MotionEvent.PointerCoords[] pointerCoords = new MotionEvent.PointerCoords[pointerCount];
+            for (int i = 0; i < pointerCount; i++) {
+                pointerCoords[i] = i < mPointerCoords.length ? mPointerCoords[i] : new MotionEvent.PointerCoords();
+            }
+            mPointerCoords = pointerCoords;
+        }
+
+        int metaState = event.getMetaState();
+        for (int historyIndex = 0, historySize = event.getHistorySize(); historyIndex < historySize; historyIndex++) {
+            for (int i = 0; i < pointerCount; i++) {
+                event.getHistoricalPointerCoords(i, historyIndex, mPointerCoords[i]);
+            }
+            mPendingMove.addBatch(event.getHistoricalEventTime(historyIndex), mPointerCoords, metaState);
+        }
+        for (int i = 0; i < pointerCount; i++) {
+            event.getPointerCoords(i, mPointerCoords[i]);
+        }
+        mPendingMove.addBatch(event.getEventTime(), mPointerCoords, metaState);
+        mPendingMoveCount++;
+    }
+
+    /**
+     * @return True if the samples of both moves are of the same pointers, in the same order
+     */
+    private static boolean hasSamePointers(MotionEvent move, MotionEvent otherMove) {
+        int pointerCount = move.getPointerCount();
+        if (otherMove.getPointerCount() != pointerCount) {
+            return false;
+        }
+        for (int i = 0; i < pointerCount; i++) {
+            if (move.getPointerId(i) != otherMove.getPointerId(i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    @Override
+    public void doFrame(long frameTimeNanos) {
+        flush();
+    }
+
+    /**
+     * Hand the pending move over to the listener, if any.
+     */
+    private void flush() {
+        if (mPendingMove == null) {
+            return;
+        }
+        mChoreographer.removeFrameCallback(this);
+        MotionEvent move = mPendingMove;
+        mPendingMove = null;
+        LookTrace.event(LookTrace.EVENT_TOUCH_BATCH, mPendingMoveCount, move.getHistorySize() + 1);
+        mListener.onTouchEvent(move);
+        move.recycle();
+    }
+
+    /**
+     * Drop the pending move, before the look is released.
+     */
+    void cancel() {
+        if (mPendingMove != null) {
+            mChoreographer.removeFrameCallback(this);
+            mPendingMove.recycle();
+            mPendingMove = null;
+        }
+    }
+
+    // endregion
+
+}
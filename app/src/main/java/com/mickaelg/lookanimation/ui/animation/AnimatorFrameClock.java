@@ -0,0 +1,75 @@
+package com.mickaelg.lookanimation.ui.animation;
+
+import android.animation.Animator;
+import android.animation.AnimatorListenerAdapter;
+import android.animation.ValueAnimator;
+
+/**
+ * Clock following the frames of the display, with a linear {@link ValueAnimator} reused for every run. Only used on
+ * the main thread.
+ */
+public final class AnimatorFrameClock implements FrameClock {
+
+    // region Properties
+
+    private final ValueAnimator mAnimator = ValueAnimator.ofFloat(0f, 1f);
+    private Callback mCallback;
+    private boolean mCanceled = false;
+
+    // endregion
+
+
+    // region Constructors
+
+    public AnimatorFrameClock() {
+        // The easing is applied by the timeline, the clock has to be linear
+        mAnimator.setInterpolator(null);
+        mAnimator.addUpdateListener(new ValueAnimator.AnimatorUpdateListener() {
+            @Override
+            public void onAnimationUpdate(ValueAnimator animation) {
+                mCallback.onFrame(animation.getCurrentPlayTime());
+            }
+        });
+        mAnimator.addListener(new AnimatorListenerAdapter() {
+            @Override
+            public void onAnimationCancel(Animator animation) {
+                mCanceled = true;
+            }
+
+            @Override
+            public void onAnimationEnd(Animator animation) {
+                mCallback.onEnd(mCanceled);
+            }
+        });
+    }
+
+    // endregion
+
+
+    // region FrameClock
+
+    @Override
+    public void setCallback(Callback callback) {
+        mCallback = callback;
+    }
+
+    @Override
+    public void start(long duration) {
+        mCanceled = false;
+        mAnimator.setDuration(duration);
+        mAnimator.start();
+    }
+
+    @Override
+    public void cancel() {
+        mAnimator.cancel();
+    }
+
+    @Override
+    public boolean isRunning() {
+        return mAnimator.isRunning();
+    }
+
+    // endregion
+
+}
@@ -0,0 +1,44 @@
+package com.mickaelg.lookanimation.ui.animation;
+
+/**
+ * Clock stepping a {@link TransitionEngine} frame by frame: an {@link AnimatorFrameClock} following the display on a
+ * device, or a {@link ManualFrameClock} stepped by the caller, for example by a test on the JVM.
+ */
+public interface FrameClock {
+
+    /**
+     * Callback of the frames of the clock, called on the thread stepping it.
+     */
+    interface Callback {
+
+        /**
+         * Called on each frame, starting with a frame at the time the clock starts.
+         *
+         * @param playTime Time elapsed since the clock started, in ms, possibly past its duration on the last frame
+         */
+        void onFrame(long playTime);
+
+        /**
+         * Called once the clock stops, after the frame past its duration or when it is canceled.
+         */
+        void onEnd(boolean canceled);
+
+    }
+
+    void setCallback(Callback callback);
+
+    /**
+     * Start the clock. The clock must not be running.
+     *
+     * @param duration Time after which the clock ends, in ms
+     */
+    void start(long duration);
+
+    /**
+     * Stop the clock if it is running, telling the callback it was canceled.
+     */
+    void cancel();
+
+    boolean isRunning();
+
+}
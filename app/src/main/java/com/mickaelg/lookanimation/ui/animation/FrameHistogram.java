@@ -0,0 +1,154 @@
+package com.mickaelg.lookanimation.ui.animation;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Histograms of the frames of a kind of transition: the time between two frames, by buckets of a millisecond, and
+ * the number of frames dropped between them. Frames are recorded by the main thread and the counters can be read
+ * from any thread: they are atomic, nothing is locked and recording doesn't allocate.
+ */
+public final class FrameHistogram {
+
+    // region Properties
+
+    /**
+     * Buckets of frame times, the last one counting every frame of at least that many ms.
+     */
+    public static final int FRAME_TIME_BUCKET_COUNT = 101;
+    /**
+     * Buckets of dropped frames, the last one counting every interval dropping at least that many frames.
+     */
+    public static final int DROPPED_FRAMES_BUCKET_COUNT = 17;
+
+    private final AtomicLongArray mFrameTimes = new AtomicLongArray(FRAME_TIME_BUCKET_COUNT);
+    private final AtomicLongArray mDroppedFrames = new AtomicLongArray(DROPPED_FRAMES_BUCKET_COUNT);
+    private final AtomicLong mFrameCount = new AtomicLong();
+    private final AtomicLong mDroppedFrameCount = new AtomicLong();
+    private final AtomicLong mTransitionCount = new AtomicLong();
+    private final AtomicLong mTotalFrameNanos = new AtomicLong();
+    private final AtomicLong mMaxFrameNanos = new AtomicLong();
+
+    // endregion
+
+
+    // region Recording
+
+    /**
+     * Record the time between a frame of the transition and the previous one.
+     *
+     * @param frameIntervalNanos Time between two frames of the display, in ns
+     * @return Number of frames dropped between the two frames
+     */
+    public int recordFrame(long frameNanos, long frameIntervalNanos) {
+        // A frame a bit late is still on time, the next vsync didn't pass yet
+        int droppedFrames = (int) Math.max(0, (frameNanos + frameIntervalNanos / 2) / frameIntervalNanos - 1);
+        int frameTimeBucket = (int) Math.min(FRAME_TIME_BUCKET_COUNT - 1, TimeUnit.NANOSECONDS.toMillis(frameNanos));
+        mFrameTimes.incrementAndGet(frameTimeBucket);
+        mDroppedFrames.incrementAndGet(Math.min(DROPPED_FRAMES_BUCKET_COUNT - 1, droppedFrames));
+        mFrameCount.incrementAndGet();
+        mDroppedFrameCount.addAndGet(droppedFrames);
+        mTotalFrameNanos.addAndGet(frameNanos);
+        long maxFrameNanos;
+        do {
+            maxFrameNanos = mMaxFrameNanos.get();
+        } while (frameNanos > maxFrameNanos && !mMaxFrameNanos.compareAndSet(maxFrameNanos, frameNanos));
+        return droppedFrames;
+    }
+
+    /**
+     * Record the end of a transition whose frames were recorded.
+     */
+    public void recordTransition() {
+        mTransitionCount.incrementAndGet();
+    }
+
+    /**
+     * Reset every counter. Frames recorded meanwhile may be partly counted.
+     */
+    public void reset() {
+        for (int i = 0; i < FRAME_TIME_BUCKET_COUNT; i++) {
+            mFrameTimes.set(i, 0);
+        }
+        for (int i = 0; i < DROPPED_FRAMES_BUCKET_COUNT; i++) {
+            mDroppedFrames.set(i, 0);
+        }
+        mFrameCount.set(0);
+        mDroppedFrameCount.set(0);
+        mTransitionCount.set(0);
+        mTotalFrameNanos.set(0);
+        mMaxFrameNanos.set(0);
+    }
+
+    // endregion
+
+
+    // region Getters
+
+    public long getFrameCount() {
+        return mFrameCount.get();
+    }
+
+    public long getDroppedFrameCount() {
+        return mDroppedFrameCount.get();
+    }
+
+    public long getTransitionCount() {
+        return mTransitionCount.get();
+    }
+
+    /**
+     * @return Number of frames which took between the given number of ms and the next one
+     */
+    public long getFrameTimeCount(int millis) {
+        return mFrameTimes.get(millis);
+    }
+
+    /**
+     * @return Number of frames after which the given number of frames were dropped
+     */
+    public long getDroppedFramesCount(int droppedFrames) {
+        return mDroppedFrames.get(droppedFrames);
+    }
+
+    public long getMeanFrameNanos() {
+        long frameCount = mFrameCount.get();
+        return frameCount == 0 ? 0 : mTotalFrameNanos.get() / frameCount;
+    }
+
+    public long getMaxFrameNanos() {
+        return mMaxFrameNanos.get();
+    }
+
+    /**
+     * @param percentile Part of the frames, between 0 and 100
+     * @return Time in ms the given part of the frames took at most, to the bucket
+     */
+    public int getFrameTimePercentile(float percentile) {
+        long frameCount = 0;
+        for (int i = 0; i < FRAME_TIME_BUCKET_COUNT; i++) {
+            frameCount += mFrameTimes.get(i);
+        }
+        long rank = (long) Math.ceil(frameCount * percentile / 100f);
+        long count = 0;
+        for (int i = 0; i < FRAME_TIME_BUCKET_COUNT; i++) {
+            count += mFrameTimes.get(i);
+            if (count >= rank && count > 0) {
+                return i;
+            }
+        }
+        return 0;
+    }
+
+    @Override
+    public String toString() {
+        return mTransitionCount.get() + " transitions, " + mFrameCount.get() + " frames, " + mDroppedFrameCount.get()
+                + " dropped, frame time: mean " + TimeUnit.NANOSECONDS.toMillis(getMeanFrameNanos()) + " ms, p50 "
+                + getFrameTimePercentile(50) + " ms, p90 " + getFrameTimePercentile(90) + " ms, p99 "
+                + getFrameTimePercentile(99) + " ms, max " + TimeUnit.NANOSECONDS.toMillis(getMaxFrameNanos()) + " ms";
+    }
+
+    // endregion
+
+}
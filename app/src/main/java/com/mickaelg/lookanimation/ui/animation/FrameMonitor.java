@@ -0,0 +1,133 @@
+package com.mickaelg.lookanimation.ui.animation;
+
+import android.annotation.TargetApi;
+import android.content.Context;
+import android.os.Build;
+import android.support.annotation.Nullable;
+import android.view.Choreographer;
+import android.view.WindowManager;
+
+import com.mickaelg.lookanimation.ui.LookAnimationDelegate;
+
+/**
+ * Measure the frames of the transitions of a look with a {@link Choreographer.FrameCallback}: from the start of a
+ * transition to its end, the time between two frames is recorded in the {@link FrameHistogram} of the kind of the
+ * transition, in the {@link TransitionFrameStats} shared by every look.
+ * <p/>
+ * No monitor is created in the builds disabling the monitoring, see {@link TransitionFrameStats#ENABLED}: the
+ * animator then only checks for a null monitor at the start and end of a transition. The monitor needs the
+ * {@link Choreographer}, available from Jelly Bean, this class must not be loaded before.
+ * <p/>
+ * Only used on the main thread.
+ */
+@TargetApi(Build.VERSION_CODES.JELLY_BEAN)
+public final class FrameMonitor implements Choreographer.FrameCallback, TransitionEngine.Listener {
+
+    // region Properties
+
+    /**
+     * Refresh rate assumed when the display doesn't tell, in Hz.
+     */
+    private static final float DEFAULT_REFRESH_RATE = 60f;
+
+    private final TransitionFrameStats mStats = TransitionFrameStats.getInstance();
+    private final Choreographer mChoreographer = Choreographer.getInstance();
+    /**
+     * Time between two frames of the display, in ns.
+     */
+    private final long mFrameIntervalNanos;
+
+    private boolean mRunning = false;
+    @LookAnimationDelegate.PictureState
+    private int mFromState;
+    @LookAnimationDelegate.PictureState
+    private int mToState;
+    private FrameHistogram mHistogram;
+    /**
+     * Time of the previous frame of the transition, 0 before its first frame.
+     */
+    private long mLastFrameNanos;
+    private int mFrameCount;
+    private int mDroppedFrames;
+    private long mMaxFrameNanos;
+
+    // endregion
+
+
+    // region Constructors
+
+    private FrameMonitor(long frameIntervalNanos) {
+        mFrameIntervalNanos = frameIntervalNanos;
+    }
+
+    /**
+     * @return A monitor of the transitions of a look, or null if the monitoring is disabled. Only called from Jelly
+     * Bean.
+     */
+    @Nullable
+    public static FrameMonitor create(Context context) {
+        if (!TransitionFrameStats.ENABLED) {
+            return null;
+        }
+        WindowManager windowManager = (WindowManager) context.getSystemService(Context.WINDOW_SERVICE);
+        float refreshRate = windowManager.getDefaultDisplay().getRefreshRate();
+        if (refreshRate < 1f) {
+            refreshRate = DEFAULT_REFRESH_RATE;
+        }
+        return new FrameMonitor((long) (1000000000 / refreshRate));
+    }
+
+    // endregion
+
+
+    // region Monitoring
+
+    /**
+     * Start measuring the frames of a transition. A transition still measured is interrupted by this one: it ends.
+     */
+    @Override
+    public void onTransitionStart(@LookAnimationDelegate.PictureState int fromState,
+                                  @LookAnimationDelegate.PictureState int toState) {
+        onTransitionEnd();
+        mRunning = true;
+        mFromState = fromState;
+        mToState = toState;
+        mHistogram = mStats.getHistogram(fromState, toState);
+        mLastFrameNanos = 0;
+        mFrameCount = 0;
+        mDroppedFrames = 0;
+        mMaxFrameNanos = 0;
+        mChoreographer.postFrameCallback(this);
+    }
+
+    /**
+     * Stop measuring the frames of the current transition, if any, and record it.
+     */
+    @Override
+    public void onTransitionEnd() {
+        if (!mRunning) {
+            return;
+        }
+        mRunning = false;
+        mChoreographer.removeFrameCallback(this);
+        mStats.recordTransition(mFromState, mToState, mFrameCount, mDroppedFrames, mMaxFrameNanos);
+    }
+
+    @Override
+    public void doFrame(long frameTimeNanos) {
+        if (!mRunning) {
+            return;
+        }
+        if (mLastFrameNanos != 0) {
+            long frameNanos = frameTimeNanos - mLastFrameNanos;
+            mDroppedFrames += mHistogram.recordFrame(frameNanos, mFrameIntervalNanos);
+            mFrameCount++;
+            mMaxFrameNanos = Math.max(mMaxFrameNanos, frameNanos);
+        }
+        mLastFrameNanos = frameTimeNanos;
+        mChoreographer.postFrameCallback(this);
+    }
+
+    // endregion
+
+}
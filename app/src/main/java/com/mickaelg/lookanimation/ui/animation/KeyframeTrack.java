@@ -0,0 +1,120 @@
+package com.mickaelg.lookanimation.ui.animation;
+
+/**
+ * Immutable list of keyframes animating one property of one view of the look during a {@link LookTransition}.
+ * <p/>
+ * Keyframe values are absolute, expressed in units of a reference size (for example the picture height) resolved by
+ * the {@link LookGeometry} when the size of the views changes. When the first keyframe is not at the fraction 0, the
+ * track starts from the current value of the property.
+ */
+public final class KeyframeTrack {
+
+    // region Properties
+
+    /**
+     * Target of the picture, the product strip of each region follows.
+     */
+    public static final int TARGET_PICTURE = 0;
+
+    public static final int PROPERTY_TRANSLATION_X = 0;
+    public static final int PROPERTY_TRANSLATION_Y = 1;
+    public static final int PROPERTY_SCALE_X = 2;
+    public static final int PROPERTY_SCALE_Y = 3;
+    public static final int PROPERTY_ALPHA = 4;
+    public static final int PROPERTY_COUNT = 5;
+
+    /**
+     * Reference sizes, the height of the product strip of each region follows.
+     */
+    public static final int REFERENCE_NONE = 0;
+    public static final int REFERENCE_PICTURE_WIDTH = 1;
+    public static final int REFERENCE_PICTURE_HEIGHT = 2;
+
+    /**
+     * Maximum number of keyframes of a track.
+     */
+    public static final int MAX_KEYFRAMES = 4;
+
+    private final int mTarget;
+    private final int mProperty;
+    private final int mReference;
+    private final float[] mFractions;
+    private final float[] mValues;
+
+    // endregion
+
+
+    // region Constructors
+
+    public KeyframeTrack(int target, int property, int reference, float[] fractions, float[] values) {
+        if (fractions.length != values.length || fractions.length == 0 || fractions.length > MAX_KEYFRAMES) {
+            throw new IllegalArgumentException("A track needs between 1 and " + MAX_KEYFRAMES + " keyframes");
+        }
+        this.mTarget = target;
+        this.mProperty = property;
+        this.mReference = reference;
+        this.mFractions = fractions.clone();
+        this.mValues = values.clone();
+    }
+
+    /**
+     * Track animating the property from its current value to the given one.
+     */
+    public static KeyframeTrack to(int target, int property, float value, int reference) {
+        return new KeyframeTrack(target, property, reference, new float[]{1f}, new float[]{value});
+    }
+
+    // endregion
+
+
+    // region Getters
+
+    /**
+     * @return Target of the product strip of the given region
+     */
+    public static int getStripTarget(int regionIndex) {
+        return TARGET_PICTURE + 1 + regionIndex;
+    }
+
+    /**
+     * @return Reference size of the height of the product strip of the given region
+     */
+    public static int getStripHeightReference(int regionIndex) {
+        return REFERENCE_PICTURE_HEIGHT + 1 + regionIndex;
+    }
+
+    public static int getTargetCount(int regionCount) {
+        return getStripTarget(regionCount);
+    }
+
+    public static int getReferenceCount(int regionCount) {
+        return getStripHeightReference(regionCount);
+    }
+
+    public int getTarget() {
+        return mTarget;
+    }
+
+    public int getProperty() {
+        return mProperty;
+    }
+
+    public int getReference() {
+        return mReference;
+    }
+
+    public int getKeyframeCount() {
+        return mFractions.length;
+    }
+
+    public float getFraction(int index) {
+        return mFractions[index];
+    }
+
+    public float getValue(int index) {
+        return mValues[index];
+    }
+
+    // endregion
+
+}
@@ -0,0 +1,303 @@
+package com.mickaelg.lookanimation.ui.animation;
+
+import static com.mickaelg.lookanimation.ui.animation.KeyframeTrack.PROPERTY_ALPHA;
+import static com.mickaelg.lookanimation.ui.animation.KeyframeTrack.PROPERTY_COUNT;
+import static com.mickaelg.lookanimation.ui.animation.KeyframeTrack.TARGET_PICTURE;
+
+/**
+ * Decide which views of the look are drawn in a hardware layer and which ones are not drawn at all, for the
+ * {@link TimelineAnimator}.
+ * <p/>
+ * The views taking part in a transition are promoted to a hardware layer for its duration only: their translation,
+ * scale and alpha are then applied to the layer, without recording their content again nor fading it through an
+ * offscreen buffer on each frame. The picture is only promoted when the transition fades it without moving it, its
+ * image matrix changing its content: a layer would be redrawn on every frame.
+ * <p/>
+ * A view fully transparent, or translated out of its parent, is made invisible so it isn't drawn, then visible again
+ * as soon as it shows.
+ * <p/>
+ * The layers and hidden views of each transition are counted in a {@link Usage}. This class does not depend on the
+ * Android views: it holds the layer and visibility each view should have and the ones it has, the animator applies
+ * the changes. Every buffer is allocated once.
+ */
+public final class LayerPolicy {
+
+    // region Properties
+
+    /**
+     * Layers and hidden views of a transition.
+     */
+    public static final class Usage {
+
+        private int mLayerCount;
+        private int mFrameCount;
+        private int mLayerFrameCount;
+        private int mHiddenFrameCount;
+
+        private void reset() {
+            mLayerCount = 0;
+            mFrameCount = 0;
+            mLayerFrameCount = 0;
+            mHiddenFrameCount = 0;
+        }
+
+        private void set(Usage usage) {
+            mLayerCount = usage.mLayerCount;
+            mFrameCount = usage.mFrameCount;
+            mLayerFrameCount = usage.mLayerFrameCount;
+            mHiddenFrameCount = usage.mHiddenFrameCount;
+        }
+
+        /**
+         * @return Number of views promoted to a hardware layer during the transition
+         */
+        public int getLayerCount() {
+            return mLayerCount;
+        }
+
+        public int getFrameCount() {
+            return mFrameCount;
+        }
+
+        /**
+         * @return Number of times a view was drawn from its layer, summed over the frames of the transition
+         */
+        public int getLayerFrameCount() {
+            return mLayerFrameCount;
+        }
+
+        /**
+         * @return Number of times a view taking part in the transition was not drawn at all, being transparent or out
+         * of its parent, summed over the frames of the transition
+         */
+        public int getHiddenFrameCount() {
+            return mHiddenFrameCount;
+        }
+
+        @Override
+        public String toString() {
+            return mLayerCount + " layers, " + mFrameCount + " frames, " + mLayerFrameCount + " drawn from a layer, "
+                    + mHiddenFrameCount + " hidden";
+        }
+
+    }
+
+    /**
+     * Alpha under which a view is considered fully transparent.
+     */
+    private static final float TRANSPARENT_ALPHA = 0.001f;
+
+    /**
+     * Targets taking part in the current transition.
+     */
+    private final boolean[] mAnimated;
+    /**
+     * Layer each target should have, and the one applied to its view.
+     */
+    private final boolean[] mLayered;
+    private final boolean[] mLayerApplied;
+    /**
+     * Visibility each target should have, and the one applied to its view.
+     */
+    private final boolean[] mVisible;
+    private final boolean[] mVisibilityApplied;
+
+    private boolean mRunning = false;
+    private final Usage mUsage = new Usage();
+    private final Usage mLastUsage = new Usage();
+
+    // endregion
+
+
+    // region Constructors
+
+    /**
+     * @param targetCount Number of views animated by the timeline
+     */
+    public LayerPolicy(int targetCount) {
+        mAnimated = new boolean[targetCount];
+        mLayered = new boolean[targetCount];
+        mLayerApplied = new boolean[targetCount];
+        mVisible = new boolean[targetCount];
+        mVisibilityApplied = new boolean[targetCount];
+    }
+
+    /**
+     * Set the layer and visibility a view has, for example when it was used by another look before.
+     */
+    public void init(int target, boolean layered, boolean visible) {
+        mLayered[target] = layered;
+        mLayerApplied[target] = layered;
+        mVisible[target] = visible;
+        mVisibilityApplied[target] = visible;
+    }
+
+    // endregion
+
+
+    // region Transitions
+
+    /**
+     * Start a transition of the views moved by the finger: the views are promoted as they are moved, see
+     * {@link #addTarget(int)}. A running transition ends first.
+     */
+    public void begin() {
+        end();
+        mRunning = true;
+        mUsage.reset();
+    }
+
+    /**
+     * Start a transition of the timeline, promoting the views whose channels are animated. A running transition ends
+     * first, the views still animated keep their layer.
+     */
+    public void begin(LookTimeline timeline) {
+        begin();
+        boolean pictureMoved = false;
+        for (int i = 0, count = timeline.getActiveChannelCount(); i < count; i++) {
+            int channel = timeline.getActiveChannel(i);
+            int target = channel / PROPERTY_COUNT;
+            if (target == TARGET_PICTURE && channel % PROPERTY_COUNT != PROPERTY_ALPHA) {
+                pictureMoved = true;
+            }
+            mAnimated[target] = true;
+        }
+        for (int target = 0; target < mAnimated.length; target++) {
+            if (mAnimated[target] && (target != TARGET_PICTURE || !pictureMoved)) {
+                promote(target);
+            }
+        }
+    }
+
+    /**
+     * Add a view moved by the finger to the current transition. The picture is never promoted, its content moving.
+     */
+    public void addTarget(int target) {
+        if (!mRunning || mAnimated[target]) {
+            return;
+        }
+        mAnimated[target] = true;
+        if (target != TARGET_PICTURE) {
+            promote(target);
+        }
+    }
+
+    private void promote(int target) {
+        mLayered[target] = true;
+        mUsage.mLayerCount++;
+    }
+
+    /**
+     * Count a frame of the current transition, once its values are applied.
+     */
+    public void onFrame() {
+        if (!mRunning) {
+            return;
+        }
+        mUsage.mFrameCount++;
+        for (int target = 0; target < mAnimated.length; target++) {
+            if (!mAnimated[target]) {
+                continue;
+            }
+            if (!mVisible[target]) {
+                mUsage.mHiddenFrameCount++;
+            } else if (mLayered[target]) {
+                mUsage.mLayerFrameCount++;
+            }
+        }
+    }
+
+    /**
+     * End the current transition, if any: its views lose their layer and its usage is kept, see
+     * {@link #getLastUsage()}.
+     *
+     * @return True if a transition was running
+     */
+    public boolean end() {
+        if (!mRunning) {
+            return false;
+        }
+        mRunning = false;
+        for (int target = 0; target < mAnimated.length; target++) {
+            mAnimated[target] = false;
+            mLayered[target] = false;
+        }
+        mLastUsage.set(mUsage);
+        return true;
+    }
+
+    // endregion
+
+
+    // region Visibility
+
+    /**
+     * Update the visibility a view should have from its alpha and vertical bounds.
+     *
+     * @param top          Top of the view in its parent, translation included
+     * @param bottom       Bottom of the view in its parent, translation included
+     * @param parentHeight Height of the parent of the view, 0 if it isn't measured yet
+     * @return True if the view should be visible
+     */
+    public boolean updateVisibility(int target, float alpha, float top, float bottom, float parentHeight) {
+        boolean visible = alpha > TRANSPARENT_ALPHA && (parentHeight <= 0f || (bottom > 0f && top < parentHeight));
+        mVisible[target] = visible;
+        return visible;
+    }
+
+    // endregion
+
+
+    // region Getters
+
+    public boolean isRunning() {
+        return mRunning;
+    }
+
+    public boolean isLayered(int target) {
+        return mLayered[target];
+    }
+
+    public boolean isVisible(int target) {
+        return mVisible[target];
+    }
+
+    /**
+     * @return True if the layer the view should have is not applied yet, it is then considered applied
+     */
+    public boolean takeLayerChange(int target) {
+        if (mLayerApplied[target] == mLayered[target]) {
+            return false;
+        }
+        mLayerApplied[target] = mLayered[target];
+        return true;
+    }
+
+    /**
+     * @return True if the visibility the view should have is not applied yet, it is then considered applied
+     */
+    public boolean takeVisibilityChange(int target) {
+        if (mVisibilityApplied[target] == mVisible[target]) {
+            return false;
+        }
+        mVisibilityApplied[target] = mVisible[target];
+        return true;
+    }
+
+    /**
+     * @return Usage of the current transition, reset when the next one begins
+     */
+    public Usage getUsage() {
+        return mUsage;
+    }
+
+    /**
+     * @return Usage of the last transition ended, updated when the next one ends
+     */
+    public Usage getLastUsage() {
+        return mLastUsage;
+    }
+
+    // endregion
+
+}
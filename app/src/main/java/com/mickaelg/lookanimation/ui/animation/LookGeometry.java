@@ -0,0 +1,177 @@
+package com.mickaelg.lookanimation.ui.animation;
+
+import com.mickaelg.lookanimation.ui.LookAnimationDelegate;
+
+import static com.mickaelg.lookanimation.ui.animation.KeyframeTrack.PROPERTY_COUNT;
+import static com.mickaelg.lookanimation.ui.animation.KeyframeTrack.PROPERTY_TRANSLATION_Y;
+import static com.mickaelg.lookanimation.ui.animation.KeyframeTrack.REFERENCE_NONE;
+import static com.mickaelg.lookanimation.ui.animation.KeyframeTrack.REFERENCE_PICTURE_HEIGHT;
+import static com.mickaelg.lookanimation.ui.animation.KeyframeTrack.REFERENCE_PICTURE_WIDTH;
+import static com.mickaelg.lookanimation.ui.animation.KeyframeTrack.TARGET_PICTURE;
+
+/**
+ * Cache of everything depending on the size of the views: the absolute keyframe values of every
+ * {@link LookTransition}, the positions of the hidden product strips and the distance to cross to register a fling.
+ * Values are only computed again when a size changes, so the gestures and the frames only read cached floats.
+ */
+public final class LookGeometry {
+
+    // region Properties
+
+    /**
+     * Percentage of the view height that need to be crossed to register a fling.
+     */
+    private static final float SLIDE_THRESHOLD_MULTIPLIER = 0.05f;
+    /**
+     * Percentage of the view height the finger has to drag to go to the next region, when the picture barely moves
+     * between the two regions.
+     */
+    private static final float MIN_REGION_DISTANCE_MULTIPLIER = 0.25f;
+
+    private final LookTransitionTable mTransitionTable;
+
+    /**
+     * Current value of every reference size, indexed by reference.
+     */
+    private final float[] mSizes;
+    /**
+     * Resolved keyframe values of the transition to each state, in track order then keyframe order.
+     */
+    private final float[][] mKeyframeValues;
+    /**
+     * Value of each property of the picture in each state, indexed by state then property.
+     */
+    private final float[][] mPictureValues;
+    private float mFlingThreshold;
+    private boolean mValid = false;
+
+    // endregion
+
+
+    // region Constructors
+
+    public LookGeometry(LookTransitionTable transitionTable) {
+        mTransitionTable = transitionTable;
+        mSizes = new float[KeyframeTrack.getReferenceCount(transitionTable.getRegionCount())];
+
+        int stateCount = transitionTable.getStateCount();
+        mKeyframeValues = new float[stateCount][];
+        mPictureValues = new float[stateCount][PROPERTY_COUNT];
+        for (int state = 0; state < stateCount; state++) {
+            LookTransition transition = transitionTable.getTransition(state);
+            int keyframeCount = 0;
+            for (int i = 0, trackCount = transition.getTrackCount(); i < trackCount; i++) {
+                keyframeCount += transition.getTrack(i).getKeyframeCount();
+            }
+            mKeyframeValues[state] = new float[keyframeCount];
+        }
+        mSizes[REFERENCE_NONE] = 1f;
+    }
+
+    // endregion
+
+
+    // region Geometry
+
+    /**
+     * Update the sizes of the views, computing the cached values again only if one of them changed.
+     *
+     * @param stripHeights Height of the product strip of each region
+     * @return True if the cached values changed
+     */
+    public boolean update(float pictureWidth, float pictureHeight, float[] stripHeights) {
+        boolean changed = !mValid
+                || mSizes[REFERENCE_PICTURE_WIDTH] != pictureWidth
+                || mSizes[REFERENCE_PICTURE_HEIGHT] != pictureHeight;
+        for (int regionIndex = 0, count = mTransitionTable.getRegionCount(); regionIndex < count; regionIndex++) {
+            changed |= mSizes[KeyframeTrack.getStripHeightReference(regionIndex)] != stripHeights[regionIndex];
+        }
+        if (!changed) {
+            return false;
+        }
+
+        mSizes[REFERENCE_PICTURE_WIDTH] = pictureWidth;
+        mSizes[REFERENCE_PICTURE_HEIGHT] = pictureHeight;
+        for (int regionIndex = 0, count = mTransitionTable.getRegionCount(); regionIndex < count; regionIndex++) {
+            mSizes[KeyframeTrack.getStripHeightReference(regionIndex)] = stripHeights[regionIndex];
+        }
+        mFlingThreshold = SLIDE_THRESHOLD_MULTIPLIER * pictureHeight;
+
+        for (int state = 0; state < mKeyframeValues.length; state++) {
+            LookTransition transition = mTransitionTable.getTransition(state);
+            float[] values = mKeyframeValues[state];
+            int position = 0;
+            for (int i = 0, trackCount = transition.getTrackCount(); i < trackCount; i++) {
+                KeyframeTrack track = transition.getTrack(i);
+                float unit = mSizes[track.getReference()];
+                for (int k = 0, keyframeCount = track.getKeyframeCount(); k < keyframeCount; k++) {
+                    values[position++] = track.getValue(k) * unit;
+                }
+                if (track.getTarget() == TARGET_PICTURE) {
+                    mPictureValues[state][track.getProperty()] = values[position - 1];
+                }
+            }
+        }
+        mValid = true;
+        return true;
+    }
+
+    // endregion
+
+
+    // region Getters
+
+    /**
+     * @return True once the sizes of the views are known
+     */
+    public boolean isValid() {
+        return mValid;
+    }
+
+    /**
+     * @return Absolute keyframe values of the transition to the given state, in track order then keyframe order
+     */
+    public float[] getKeyframeValues(@LookAnimationDelegate.PictureState int state) {
+        return mKeyframeValues[state];
+    }
+
+    /**
+     * @param above True for the strip of a region above the one displayed, that left the view by the top, false for
+     *              a strip hidden below the view
+     * @return Translation on the Y axis of the product strip of the given region when it is hidden
+     */
+    public float getHiddenStripTranslationY(int regionIndex, boolean above) {
+        float height = mSizes[KeyframeTrack.getStripHeightReference(regionIndex)];
+        return above ? -height : height;
+    }
+
+    /**
+     * @return Value of the given property of the picture once the given state is reached
+     */
+    public float getPictureValue(@LookAnimationDelegate.PictureState int state, int property) {
+        return mPictureValues[state][property];
+    }
+
+    /**
+     * @return Vertical distance, in px, the finger has to drag to go from the given region to the next one. The
+     * picture follows the finger when it moves enough between the two regions.
+     */
+    public float getRegionDistance(int regionIndex) {
+        float distance = 0f;
+        if (regionIndex + 1 < mTransitionTable.getRegionCount()) {
+            distance = Math.abs(mPictureValues[LookTransitionTable.getState(regionIndex + 1)][PROPERTY_TRANSLATION_Y]
+                    - mPictureValues[LookTransitionTable.getState(regionIndex)][PROPERTY_TRANSLATION_Y]);
+        }
+        return Math.max(distance, MIN_REGION_DISTANCE_MULTIPLIER * mSizes[REFERENCE_PICTURE_HEIGHT]);
+    }
+
+    /**
+     * @return Vertical distance, in px, the finger has to cross to register a fling
+     */
+    public float getFlingThreshold() {
+        return mFlingThreshold;
+    }
+
+    // endregion
+
+}
@@ -0,0 +1,106 @@
+package com.mickaelg.lookanimation.ui.animation;
+
+import android.view.animation.Interpolator;
+
+/**
+ * Immutable interpolator backed by a lookup table precomputed once for the whole application. Instances are meant to
+ * be shared between every animation, so no interpolator is allocated when an animation starts.
+ */
+public final class LookInterpolator implements Interpolator {
+
+    // region Properties
+
+    /**
+     * Number of samples stored in the lookup table.
+     */
+    private static final int TABLE_SIZE = 201;
+
+    /**
+     * Fast out slow in curve, the same cubic bezier (0.4, 0, 0.2, 1) than the support library one.
+     */
+    public static final LookInterpolator FAST_OUT_SLOW_IN = new LookInterpolator(0.4f, 0f, 0.2f, 1f);
+
+    /**
+     * Output values of the curve, sampled at regular input steps.
+     */
+    private final float[] mValues;
+    /**
+     * Step between two samples of the table.
+     */
+    private final float mStepSize;
+
+    // endregion
+
+
+    // region Constructors
+
+    /**
+     * Sample the cubic bezier curve going from (0, 0) to (1, 1) with the given control points.
+     */
+    private LookInterpolator(float x1, float y1, float x2, float y2) {
+        mValues = new float[TABLE_SIZE];
+        mStepSize = 1f / (TABLE_SIZE - 1);
+        for (int i = 0; i < TABLE_SIZE; i++) {
+            float t = solveCurveT(i * mStepSize, x1, x2);
+            mValues[i] = bezier(t, y1, y2);
+        }
+    }
+
+    // endregion
+
+
+    // region Interpolator
+
+    @Override
+    public float getInterpolation(float input) {
+        if (input <= 0f) {
+            return 0f;
+        }
+        if (input >= 1f) {
+            return 1f;
+        }
+
+        int position = Math.min((int) (input * (TABLE_SIZE - 1)), TABLE_SIZE - 2);
+        float weight = (input - position * mStepSize) / mStepSize;
+        return mValues[position] + weight * (mValues[position + 1] - mValues[position]);
+    }
+
+    // endregion
+
+
+    // region Curve
+
+    /**
+     * Value of one coordinate of the curve at the parameter t.
+     */
+    private static float bezier(float t, float p1, float p2) {
+        float invT = 1f - t;
+        return 3f * invT * invT * t * p1 + 3f * invT * t * t * p2 + t * t * t;
+    }
+
+    /**
+     * Find the parameter t for which the X coordinate of the curve equals x, by bisection. Only used when building the
+     * table.
+     */
+    private static float solveCurveT(float x, float x1, float x2) {
+        float low = 0f;
+        float high = 1f;
+        float t = x;
+        for (int i = 0; i < 32; i++) {
+            float currentX = bezier(t, x1, x2);
+            if (Math.abs(currentX - x) < 1e-6f) {
+                break;
+            }
+            if (currentX < x) {
+                low = t;
+            } else {
+                high = t;
+            }
+            t = (low + high) / 2f;
+        }
+        return t;
+    }
+
+    // endregion
+
+}
@@ -0,0 +1,287 @@
+package com.mickaelg.lookanimation.ui.animation;
+
+import static com.mickaelg.lookanimation.ui.animation.KeyframeTrack.MAX_KEYFRAMES;
+import static com.mickaelg.lookanimation.ui.animation.KeyframeTrack.PROPERTY_COUNT;
+
+/**
+ * Compute the values of every view property of the look for a whole {@link LookTransition}, in a single pass per
+ * frame. Each property of each view is a channel, the channels not animated by the current transition are left
+ * untouched, so the cost of a frame only depends on the number of animated channels.
+ * <p/>
+ * A transition can be started while another one is running: the new one starts from the current values and keeps the
+ * current velocity of each channel, which then fades out during the transition, so the views never jump.
+ * <p/>
+ * This class does not depend on the Android views and holds the reference value of every channel, the
+ * {@link TimelineAnimator} writes the computed values to the views on each frame. Every buffer is allocated once.
+ */
+public final class LookTimeline {
+
+    // region Properties
+
+    /**
+     * Values closer than this are considered equal, so the channel does not need to be animated.
+     */
+    private static final float EPSILON = 0.001f;
+
+    private final int mChannelCount;
+
+    /**
+     * Current value of every channel.
+     */
+    private final float[] mValues;
+    /**
+     * Velocity of every animated channel when the current transition started, in units per ms.
+     */
+    private final float[] mStartVelocities;
+    /**
+     * Velocity of the channels animated by the previous transition when the current one started.
+     */
+    private final float[] mCarriedVelocities;
+    private final boolean[] mCarried;
+    private final int[] mCarriedChannels;
+    private int mCarriedChannelCount = 0;
+    /**
+     * Resolved keyframes of each channel animated by the current transition.
+     */
+    private final float[] mKeyFractions;
+    private final float[] mKeyValues;
+    private final int[] mKeyCounts;
+    /**
+     * Channels animated by the current transition.
+     */
+    private final int[] mActiveChannels;
+    private final boolean[] mChannelActive;
+    private int mActiveChannelCount = 0;
+
+    private LookTransition mTransition;
+    /**
+     * Linear progress of the current transition.
+     */
+    private float mFraction = 1f;
+
+    // endregion
+
+
+    // region Constructors
+
+    /**
+     * @param targetCount Number of views animated by the timeline
+     */
+    public LookTimeline(int targetCount) {
+        mChannelCount = targetCount * PROPERTY_COUNT;
+        mValues = new float[mChannelCount];
+        mStartVelocities = new float[mChannelCount];
+        mCarriedVelocities = new float[mChannelCount];
+        mCarried = new boolean[mChannelCount];
+        mCarriedChannels = new int[mChannelCount];
+        mKeyFractions = new float[mChannelCount * MAX_KEYFRAMES];
+        mKeyValues = new float[mChannelCount * MAX_KEYFRAMES];
+        mKeyCounts = new int[mChannelCount];
+        mActiveChannels = new int[mChannelCount];
+        mChannelActive = new boolean[mChannelCount];
+    }
+
+    // endregion
+
+
+    // region Timeline
+
+    /**
+     * Prepare the timeline for a new transition. If a transition is still running, the velocity of its channels is
+     * kept for the channels animated again, the other ones stop where they are.
+     *
+     * @param transition     Transition to play
+     * @param keyframeValues Absolute keyframe values of the transition, see {@link LookGeometry}
+     */
+    public void begin(LookTransition transition, float[] keyframeValues) {
+        for (int i = 0; i < mCarriedChannelCount; i++) {
+            mCarried[mCarriedChannels[i]] = false;
+        }
+        mCarriedChannelCount = 0;
+        if (isRunning()) {
+            for (int i = 0; i < mActiveChannelCount; i++) {
+                int channel = mActiveChannels[i];
+                mCarriedVelocities[channel] = getVelocity(channel);
+                mCarried[channel] = true;
+                mCarriedChannels[mCarriedChannelCount++] = channel;
+            }
+        }
+        for (int i = 0; i < mActiveChannelCount; i++) {
+            mChannelActive[mActiveChannels[i]] = false;
+        }
+        mActiveChannelCount = 0;
+
+        mTransition = transition;
+        mFraction = 0f;
+
+        int position = 0;
+        for (int i = 0, trackCount = transition.getTrackCount(); i < trackCount; i++) {
+            KeyframeTrack track = transition.getTrack(i);
+            int channel = getChannel(track.getTarget(), track.getProperty());
+            int keyframeCount = track.getKeyframeCount();
+            addChannel(channel, track, keyframeValues, position, keyframeCount);
+            position += keyframeCount;
+        }
+    }
+
+    /**
+     * Animate one more channel during the current transition, from its current value to the given one.
+     */
+    public void animateTo(int channel, float value) {
+        int offset = channel * MAX_KEYFRAMES;
+        mKeyFractions[offset] = 0f;
+        mKeyValues[offset] = mValues[channel];
+        mKeyFractions[offset + 1] = 1f;
+        mKeyValues[offset + 1] = value;
+        mKeyCounts[channel] = 2;
+        activate(channel, Math.abs(value - mValues[channel]) > EPSILON);
+    }
+
+    /**
+     * Set the keyframes of a channel from a track, starting from the current value of the channel unless the first
+     * keyframe is at the start of the transition.
+     *
+     * @param values Array containing the values of the keyframes, from the given position
+     */
+    private void addChannel(int channel, KeyframeTrack track, float[] values, int position, int keyframeCount) {
+        int offset = channel * MAX_KEYFRAMES;
+        boolean moving = false;
+        int count = 0;
+        if (track.getFraction(0) > 0f) {
+            mKeyFractions[offset] = 0f;
+            mKeyValues[offset] = mValues[channel];
+            count++;
+        }
+        for (int k = 0; k < keyframeCount && count < MAX_KEYFRAMES; k++) {
+            mKeyFractions[offset + count] = track.getFraction(k);
+            mKeyValues[offset + count] = values[position + k];
+            moving |= Math.abs(values[position + k] - mValues[channel]) > EPSILON;
+            count++;
+        }
+        mKeyCounts[channel] = count;
+        activate(channel, moving);
+    }
+
+    /**
+     * Animate the channel during the current transition, unless it is already at rest on its target.
+     */
+    private void activate(int channel, boolean moving) {
+        float velocity = mCarried[channel] ? mCarriedVelocities[channel] : 0f;
+        if ((moving || velocity != 0f) && !mChannelActive[channel]) {
+            mStartVelocities[channel] = velocity;
+            mChannelActive[channel] = true;
+            mActiveChannels[mActiveChannelCount++] = channel;
+        }
+    }
+
+    /**
+     * End the current transition where it is, so the next one doesn't carry the velocity of its channels.
+     */
+    public void stop() {
+        mFraction = 1f;
+    }
+
+    /**
+     * Set immediately the value of a channel that is not animated.
+     */
+    public void setValue(int channel, float value) {
+        mValues[channel] = value;
+    }
+
+    /**
+     * Compute the value of every animated channel at the given time of the transition.
+     *
+     * @param playTime Time elapsed since the start of the transition, in ms
+     */
+    public void setPlayTime(long playTime) {
+        long duration = mTransition.getDuration();
+        setFraction(duration > 0 ? Math.min(1f, playTime / (float) duration) : 1f);
+    }
+
+    /**
+     * Compute the value of every animated channel at the given fraction of the transition.
+     *
+     * @param fraction Linear progress of the transition, between 0 and 1
+     */
+    public void setFraction(float fraction) {
+        mFraction = fraction;
+        for (int i = 0; i < mActiveChannelCount; i++) {
+            int channel = mActiveChannels[i];
+            mValues[channel] = evaluate(channel, fraction);
+        }
+    }
+
+    /**
+     * Value of a channel at the given fraction: the eased keyframes, plus the velocity the channel had when the
+     * transition started, fading out so the channel settles on its last keyframe.
+     */
+    private float evaluate(int channel, float fraction) {
+        float value = evaluateKeyframes(channel, mTransition.getInterpolator().getInterpolation(fraction));
+        float remaining = 1f - fraction;
+        return value + mStartVelocities[channel] * mTransition.getDuration() * fraction * remaining * remaining;
+    }
+
+    private float evaluateKeyframes(int channel, float progress) {
+        int offset = channel * MAX_KEYFRAMES;
+        int last = offset + mKeyCounts[channel] - 1;
+        if (progress <= mKeyFractions[offset]) {
+            return mKeyValues[offset];
+        }
+        for (int k = offset + 1; k <= last; k++) {
+            if (progress <= mKeyFractions[k]) {
+                float segment = mKeyFractions[k] - mKeyFractions[k - 1];
+                float weight = segment > 0f ? (progress - mKeyFractions[k - 1]) / segment : 1f;
+                return mKeyValues[k - 1] + weight * (mKeyValues[k] - mKeyValues[k - 1]);
+            }
+        }
+        return mKeyValues[last];
+    }
+
+    /**
+     * Velocity of a channel at the current fraction of the transition, in units per ms.
+     */
+    public float getVelocity(int channel) {
+        long duration = mTransition == null ? 0 : mTransition.getDuration();
+        if (!mChannelActive[channel] || duration <= 0 || mFraction >= 1f) {
+            return 0f;
+        }
+        float step = Math.min(1f / duration, 1f - mFraction);
+        return (evaluate(channel, mFraction + step) - evaluate(channel, mFraction)) / (step * duration);
+    }
+
+    // endregion
+
+
+    // region Getters
+
+    public static int getChannel(int target, int property) {
+        return target * PROPERTY_COUNT + property;
+    }
+
+    public int getChannelCount() {
+        return mChannelCount;
+    }
+
+    public boolean isRunning() {
+        return mTransition != null && mFraction < 1f;
+    }
+
+    public int getActiveChannelCount() {
+        return mActiveChannelCount;
+    }
+
+    public int getActiveChannel(int index) {
+        return mActiveChannels[index];
+    }
+
+    public float getValue(int channel) {
+        return mValues[channel];
+    }
+
+    public LookTransition getTransition() {
+        return mTransition;
+    }
+
+    // endregion
+
+}
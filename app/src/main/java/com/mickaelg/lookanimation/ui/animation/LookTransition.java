@@ -0,0 +1,64 @@
+package com.mickaelg.lookanimation.ui.animation;
+
+import android.view.animation.Interpolator;
+
+import com.mickaelg.lookanimation.ui.LookAnimationDelegate;
+
+/**
+ * Immutable description of a move to a {@link LookAnimationDelegate.PictureState}: the keyframe tracks bringing every
+ * view property to the absolute transform of the state, for how long and with which interpolator they are played. As
+ * the targets are absolute, the same transition can be started from any state, even in the middle of another
+ * transition. Transitions are created once by {@link LookTransitionTable} and reused for every gesture.
+ */
+public final class LookTransition {
+
+    // region Properties
+
+    @LookAnimationDelegate.PictureState
+    private final int mToState;
+    private final KeyframeTrack[] mTracks;
+    private final long mDuration;
+    private final Interpolator mInterpolator;
+
+    // endregion
+
+
+    // region Constructors
+
+    public LookTransition(@LookAnimationDelegate.PictureState int toState, long duration, Interpolator interpolator,
+                          KeyframeTrack... tracks) {
+        this.mToState = toState;
+        this.mDuration = duration;
+        this.mInterpolator = interpolator;
+        this.mTracks = tracks.clone();
+    }
+
+    // endregion
+
+
+    // region Getters
+
+    @LookAnimationDelegate.PictureState
+    public int getToState() {
+        return mToState;
+    }
+
+    public int getTrackCount() {
+        return mTracks.length;
+    }
+
+    public KeyframeTrack getTrack(int index) {
+        return mTracks[index];
+    }
+
+    public long getDuration() {
+        return mDuration;
+    }
+
+    public Interpolator getInterpolator() {
+        return mInterpolator;
+    }
+
+    // endregion
+
+}
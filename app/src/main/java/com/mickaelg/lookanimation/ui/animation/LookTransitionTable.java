@@ -0,0 +1,185 @@
+package com.mickaelg.lookanimation.ui.animation;
+
+import android.support.annotation.Nullable;
+
+import com.mickaelg.lookanimation.model.LookRegion;
+import com.mickaelg.lookanimation.ui.LookAnimationDelegate;
+
+import java.util.List;
+
+import static com.mickaelg.lookanimation.ui.LookAnimationDelegate.STATE_NOT_ZOOMED;
+import static com.mickaelg.lookanimation.ui.animation.KeyframeTrack.PROPERTY_ALPHA;
+import static com.mickaelg.lookanimation.ui.animation.KeyframeTrack.PROPERTY_SCALE_X;
+import static com.mickaelg.lookanimation.ui.animation.KeyframeTrack.PROPERTY_SCALE_Y;
+import static com.mickaelg.lookanimation.ui.animation.KeyframeTrack.PROPERTY_TRANSLATION_X;
+import static com.mickaelg.lookanimation.ui.animation.KeyframeTrack.PROPERTY_TRANSLATION_Y;
+import static com.mickaelg.lookanimation.ui.animation.KeyframeTrack.REFERENCE_NONE;
+import static com.mickaelg.lookanimation.ui.animation.KeyframeTrack.REFERENCE_PICTURE_HEIGHT;
+import static com.mickaelg.lookanimation.ui.animation.KeyframeTrack.REFERENCE_PICTURE_WIDTH;
+import static com.mickaelg.lookanimation.ui.animation.KeyframeTrack.TARGET_PICTURE;
+
+/**
+ * Every {@link LookTransition} the look can go through, built once from the regions of the look and indexed by state,
+ * so the gesture callbacks only read arrays whatever the number of regions.
+ * <p/>
+ * The state {@link LookAnimationDelegate#STATE_NOT_ZOOMED} shows the whole picture, each region has its own state
+ * zooming the picture on the region and displaying its product strip. Regions are ordered from the top to the bottom
+ * of the picture: a fling toward the bottom of the look goes to the next region, a fling toward the top to the
+ * previous one.
+ */
+public final class LookTransitionTable {
+
+    // region Properties
+
+    private final int mRegionCount;
+
+    /**
+     * Transition bringing the picture and the product strip of the state to their place, indexed by state.
+     */
+    private final LookTransition[] mTransitions;
+    /**
+     * State to reach on a single tap, indexed by the current state.
+     */
+    private final int[] mTapTargets;
+    /**
+     * State to reach when the user flings toward the bottom of the look, indexed by the current state. A state
+     * reaching itself means the fling has no effect.
+     */
+    private final int[] mFlingUpTargets;
+    /**
+     * State to reach when the user flings toward the top of the look, indexed by the current state.
+     */
+    private final int[] mFlingDownTargets;
+
+    // endregion
+
+
+    // region Constructors
+
+    public LookTransitionTable(List<LookRegion> regionList, long duration) {
+        mRegionCount = regionList.size();
+        int stateCount = mRegionCount + 1;
+        mTransitions = new LookTransition[stateCount];
+        mTapTargets = new int[stateCount];
+        mFlingUpTargets = new int[stateCount];
+        mFlingDownTargets = new int[stateCount];
+
+        LookInterpolator interpolator = LookInterpolator.FAST_OUT_SLOW_IN;
+
+        // Picture not zoomed, every product strip hidden
+        mTransitions[STATE_NOT_ZOOMED] = new LookTransition(STATE_NOT_ZOOMED, duration, interpolator,
+                pictureTracks(1f, 0f, 0f, null));
+        mTapTargets[STATE_NOT_ZOOMED] = mRegionCount > 0 ? getState(0) : STATE_NOT_ZOOMED;
+        mFlingUpTargets[STATE_NOT_ZOOMED] = STATE_NOT_ZOOMED;
+        mFlingDownTargets[STATE_NOT_ZOOMED] = STATE_NOT_ZOOMED;
+
+        // Picture zoomed on the region, product strip of the region displayed
+        for (int regionIndex = 0; regionIndex < mRegionCount; regionIndex++) {
+            LookRegion region = regionList.get(regionIndex);
+            int state = getState(regionIndex);
+
+            float width = region.getZoomRight() - region.getZoomLeft();
+            float height = region.getZoomBottom() - region.getZoomTop();
+            float scale = 1f / Math.max(width, height);
+            // Bring the center of the zoom rectangle to the center of the view
+            float translationXMultiplier = (0.5f - (region.getZoomLeft() + width / 2f)) * scale;
+            float translationYMultiplier = (0.5f - (region.getZoomTop() + height / 2f)) * scale;
+
+            KeyframeTrack[] stripTracks = {
+                    KeyframeTrack.to(KeyframeTrack.getStripTarget(regionIndex), PROPERTY_ALPHA, 1f, REFERENCE_NONE),
+                    KeyframeTrack.to(KeyframeTrack.getStripTarget(regionIndex), PROPERTY_TRANSLATION_Y, 0f,
+                            REFERENCE_NONE)
+            };
+            mTransitions[state] = new LookTransition(state, duration, interpolator,
+                    pictureTracks(scale, translationXMultiplier, translationYMultiplier, stripTracks));
+
+            mTapTargets[state] = STATE_NOT_ZOOMED;
+            mFlingUpTargets[state] = regionIndex + 1 < mRegionCount ? getState(regionIndex + 1) : state;
+            mFlingDownTargets[state] = regionIndex > 0 ? getState(regionIndex - 1) : state;
+        }
+    }
+
+    /**
+     * Absolute transform of the picture, followed by the given tracks.
+     *
+     * @param scale                  Scale of the picture
+     * @param translationXMultiplier Translation on the X axis, in picture width
+     * @param translationYMultiplier Translation on the Y axis, in picture height
+     */
+    private static KeyframeTrack[] pictureTracks(float scale, float translationXMultiplier,
+                                                 float translationYMultiplier, @Nullable KeyframeTrack[] otherTracks) {
+        KeyframeTrack[] pictureTracks = {
+                KeyframeTrack.to(TARGET_PICTURE, PROPERTY_SCALE_X, scale, REFERENCE_NONE),
+                KeyframeTrack.to(TARGET_PICTURE, PROPERTY_SCALE_Y, scale, REFERENCE_NONE),
+                KeyframeTrack.to(TARGET_PICTURE, PROPERTY_TRANSLATION_X, translationXMultiplier,
+                        REFERENCE_PICTURE_WIDTH),
+                KeyframeTrack.to(TARGET_PICTURE, PROPERTY_TRANSLATION_Y, translationYMultiplier,
+                        REFERENCE_PICTURE_HEIGHT),
+                KeyframeTrack.to(TARGET_PICTURE, PROPERTY_ALPHA, 1f, REFERENCE_NONE)
+        };
+        if (otherTracks == null) {
+            return pictureTracks;
+        }
+
+        KeyframeTrack[] tracks = new KeyframeTrack[pictureTracks.length + otherTracks.length];
+        System.arraycopy(pictureTracks, 0, tracks, 0, pictureTracks.length);
+        System.arraycopy(otherTracks, 0, tracks, pictureTracks.length, otherTracks.length);
+        return tracks;
+    }
+
+    // endregion
+
+
+    // region Getters
+
+    public int getRegionCount() {
+        return mRegionCount;
+    }
+
+    public int getStateCount() {
+        return mRegionCount + 1;
+    }
+
+    /**
+     * @return State zooming on the given region
+     */
+    @LookAnimationDelegate.PictureState
+    public static int getState(int regionIndex) {
+        return STATE_NOT_ZOOMED + 1 + regionIndex;
+    }
+
+    /**
+     * @return Region the given state zooms on, or -1 if the picture is not zoomed
+     */
+    public static int getRegionIndex(@LookAnimationDelegate.PictureState int state) {
+        return state - STATE_NOT_ZOOMED - 1;
+    }
+
+    /**
+     * @return Transition bringing the views to the given state, from wherever they are
+     */
+    public LookTransition getTransition(@LookAnimationDelegate.PictureState int state) {
+        return mTransitions[state];
+    }
+
+    /**
+     * @return Transition to start when the user taps the picture in the given state
+     */
+    public LookTransition getTapTransition(@LookAnimationDelegate.PictureState int state) {
+        return mTransitions[mTapTargets[state]];
+    }
+
+    /**
+     * @param towardBottom True if the finger moved up, to see the bottom of the look, false if it moved down
+     * @return Transition to start when the user flings the picture in the given state, or null if the fling has no
+     * effect in this state
+     */
+    @Nullable
+    public LookTransition getFlingTransition(@LookAnimationDelegate.PictureState int state, boolean towardBottom) {
+        int target = towardBottom ? mFlingUpTargets[state] : mFlingDownTargets[state];
+        return target != state ? mTransitions[target] : null;
+    }
+
+    // endregion
+
+}
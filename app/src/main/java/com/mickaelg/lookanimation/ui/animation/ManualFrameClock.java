@@ -0,0 +1,82 @@
+package com.mickaelg.lookanimation.ui.animation;
+
+/**
+ * Clock stepped by the caller, frame after frame, so transitions can be played deterministically without a display,
+ * for example by a {@link TransitionSimulator} on the JVM. Like an animator, it gives a first frame as soon as it
+ * starts and ends on the first frame past its duration.
+ */
+public final class ManualFrameClock implements FrameClock {
+
+    // region Properties
+
+    private Callback mCallback;
+    private boolean mRunning = false;
+    private long mDuration;
+    private long mPlayTime;
+
+    // endregion
+
+
+    // region FrameClock
+
+    @Override
+    public void setCallback(Callback callback) {
+        mCallback = callback;
+    }
+
+    @Override
+    public void start(long duration) {
+        if (mRunning) {
+            throw new IllegalStateException("The clock is already running");
+        }
+        mRunning = true;
+        mDuration = duration;
+        mPlayTime = 0;
+        mCallback.onFrame(0);
+    }
+
+    @Override
+    public void cancel() {
+        if (mRunning) {
+            mRunning = false;
+            mCallback.onEnd(true);
+        }
+    }
+
+    @Override
+    public boolean isRunning() {
+        return mRunning;
+    }
+
+    // endregion
+
+
+    // region Frames
+
+    /**
+     * Give the next frame, if the clock is running.
+     *
+     * @param frameTime Time since the previous frame, in ms
+     * @return True if the clock was running
+     */
+    public boolean advance(long frameTime) {
+        if (!mRunning) {
+            return false;
+        }
+        mPlayTime += frameTime;
+        mCallback.onFrame(mPlayTime);
+        // The callback may have canceled the clock
+        if (mRunning && mPlayTime >= mDuration) {
+            mRunning = false;
+            mCallback.onEnd(false);
+        }
+        return true;
+    }
+
+    public long getPlayTime() {
+        return mPlayTime;
+    }
+
+    // endregion
+
+}
@@ -0,0 +1,145 @@
+package com.mickaelg.lookanimation.ui.animation;
+
+import android.graphics.Matrix;
+import android.graphics.RectF;
+import android.graphics.drawable.Drawable;
+import android.widget.ImageView;
+
+/**
+ * Transform of the look picture, applied to the image matrix of an {@link ImageView} with the
+ * {@link ImageView.ScaleType#MATRIX} scale type instead of scaling the whole view. The picture is cropped to fill the
+ * view like {@link ImageView.ScaleType#CENTER_CROP} does, then scaled around the center of the view and translated,
+ * the same way the view properties would.
+ * <p/>
+ * The matrices and rectangles are allocated once, applying a transform only computes a few floats.
+ */
+public final class PictureMatrix {
+
+    // region Properties
+
+    /**
+     * Deepest zoom the user can reach by pinching, relative to the picture filling the view.
+     */
+    private static final float MAX_SCALE = 6f;
+
+    /**
+     * Picture cropped to fill the view.
+     */
+    private final Matrix mBaseMatrix = new Matrix();
+    /**
+     * Base matrix followed by the current transform, applied to the view.
+     */
+    private final Matrix mMatrix = new Matrix();
+    private final RectF mDrawableRect = new RectF();
+    /**
+     * Bounds of the picture in the view through the base matrix.
+     */
+    private final RectF mBaseRect = new RectF();
+
+    private int mViewWidth;
+    private int mViewHeight;
+    private int mDrawableWidth;
+    private int mDrawableHeight;
+
+    // endregion
+
+
+    // region Matrix
+
+    /**
+     * Compute the base matrix again if the size of the view or of its picture changed.
+     *
+     * @return True if the base matrix changed
+     */
+    public boolean update(ImageView imageView) {
+        Drawable drawable = imageView.getDrawable();
+        int drawableWidth = drawable != null ? drawable.getIntrinsicWidth() : 0;
+        int drawableHeight = drawable != null ? drawable.getIntrinsicHeight() : 0;
+        int viewWidth = imageView.getWidth();
+        int viewHeight = imageView.getHeight();
+        if (viewWidth == mViewWidth && viewHeight == mViewHeight
+                && drawableWidth == mDrawableWidth && drawableHeight == mDrawableHeight) {
+            return false;
+        }
+        mViewWidth = viewWidth;
+        mViewHeight = viewHeight;
+        mDrawableWidth = drawableWidth;
+        mDrawableHeight = drawableHeight;
+
+        mBaseMatrix.reset();
+        if (drawableWidth > 0 && drawableHeight > 0) {
+            float scale = Math.max(viewWidth / (float) drawableWidth, viewHeight / (float) drawableHeight);
+            mBaseMatrix.setScale(scale, scale);
+            mBaseMatrix.postTranslate((viewWidth - drawableWidth * scale) / 2f,
+                    (viewHeight - drawableHeight * scale) / 2f);
+        }
+        mDrawableRect.set(0f, 0f, drawableWidth, drawableHeight);
+        mBaseMatrix.mapRect(mBaseRect, mDrawableRect);
+        return true;
+    }
+
+    /**
+     * Apply the given transform to the picture.
+     *
+     * @param scaleX       Scale of the picture on the X axis, around the center of the view
+     * @param scaleY       Scale of the picture on the Y axis, around the center of the view
+     * @param translationX Translation of the picture on the X axis, in px
+     * @param translationY Translation of the picture on the Y axis, in px
+     */
+    public void apply(ImageView imageView, float scaleX, float scaleY, float translationX, float translationY) {
+        compute(scaleX, scaleY, translationX, translationY, mMatrix);
+        imageView.setImageMatrix(mMatrix);
+    }
+
+    /**
+     * Compute the image matrix of the given transform, without applying it.
+     *
+     * @param matrix Matrix set to the result
+     */
+    public void compute(float scaleX, float scaleY, float translationX, float translationY, Matrix matrix) {
+        matrix.set(mBaseMatrix);
+        matrix.postScale(scaleX, scaleY, mViewWidth / 2f, mViewHeight / 2f);
+        matrix.postTranslate(translationX, translationY);
+    }
+
+    // endregion
+
+
+    // region Bounds
+
+    public float clampScale(float scale) {
+        return Math.max(1f, Math.min(MAX_SCALE, scale));
+    }
+
+    /**
+     * @return Closest translation on the X axis keeping the picture over the whole width of the view at the given
+     * scale
+     */
+    public float clampTranslationX(float scale, float translationX) {
+        return clampTranslation(scale, translationX, mBaseRect.left, mBaseRect.right, mViewWidth);
+    }
+
+    /**
+     * @return Closest translation on the Y axis keeping the picture over the whole height of the view at the given
+     * scale
+     */
+    public float clampTranslationY(float scale, float translationY) {
+        return clampTranslation(scale, translationY, mBaseRect.top, mBaseRect.bottom, mViewHeight);
+    }
+
+    private static float clampTranslation(float scale, float translation, float start, float end, int viewSize) {
+        float center = viewSize / 2f;
+        // Picture edges once scaled around the center of the view: start + translation <= 0 and end + translation
+        // >= viewSize
+        float max = -(center + scale * (start - center));
+        float min = viewSize - (center + scale * (end - center));
+        if (min > max) {
+            // Picture smaller than the view, keep it centered
+            return (min + max) / 2f;
+        }
+        return Math.max(min, Math.min(max, translation));
+    }
+
+    // endregion
+
+}
@@ -0,0 +1,252 @@
+package com.mickaelg.lookanimation.ui.animation;
+
+import static com.mickaelg.lookanimation.ui.animation.KeyframeTrack.PROPERTY_ALPHA;
+import static com.mickaelg.lookanimation.ui.animation.KeyframeTrack.PROPERTY_COUNT;
+import static com.mickaelg.lookanimation.ui.animation.KeyframeTrack.PROPERTY_TRANSLATION_Y;
+import static com.mickaelg.lookanimation.ui.animation.KeyframeTrack.TARGET_PICTURE;
+
+/**
+ * Move the zoomed picture between the regions of the look following the finger, then settle on a region with a
+ * {@link SpringSimulation} seeded with the velocity of the finger when it is released.
+ * <p/>
+ * The position is expressed in regions: 0 is the first region, 1.5 is halfway between the second and the third one.
+ * The values of the views are interpolated between the two closest regions and written to a {@link LookTimeline}, so
+ * a transition can start from wherever the finger left the views. Nothing is allocated once created.
+ */
+public final class RegionScroller {
+
+    // region Properties
+
+    private static final float STIFFNESS = 250f;
+    private static final float DAMPING_RATIO = 0.9f;
+    private static final float REST_DISTANCE = 0.001f;
+    /**
+     * How far, in regions, the finger can drag beyond the first and the last region.
+     */
+    private static final float MAX_OVERSCROLL = 0.2f;
+    /**
+     * Ratio of the finger move applied to the position beyond the first and the last region.
+     */
+    private static final float OVERSCROLL_RESISTANCE = 0.4f;
+    /**
+     * Time, in seconds, the velocity of the finger is projected to choose the region to settle on.
+     */
+    private static final float FLING_PROJECTION = 0.12f;
+    /**
+     * The picture and up to two strips on each side of the position.
+     */
+    private static final int MAX_WRITTEN_TARGETS = 5;
+
+    private final LookGeometry mGeometry;
+    private final int mRegionCount;
+    private final SpringSimulation mSpring = new SpringSimulation(STIFFNESS, DAMPING_RATIO, REST_DISTANCE);
+
+    private float mPosition;
+    private boolean mDragging = false;
+    private boolean mSettling = false;
+
+    /**
+     * Regions whose strip was written by the last call to {@link #writeValues(LookTimeline)}.
+     */
+    private int mFirstVisibleRegion = -1;
+    private int mLastVisibleRegion = -1;
+    /**
+     * Targets written by the last call to {@link #writeValues(LookTimeline)}.
+     */
+    private final int[] mWrittenTargets = new int[MAX_WRITTEN_TARGETS];
+    private int mWrittenTargetCount = 0;
+
+    // endregion
+
+
+    // region Constructors
+
+    public RegionScroller(LookGeometry geometry, int regionCount) {
+        mGeometry = geometry;
+        mRegionCount = regionCount;
+    }
+
+    // endregion
+
+
+    // region Gesture
+
+    /**
+     * Start following the finger. If the scroller is still settling, the finger catches the views where they are.
+     *
+     * @param regionIndex Region displayed when the finger touched the screen
+     */
+    public void startDrag(int regionIndex) {
+        if (!mSettling) {
+            mPosition = regionIndex;
+            mFirstVisibleRegion = regionIndex;
+            mLastVisibleRegion = regionIndex;
+        }
+        mSettling = false;
+        mDragging = true;
+    }
+
+    /**
+     * @param deltaY Vertical move of the finger, in px, positive when it moves down
+     */
+    public void drag(float deltaY) {
+        // The finger moving up shows the regions lower on the body
+        float delta = -deltaY / mGeometry.getRegionDistance(getSegmentRegion());
+        if (mPosition < 0f || mPosition > mRegionCount - 1) {
+            delta *= OVERSCROLL_RESISTANCE;
+        }
+        mPosition = Math.max(-MAX_OVERSCROLL, Math.min(mRegionCount - 1 + MAX_OVERSCROLL, mPosition + delta));
+    }
+
+    /**
+     * Release the finger and let the spring settle on a region.
+     *
+     * @param velocityY Vertical velocity of the finger, in px per second, positive when it moves down
+     * @return Region the views settle on
+     */
+    public int release(float velocityY) {
+        float velocity = -velocityY / mGeometry.getRegionDistance(getSegmentRegion());
+        int target = Math.round(mPosition + velocity * FLING_PROJECTION);
+        target = Math.max(0, Math.min(mRegionCount - 1, target));
+
+        mSpring.setPosition(mPosition);
+        mSpring.setVelocity(velocity);
+        mSpring.setTarget(target);
+        mDragging = false;
+        mSettling = true;
+        return target;
+    }
+
+    /**
+     * Move the spring forward in time.
+     *
+     * @param deltaSeconds Time elapsed since the last frame
+     * @return True while settling
+     */
+    public boolean step(float deltaSeconds) {
+        if (!mSettling) {
+            return false;
+        }
+        mSettling = mSpring.step(deltaSeconds);
+        mPosition = mSpring.getPosition();
+        return mSettling;
+    }
+
+    /**
+     * Put the views on the region targeted by the spring immediately.
+     */
+    public void finish() {
+        if (mSettling) {
+            mPosition = mSpring.getTarget();
+        }
+        mDragging = false;
+        mSettling = false;
+    }
+
+    /**
+     * Stop following the finger or settling, leaving the views where they are.
+     */
+    public void stop() {
+        mDragging = false;
+        mSettling = false;
+    }
+
+    // endregion
+
+
+    // region Values
+
+    /**
+     * Write the values of the picture and of the product strips around the current position to the timeline. The
+     * strips written by the previous call that are now far from the position are hidden.
+     */
+    public void writeValues(LookTimeline timeline) {
+        mWrittenTargetCount = 0;
+        writePictureValues(timeline);
+
+        int firstRegion = Math.max(0, (int) Math.floor(mPosition));
+        int lastRegion = Math.min(mRegionCount - 1, (int) Math.ceil(mPosition));
+        firstRegion = Math.min(firstRegion, lastRegion);
+        for (int regionIndex = mFirstVisibleRegion; regionIndex <= mLastVisibleRegion; regionIndex++) {
+            if (regionIndex >= 0 && (regionIndex < firstRegion || regionIndex > lastRegion)) {
+                writeStripValues(timeline, regionIndex);
+            }
+        }
+        for (int regionIndex = firstRegion; regionIndex <= lastRegion; regionIndex++) {
+            writeStripValues(timeline, regionIndex);
+        }
+        mFirstVisibleRegion = firstRegion;
+        mLastVisibleRegion = lastRegion;
+    }
+
+    private void writePictureValues(LookTimeline timeline) {
+        int fromRegion = getSegmentRegion();
+        int fromState = LookTransitionTable.getState(fromRegion);
+        int toState = LookTransitionTable.getState(Math.min(mRegionCount - 1, fromRegion + 1));
+        // Not clamped, so the picture keeps moving with the finger beyond the first and the last region
+        float fraction = mPosition - fromRegion;
+        for (int property = 0; property < PROPERTY_COUNT; property++) {
+            float from = mGeometry.getPictureValue(fromState, property);
+            float to = mGeometry.getPictureValue(toState, property);
+            timeline.setValue(LookTimeline.getChannel(TARGET_PICTURE, property), from + (to - from) * fraction);
+        }
+        mWrittenTargets[mWrittenTargetCount++] = TARGET_PICTURE;
+    }
+
+    /**
+     * A strip is displayed when the position is on its region, and slides out toward the side of its region as the
+     * position moves away.
+     */
+    private void writeStripValues(LookTimeline timeline, int regionIndex) {
+        float distance = Math.min(1f, Math.abs(regionIndex - mPosition));
+        int target = KeyframeTrack.getStripTarget(regionIndex);
+        timeline.setValue(LookTimeline.getChannel(target, PROPERTY_TRANSLATION_Y),
+                mGeometry.getHiddenStripTranslationY(regionIndex, regionIndex < mPosition) * distance);
+        timeline.setValue(LookTimeline.getChannel(target, PROPERTY_ALPHA), 1f - distance);
+        if (mWrittenTargetCount < MAX_WRITTEN_TARGETS) {
+            mWrittenTargets[mWrittenTargetCount++] = target;
+        }
+    }
+
+    // endregion
+
+
+    // region Getters
+
+    /**
+     * @return First of the two regions the current position is between
+     */
+    private int getSegmentRegion() {
+        return Math.max(0, Math.min(mRegionCount - 2, (int) Math.floor(mPosition)));
+    }
+
+    /**
+     * @return Closest region to the current position
+     */
+    public int getClosestRegion() {
+        return Math.max(0, Math.min(mRegionCount - 1, Math.round(mPosition)));
+    }
+
+    public float getPosition() {
+        return mPosition;
+    }
+
+    public boolean isDragging() {
+        return mDragging;
+    }
+
+    public boolean isSettling() {
+        return mSettling;
+    }
+
+    public int getWrittenTargetCount() {
+        return mWrittenTargetCount;
+    }
+
+    public int getWrittenTarget(int index) {
+        return mWrittenTargets[index];
+    }
+
+    // endregion
+
+}
@@ -0,0 +1,115 @@
+package com.mickaelg.lookanimation.ui.animation;
+
+/**
+ * Damped spring pulling a value toward a target, stepped by the caller with the time elapsed since the last frame.
+ * Frames are split into fixed sub-steps, so the motion does not depend on the frame rate and a frame only costs a few
+ * multiplications.
+ * <p/>
+ * Positions are in any unit, velocities in units per second.
+ */
+public final class SpringSimulation {
+
+    // region Properties
+
+    /**
+     * Longest sub-step of the integration, in seconds.
+     */
+    private static final float MAX_STEP = 1f / 240f;
+    /**
+     * Longest frame taken into account, in seconds, so a frame coming after a pause does not throw the spring away.
+     */
+    private static final float MAX_FRAME = 1f / 15f;
+
+    private final float mStiffness;
+    private final float mDamping;
+    private final float mRestDistance;
+    private final float mRestVelocity;
+
+    private float mPosition;
+    private float mVelocity;
+    private float mTarget;
+
+    // endregion
+
+
+    // region Constructors
+
+    /**
+     * @param stiffness    Stiffness of the spring, in 1/s^2
+     * @param dampingRatio 1 for a spring reaching its target as fast as possible without oscillating, less to let it
+     *                     bounce around the target
+     * @param restDistance Distance to the target under which the spring can stop
+     */
+    public SpringSimulation(float stiffness, float dampingRatio, float restDistance) {
+        mStiffness = stiffness;
+        mDamping = 2f * dampingRatio * (float) Math.sqrt(stiffness);
+        mRestDistance = restDistance;
+        mRestVelocity = restDistance * 10f;
+    }
+
+    // endregion
+
+
+    // region Simulation
+
+    /**
+     * Move the spring forward in time.
+     *
+     * @param deltaSeconds Time elapsed since the last step
+     * @return True while the spring is moving, false once it rests on its target
+     */
+    public boolean step(float deltaSeconds) {
+        float remaining = Math.min(deltaSeconds, MAX_FRAME);
+        int stepCount = (int) Math.ceil(remaining / MAX_STEP);
+        float step = stepCount > 0 ? remaining / stepCount : 0f;
+        for (int i = 0; i < stepCount; i++) {
+            // Semi-implicit Euler: stable for stiff springs at this step size
+            float acceleration = -mStiffness * (mPosition - mTarget) - mDamping * mVelocity;
+            mVelocity += acceleration * step;
+            mPosition += mVelocity * step;
+        }
+
+        if (isAtRest()) {
+            mPosition = mTarget;
+            mVelocity = 0f;
+            return false;
+        }
+        return true;
+    }
+
+    public boolean isAtRest() {
+        return Math.abs(mPosition - mTarget) < mRestDistance && Math.abs(mVelocity) < mRestVelocity;
+    }
+
+    // endregion
+
+
+    // region Getters and Setters
+
+    public float getPosition() {
+        return mPosition;
+    }
+
+    public void setPosition(float position) {
+        mPosition = position;
+    }
+
+    public float getVelocity() {
+        return mVelocity;
+    }
+
+    public void setVelocity(float velocity) {
+        mVelocity = velocity;
+    }
+
+    public float getTarget() {
+        return mTarget;
+    }
+
+    public void setTarget(float target) {
+        mTarget = target;
+    }
+
+    // endregion
+
+}
@@ -0,0 +1,349 @@
+package com.mickaelg.lookanimation.ui.animation;
+
+import android.graphics.Matrix;
+import android.support.annotation.Nullable;
+import android.view.View;
+import android.widget.ImageView;
+
+import com.mickaelg.lookanimation.ui.LookAnimationDelegate;
+
+import static com.mickaelg.lookanimation.ui.animation.KeyframeTrack.PROPERTY_ALPHA;
+import static com.mickaelg.lookanimation.ui.animation.KeyframeTrack.PROPERTY_COUNT;
+import static com.mickaelg.lookanimation.ui.animation.KeyframeTrack.PROPERTY_SCALE_X;
+import static com.mickaelg.lookanimation.ui.animation.KeyframeTrack.PROPERTY_SCALE_Y;
+import static com.mickaelg.lookanimation.ui.animation.KeyframeTrack.PROPERTY_TRANSLATION_X;
+import static com.mickaelg.lookanimation.ui.animation.KeyframeTrack.PROPERTY_TRANSLATION_Y;
+import static com.mickaelg.lookanimation.ui.animation.KeyframeTrack.TARGET_PICTURE;
+
+/**
+ * Play {@link LookTransition}s on the views of the look: a {@link TransitionEngine} stepped by the frames of the
+ * display, see {@link AnimatorFrameClock}, whose values are written to the views.
+ * <p/>
+ * The scale and translation of the picture are applied to its image matrix through a {@link PictureMatrix}, so the
+ * picture can be zoomed deeply by pinching without scaling the whole view. Its alpha stays a view property.
+ * <p/>
+ * The frames of each transition and settling can be measured by a {@link FrameMonitor}.
+ */
+public final class TimelineAnimator implements TransitionEngine.Renderer {
+
+    // region Properties
+
+    /**
+     * Views animated by the timeline, indexed by {@link KeyframeTrack} target.
+     */
+    private final View[] mTargets;
+    private final ImageView mPicture;
+    private final PictureMatrix mPictureMatrix = new PictureMatrix();
+    /**
+     * Image matrix of a state computed ahead of its transition, reused on each call.
+     */
+    private final Matrix mStateMatrix = new Matrix();
+    private final TransitionEngine mEngine;
+    private final LookTransitionTable mTransitionTable;
+    /**
+     * Cached targets of the transitions.
+     */
+    private final LookGeometry mGeometry;
+
+    // endregion
+
+
+    // region Constructors
+
+    /**
+     * @param stripViews Product strip of each region of the transition table
+     */
+    public TimelineAnimator(LookTransitionTable transitionTable, LookGeometry geometry, ImageView picture,
+                            View[] stripViews) {
+        mTransitionTable = transitionTable;
+        mGeometry = geometry;
+        mPicture = picture;
+
+        int regionCount = transitionTable.getRegionCount();
+        mTargets = new View[KeyframeTrack.getTargetCount(regionCount)];
+        mTargets[TARGET_PICTURE] = picture;
+        for (int regionIndex = 0; regionIndex < regionCount; regionIndex++) {
+            mTargets[KeyframeTrack.getStripTarget(regionIndex)] = stripViews[regionIndex];
+        }
+
+        mEngine = new TransitionEngine(transitionTable, geometry, this, new AnimatorFrameClock(),
+                new AnimatorFrameClock());
+        // Views recycled from another look keep the values, layer and visibility it left them with. The transform of
+        // the picture starts as the identity
+        float[] values = new float[PROPERTY_COUNT];
+        for (int target = 0; target < mTargets.length; target++) {
+            View view = mTargets[target];
+            boolean strip = target != TARGET_PICTURE;
+            values[PROPERTY_TRANSLATION_X] = strip ? view.getTranslationX() : 0f;
+            values[PROPERTY_TRANSLATION_Y] = strip ? view.getTranslationY() : 0f;
+            values[PROPERTY_SCALE_X] = strip ? view.getScaleX() : 1f;
+            values[PROPERTY_SCALE_Y] = strip ? view.getScaleY() : 1f;
+            values[PROPERTY_ALPHA] = view.getAlpha();
+            mEngine.initTarget(target, values, view.getLayerType() == View.LAYER_TYPE_HARDWARE,
+                    view.getVisibility() == View.VISIBLE);
+        }
+    }
+
+    /**
+     * @param frameMonitor Monitor of the frames of the transitions, see {@link FrameMonitor#create}
+     */
+    public void setFrameMonitor(@Nullable FrameMonitor frameMonitor) {
+        mEngine.setListener(frameMonitor);
+    }
+
+    // endregion
+
+
+    // region Timeline
+
+    /**
+     * Animate the views from their current values to the given state. A running transition is retargeted: the views
+     * keep their current velocity and smoothly head to the new targets.
+     */
+    public void start(@LookAnimationDelegate.PictureState int state) {
+        mEngine.start(state);
+    }
+
+    /**
+     * Stop every animation, leaving the views where they are. Called before the views are used for another look.
+     */
+    public void cancel() {
+        mEngine.cancel();
+    }
+
+    public boolean isRunning() {
+        return mEngine.isRunning();
+    }
+
+    /**
+     * Place immediately every view where it is in the given state, without animation. Called when the sizes of the
+     * views change.
+     */
+    public void jumpTo(@LookAnimationDelegate.PictureState int state) {
+        mEngine.jumpTo(state);
+    }
+
+    // endregion
+
+
+    // region Drag
+
+    /**
+     * @return True if the views can follow the finger: the picture is zoomed and no transition is running. A drag can
+     * catch the views while they settle from the previous one.
+     */
+    public boolean canDrag() {
+        return mEngine.canDrag();
+    }
+
+    public void startDrag() {
+        mEngine.startDrag();
+    }
+
+    /**
+     * @param deltaY Vertical move of the finger since the last event, in px, positive when it moves down
+     */
+    public void drag(float deltaY) {
+        mEngine.drag(deltaY);
+    }
+
+    /**
+     * Release the finger and settle the views on the closest region, taking the velocity of the finger into account.
+     *
+     * @param velocityY Vertical velocity of the finger, in px per second, positive when it moves down
+     * @return State the views settle on
+     */
+    @LookAnimationDelegate.PictureState
+    public int release(float velocityY) {
+        return mEngine.release(velocityY);
+    }
+
+    // endregion
+
+
+    // region Zoom
+
+    /**
+     * Apply the picture transform again if the size of the picture or of its view changed.
+     */
+    public void updatePicture() {
+        if (mPictureMatrix.update(mPicture)) {
+            mEngine.applyPictureTransform();
+        }
+    }
+
+    /**
+     * Stop every animation so the fingers can zoom the picture.
+     */
+    public void startZoom() {
+        mEngine.startZoom();
+    }
+
+    /**
+     * Scale the picture around the focus of the fingers and move it with them, keeping it over the whole view.
+     *
+     * @param scaleFactor Scale to apply to the current one
+     * @param focusX      Position of the focus of the fingers on the X axis
+     * @param focusY      Position of the focus of the fingers on the Y axis
+     * @param panX        Move of the focus since the last call on the X axis
+     * @param panY        Move of the focus since the last call on the Y axis
+     */
+    public void zoom(float scaleFactor, float focusX, float focusY, float panX, float panY) {
+        float scale = mEngine.getValue(TARGET_PICTURE, PROPERTY_SCALE_X);
+        float newScale = mPictureMatrix.clampScale(scale * scaleFactor);
+        float ratio = newScale / scale;
+
+        // The point of the picture under the previous focus stays under the fingers
+        float centerX = mPicture.getWidth() / 2f;
+        float centerY = mPicture.getHeight() / 2f;
+        float translationX = focusX - centerX
+                - ratio * (focusX - panX - centerX - mEngine.getValue(TARGET_PICTURE, PROPERTY_TRANSLATION_X));
+        float translationY = focusY - centerY
+                - ratio * (focusY - panY - centerY - mEngine.getValue(TARGET_PICTURE, PROPERTY_TRANSLATION_Y));
+
+        mEngine.setPictureTransform(newScale, mPictureMatrix.clampTranslationX(newScale, translationX),
+                mPictureMatrix.clampTranslationY(newScale, translationY));
+    }
+
+    /**
+     * Animate the views to the given state once the fingers left the picture.
+     *
+     * @param keepPicture True to leave the picture where the fingers left it, only the product strips moving to the
+     *                    given state
+     */
+    public void endZoom(@LookAnimationDelegate.PictureState int state, boolean keepPicture) {
+        mEngine.endZoom(state, keepPicture);
+    }
+
+    /**
+     * @return Image matrix of the picture once in the given state, only valid until the next call
+     */
+    public Matrix getPictureMatrix(@LookAnimationDelegate.PictureState int state) {
+        mPictureMatrix.compute(mGeometry.getPictureValue(state, PROPERTY_SCALE_X),
+                mGeometry.getPictureValue(state, PROPERTY_SCALE_Y),
+                mGeometry.getPictureValue(state, PROPERTY_TRANSLATION_X),
+                mGeometry.getPictureValue(state, PROPERTY_TRANSLATION_Y), mStateMatrix);
+        return mStateMatrix;
+    }
+
+    public float getPictureScale() {
+        return mEngine.getValue(TARGET_PICTURE, PROPERTY_SCALE_X);
+    }
+
+    /**
+     * @return State whose visible part of the picture is the closest to the current one. Looks at every state, so
+     * only called at the end of a pinch.
+     */
+    @LookAnimationDelegate.PictureState
+    public int getClosestState() {
+        float scale = getPictureScale();
+        float translationX = mEngine.getValue(TARGET_PICTURE, PROPERTY_TRANSLATION_X);
+        float translationY = mEngine.getValue(TARGET_PICTURE, PROPERTY_TRANSLATION_Y);
+        int closestState = LookAnimationDelegate.STATE_NOT_ZOOMED;
+        float closestDistance = Float.MAX_VALUE;
+        for (int state = 0, count = mTransitionTable.getStateCount(); state < count; state++) {
+            float distance = getVisibleDistance(mPicture.getWidth(), scale, translationX,
+                    mGeometry.getPictureValue(state, PROPERTY_SCALE_X),
+                    mGeometry.getPictureValue(state, PROPERTY_TRANSLATION_X))
+                    + getVisibleDistance(mPicture.getHeight(), scale, translationY,
+                    mGeometry.getPictureValue(state, PROPERTY_SCALE_Y),
+                    mGeometry.getPictureValue(state, PROPERTY_TRANSLATION_Y));
+            if (distance < closestDistance) {
+                closestDistance = distance;
+                closestState = state;
+            }
+        }
+        return closestState;
+    }
+
+    /**
+     * @return Sum of the distances between the edges of the part of the picture visible with the two transforms, on
+     * one axis
+     */
+    private static float getVisibleDistance(int viewSize, float scale, float translation, float otherScale,
+                                            float otherTranslation) {
+        float center = viewSize / 2f;
+        // A point x of the view shows the point center + (x - center - translation) / scale of the picture
+        float start = center - (center + translation) / scale;
+        float end = center + (center - translation) / scale;
+        float otherStart = center - (center + otherTranslation) / otherScale;
+        float otherEnd = center + (center - otherTranslation) / otherScale;
+        return Math.abs(start - otherStart) + Math.abs(end - otherEnd);
+    }
+
+    // endregion
+
+
+    // region Layers
+
+    /**
+     * @return Layers and hidden views of the last transition, drag or settling ended
+     */
+    public LayerPolicy.Usage getLayerUsage() {
+        return mEngine.getLayerUsage();
+    }
+
+    // endregion
+
+
+    // region Renderer
+
+    @Override
+    public void setValue(int target, int property, float value) {
+        View view = mTargets[target];
+        switch (property) {
+            case PROPERTY_TRANSLATION_X:
+                view.setTranslationX(value);
+                break;
+            case PROPERTY_TRANSLATION_Y:
+                view.setTranslationY(value);
+                break;
+            case PROPERTY_SCALE_X:
+                view.setScaleX(value);
+                break;
+            case PROPERTY_SCALE_Y:
+                view.setScaleY(value);
+                break;
+            case PROPERTY_ALPHA:
+                view.setAlpha(value);
+                break;
+        }
+    }
+
+    @Override
+    public void setPictureTransform(float scaleX, float scaleY, float translationX, float translationY) {
+        mPictureMatrix.apply(mPicture, scaleX, scaleY, translationX, translationY);
+    }
+
+    @Override
+    public void setLayered(int target, boolean layered) {
+        View view = mTargets[target];
+        // Without hardware acceleration, the layer would be a software one, drawn again on every frame
+        boolean hardwareLayer = layered && view.isHardwareAccelerated();
+        view.setLayerType(hardwareLayer ? View.LAYER_TYPE_HARDWARE : View.LAYER_TYPE_NONE, null);
+    }
+
+    @Override
+    public void setVisible(int target, boolean visible) {
+        mTargets[target].setVisibility(visible ? View.VISIBLE : View.INVISIBLE);
+    }
+
+    @Override
+    public float getTop(int target) {
+        return mTargets[target].getTop();
+    }
+
+    @Override
+    public float getBottom(int target) {
+        return mTargets[target].getBottom();
+    }
+
+    @Override
+    public float getParentHeight(int target) {
+        View parent = (View) mTargets[target].getParent();
+        return parent != null ? parent.getHeight() : 0;
+    }
+
+    // endregion
+
+}
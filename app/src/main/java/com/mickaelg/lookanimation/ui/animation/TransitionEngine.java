@@ -0,0 +1,593 @@
+package com.mickaelg.lookanimation.ui.animation;
+
+import com.mickaelg.lookanimation.trace.LookTrace;
+import com.mickaelg.lookanimation.ui.LookAnimationDelegate;
+
+import static com.mickaelg.lookanimation.ui.animation.KeyframeTrack.PROPERTY_ALPHA;
+import static com.mickaelg.lookanimation.ui.animation.KeyframeTrack.PROPERTY_COUNT;
+import static com.mickaelg.lookanimation.ui.animation.KeyframeTrack.PROPERTY_SCALE_X;
+import static com.mickaelg.lookanimation.ui.animation.KeyframeTrack.PROPERTY_SCALE_Y;
+import static com.mickaelg.lookanimation.ui.animation.KeyframeTrack.PROPERTY_TRANSLATION_X;
+import static com.mickaelg.lookanimation.ui.animation.KeyframeTrack.PROPERTY_TRANSLATION_Y;
+import static com.mickaelg.lookanimation.ui.animation.KeyframeTrack.TARGET_PICTURE;
+
+/**
+ * Play {@link LookTransition}s on the views of a look, stepped by a {@link FrameClock}: one clock and one callback
+ * per frame, writing every animated view property in the same pass so the views can't drift apart.
+ * <p/>
+ * The product strips of the regions not displayed are parked, fully transparent, below the view. Only the strips
+ * leaving or entering the view are animated, so the cost of a transition doesn't depend on the number of regions.
+ * <p/>
+ * Between two transitions, the views can also follow the finger from region to region with a {@link RegionScroller},
+ * then settle on a region with a spring stepped by a second clock.
+ * <p/>
+ * The views taking part in a transition, a drag or a settling are drawn in hardware layers for its duration only, and
+ * the strips transparent or out of the view are not drawn at all, see {@link LayerPolicy}.
+ * <p/>
+ * This class does not depend on the Android views: the values are written to a {@link Renderer}, the views for a
+ * {@link TimelineAnimator}, and the clocks are injected, so the transitions can be played frame by frame on the JVM
+ * with {@link ManualFrameClock}s, see {@link TransitionSimulator}. Every buffer is allocated once.
+ */
+public final class TransitionEngine {
+
+    // region Properties
+
+    /**
+     * Views the values of the transitions are written to, indexed by {@link KeyframeTrack} target.
+     */
+    public interface Renderer {
+
+        /**
+         * Write a view property: the alpha of the picture, or any property of a product strip.
+         */
+        void setValue(int target, int property, float value);
+
+        /**
+         * Write the transform of the picture, applied to its content rather than to its view.
+         */
+        void setPictureTransform(float scaleX, float scaleY, float translationX, float translationY);
+
+        void setLayered(int target, boolean layered);
+
+        void setVisible(int target, boolean visible);
+
+        /**
+         * @return Top of the view in its parent, without its translation
+         */
+        float getTop(int target);
+
+        /**
+         * @return Bottom of the view in its parent, without its translation
+         */
+        float getBottom(int target);
+
+        /**
+         * @return Height of the parent of the view, 0 if it isn't measured yet
+         */
+        float getParentHeight(int target);
+
+    }
+
+    /**
+     * Listener of the transitions, for example a {@link FrameMonitor}.
+     */
+    public interface Listener {
+
+        /**
+         * Called when a transition or a settling starts. A transition still running is interrupted by this one, its
+         * end is told first.
+         */
+        void onTransitionStart(@LookAnimationDelegate.PictureState int fromState,
+                               @LookAnimationDelegate.PictureState int toState);
+
+        /**
+         * Called when a transition or a settling ends, or is interrupted.
+         */
+        void onTransitionEnd();
+
+    }
+
+    /**
+     * Longest time given to the spring to settle, in ms.
+     */
+    private static final long MAX_SETTLE_DURATION = 2000;
+
+    private final Renderer mRenderer;
+    private final int mTargetCount;
+    /**
+     * Clock of the transitions, reused for every transition.
+     */
+    private final FrameClock mClock;
+    private final LookTimeline mTimeline;
+    private final LookTransitionTable mTransitionTable;
+    /**
+     * Cached targets of the transitions.
+     */
+    private final LookGeometry mGeometry;
+    /**
+     * Clock of the spring settling the views after a drag. The spring usually rests well before the end.
+     */
+    private final FrameClock mSettleClock;
+    private final RegionScroller mScroller;
+    private long mLastSettleTime;
+
+    /**
+     * Regions whose product strip is not parked, i.e. displayed or leaving the view.
+     */
+    private final int[] mUnparkedRegions;
+    private final boolean[] mUnparked;
+    private int mUnparkedRegionCount = 0;
+
+    @LookAnimationDelegate.PictureState
+    private int mState = LookAnimationDelegate.STATE_NOT_ZOOMED;
+    /**
+     * Layers and visibility of the views, updated at the start and end of each transition.
+     */
+    private final LayerPolicy mLayerPolicy;
+    private Listener mListener;
+
+    // endregion
+
+
+    // region Constructors
+
+    /**
+     * Create an engine whose views start untransformed and visible, without layer. Views used before are set up with
+     * {@link #initTarget(int, float[], boolean, boolean)}.
+     *
+     * @param clock       Clock of the transitions, not used by anything else
+     * @param settleClock Clock of the settling of the views after a drag, not used by anything else
+     */
+    public TransitionEngine(LookTransitionTable transitionTable, LookGeometry geometry, Renderer renderer,
+                            FrameClock clock, FrameClock settleClock) {
+        mTransitionTable = transitionTable;
+        mGeometry = geometry;
+        mRenderer = renderer;
+
+        int regionCount = transitionTable.getRegionCount();
+        mTargetCount = KeyframeTrack.getTargetCount(regionCount);
+        mUnparkedRegions = new int[regionCount];
+        mUnparked = new boolean[regionCount];
+        mLayerPolicy = new LayerPolicy(mTargetCount);
+        mTimeline = new LookTimeline(mTargetCount);
+        for (int target = 0; target < mTargetCount; target++) {
+            mTimeline.setValue(LookTimeline.getChannel(target, PROPERTY_SCALE_X), 1f);
+            mTimeline.setValue(LookTimeline.getChannel(target, PROPERTY_SCALE_Y), 1f);
+            mTimeline.setValue(LookTimeline.getChannel(target, PROPERTY_ALPHA), 1f);
+            mLayerPolicy.init(target, false, true);
+        }
+
+        mScroller = new RegionScroller(geometry, regionCount);
+        mSettleClock = settleClock;
+        mSettleClock.setCallback(new FrameClock.Callback() {
+            @Override
+            public void onFrame(long playTime) {
+                boolean settling = mScroller.step((playTime - mLastSettleTime) / 1000f);
+                mLastSettleTime = playTime;
+                applyScrollerValues();
+                mLayerPolicy.onFrame();
+                if (!settling) {
+                    parkHiddenStrips();
+                    endLayers();
+                    mSettleClock.cancel();
+                }
+            }
+
+            @Override
+            public void onEnd(boolean canceled) {
+                if (mListener != null) {
+                    mListener.onTransitionEnd();
+                }
+                if (mScroller.isSettling()) {
+                    // Ran out of time, put the views on the target region
+                    mScroller.finish();
+                    applyScrollerValues();
+                    parkHiddenStrips();
+                    endLayers();
+                }
+            }
+        });
+
+        mClock = clock;
+        mClock.setCallback(new FrameClock.Callback() {
+            @Override
+            public void onFrame(long playTime) {
+                mTimeline.setPlayTime(playTime);
+                applyValues();
+                mLayerPolicy.onFrame();
+            }
+
+            @Override
+            public void onEnd(boolean canceled) {
+                if (mListener != null) {
+                    mListener.onTransitionEnd();
+                }
+                if (!canceled) {
+                    mTimeline.setFraction(1f);
+                    applyValues();
+                    parkHiddenStrips();
+                    // A canceled transition is either followed by another one, keeping the layers of the views it
+                    // still animates, or ended by the caller
+                    endLayers();
+                }
+            }
+        });
+    }
+
+    /**
+     * Set the values, layer and visibility a view has, for example when it was used by another look before.
+     *
+     * @param values Value of each property of the view, the transform of the content for the picture
+     */
+    public void initTarget(int target, float[] values, boolean layered, boolean visible) {
+        for (int property = 0; property < PROPERTY_COUNT; property++) {
+            mTimeline.setValue(LookTimeline.getChannel(target, property), values[property]);
+        }
+        mLayerPolicy.init(target, layered, visible);
+    }
+
+    /**
+     * @param listener Listener of the transitions, null to stop listening
+     */
+    public void setListener(Listener listener) {
+        mListener = listener;
+    }
+
+    // endregion
+
+
+    // region Timeline
+
+    /**
+     * Animate the views from their current values to the given state. A running transition is retargeted: the views
+     * keep their current velocity and smoothly head to the new targets.
+     */
+    public void start(@LookAnimationDelegate.PictureState int state) {
+        stopScroller();
+        mClock.cancel();
+        int fromState = mState;
+        begin(state);
+        startClock(fromState);
+    }
+
+    private void startClock(@LookAnimationDelegate.PictureState int fromState) {
+        if (mListener != null) {
+            mListener.onTransitionStart(fromState, mState);
+        }
+        mLayerPolicy.begin(mTimeline);
+        applyLayers();
+        mClock.start(mTimeline.getTransition().getDuration());
+    }
+
+    /**
+     * Stop every animation, leaving the views where they are. Called before the views are used for another look.
+     */
+    public void cancel() {
+        stopScroller();
+        mClock.cancel();
+        endLayers();
+    }
+
+    public boolean isRunning() {
+        return mClock.isRunning() || mSettleClock.isRunning();
+    }
+
+    /**
+     * Place immediately every view where it is in the given state, without animation. Called when the sizes of the
+     * views change, so it is the only place looking at every strip.
+     */
+    public void jumpTo(@LookAnimationDelegate.PictureState int state) {
+        stopScroller();
+        mClock.cancel();
+        endLayers();
+        for (int regionIndex = 0, count = mTransitionTable.getRegionCount(); regionIndex < count; regionIndex++) {
+            mUnparked[regionIndex] = false;
+            park(regionIndex);
+        }
+        mUnparkedRegionCount = 0;
+
+        begin(state);
+        mTimeline.setFraction(1f);
+        applyValues();
+        parkHiddenStrips();
+    }
+
+    private void begin(@LookAnimationDelegate.PictureState int state) {
+        int previousRegionIndex = LookTransitionTable.getRegionIndex(mState);
+        int regionIndex = LookTransitionTable.getRegionIndex(state);
+        mState = state;
+
+        // Going back up the look, the strip of the region enters the view by the top
+        if (regionIndex >= 0 && regionIndex < previousRegionIndex && !mUnparked[regionIndex]) {
+            setStripValues(regionIndex, mGeometry.getHiddenStripTranslationY(regionIndex, true));
+        }
+
+        mTimeline.begin(mTransitionTable.getTransition(state), mGeometry.getKeyframeValues(state));
+
+        // The other strips still visible leave the view, by the top if their region is above the displayed one
+        for (int i = 0; i < mUnparkedRegionCount; i++) {
+            int leavingRegionIndex = mUnparkedRegions[i];
+            if (leavingRegionIndex != regionIndex) {
+                int target = KeyframeTrack.getStripTarget(leavingRegionIndex);
+                mTimeline.animateTo(LookTimeline.getChannel(target, PROPERTY_TRANSLATION_Y),
+                        mGeometry.getHiddenStripTranslationY(leavingRegionIndex, leavingRegionIndex < regionIndex));
+                mTimeline.animateTo(LookTimeline.getChannel(target, PROPERTY_ALPHA), 0f);
+            }
+        }
+        if (regionIndex >= 0 && !mUnparked[regionIndex]) {
+            mUnparked[regionIndex] = true;
+            mUnparkedRegions[mUnparkedRegionCount++] = regionIndex;
+        }
+    }
+
+    /**
+     * Park the strips hidden by the last transition, so the next transitions leave them alone.
+     */
+    private void parkHiddenStrips() {
+        int displayedRegionIndex = LookTransitionTable.getRegionIndex(mState);
+        int count = 0;
+        for (int i = 0; i < mUnparkedRegionCount; i++) {
+            int regionIndex = mUnparkedRegions[i];
+            if (regionIndex == displayedRegionIndex) {
+                mUnparkedRegions[count++] = regionIndex;
+            } else {
+                mUnparked[regionIndex] = false;
+                park(regionIndex);
+            }
+        }
+        mUnparkedRegionCount = count;
+    }
+
+    private void park(int regionIndex) {
+        setStripValues(regionIndex, mGeometry.getHiddenStripTranslationY(regionIndex, false));
+    }
+
+    /**
+     * Hide immediately the strip of the given region at the given translation.
+     */
+    private void setStripValues(int regionIndex, float translationY) {
+        int target = KeyframeTrack.getStripTarget(regionIndex);
+        mTimeline.setValue(LookTimeline.getChannel(target, PROPERTY_TRANSLATION_Y), translationY);
+        mTimeline.setValue(LookTimeline.getChannel(target, PROPERTY_ALPHA), 0f);
+        mRenderer.setValue(target, PROPERTY_TRANSLATION_Y, translationY);
+        mRenderer.setValue(target, PROPERTY_ALPHA, 0f);
+        updateVisibility(target);
+    }
+
+    // endregion
+
+
+    // region Drag
+
+    /**
+     * @return True if the views can follow the finger: the picture is zoomed and no transition is running. A drag can
+     * catch the views while they settle from the previous one.
+     */
+    public boolean canDrag() {
+        return LookTransitionTable.getRegionIndex(mState) >= 0 && !mClock.isRunning();
+    }
+
+    public void startDrag() {
+        // The scroller stops settling first, so canceling its clock doesn't put the views on the target region
+        mScroller.startDrag(LookTransitionTable.getRegionIndex(mState));
+        mSettleClock.cancel();
+        // The views moved by the finger are promoted as they move, until they settle
+        mLayerPolicy.begin();
+        applyLayers();
+    }
+
+    /**
+     * @param deltaY Vertical move of the finger since the last event, in px, positive when it moves down
+     */
+    public void drag(float deltaY) {
+        mScroller.drag(deltaY);
+        applyScrollerValues();
+    }
+
+    /**
+     * Release the finger and settle the views on the closest region, taking the velocity of the finger into account.
+     *
+     * @param velocityY Vertical velocity of the finger, in px per second, positive when it moves down
+     * @return State the views settle on
+     */
+    @LookAnimationDelegate.PictureState
+    public int release(float velocityY) {
+        int fromState = mState;
+        mState = LookTransitionTable.getState(mScroller.release(velocityY));
+        if (mListener != null) {
+            mListener.onTransitionStart(fromState, mState);
+        }
+        mLastSettleTime = 0;
+        mSettleClock.start(MAX_SETTLE_DURATION);
+        return mState;
+    }
+
+    private void stopScroller() {
+        mScroller.stop();
+        mSettleClock.cancel();
+    }
+
+    /**
+     * Write the values computed by the scroller to the timeline and to the views.
+     */
+    private void applyScrollerValues() {
+        mScroller.writeValues(mTimeline);
+        for (int i = 0, count = mScroller.getWrittenTargetCount(); i < count; i++) {
+            int target = mScroller.getWrittenTarget(i);
+            if (target == TARGET_PICTURE) {
+                mRenderer.setValue(target, PROPERTY_ALPHA,
+                        mTimeline.getValue(LookTimeline.getChannel(target, PROPERTY_ALPHA)));
+                applyPictureTransform();
+                continue;
+            }
+            for (int property = 0; property < PROPERTY_COUNT; property++) {
+                mRenderer.setValue(target, property, mTimeline.getValue(LookTimeline.getChannel(target, property)));
+            }
+            updateVisibility(target);
+            mLayerPolicy.addTarget(target);
+            applyLayer(target);
+            int regionIndex = target - KeyframeTrack.getStripTarget(0);
+            if (regionIndex >= 0 && !mUnparked[regionIndex]) {
+                mUnparked[regionIndex] = true;
+                mUnparkedRegions[mUnparkedRegionCount++] = regionIndex;
+            }
+        }
+    }
+
+    // endregion
+
+
+    // region Zoom
+
+    /**
+     * Stop every animation so the fingers can zoom the picture, through {@link #setPictureTransform}.
+     */
+    public void startZoom() {
+        stopScroller();
+        mClock.cancel();
+        endLayers();
+        // The fingers move the picture from now on, the velocity of the transition is meaningless
+        mTimeline.stop();
+    }
+
+    /**
+     * Set immediately the transform of the picture, for example to follow the fingers pinching it.
+     */
+    public void setPictureTransform(float scale, float translationX, float translationY) {
+        mTimeline.setValue(LookTimeline.getChannel(TARGET_PICTURE, PROPERTY_SCALE_X), scale);
+        mTimeline.setValue(LookTimeline.getChannel(TARGET_PICTURE, PROPERTY_SCALE_Y), scale);
+        mTimeline.setValue(LookTimeline.getChannel(TARGET_PICTURE, PROPERTY_TRANSLATION_X), translationX);
+        mTimeline.setValue(LookTimeline.getChannel(TARGET_PICTURE, PROPERTY_TRANSLATION_Y), translationY);
+        applyPictureTransform();
+    }
+
+    /**
+     * Animate the views to the given state once the fingers left the picture.
+     *
+     * @param keepPicture True to leave the picture where the fingers left it, only the product strips moving to the
+     *                    given state
+     */
+    public void endZoom(@LookAnimationDelegate.PictureState int state, boolean keepPicture) {
+        stopScroller();
+        mClock.cancel();
+        int fromState = mState;
+        begin(state);
+        if (keepPicture) {
+            holdChannel(LookTimeline.getChannel(TARGET_PICTURE, PROPERTY_SCALE_X));
+            holdChannel(LookTimeline.getChannel(TARGET_PICTURE, PROPERTY_SCALE_Y));
+            holdChannel(LookTimeline.getChannel(TARGET_PICTURE, PROPERTY_TRANSLATION_X));
+            holdChannel(LookTimeline.getChannel(TARGET_PICTURE, PROPERTY_TRANSLATION_Y));
+        }
+        startClock(fromState);
+    }
+
+    private void holdChannel(int channel) {
+        mTimeline.animateTo(channel, mTimeline.getValue(channel));
+    }
+
+    // endregion
+
+
+    // region Frames
+
+    private void applyValues() {
+        boolean pictureChanged = false;
+        for (int i = 0, count = mTimeline.getActiveChannelCount(); i < count; i++) {
+            int channel = mTimeline.getActiveChannel(i);
+            int target = channel / PROPERTY_COUNT;
+            int property = channel % PROPERTY_COUNT;
+            if (target == TARGET_PICTURE && property != PROPERTY_ALPHA) {
+                pictureChanged = true;
+            } else {
+                mRenderer.setValue(target, property, mTimeline.getValue(channel));
+                if (target != TARGET_PICTURE && (property == PROPERTY_ALPHA || property == PROPERTY_TRANSLATION_Y)) {
+                    updateVisibility(target);
+                }
+            }
+        }
+        if (pictureChanged) {
+            applyPictureTransform();
+        }
+    }
+
+    /**
+     * Write the transform of the picture to the renderer again, for example when the size of the picture changed.
+     */
+    public void applyPictureTransform() {
+        mRenderer.setPictureTransform(getValue(TARGET_PICTURE, PROPERTY_SCALE_X),
+                getValue(TARGET_PICTURE, PROPERTY_SCALE_Y), getValue(TARGET_PICTURE, PROPERTY_TRANSLATION_X),
+                getValue(TARGET_PICTURE, PROPERTY_TRANSLATION_Y));
+    }
+
+    // endregion
+
+
+    // region Layers
+
+    /**
+     * End the layers of the current transition, if any, and record their usage.
+     */
+    private void endLayers() {
+        if (mLayerPolicy.end()) {
+            applyLayers();
+            LayerPolicy.Usage usage = mLayerPolicy.getLastUsage();
+            LookTrace.event(LookTrace.EVENT_LAYERS, usage.getLayerCount(), usage.getHiddenFrameCount());
+        }
+    }
+
+    private void applyLayers() {
+        for (int target = 0; target < mTargetCount; target++) {
+            applyLayer(target);
+        }
+    }
+
+    private void applyLayer(int target) {
+        if (mLayerPolicy.takeLayerChange(target)) {
+            mRenderer.setLayered(target, mLayerPolicy.isLayered(target));
+        }
+    }
+
+    /**
+     * Hide the strip of the given target if it is transparent or out of its parent, show it otherwise.
+     */
+    private void updateVisibility(int target) {
+        float translationY = getValue(target, PROPERTY_TRANSLATION_Y);
+        mLayerPolicy.updateVisibility(target, getValue(target, PROPERTY_ALPHA),
+                mRenderer.getTop(target) + translationY, mRenderer.getBottom(target) + translationY,
+                mRenderer.getParentHeight(target));
+        if (mLayerPolicy.takeVisibilityChange(target)) {
+            mRenderer.setVisible(target, mLayerPolicy.isVisible(target));
+        }
+    }
+
+    // endregion
+
+
+    // region Getters
+
+    @LookAnimationDelegate.PictureState
+    public int getState() {
+        return mState;
+    }
+
+    /**
+     * @return Current value of a property of a view, of the transform of its content for the picture
+     */
+    public float getValue(int target, int property) {
+        return mTimeline.getValue(LookTimeline.getChannel(target, property));
+    }
+
+    public int getTargetCount() {
+        return mTargetCount;
+    }
+
+    /**
+     * @return Layers and hidden views of the last transition, drag or settling ended
+     */
+    public LayerPolicy.Usage getLayerUsage() {
+        return mLayerPolicy.getLastUsage();
+    }
+
+    // endregion
+
+}
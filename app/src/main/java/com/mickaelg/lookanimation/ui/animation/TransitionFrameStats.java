@@ -0,0 +1,226 @@
+package com.mickaelg.lookanimation.ui.animation;
+
+import com.mickaelg.lookanimation.BuildConfig;
+import com.mickaelg.lookanimation.ui.LookAnimationDelegate;
+
+import java.io.PrintWriter;
+import java.util.Arrays;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * Frame timings of the transitions of every look, with a {@link FrameHistogram} per kind of transition, from a state
+ * to another one, for example from {@link LookAnimationDelegate#STATE_NOT_ZOOMED} to
+ * {@link LookAnimationDelegate#STATE_UPPER_BODY}. Every state has its own histograms, however many regions the looks
+ * have.
+ * <p/>
+ * Transitions are recorded on the main thread, the histograms can be read or dumped from any thread. They are created
+ * on demand in a copy of the table, so only the first transition of each kind takes a lock. Listeners are told about
+ * each transition once it ends. The transitions are only measured in the builds enabling the monitoring, see
+ * {@link FrameMonitor}.
+ */
+public final class TransitionFrameStats {
+
+    // region Properties
+
+    /**
+     * Listener of the frame timings of each transition.
+     */
+    public interface Listener {
+
+        /**
+         * Called on the main thread once a transition ends, or is interrupted by another one.
+         *
+         * @param frameCount    Number of frames of the transition
+         * @param droppedFrames Number of frames dropped during the transition
+         * @param maxFrameNanos Longest time between two frames of the transition, in ns
+         */
+        void onTransitionFrames(@LookAnimationDelegate.PictureState int fromState,
+                                @LookAnimationDelegate.PictureState int toState, int frameCount, int droppedFrames,
+                                long maxFrameNanos);
+
+    }
+
+    /**
+     * True if the build monitors the transitions, see the FRAME_STATS_ENABLED field of the build types.
+     */
+    public static final boolean ENABLED = BuildConfig.FRAME_STATS_ENABLED;
+
+    private static final TransitionFrameStats sInstance = new TransitionFrameStats();
+
+    /**
+     * Histograms by state the transitions come from, then by state they go to. Grown as the states are seen, never
+     * changed once published.
+     */
+    private volatile FrameHistogram[][] mHistograms = new FrameHistogram[0][];
+    private final CopyOnWriteArrayList<Listener> mListeners = new CopyOnWriteArrayList<>();
+
+    // endregion
+
+
+    // region Constructors
+
+    TransitionFrameStats() {
+    }
+
+    /**
+     * @return Frame timings of the transitions of every look
+     */
+    public static TransitionFrameStats getInstance() {
+        return sInstance;
+    }
+
+    // endregion
+
+
+    // region Recording
+
+    /**
+     * @return Histogram of the transitions from a state to another one, created the first time
+     */
+    public FrameHistogram getHistogram(@LookAnimationDelegate.PictureState int fromState,
+                                       @LookAnimationDelegate.PictureState int toState) {
+        FrameHistogram histogram = findHistogram(mHistograms, fromState, toState);
+        return histogram != null ? histogram : createHistogram(fromState, toState);
+    }
+
+    private synchronized FrameHistogram createHistogram(int fromState, int toState) {
+        FrameHistogram[][] histograms = mHistograms;
+        FrameHistogram histogram = findHistogram(histograms, fromState, toState);
+        if (histogram != null) {
+            // Created by another thread meanwhile
+            return histogram;
+        }
+
+        histogram = new FrameHistogram();
+        FrameHistogram[] row = fromState < histograms.length ? histograms[fromState] : null;
+        FrameHistogram[] newRow = row == null ? new FrameHistogram[toState + 1]
+                : Arrays.copyOf(row, Math.max(row.length, toState + 1));
+        newRow[toState] = histogram;
+        FrameHistogram[][] newHistograms = Arrays.copyOf(histograms, Math.max(histograms.length, fromState + 1));
+        newHistograms[fromState] = newRow;
+        mHistograms = newHistograms;
+        return histogram;
+    }
+
+    private static FrameHistogram findHistogram(FrameHistogram[][] histograms, int fromState, int toState) {
+        if (fromState >= histograms.length || histograms[fromState] == null
+                || toState >= histograms[fromState].length) {
+            return null;
+        }
+        return histograms[fromState][toState];
+    }
+
+    /**
+     * Record the end of a transition whose frames were recorded in its histogram, and tell the listeners.
+     */
+    public void recordTransition(@LookAnimationDelegate.PictureState int fromState,
+                                 @LookAnimationDelegate.PictureState int toState, int frameCount, int droppedFrames,
+                                 long maxFrameNanos) {
+        getHistogram(fromState, toState).recordTransition();
+        for (Listener listener : mListeners) {
+            listener.onTransitionFrames(fromState, toState, frameCount, droppedFrames, maxFrameNanos);
+        }
+    }
+
+    public void addListener(Listener listener) {
+        mListeners.add(listener);
+    }
+
+    public void removeListener(Listener listener) {
+        mListeners.remove(listener);
+    }
+
+    /**
+     * Reset the histograms of every transition.
+     */
+    public void reset() {
+        for (FrameHistogram[] row : mHistograms) {
+            if (row == null) {
+                continue;
+            }
+            for (FrameHistogram histogram : row) {
+                if (histogram != null) {
+                    histogram.reset();
+                }
+            }
+        }
+    }
+
+    // endregion
+
+
+    // region Dump
+
+    /**
+     * @return Name of the state, the regions of the default looks by their names
+     */
+    public static String getStateName(@LookAnimationDelegate.PictureState int state) {
+        switch (state) {
+            case LookAnimationDelegate.STATE_NOT_ZOOMED:
+                return "NOT_ZOOMED";
+            case LookAnimationDelegate.STATE_UPPER_BODY:
+                return "UPPER_BODY";
+            case LookAnimationDelegate.STATE_LOWER_BODY:
+                return "LOWER_BODY";
+            default:
+                return "REGION_" + LookTransitionTable.getRegionIndex(state);
+        }
+    }
+
+    /**
+     * Print the histograms of the transitions recorded so far, one line per kind of transition, then the frame times
+     * and dropped frames of the non-empty buckets.
+     */
+    public void dump(String prefix, PrintWriter writer) {
+        writer.print(prefix);
+        writer.println("Transition frames:");
+        FrameHistogram[][] histograms = mHistograms;
+        for (int fromState = 0; fromState < histograms.length; fromState++) {
+            if (histograms[fromState] == null) {
+                continue;
+            }
+            for (int toState = 0; toState < histograms[fromState].length; toState++) {
+                FrameHistogram histogram = histograms[fromState][toState];
+                if (histogram != null && histogram.getFrameCount() > 0) {
+                    dumpHistogram(prefix, writer, fromState, toState, histogram);
+                }
+            }
+        }
+        writer.flush();
+    }
+
+    private static void dumpHistogram(String prefix, PrintWriter writer, int fromState, int toState,
+                                      FrameHistogram histogram) {
+        writer.print(prefix);
+        writer.print("  ");
+        writer.print(getStateName(fromState));
+        writer.print(" -> ");
+        writer.print(getStateName(toState));
+        writer.print(": ");
+        writer.println(histogram);
+
+        writer.print(prefix);
+        writer.print("    frame time (ms):");
+        for (int millis = 0; millis < FrameHistogram.FRAME_TIME_BUCKET_COUNT; millis++) {
+            long count = histogram.getFrameTimeCount(millis);
+            if (count > 0) {
+                writer.print(" " + millis + (millis == FrameHistogram.FRAME_TIME_BUCKET_COUNT - 1 ? "+=" : "=")
+                        + count);
+            }
+        }
+        writer.println();
+        writer.print(prefix);
+        writer.print("    dropped frames:");
+        for (int dropped = 0; dropped < FrameHistogram.DROPPED_FRAMES_BUCKET_COUNT; dropped++) {
+            long count = histogram.getDroppedFramesCount(dropped);
+            if (count > 0) {
+                writer.print(" " + dropped + (dropped == FrameHistogram.DROPPED_FRAMES_BUCKET_COUNT - 1 ? "+="
+                        : "=") + count);
+            }
+        }
+        writer.println();
+    }
+
+    // endregion
+
+}
@@ -0,0 +1,298 @@
+package com.mickaelg.lookanimation.ui.animation;
+
+import com.mickaelg.lookanimation.model.LookRegion;
+import com.mickaelg.lookanimation.ui.LookAnimationDelegate;
+
+import java.util.List;
+
+import static com.mickaelg.lookanimation.ui.animation.KeyframeTrack.PROPERTY_COUNT;
+
+/**
+ * Play the transitions of a look without any view: a {@link TransitionEngine} stepped frame by frame by
+ * {@link ManualFrameClock}s, whose values are recorded instead of drawn. Used to check the transitions and their cost
+ * per frame on the JVM.
+ * <p/>
+ * The product strips are laid out at the bottom of the view, as in the look layout. Nothing is allocated once built.
+ */
+public final class TransitionSimulator {
+
+    // region Properties
+
+    /**
+     * Time between two frames, in ms.
+     */
+    public static final long FRAME_INTERVAL = 16;
+
+    private final LookTransitionTable mTransitionTable;
+    private final LookGeometry mGeometry;
+    private final ManualFrameClock mClock = new ManualFrameClock();
+    private final ManualFrameClock mSettleClock = new ManualFrameClock();
+    private final RecordingRenderer mRenderer;
+    private final TransitionEngine mEngine;
+
+    // endregion
+
+
+    // region Constructors
+
+    /**
+     * @param duration     Duration of the transitions, in ms
+     * @param viewWidth    Width of the picture and of its parent, in px
+     * @param viewHeight   Height of the picture and of its parent, in px
+     * @param stripHeights Height of the product strip of each region, in px
+     */
+    public TransitionSimulator(List<LookRegion> regionList, long duration, float viewWidth, float viewHeight,
+                               float[] stripHeights) {
+        mTransitionTable = new LookTransitionTable(regionList, duration);
+        mGeometry = new LookGeometry(mTransitionTable);
+        mGeometry.update(viewWidth, viewHeight, stripHeights);
+        mRenderer = new RecordingRenderer(KeyframeTrack.getTargetCount(mTransitionTable.getRegionCount()), viewHeight,
+                stripHeights);
+        mEngine = new TransitionEngine(mTransitionTable, mGeometry, mRenderer, mClock, mSettleClock);
+    }
+
+    // endregion
+
+
+    // region Transitions
+
+    /**
+     * Place immediately every view where it is in the given state, as when the look is displayed.
+     */
+    public void jumpTo(@LookAnimationDelegate.PictureState int state) {
+        mEngine.jumpTo(state);
+    }
+
+    /**
+     * Start a transition to the given state and play it to its end.
+     *
+     * @return Number of frames of the transition, after the first one given when it starts
+     */
+    public int play(@LookAnimationDelegate.PictureState int state) {
+        mRenderer.startFrame();
+        mEngine.start(state);
+        return playFrames(mClock);
+    }
+
+    /**
+     * Start a transition to the given state and play only the given number of frames, for example to retarget it.
+     */
+    public void start(@LookAnimationDelegate.PictureState int state, int frameCount) {
+        mRenderer.startFrame();
+        mEngine.start(state);
+        for (int frame = 0; frame < frameCount; frame++) {
+            mRenderer.startFrame();
+            mClock.advance(FRAME_INTERVAL);
+        }
+    }
+
+    /**
+     * Drag the views with the finger, from the displayed region, one frame per move. The picture must be zoomed.
+     *
+     * @param deltaY Vertical move of the finger on each frame, in px, positive when it moves down
+     */
+    public void drag(float deltaY, int frameCount) {
+        mEngine.startDrag();
+        for (int frame = 0; frame < frameCount; frame++) {
+            mRenderer.startFrame();
+            mEngine.drag(deltaY);
+        }
+    }
+
+    /**
+     * Release the finger and play the settling of the views to its end.
+     *
+     * @param velocityY Vertical velocity of the finger, in px per second, positive when it moves down
+     * @return State the views settled on
+     */
+    @LookAnimationDelegate.PictureState
+    public int release(float velocityY) {
+        mRenderer.startFrame();
+        int state = mEngine.release(velocityY);
+        playFrames(mSettleClock);
+        return state;
+    }
+
+    private int playFrames(ManualFrameClock clock) {
+        int frameCount = 0;
+        while (clock.isRunning()) {
+            mRenderer.startFrame();
+            clock.advance(FRAME_INTERVAL);
+            frameCount++;
+        }
+        return frameCount;
+    }
+
+    public boolean isRunning() {
+        return mEngine.isRunning();
+    }
+
+    // endregion
+
+
+    // region Getters
+
+    public LookTransitionTable getTransitionTable() {
+        return mTransitionTable;
+    }
+
+    public LookGeometry getGeometry() {
+        return mGeometry;
+    }
+
+    @LookAnimationDelegate.PictureState
+    public int getState() {
+        return mEngine.getState();
+    }
+
+    /**
+     * @return Last value written for a property of a view. The transform of the picture is read with
+     * {@link #getPictureTransform(int)}.
+     */
+    public float getValue(int target, int property) {
+        return mRenderer.mValues[target * PROPERTY_COUNT + property];
+    }
+
+    /**
+     * @param property Property of the transform: scale or translation
+     * @return Last value written for a property of the transform of the picture
+     */
+    public float getPictureTransform(int property) {
+        return mRenderer.mPictureTransform[property];
+    }
+
+    public boolean isLayered(int target) {
+        return mRenderer.mLayered[target];
+    }
+
+    public boolean isVisible(int target) {
+        return mRenderer.mVisible[target];
+    }
+
+    /**
+     * @return Most view properties written on a single frame, the transform of the picture counting as one, since the
+     * counters were reset
+     */
+    public int getMaxWritesPerFrame() {
+        return mRenderer.mMaxWrites;
+    }
+
+    /**
+     * @return Number of view properties written since the counters were reset
+     */
+    public int getTotalWrites() {
+        return mRenderer.mTotalWrites;
+    }
+
+    public void resetCounters() {
+        mRenderer.mWrites = 0;
+        mRenderer.mMaxWrites = 0;
+        mRenderer.mTotalWrites = 0;
+    }
+
+    /**
+     * @return Layers and hidden views of the last transition, drag or settling ended
+     */
+    public LayerPolicy.Usage getLayerUsage() {
+        return mEngine.getLayerUsage();
+    }
+
+    // endregion
+
+
+    // region Renderer
+
+    /**
+     * Renderer keeping the last values written and counting the writes of each frame.
+     */
+    private static final class RecordingRenderer implements TransitionEngine.Renderer {
+
+        private final float[] mValues;
+        /**
+         * Scale and translation of the picture, indexed by property.
+         */
+        private final float[] mPictureTransform = new float[PROPERTY_COUNT];
+        private final boolean[] mLayered;
+        private final boolean[] mVisible;
+        private final float mViewHeight;
+        private final float[] mStripHeights;
+
+        private int mWrites = 0;
+        private int mMaxWrites = 0;
+        private int mTotalWrites = 0;
+
+        RecordingRenderer(int targetCount, float viewHeight, float[] stripHeights) {
+            mValues = new float[targetCount * PROPERTY_COUNT];
+            mLayered = new boolean[targetCount];
+            mVisible = new boolean[targetCount];
+            mViewHeight = viewHeight;
+            mStripHeights = stripHeights;
+            for (int target = 0; target < targetCount; target++) {
+                mValues[target * PROPERTY_COUNT + KeyframeTrack.PROPERTY_SCALE_X] = 1f;
+                mValues[target * PROPERTY_COUNT + KeyframeTrack.PROPERTY_SCALE_Y] = 1f;
+                mValues[target * PROPERTY_COUNT + KeyframeTrack.PROPERTY_ALPHA] = 1f;
+                mVisible[target] = true;
+            }
+            mPictureTransform[KeyframeTrack.PROPERTY_SCALE_X] = 1f;
+            mPictureTransform[KeyframeTrack.PROPERTY_SCALE_Y] = 1f;
+        }
+
+        void startFrame() {
+            mWrites = 0;
+        }
+
+        private void countWrite() {
+            mWrites++;
+            mTotalWrites++;
+            mMaxWrites = Math.max(mMaxWrites, mWrites);
+        }
+
+        @Override
+        public void setValue(int target, int property, float value) {
+            mValues[target * PROPERTY_COUNT + property] = value;
+            countWrite();
+        }
+
+        @Override
+        public void setPictureTransform(float scaleX, float scaleY, float translationX, float translationY) {
+            mPictureTransform[KeyframeTrack.PROPERTY_SCALE_X] = scaleX;
+            mPictureTransform[KeyframeTrack.PROPERTY_SCALE_Y] = scaleY;
+            mPictureTransform[KeyframeTrack.PROPERTY_TRANSLATION_X] = translationX;
+            mPictureTransform[KeyframeTrack.PROPERTY_TRANSLATION_Y] = translationY;
+            countWrite();
+        }
+
+        @Override
+        public void setLayered(int target, boolean layered) {
+            mLayered[target] = layered;
+        }
+
+        @Override
+        public void setVisible(int target, boolean visible) {
+            mVisible[target] = visible;
+        }
+
+        @Override
+        public float getTop(int target) {
+            return target == KeyframeTrack.TARGET_PICTURE ? 0f : mViewHeight - getStripHeight(target);
+        }
+
+        @Override
+        public float getBottom(int target) {
+            return mViewHeight;
+        }
+
+        @Override
+        public float getParentHeight(int target) {
+            return mViewHeight;
+        }
+
+        private float getStripHeight(int target) {
+            return mStripHeights[target - KeyframeTrack.getStripTarget(0)];
+        }
+
+    }
+
+    // endregion
+
+}
@@ -0,0 +1,366 @@
+package com.mickaelg.lookanimation.ui.feed;
+
+import android.content.ComponentCallbacks2;
+import android.content.Context;
+import android.content.pm.PackageManager;
+import android.content.res.Configuration;
+import android.os.Handler;
+import android.os.Looper;
+import android.util.Log;
+
+import com.bumptech.glide.Glide;
+import com.mickaelg.lookanimation.model.LookDiskCache;
+import com.mickaelg.lookanimation.model.LookModel;
+import com.mickaelg.lookanimation.trace.LookTrace;
+import com.mickaelg.lookanimation.ui.LookAnimationDelegate;
+import com.mickaelg.lookanimation.ui.animation.LookGeometry;
+import com.mickaelg.lookanimation.ui.animation.LookTransitionTable;
+import com.mickaelg.lookanimation.ui.product.ProductStripView;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Cache of the looks of the feed, in two tiers. The memory tier keeps the last looks displayed ready to be bound: the
+ * model, its transitions and their geometry, and the resolved colors of its products. The disk tier keeps the last
+ * looks read from the source serialized, in a directory specific to the installed build.
+ * <p/>
+ * The disk tier is never read on the main thread: a look missing from memory is taken from the loader right away, and
+ * the looks about to be displayed are read from the disk in the background, see {@link #prefetch(int)}.
+ * <p/>
+ * Both tiers evict their least recently used looks. When the system asks the app to trim its memory, the memory tier
+ * shrinks with the level of the request, and the memory cache of Glide is trimmed with it.
+ * <p/>
+ * Only used on the main thread, the disk tier is read and written in the background.
+ */
+final class LookCache implements ComponentCallbacks2 {
+
+    // region Properties
+
+    private static final String TAG = LookCache.class.getSimpleName();
+
+    /**
+     * Source of the looks missing from both tiers.
+     */
+    interface Loader {
+
+        LookModel loadLook(int key);
+
+    }
+
+    /**
+     * Look ready to be bound to a page.
+     */
+    static final class Entry {
+
+        final LookModel mLook;
+        final LookTransitionTable mTransitionTable;
+        final LookGeometry mGeometry;
+        /**
+         * Colors of the products of each region, resolved the first time the strips of the look are built.
+         */
+        private int[][] mProductColors;
+
+        Entry(LookModel look) {
+            mLook = look;
+            mTransitionTable = LookAnimationDelegate.createTransitionTable(look.getRegionList());
+            mGeometry = new LookGeometry(mTransitionTable);
+        }
+
+        /**
+         * Called by the strip building thread, or by the main thread for the strips needed right away.
+         *
+         * @return Colors of the products of the region, in order
+         */
+        synchronized int[] getProductColors(Context context, int regionIndex) {
+            if (mProductColors == null) {
+                mProductColors = new int[mTransitionTable.getRegionCount()][];
+            }
+            if (mProductColors[regionIndex] == null) {
+                mProductColors[regionIndex] = ProductStripView.resolveColors(context,
+                        mLook.getRegionList().get(regionIndex).getProductList());
+            }
+            return mProductColors[regionIndex];
+        }
+
+    }
+
+    /**
+     * Looks kept in memory at most. A look takes a few kilobytes, mostly its transitions.
+     */
+    private static final int MAX_MEMORY_LOOKS = 32;
+    /**
+     * Budget of the disk tier, in bytes. A look takes about a hundred bytes.
+     */
+    private static final long MAX_DISK_BYTES = 512 * 1024;
+    private static final String DISK_DIRECTORY = "looks";
+
+    private final Context mContext;
+    private final Loader mLoader;
+
+    /**
+     * Looks of the memory tier, from the least recently used to the most recently used.
+     */
+    private final LinkedHashMap<Integer, Entry> mEntries = new LinkedHashMap<>(MAX_MEMORY_LOOKS, 0.75f, true);
+    private int mMemoryHitCount = 0;
+    private int mMemoryMissCount = 0;
+    private int mMemoryEvictionCount = 0;
+
+    /**
+     * Thread opening, reading and writing the disk tier.
+     */
+    private final ExecutorService mDiskExecutor = Executors.newSingleThreadExecutor();
+    /**
+     * Disk tier, null until it is opened or if it can't be.
+     */
+    private volatile LookDiskCache mDiskCache;
+    private final Handler mMainHandler = new Handler(Looper.getMainLooper());
+
+    // endregion
+
+
+    // region Constructors
+
+    LookCache(Context context, Loader loader) {
+        mContext = context.getApplicationContext();
+        mLoader = loader;
+        mContext.registerComponentCallbacks(this);
+        openDiskCache();
+    }
+
+    private void openDiskCache() {
+        final File directory = new File(mContext.getCacheDir(), DISK_DIRECTORY);
+        final String buildName = getBuildName();
+        mDiskExecutor.execute(new Runnable() {
+            @Override
+            public void run() {
+                // Looks stored by previous builds reference resource ids that changed
+                File[] buildDirectories = directory.listFiles();
+                if (buildDirectories != null) {
+                    for (File buildDirectory : buildDirectories) {
+                        if (!buildDirectory.getName().equals(buildName)) {
+                            deleteDirectory(buildDirectory);
+                        }
+                    }
+                }
+                try {
+                    mDiskCache = new LookDiskCache(new File(directory, buildName), MAX_DISK_BYTES);
+                } catch (IOException e) {
+                    Log.w(TAG, "Can't open the disk cache, looks will only be cached in memory", e);
+                }
+            }
+        });
+    }
+
+    /**
+     * @return Name of the installed build, changing with each install
+     */
+    private String getBuildName() {
+        try {
+            return String.valueOf(mContext.getPackageManager().getPackageInfo(mContext.getPackageName(), 0)
+                    .lastUpdateTime);
+        } catch (PackageManager.NameNotFoundException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static void deleteDirectory(File directory) {
+        File[] files = directory.listFiles();
+        if (files != null) {
+            for (File file : files) {
+                //noinspection ResultOfMethodCallIgnored
+                file.delete();
+            }
+        }
+        //noinspection ResultOfMethodCallIgnored
+        directory.delete();
+    }
+
+    /**
+     * Stop writing to the disk tier and stop listening to the memory requests, once the feed is destroyed.
+     */
+    void release() {
+        mContext.unregisterComponentCallbacks(this);
+        mDiskExecutor.shutdown();
+        mMainHandler.removeCallbacksAndMessages(null);
+        mEntries.clear();
+    }
+
+    // endregion
+
+
+    // region Cache
+
+    /**
+     * @return The look stored under the key, from the memory tier or the loader
+     */
+    Entry get(int key) {
+        Entry entry = mEntries.get(key);
+        if (entry != null) {
+            mMemoryHitCount++;
+            return entry;
+        }
+        mMemoryMissCount++;
+
+        LookModel look = mLoader.loadLook(key);
+        writeToDisk(key, look);
+        return put(key, new Entry(look));
+    }
+
+    /**
+     * Read the look stored under the key from the disk tier in the background, and keep it in the memory tier, so the
+     * look is ready when its page is bound. Nothing happens if the look is in memory or not on the disk.
+     */
+    void prefetch(final int key) {
+        if (mEntries.containsKey(key) || mDiskExecutor.isShutdown()) {
+            return;
+        }
+        mDiskExecutor.execute(new Runnable() {
+            @Override
+            public void run() {
+                LookDiskCache diskCache = mDiskCache;
+                final LookModel look = diskCache != null && diskCache.contains(key) ? diskCache.get(key) : null;
+                if (look == null) {
+                    return;
+                }
+                mMainHandler.post(new Runnable() {
+                    @Override
+                    public void run() {
+                        // The look may have been loaded meanwhile
+                        if (!mEntries.containsKey(key)) {
+                            put(key, new Entry(look));
+                        }
+                    }
+                });
+            }
+        });
+    }
+
+    private Entry put(int key, Entry entry) {
+        mEntries.put(key, entry);
+        trimMemory(MAX_MEMORY_LOOKS);
+        return entry;
+    }
+
+    private void writeToDisk(final int key, final LookModel look) {
+        if (mDiskExecutor.isShutdown()) {
+            return;
+        }
+        mDiskExecutor.execute(new Runnable() {
+            @Override
+            public void run() {
+                LookDiskCache diskCache = mDiskCache;
+                if (diskCache == null || diskCache.contains(key)) {
+                    return;
+                }
+                try {
+                    diskCache.put(key, look);
+                } catch (IOException e) {
+                    Log.w(TAG, "Can't write the look " + key + " to the disk cache", e);
+                }
+            }
+        });
+    }
+
+    /**
+     * Evict the least recently used looks of the memory tier until it holds at most the given number of looks.
+     */
+    private void trimMemory(int maxLooks) {
+        Iterator<Map.Entry<Integer, Entry>> iterator = mEntries.entrySet().iterator();
+        while (mEntries.size() > maxLooks && iterator.hasNext()) {
+            iterator.next();
+            iterator.remove();
+            mMemoryEvictionCount++;
+        }
+    }
+
+    // endregion
+
+
+    // region ComponentCallbacks2
+
+    @Override
+    public void onTrimMemory(int level) {
+        Glide.get(mContext).trimMemory(level);
+
+        if (level >= TRIM_MEMORY_MODERATE) {
+            // The app is in the middle of the processes killed first, keep nothing
+            trimMemory(0);
+        } else if (level >= TRIM_MEMORY_BACKGROUND) {
+            trimMemory(MAX_MEMORY_LOOKS / 4);
+        } else if (level >= TRIM_MEMORY_UI_HIDDEN) {
+            trimMemory(MAX_MEMORY_LOOKS / 2);
+        } else if (level >= TRIM_MEMORY_RUNNING_CRITICAL) {
+            // Still in the foreground, keep the looks around the current one
+            trimMemory(MAX_MEMORY_LOOKS / 4);
+        } else if (level >= TRIM_MEMORY_RUNNING_LOW) {
+            trimMemory(MAX_MEMORY_LOOKS / 2);
+        }
+
+        if (level >= TRIM_MEMORY_COMPLETE) {
+            // The index of the disk tier is in memory too
+            final LookDiskCache diskCache = mDiskCache;
+            if (diskCache != null && !mDiskExecutor.isShutdown()) {
+                mDiskExecutor.execute(new Runnable() {
+                    @Override
+                    public void run() {
+                        diskCache.trimToSize(diskCache.getMaxSize() / 2);
+                    }
+                });
+            }
+        }
+        LookTrace.event(LookTrace.EVENT_TRIM, level, mEntries.size());
+    }
+
+    @Override
+    public void onLowMemory() {
+        onTrimMemory(TRIM_MEMORY_COMPLETE);
+    }
+
+    @Override
+    public void onConfigurationChanged(Configuration newConfig) {
+        // Nothing depends on the configuration
+    }
+
+    // endregion
+
+
+    // region Getters
+
+    int getMemoryHitCount() {
+        return mMemoryHitCount;
+    }
+
+    int getMemoryMissCount() {
+        return mMemoryMissCount;
+    }
+
+    int getMemoryEvictionCount() {
+        return mMemoryEvictionCount;
+    }
+
+    /**
+     * @return Disk tier, null if it isn't opened
+     */
+    LookDiskCache getDiskCache() {
+        return mDiskCache;
+    }
+
+    @Override
+    public String toString() {
+        LookDiskCache diskCache = mDiskCache;
+        return "LookCache{memory: " + mEntries.size() + "/" + MAX_MEMORY_LOOKS + " looks, " + mMemoryHitCount
+                + " hits, " + mMemoryMissCount + " misses, " + mMemoryEvictionCount + " evictions; disk: "
+                + (diskCache == null ? "closed" : diskCache.getSize() + "/" + diskCache.getMaxSize() + " bytes, "
+                + diskCache.getHitCount() + " hits, " + diskCache.getMissCount() + " misses, "
+                + diskCache.getEvictionCount() + " evictions") + "}";
+    }
+
+    // endregion
+
+}
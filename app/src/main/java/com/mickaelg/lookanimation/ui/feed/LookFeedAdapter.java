@@ -0,0 +1,181 @@
+package com.mickaelg.lookanimation.ui.feed;
+
+import android.os.Bundle;
+import android.os.Parcelable;
+import android.support.v4.view.PagerAdapter;
+import android.util.SparseArray;
+import android.util.SparseIntArray;
+import android.view.LayoutInflater;
+import android.view.View;
+import android.view.ViewGroup;
+
+import com.bumptech.glide.RequestManager;
+import com.mickaelg.lookanimation.ui.LookAnimationDelegate;
+import com.mickaelg.lookanimation.ui.picture.PictureThumbnails;
+import com.mickaelg.lookanimation.ui.picture.TiledPictureView;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Adapter of the look feed. The pages leaving the feed are pooled and bound to the next looks instead of being
+ * inflated again, so the number of views only depends on the pages kept by the
+ * {@link android.support.v4.view.ViewPager} around the current one, not on the number of looks. The looks displayed
+ * recently are kept ready to be bound by a {@link LookCache}, and the thumbnails of their pictures by
+ * {@link PictureThumbnails}, both in the {@link RetainedLookFeed}.
+ * <p/>
+ * The state of the bound pages is saved with the pager: once restored, each page jumps to the region it was zoomed on
+ * before its first frame.
+ */
+final class LookFeedAdapter extends PagerAdapter {
+
+    // region Properties
+
+    private static final String KEY_POSITIONS = "positions";
+    private static final String KEY_PICTURE_STATES = "picture_states";
+    /**
+     * Distance from the current page of the looks read ahead from the disk, one page past the ones the pager binds.
+     */
+    private static final int PREFETCH_DISTANCE = 2;
+
+    private final LayoutInflater mInflater;
+    private final RequestManager mRequestManager;
+    private final RetainedLookFeed mFeed;
+    /**
+     * Pages not displaying any look, ready to be bound.
+     */
+    private final List<LookPageHolder> mHolderPool = new ArrayList<>();
+    /**
+     * Pages displaying a look, by position.
+     */
+    private final SparseArray<LookPageHolder> mBoundHolders = new SparseArray<>();
+    /**
+     * States restored for the pages not bound again yet, by position.
+     */
+    private final SparseIntArray mRestoredStates = new SparseIntArray();
+    private final ProductStripPool mStripPool = new ProductStripPool();
+    private final ProductStripBuilder mStripBuilder;
+
+    // endregion
+
+
+    // region Constructors
+
+    LookFeedAdapter(LayoutInflater inflater, RequestManager requestManager, RetainedLookFeed feed) {
+        mInflater = inflater;
+        mRequestManager = requestManager;
+        mFeed = feed;
+        mStripBuilder = new ProductStripBuilder(inflater, mStripPool);
+    }
+
+    /**
+     * Stop building the strips of the pages, once the views of the feed are destroyed. The bound pages hand their
+     * decoded tiles over to the feed if the views are destroyed by a configuration change.
+     */
+    void release(boolean changingConfigurations) {
+        mStripBuilder.shutdown();
+        if (changingConfigurations) {
+            for (int i = 0; i < mBoundHolders.size(); i++) {
+                TiledPictureView.RetainedTiles tiles = mBoundHolders.valueAt(i).retainTiles();
+                if (tiles != null) {
+                    mFeed.mRetainedTiles.put(mBoundHolders.keyAt(i), tiles);
+                }
+            }
+        }
+    }
+
+    // endregion
+
+
+    // region PagerAdapter
+
+    @Override
+    public int getCount() {
+        return mFeed.getLookCount();
+    }
+
+    @Override
+    public Object instantiateItem(ViewGroup container, int position) {
+        LookPageHolder holder = !mHolderPool.isEmpty() ? mHolderPool.remove(mHolderPool.size() - 1)
+                : new LookPageHolder(mInflater, container, mRequestManager, mFeed.mThumbnails, mFeed.mLoadStats,
+                mStripPool, mStripBuilder);
+        int restoredState = mRestoredStates.get(position, LookAnimationDelegate.STATE_NOT_ZOOMED);
+        mRestoredStates.delete(position);
+        TiledPictureView.RetainedTiles tiles = mFeed.mRetainedTiles.get(position);
+        mFeed.mRetainedTiles.remove(position);
+
+        holder.bind(mFeed.getLook(position), restoredState, tiles);
+        container.addView(holder.getView());
+        mBoundHolders.put(position, holder);
+        return holder;
+    }
+
+    @Override
+    public void destroyItem(ViewGroup container, int position, Object object) {
+        LookPageHolder holder = (LookPageHolder) object;
+        mBoundHolders.remove(position);
+        holder.unbind();
+        container.removeView(holder.getView());
+        mHolderPool.add(holder);
+    }
+
+    @Override
+    public void setPrimaryItem(ViewGroup container, int position, Object object) {
+        super.setPrimaryItem(container, position, object);
+        for (int i = 0; i < mBoundHolders.size(); i++) {
+            LookPageHolder holder = mBoundHolders.valueAt(i);
+            holder.setPrimary(holder == object);
+        }
+        mFeed.prefetchLook(position - PREFETCH_DISTANCE);
+        mFeed.prefetchLook(position + PREFETCH_DISTANCE);
+    }
+
+    @Override
+    public void finishUpdate(ViewGroup container) {
+        super.finishUpdate(container);
+        // The pages of the previous configuration not bound again by now won't be
+        mFeed.mRetainedTiles.clear();
+        mRestoredStates.clear();
+    }
+
+    @Override
+    public boolean isViewFromObject(View view, Object object) {
+        return ((LookPageHolder) object).getView() == view;
+    }
+
+    @Override
+    public Parcelable saveState() {
+        int count = mBoundHolders.size();
+        int[] positions = new int[count];
+        int[] pictureStates = new int[count];
+        for (int i = 0; i < count; i++) {
+            positions[i] = mBoundHolders.keyAt(i);
+            pictureStates[i] = mBoundHolders.valueAt(i).getPictureState();
+        }
+        Bundle state = new Bundle();
+        state.putIntArray(KEY_POSITIONS, positions);
+        state.putIntArray(KEY_PICTURE_STATES, pictureStates);
+        return state;
+    }
+
+    @Override
+    public void restoreState(Parcelable state, ClassLoader loader) {
+        Bundle bundle = (Bundle) state;
+        int[] positions = bundle.getIntArray(KEY_POSITIONS);
+        int[] pictureStates = bundle.getIntArray(KEY_PICTURE_STATES);
+        if (positions == null || pictureStates == null) {
+            return;
+        }
+        for (int i = 0; i < positions.length; i++) {
+            LookPageHolder holder = mBoundHolders.get(positions[i]);
+            if (holder != null) {
+                holder.restorePictureState(pictureStates[i]);
+            } else {
+                mRestoredStates.put(positions[i], pictureStates[i]);
+            }
+        }
+    }
+
+    // endregion
+
+}
@@ -0,0 +1,183 @@
+package com.mickaelg.lookanimation.ui.feed;
+
+import android.os.Bundle;
+import android.support.annotation.Nullable;
+import android.support.v4.app.Fragment;
+import android.support.v4.view.ViewPager;
+import android.util.Log;
+import android.view.LayoutInflater;
+import android.view.View;
+import android.view.ViewGroup;
+
+import com.bumptech.glide.Glide;
+import com.mickaelg.lookanimation.R;
+import com.mickaelg.lookanimation.model.LookCatalog;
+import com.mickaelg.lookanimation.model.LookFeedSource;
+import com.mickaelg.lookanimation.model.LookModel;
+import com.mickaelg.lookanimation.model.MappedLookCatalog;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.util.List;
+
+import butterknife.Bind;
+import butterknife.ButterKnife;
+
+/**
+ * Fragment displaying a feed of {@link LookModel}s, one page per look. The pages are recycled by a
+ * {@link LookFeedAdapter}, and the previous and next looks are bound ahead so they are ready when the user swipes.
+ * <p/>
+ * The fragment is retained across configuration changes with its {@link RetainedLookFeed}: only the views are created
+ * again, and the pager restores the current page and the region each page was zoomed on.
+ */
+public class LookFeedFragment extends Fragment {
+
+    // region Properties
+
+    private static final String TAG = LookFeedFragment.class.getSimpleName();
+
+    /**
+     * Catalog of the feed, in the assets.
+     */
+    private static final String CATALOG_ASSET = "looks.lkc";
+    /**
+     * Local stand-in for the feed of look updates, in the files of the app.
+     */
+    private static final String UPDATES_FILE = "look_updates.json";
+    /**
+     * Number of looks of the test feed, used when the catalog can't be read.
+     */
+    private static final int LOOK_COUNT = 1000;
+    /**
+     * Pages bound on each side of the current one.
+     */
+    private static final int OFFSCREEN_PAGE_LIMIT = 1;
+
+    @Bind(R.id.look_vp_feed)
+    protected ViewPager mVpFeed;
+
+    /**
+     * Looks and decoded pictures of the feed, kept across configuration changes.
+     */
+    private RetainedLookFeed mFeed;
+    private LookFeedLoader mUpdateLoader;
+    /**
+     * Adapter of the current views, null while they are destroyed.
+     */
+    private LookFeedAdapter mAdapter;
+
+    // endregion
+
+
+    // region Constructors
+
+    public static LookFeedFragment newInstance() {
+        return new LookFeedFragment();
+    }
+
+    // endregion
+
+
+    // region Lifecycle
+
+    @Override
+    public void onCreate(Bundle savedInstanceState) {
+        super.onCreate(savedInstanceState);
+        setRetainInstance(true);
+
+        MappedLookCatalog.ResourceResolver resolver = MappedLookCatalog.createResourceResolver(getContext());
+        mFeed = new RetainedLookFeed(getContext(), openLookList(resolver));
+        loadUpdates(resolver);
+    }
+
+    @Nullable
+    @Override
+    public View onCreateView(LayoutInflater inflater, ViewGroup container, Bundle savedInstanceState) {
+        super.onCreateView(inflater, container, savedInstanceState);
+
+        View view = inflater.inflate(R.layout.fragment_look_feed, container, false);
+        ButterKnife.bind(this, view);
+        initUI(inflater);
+        return view;
+    }
+
+    @Override
+    public void onDestroyView() {
+        super.onDestroyView();
+        mAdapter.release(getActivity().isChangingConfigurations());
+        mAdapter = null;
+    }
+
+    @Override
+    public void onDestroy() {
+        super.onDestroy();
+        mUpdateLoader.shutdown();
+        mFeed.release();
+    }
+
+    /**
+     * Print the durations of the picture loads of the feed, see {@link PictureLoadStats}.
+     */
+    public void dumpLoadStats(String prefix, PrintWriter writer) {
+        if (mFeed != null) {
+            mFeed.mLoadStats.dump(prefix, writer);
+        }
+    }
+
+    // endregion
+
+
+    // region UI
+
+    private void initUI(LayoutInflater inflater) {
+        mVpFeed.setOffscreenPageLimit(OFFSCREEN_PAGE_LIMIT);
+        // The loads follow the activity: they are cleared with it, and the pictures stay in the memory cache
+        mAdapter = new LookFeedAdapter(inflater, Glide.with(getActivity()), mFeed);
+        mVpFeed.setAdapter(mAdapter);
+    }
+
+    /**
+     * Map the catalog of the feed, its looks are read as the pages display them.
+     */
+    private List<LookModel> openLookList(MappedLookCatalog.ResourceResolver resolver) {
+        try {
+            return MappedLookCatalog.openAsset(getResources().getAssets(), CATALOG_ASSET, resolver).asList();
+        } catch (IOException e) {
+            Log.w(TAG, "Can't read the look catalog, displaying test looks", e);
+            return LookCatalog.createTestCatalog(LOOK_COUNT).asList();
+        }
+    }
+
+    /**
+     * Append the looks of the update feed to the pages as they are parsed, also while the views are created again.
+     */
+    private void loadUpdates(MappedLookCatalog.ResourceResolver resolver) {
+        mUpdateLoader = new LookFeedLoader(resolver);
+        LookFeedSource.LocalFile source = new LookFeedSource.LocalFile(new File(getContext().getFilesDir(),
+                UPDATES_FILE));
+        if (!source.exists()) {
+            return;
+        }
+
+        mUpdateLoader.load(source, new LookFeedLoader.Callback() {
+            @Override
+            public void onLooksLoaded(List<LookModel> lookList) {
+                mFeed.mAddedLookList.addAll(lookList);
+                if (mAdapter != null) {
+                    mAdapter.notifyDataSetChanged();
+                }
+            }
+
+            @Override
+            public void onFeedLoaded(int lookCount, IOException error) {
+                if (error != null) {
+                    Log.w(TAG, "Look updates stopped after " + lookCount + " looks", error);
+                }
+            }
+        });
+    }
+
+    // endregion
+
+}
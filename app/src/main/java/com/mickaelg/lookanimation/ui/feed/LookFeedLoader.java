@@ -0,0 +1,126 @@
+package com.mickaelg.lookanimation.ui.feed;
+
+import android.os.Handler;
+import android.os.Looper;
+
+import com.mickaelg.lookanimation.model.LookFeedParser;
+import com.mickaelg.lookanimation.model.LookFeedSource;
+import com.mickaelg.lookanimation.model.LookModel;
+import com.mickaelg.lookanimation.model.MappedLookCatalog;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Load a feed of looks on a background thread, handing the looks to the main thread as they are parsed: the first look
+ * alone, so it can be displayed as soon as possible, then the next ones by batches.
+ */
+final class LookFeedLoader {
+
+    // region Properties
+
+    interface Callback {
+
+        /**
+         * Called on the main thread with the next looks of the feed, in order.
+         */
+        void onLooksLoaded(List<LookModel> lookList);
+
+        /**
+         * Called on the main thread once the whole feed is loaded, or when it fails.
+         *
+         * @param error Error stopping the loading, or null if the feed was completely read
+         */
+        void onFeedLoaded(int lookCount, IOException error);
+
+    }
+
+    /**
+     * Looks handed to the main thread together, after the first one.
+     */
+    private static final int BATCH_SIZE = 16;
+
+    private final ExecutorService mExecutor = Executors.newSingleThreadExecutor();
+    private final Handler mMainHandler = new Handler(Looper.getMainLooper());
+    private final MappedLookCatalog.ResourceResolver mResolver;
+
+    // endregion
+
+
+    // region Constructors
+
+    LookFeedLoader(MappedLookCatalog.ResourceResolver resolver) {
+        mResolver = resolver;
+    }
+
+    // endregion
+
+
+    // region Loading
+
+    void load(final LookFeedSource source, final Callback callback) {
+        mExecutor.execute(new Runnable() {
+            @Override
+            public void run() {
+                int lookCount = 0;
+                IOException error = null;
+                try {
+                    Reader reader = source.open();
+                    LookFeedParser parser = new LookFeedParser(reader, mResolver);
+                    try {
+                        List<LookModel> batch = new ArrayList<>(1);
+                        LookModel look;
+                        while (!Thread.currentThread().isInterrupted() && (look = parser.nextLook()) != null) {
+                            batch.add(look);
+                            lookCount++;
+                            if (lookCount == 1 || batch.size() == BATCH_SIZE) {
+                                post(callback, batch);
+                                batch = new ArrayList<>(BATCH_SIZE);
+                            }
+                        }
+                        if (!batch.isEmpty()) {
+                            post(callback, batch);
+                        }
+                    } finally {
+                        parser.close();
+                    }
+                } catch (IOException e) {
+                    error = e;
+                }
+
+                final int loadedCount = lookCount;
+                final IOException loadError = error;
+                mMainHandler.post(new Runnable() {
+                    @Override
+                    public void run() {
+                        callback.onFeedLoaded(loadedCount, loadError);
+                    }
+                });
+            }
+        });
+    }
+
+    private void post(final Callback callback, final List<LookModel> batch) {
+        mMainHandler.post(new Runnable() {
+            @Override
+            public void run() {
+                callback.onLooksLoaded(batch);
+            }
+        });
+    }
+
+    /**
+     * Stop loading, the looks not handed to the main thread yet are dropped.
+     */
+    void shutdown() {
+        mExecutor.shutdownNow();
+        mMainHandler.removeCallbacksAndMessages(null);
+    }
+
+    // endregion
+
+}
@@ -0,0 +1,330 @@
+package com.mickaelg.lookanimation.ui.feed;
+
+import android.graphics.drawable.Drawable;
+import android.os.SystemClock;
+import android.support.annotation.Nullable;
+import android.support.v4.view.MotionEventCompat;
+import android.util.DisplayMetrics;
+import android.view.LayoutInflater;
+import android.view.MotionEvent;
+import android.view.View;
+import android.view.ViewGroup;
+import android.widget.FrameLayout;
+
+import com.bumptech.glide.DrawableRequestBuilder;
+import com.bumptech.glide.Glide;
+import com.bumptech.glide.RequestManager;
+import com.bumptech.glide.load.resource.drawable.GlideDrawable;
+import com.bumptech.glide.request.target.GlideDrawableImageViewTarget;
+import com.mickaelg.lookanimation.R;
+import com.mickaelg.lookanimation.model.LookModel;
+import com.mickaelg.lookanimation.trace.LookTrace;
+import com.mickaelg.lookanimation.ui.LookAnimationDelegate;
+import com.mickaelg.lookanimation.ui.picture.PictureThumbnails;
+import com.mickaelg.lookanimation.ui.picture.TiledPictureView;
+import com.mickaelg.lookanimation.ui.product.ProductStripView;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import butterknife.Bind;
+import butterknife.ButterKnife;
+
+/**
+ * Views of a page of the look feed, inflated once and bound to a {@link LookModel} each time the page displays another
+ * look. Binding only sets the data of the views and creates the {@link LookAnimationDelegate} of the look, the views
+ * themselves are reused.
+ * <p/>
+ * The thumbnail of the picture is shown on the first frame, then the picture is loaded and cross-faded over it by a
+ * {@link PictureFadeDrawable}. The fade only changes the drawable: the delegate maps its transform to the new size and
+ * its animations go on. The product strips are built in the background by a {@link ProductStripBuilder} and attached
+ * together once ready. The delegate queues the gestures received meanwhile.
+ * <p/>
+ * A page bound again after a configuration change restores the region it was zoomed on: its strips are then built
+ * right away, so the delegate jumps to the region before the first frame, and its tiles are the ones decoded by the
+ * previous page.
+ */
+final class LookPageHolder {
+
+    // region Properties
+
+    /**
+     * Duration of the cross-fade from the thumbnail to the picture, in ms.
+     */
+    private static final int CROSS_FADE_DURATION = 200;
+
+    @Bind(R.id.look_iv_look_picture)
+    protected TiledPictureView mIvLook;
+    @Bind(R.id.look_fl_product_strips)
+    protected FrameLayout mFlProductStrips;
+
+    private final View mView;
+    private final RequestManager mRequestManager;
+    private final PictureThumbnails mThumbnails;
+    private final PictureLoadStats mLoadStats;
+    /**
+     * Size the picture is loaded at, the same in every orientation so the picture loaded before a rotation is found in
+     * the memory cache of Glide after it.
+     */
+    private final int mPictureSize;
+    private final ProductStripPool mStripPool;
+    private final ProductStripBuilder mStripBuilder;
+    /**
+     * Strips of the regions of the bound look once attached, in the same order.
+     */
+    private final List<ProductStripView> mStripList = new ArrayList<>();
+    /**
+     * Number of the last strip build requested, the strips of the previous ones are pooled when they come back.
+     */
+    private int mBuildRequest = 0;
+    /**
+     * Delegate applying the transitions of the bound look, null when no look is bound.
+     */
+    private LookAnimationDelegate mLookAnimationDelegate;
+    /**
+     * Target of the picture, reused by every look. Glide cancels the previous load when a new one starts.
+     */
+    private final GlideDrawableImageViewTarget mPictureTarget;
+    /**
+     * Uptime of the last bind, when the load of the picture started.
+     */
+    private long mBindTime = 0;
+    private boolean mFirstPixelDrawn = false;
+    /**
+     * True while the thumbnail is the drawable, the picture then fades in over it.
+     */
+    private boolean mThumbnailShown = false;
+    /**
+     * True once the picture is set, faded in or not.
+     */
+    private boolean mPictureSet = false;
+    /**
+     * Fade of the picture over its thumbnail, null if the picture was set without fading.
+     */
+    private PictureFadeDrawable mFade;
+
+    // endregion
+
+
+    // region Constructors
+
+    LookPageHolder(LayoutInflater inflater, ViewGroup container, RequestManager requestManager,
+                   PictureThumbnails thumbnails, PictureLoadStats loadStats, ProductStripPool stripPool,
+                   ProductStripBuilder stripBuilder) {
+        mView = inflater.inflate(R.layout.layout_look_page, container, false);
+        mRequestManager = requestManager;
+        mThumbnails = thumbnails;
+        mLoadStats = loadStats;
+        DisplayMetrics displayMetrics = mView.getResources().getDisplayMetrics();
+        mPictureSize = Math.max(displayMetrics.widthPixels, displayMetrics.heightPixels);
+        mStripPool = stripPool;
+        mStripBuilder = stripBuilder;
+        ButterKnife.bind(this, mView);
+
+        mPictureTarget = new GlideDrawableImageViewTarget(mIvLook) {
+            @Override
+            public void onLoadStarted(Drawable placeholder) {
+                // The thumbnail, set before the first frame. The picture is set right away when it is in memory
+                super.onLoadStarted(placeholder);
+                mThumbnailShown = placeholder != null;
+                onPictureChanged();
+            }
+
+            @Override
+            protected void setResource(GlideDrawable resource) {
+                if (mThumbnailShown) {
+                    mFade = new PictureFadeDrawable(getView().getDrawable(), resource, CROSS_FADE_DURATION);
+                    getView().setImageDrawable(mFade);
+                    mFade.start();
+                } else {
+                    super.setResource(resource);
+                }
+                onPictureSet();
+            }
+        };
+        mIvLook.setOnTouchListener(new View.OnTouchListener() {
+            @Override
+            public boolean onTouch(View view, MotionEvent motionEvent) {
+                if (mLookAnimationDelegate == null) {
+                    return false;
+                }
+                int action = MotionEventCompat.getActionMasked(motionEvent);
+                if ((action == MotionEvent.ACTION_DOWN && mLookAnimationDelegate.isZoomed())
+                        || action == MotionEvent.ACTION_POINTER_DOWN) {
+                    // The gesture zooms or pans the look, the feed mustn't page on it
+                    view.getParent().requestDisallowInterceptTouchEvent(true);
+                }
+                return mLookAnimationDelegate.onTouchEvent(motionEvent);
+            }
+        });
+    }
+
+    // endregion
+
+
+    // region Binding
+
+    View getView() {
+        return mView;
+    }
+
+    /**
+     * Display the given look in the page. Its transitions and the colors of its products come from the cache when it
+     * was displayed recently.
+     *
+     * @param pictureState State to restore the look in, {@link LookAnimationDelegate#STATE_NOT_ZOOMED} for a new page
+     * @param tiles        Tiles decoded by the page of the previous configuration, if any
+     */
+    void bind(LookCache.Entry entry, @LookAnimationDelegate.PictureState int pictureState,
+              @Nullable TiledPictureView.RetainedTiles tiles) {
+        LookTrace.beginSection(LookTrace.SECTION_BIND);
+        LookModel look = entry.mLook;
+        LookTrace.event(LookTrace.EVENT_BIND, look.getLookPictureResId(), pictureState);
+        mLookAnimationDelegate = new LookAnimationDelegate(mIvLook, entry.mTransitionTable, entry.mGeometry);
+        mLookAnimationDelegate.restorePictureState(pictureState);
+
+        // Set the main picture, untransformed: the delegate crops and zooms it with the image matrix. Glide loads it
+        // downsampled to the screen as the base layer, the view decodes the zoomed parts in full resolution
+        mIvLook.setTiledPicture(look.getLookPictureResId(), tiles);
+        Drawable thumbnail = mThumbnails.getThumbnail(look.getLookPictureResId());
+        mIvLook.setPlaceholderShown(thumbnail != null);
+        mBindTime = SystemClock.uptimeMillis();
+        mFirstPixelDrawn = false;
+        mThumbnailShown = false;
+        mPictureSet = false;
+        mFade = null;
+        mIvLook.setOnPictureDrawnListener(mPictureDrawnListener);
+        // The target fades the picture in itself, knowing when the fade is drawn to its end
+        DrawableRequestBuilder<Integer> request = mRequestManager
+                .load(look.getLookPictureResId())
+                .dontTransform()
+                .dontAnimate()
+                .override(mPictureSize, mPictureSize);
+        if (thumbnail != null) {
+            request.placeholder(thumbnail);
+        }
+        request.into(mPictureTarget);
+
+        // Build the strips from the pooled ones when there are, in the background unless the look is zoomed: the
+        // strips of a restored page are needed by its first frame
+        ProductStripView[] strips = new ProductStripView[look.getRegionList().size()];
+        for (int i = 0; i < strips.length; i++) {
+            strips[i] = mStripPool.acquire();
+        }
+        if (pictureState != LookAnimationDelegate.STATE_NOT_ZOOMED) {
+            mStripBuilder.buildNow(entry, strips, mFlProductStrips);
+            mStripsBuiltCallback.onStripsBuilt(++mBuildRequest, strips);
+        } else {
+            mStripBuilder.build(++mBuildRequest, entry, strips, mFlProductStrips, mStripsBuiltCallback);
+        }
+        LookTrace.endSection();
+    }
+
+    /**
+     * @return State of the bound look to save, see {@link LookAnimationDelegate#getPictureState()}
+     */
+    @LookAnimationDelegate.PictureState
+    int getPictureState() {
+        return mLookAnimationDelegate != null ? mLookAnimationDelegate.getPictureState()
+                : LookAnimationDelegate.STATE_NOT_ZOOMED;
+    }
+
+    /**
+     * Restore the state of the bound look, saved before a configuration change.
+     */
+    void restorePictureState(@LookAnimationDelegate.PictureState int pictureState) {
+        if (mLookAnimationDelegate != null) {
+            mLookAnimationDelegate.restorePictureState(pictureState);
+        }
+    }
+
+    /**
+     * Tell whether the page is the current one of the feed, its picture is then decoded before the ones of the pages
+     * next to it.
+     */
+    void setPrimary(boolean primary) {
+        mIvLook.setPrimary(primary);
+    }
+
+    /**
+     * @return The tiles decoded for the bound look, handed over to the page of the next configuration
+     */
+    @Nullable
+    TiledPictureView.RetainedTiles retainTiles() {
+        return mIvLook.retainTiles();
+    }
+
+    /**
+     * Let the delegate map its transform to the size of the new drawable, without stopping its animations.
+     */
+    private void onPictureChanged() {
+        if (mLookAnimationDelegate != null) {
+            mLookAnimationDelegate.onPictureChanged();
+        }
+    }
+
+    private void onPictureSet() {
+        mThumbnailShown = false;
+        mPictureSet = true;
+        mIvLook.setPlaceholderShown(false);
+        onPictureChanged();
+    }
+
+    private final TiledPictureView.OnPictureDrawnListener mPictureDrawnListener =
+            new TiledPictureView.OnPictureDrawnListener() {
+                @Override
+                public void onPictureDrawn(TiledPictureView view) {
+                    long now = SystemClock.uptimeMillis();
+                    if (!mFirstPixelDrawn) {
+                        mFirstPixelDrawn = true;
+                        mLoadStats.mFirstPixel.record(now - mBindTime);
+                    }
+                    // Drawn in full quality once the picture is set, by the frame ending its fade if it fades in
+                    if (mPictureSet && (mFade == null || mFade.isFinished())) {
+                        mLoadStats.mFullQuality.record(now - mBindTime);
+                        view.setOnPictureDrawnListener(null);
+                    }
+                }
+            };
+
+    private final ProductStripBuilder.Callback mStripsBuiltCallback = new ProductStripBuilder.Callback() {
+        @Override
+        public void onStripsBuilt(int request, ProductStripView[] strips) {
+            if (request != mBuildRequest) {
+                // Built for a look the page doesn't display anymore
+                for (ProductStripView strip : strips) {
+                    mStripPool.release(strip);
+                }
+                return;
+            }
+
+            for (ProductStripView strip : strips) {
+                mFlProductStrips.addView(strip);
+                mStripList.add(strip);
+            }
+            mLookAnimationDelegate.setProductStrips(strips);
+        }
+    };
+
+    /**
+     * Stop displaying the bound look, before the page is pooled.
+     */
+    void unbind() {
+        mBuildRequest++;
+        if (mLookAnimationDelegate != null) {
+            mLookAnimationDelegate.release();
+            mLookAnimationDelegate = null;
+        }
+        for (ProductStripView strip : mStripList) {
+            mFlProductStrips.removeView(strip);
+            mStripPool.release(strip);
+        }
+        mStripList.clear();
+        mIvLook.setOnPictureDrawnListener(null);
+        mIvLook.setPlaceholderShown(false);
+        Glide.clear(mPictureTarget);
+    }
+
+    // endregion
+
+}
@@ -0,0 +1,75 @@
+package com.mickaelg.lookanimation.ui.feed;
+
+import android.graphics.Canvas;
+import android.graphics.drawable.Drawable;
+import android.graphics.drawable.TransitionDrawable;
+import android.os.SystemClock;
+
+/**
+ * Cross-fade from the thumbnail of a look picture to the picture itself, which knows the frame drawing the picture in
+ * full quality. Like its parent, the fade starts on its first draw and ends on the first draw once its duration has
+ * elapsed, however late the frames are.
+ * <p/>
+ * Only used on the main thread.
+ */
+final class PictureFadeDrawable extends TransitionDrawable {
+
+    // region Properties
+
+    private final int mDuration;
+    /**
+     * Uptime of the first draw, taken after the parent took its own, -1 until then.
+     */
+    private long mStartTime = -1;
+    private boolean mFinished = false;
+
+    // endregion
+
+
+    // region Constructors
+
+    /**
+     * @param duration Duration of the fade, in ms
+     */
+    PictureFadeDrawable(Drawable thumbnail, Drawable picture, int duration) {
+        super(new Drawable[]{thumbnail, picture});
+        mDuration = duration;
+        setCrossFadeEnabled(true);
+    }
+
+    // endregion
+
+
+    // region Fade
+
+    void start() {
+        startTransition(mDuration);
+    }
+
+    /**
+     * @return True once the picture was drawn alone, without the thumbnail
+     */
+    boolean isFinished() {
+        return mFinished;
+    }
+
+    @Override
+    public void draw(Canvas canvas) {
+        // Read before the parent reads the time, from a start taken after it: if this draw is late enough, the parent
+        // draws the picture at full opacity
+        boolean finished = mStartTime >= 0 && SystemClock.uptimeMillis() - mStartTime >= mDuration;
+        super.draw(canvas);
+        if (mStartTime < 0) {
+            mStartTime = SystemClock.uptimeMillis();
+        }
+        mFinished |= finished;
+        if (!mFinished) {
+            // The parent stops invalidating on the draw reaching its duration, which may be this one: ask for the
+            // frame drawing the picture alone
+            invalidateSelf();
+        }
+    }
+
+    // endregion
+
+}
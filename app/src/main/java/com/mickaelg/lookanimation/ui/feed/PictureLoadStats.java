@@ -0,0 +1,78 @@
+package com.mickaelg.lookanimation.ui.feed;
+
+import java.io.PrintWriter;
+
+/**
+ * Durations of the picture loads of the feed pages, from the bind of a page to the first frame drawing something of
+ * its picture, usually its thumbnail, and to the first frame drawing it in full quality, once faded in. Pages bound
+ * off-screen are only drawn once they are scrolled to, which counts in their durations. They are printed with the dump
+ * of the activity.
+ * <p/>
+ * Only used on the main thread.
+ */
+final class PictureLoadStats {
+
+    // region Properties
+
+    /**
+     * Count, mean and maximum of a series of durations.
+     */
+    static final class Durations {
+
+        private int mCount = 0;
+        private long mTotalMillis = 0;
+        private long mMaxMillis = 0;
+
+        void record(long millis) {
+            mCount++;
+            mTotalMillis += millis;
+            mMaxMillis = Math.max(mMaxMillis, millis);
+        }
+
+        int getCount() {
+            return mCount;
+        }
+
+        long getMeanMillis() {
+            return mCount == 0 ? 0 : mTotalMillis / mCount;
+        }
+
+        long getMaxMillis() {
+            return mMaxMillis;
+        }
+
+        @Override
+        public String toString() {
+            return mCount + " loads, mean " + getMeanMillis() + " ms, max " + mMaxMillis + " ms";
+        }
+
+    }
+
+    final Durations mFirstPixel = new Durations();
+    final Durations mFullQuality = new Durations();
+
+    // endregion
+
+
+    // region Getters
+
+    /**
+     * Print the durations of both steps of the loads.
+     */
+    void dump(String prefix, PrintWriter writer) {
+        writer.print(prefix);
+        writer.println("Picture loads:");
+        writer.print(prefix);
+        writer.println("  first pixel: " + mFirstPixel);
+        writer.print(prefix);
+        writer.println("  full quality: " + mFullQuality);
+    }
+
+    @Override
+    public String toString() {
+        return "PictureLoadStats{first pixel: " + mFirstPixel + "; full quality: " + mFullQuality + "}";
+    }
+
+    // endregion
+
+}
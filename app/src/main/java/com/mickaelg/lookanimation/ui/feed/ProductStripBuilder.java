@@ -0,0 +1,140 @@
+package com.mickaelg.lookanimation.ui.feed;
+
+import android.os.Handler;
+import android.os.Looper;
+import android.view.LayoutInflater;
+import android.view.ViewGroup;
+
+import com.mickaelg.lookanimation.R;
+import com.mickaelg.lookanimation.ui.product.ProductStripView;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Build the product strips of a look on a background thread: the missing strips are inflated and every strip is bound
+ * to the products of its region there, then all of them are handed back together on the main thread. The strips are
+ * not attached to any window meanwhile, so only the building thread touches them. The strips a page needs on its
+ * first frame can also be built right away on the main thread.
+ * <p/>
+ * Once the builder is shut down, the strips of the pending builds go back to the pool instead of being handed back.
+ */
+final class ProductStripBuilder {
+
+    // region Properties
+
+    interface Callback {
+
+        /**
+         * Called on the main thread with the strips of every region, in the same order.
+         *
+         * @param request Request number given to {@link #build(int, LookCache.Entry, ProductStripView[], ViewGroup,
+         *                Callback)}
+         */
+        void onStripsBuilt(int request, ProductStripView[] strips);
+
+    }
+
+    /**
+     * Single building thread, with its own inflater: an inflater can't be shared between threads.
+     */
+    private final ExecutorService mExecutor = Executors.newSingleThreadExecutor();
+    private final Handler mMainHandler = new Handler(Looper.getMainLooper());
+    private final LayoutInflater mInflater;
+    private final LayoutInflater mMainInflater;
+    private final ProductStripPool mStripPool;
+    /**
+     * Set on the main thread, read by the building thread to skip the pending builds.
+     */
+    private volatile boolean mShutdown = false;
+
+    // endregion
+
+
+    // region Constructors
+
+    /**
+     * @param stripPool Pool the strips of the pending builds are released to once the builder is shut down
+     */
+    ProductStripBuilder(LayoutInflater inflater, ProductStripPool stripPool) {
+        mInflater = inflater.cloneInContext(inflater.getContext());
+        mMainInflater = inflater;
+        mStripPool = stripPool;
+    }
+
+    // endregion
+
+
+    // region Building
+
+    /**
+     * Build the strips of the regions of the look in the background. The colors of the products are only resolved the
+     * first time the look is built.
+     *
+     * @param request Number given back to the callback, to recognize a stale build
+     * @param strips  Strips to bind, one per region, null where a strip must be inflated
+     * @param parent  Container the strips will be added to, only read to inflate them
+     */
+    void build(final int request, final LookCache.Entry entry, final ProductStripView[] strips,
+               final ViewGroup parent, final Callback callback) {
+        mExecutor.execute(new Runnable() {
+            @Override
+            public void run() {
+                for (int i = 0; i < strips.length && !mShutdown; i++) {
+                    if (strips[i] == null) {
+                        strips[i] = (ProductStripView) mInflater.inflate(R.layout.layout_product_strip, parent, false);
+                    }
+                    strips[i].setProductColors(entry.getProductColors(mInflater.getContext(), i));
+                }
+                mMainHandler.post(new Runnable() {
+                    @Override
+                    public void run() {
+                        if (mShutdown) {
+                            releaseStrips(strips);
+                        } else {
+                            callback.onStripsBuilt(request, strips);
+                        }
+                    }
+                });
+            }
+        });
+    }
+
+    /**
+     * Give the strips of a build back to the pool, some of them possibly not inflated.
+     */
+    private void releaseStrips(ProductStripView[] strips) {
+        for (ProductStripView strip : strips) {
+            if (strip != null) {
+                mStripPool.release(strip);
+            }
+        }
+    }
+
+    /**
+     * Build the strips of the regions of the look right away, on the main thread.
+     *
+     * @param strips Strips to bind, one per region, null where a strip must be inflated
+     * @param parent Container the strips will be added to, only read to inflate them
+     */
+    void buildNow(LookCache.Entry entry, ProductStripView[] strips, ViewGroup parent) {
+        for (int i = 0; i < strips.length; i++) {
+            if (strips[i] == null) {
+                strips[i] = (ProductStripView) mMainInflater.inflate(R.layout.layout_product_strip, parent, false);
+            }
+            strips[i].setProductColors(entry.getProductColors(mMainInflater.getContext(), i));
+        }
+    }
+
+    /**
+     * Stop building, the strips of the pending builds are never handed back but released to the pool. The strip being
+     * inflated, if any, is inflated to its end rather than interrupted.
+     */
+    void shutdown() {
+        mShutdown = true;
+        mExecutor.shutdown();
+    }
+
+    // endregion
+
+}
@@ -0,0 +1,43 @@
+package com.mickaelg.lookanimation.ui.feed;
+
+import android.support.annotation.Nullable;
+
+import com.mickaelg.lookanimation.ui.product.ProductStripView;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Product strips shared by the pages of the feed. A page gives its strips back when it stops displaying a look, and
+ * the next page bound takes them before any new strip is inflated, whatever the number of regions of the looks. Only
+ * used on the main thread.
+ */
+final class ProductStripPool {
+
+    // region Properties
+
+    private final List<ProductStripView> mStripList = new ArrayList<>();
+
+    // endregion
+
+
+    // region Pool
+
+    /**
+     * @return A strip not attached to any container, or null if the pool is empty
+     */
+    @Nullable
+    ProductStripView acquire() {
+        return !mStripList.isEmpty() ? mStripList.remove(mStripList.size() - 1) : null;
+    }
+
+    /**
+     * @param strip Strip removed from its container
+     */
+    void release(ProductStripView strip) {
+        mStripList.add(strip);
+    }
+
+    // endregion
+
+}
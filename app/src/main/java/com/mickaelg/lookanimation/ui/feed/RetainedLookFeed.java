@@ -0,0 +1,98 @@
+package com.mickaelg.lookanimation.ui.feed;
+
+import android.content.Context;
+import android.util.SparseArray;
+
+import com.mickaelg.lookanimation.model.LookModel;
+import com.mickaelg.lookanimation.ui.picture.PictureThumbnails;
+import com.mickaelg.lookanimation.ui.picture.TiledPictureView;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Everything the feed keeps across configuration changes, held by the retained {@link LookFeedFragment}: the looks,
+ * the {@link LookCache} with the transitions and product colors of the looks displayed recently, the thumbnails of
+ * the pictures, and the tiles decoded by the pages displayed when the configuration changed. Only the views are built
+ * again, the decoded pictures themselves stay in the memory cache of Glide.
+ * <p/>
+ * Only used on the main thread.
+ */
+final class RetainedLookFeed {
+
+    // region Properties
+
+    /**
+     * Looks of the catalog, only read when their page is bound.
+     */
+    final List<LookModel> mLookList;
+    /**
+     * Looks added after the initial ones, displayed after them.
+     */
+    final List<LookModel> mAddedLookList = new ArrayList<>();
+    /**
+     * Cache of the looks of the catalog, by position.
+     */
+    final LookCache mLookCache;
+    final PictureThumbnails mThumbnails;
+    final PictureLoadStats mLoadStats = new PictureLoadStats();
+    /**
+     * Tiles handed over by the pages of the previous configuration, by position, until the same pages are bound again.
+     */
+    final SparseArray<TiledPictureView.RetainedTiles> mRetainedTiles = new SparseArray<>();
+
+    // endregion
+
+
+    // region Constructors
+
+    RetainedLookFeed(Context context, List<LookModel> lookList) {
+        mLookList = lookList;
+        mLookCache = new LookCache(context, new LookCache.Loader() {
+            @Override
+            public LookModel loadLook(int key) {
+                return mLookList.get(key);
+            }
+        });
+        mThumbnails = new PictureThumbnails(context.getApplicationContext().getResources());
+    }
+
+    /**
+     * Stop caching the looks and drop the decoded pictures, once the feed is destroyed for good.
+     */
+    void release() {
+        mLookCache.release();
+        mThumbnails.clear();
+        mRetainedTiles.clear();
+    }
+
+    // endregion
+
+
+    // region Looks
+
+    int getLookCount() {
+        return mLookList.size() + mAddedLookList.size();
+    }
+
+    /**
+     * @return The look at the given position, ready to be bound
+     */
+    LookCache.Entry getLook(int position) {
+        // Added looks are already in memory, they are not cached
+        return position < mLookList.size() ? mLookCache.get(position)
+                : new LookCache.Entry(mAddedLookList.get(position - mLookList.size()));
+    }
+
+    /**
+     * Get the look at the given position ready in the background, if it is cached on the disk.
+     */
+    void prefetchLook(int position) {
+        if (position >= 0 && position < mLookList.size()) {
+            mLookCache.prefetch(position);
+        }
+    }
+
+    // endregion
+
+}
@@ -0,0 +1,448 @@
+package com.mickaelg.lookanimation.ui.picture;
+
+import android.os.Process;
+
+import java.io.PrintWriter;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Decoding threads shared by every picture, a bounded pool sized to the cores of the device. The tasks are queued in
+ * priority lanes: the visible look, then the tiles of the regions a gesture zooms on, then the product thumbnails, and
+ * finally the speculative work, like the pictures of the pages next to the current one. A free worker always takes
+ * the task of the highest lane, and one worker is kept for the first two lanes: visible content is never queued
+ * behind speculative work.
+ * <p/>
+ * Each task has an owner, for example the decoder of a picture: the tasks of an owner run one at a time, in the order
+ * of their lanes, so an owner can keep state that isn't thread safe. Queued tasks can be canceled one by one or by
+ * owner, when they become stale.
+ * <p/>
+ * The depth of each lane and the time its tasks wait and run are recorded, printed with the dump of the activity.
+ */
+public final class DecodeScheduler {
+
+    // region Properties
+
+    /**
+     * Work for the picture of the current look, drawn right now.
+     */
+    public static final int LANE_VISIBLE = 0;
+    /**
+     * Tiles of the region a gesture is about to zoom on.
+     */
+    public static final int LANE_ZOOM_TILE = 1;
+    public static final int LANE_THUMBNAIL = 2;
+    /**
+     * Work that may never be displayed, like the pictures of the pages next to the current one.
+     */
+    public static final int LANE_PREFETCH = 3;
+    public static final int LANE_COUNT = 4;
+    private static final String[] LANE_NAMES = {"visible", "zoom tiles", "thumbnails", "prefetch"};
+    /**
+     * Last lane allowed to run on the worker kept for the visible content.
+     */
+    private static final int RESERVED_LANE_LIMIT = LANE_ZOOM_TILE;
+
+    private static final int MAX_WORKER_COUNT = 4;
+
+    /**
+     * Work run by a {@link DecodeScheduler}.
+     */
+    public abstract static class Task implements Runnable {
+
+        /**
+         * Called on the worker when {@link #run()} throws, an {@link OutOfMemoryError} for example. The worker goes on
+         * with the next task.
+         */
+        protected abstract void onFailed(Throwable error);
+
+        /**
+         * Only used with the lock of the scheduler.
+         */
+        private Object mOwner;
+        private int mLane = -1;
+        private long mQueuedNanos;
+
+    }
+
+    private static DecodeScheduler sInstance;
+
+    private final Thread[] mWorkers;
+    private final List<ArrayDeque<Task>> mLanes = new ArrayList<>(LANE_COUNT);
+    /**
+     * Owners of the running tasks, one per worker at most.
+     */
+    private final List<Object> mRunningOwners = new ArrayList<>();
+    /**
+     * Number of running tasks of the lanes not allowed on the reserved worker.
+     */
+    private int mRunningSpeculativeCount = 0;
+    private boolean mShutdown = false;
+
+    private final int[] mMaxQueueDepths = new int[LANE_COUNT];
+    private final long[] mCompletedCounts = new long[LANE_COUNT];
+    private final long[] mCanceledCounts = new long[LANE_COUNT];
+    private final long[] mFailedCounts = new long[LANE_COUNT];
+    private final long[] mTotalWaitNanos = new long[LANE_COUNT];
+    private final long[] mMaxWaitNanos = new long[LANE_COUNT];
+    private final long[] mTotalRunNanos = new long[LANE_COUNT];
+    private final long[] mMaxRunNanos = new long[LANE_COUNT];
+
+    // endregion
+
+
+    // region Constructors
+
+    /**
+     * @param workerCount   Number of decoding threads, at least 2 so one can be kept for the visible content
+     * @param threadFactory Factory of the decoding threads, started right away
+     */
+    public DecodeScheduler(int workerCount, ThreadFactory threadFactory) {
+        if (workerCount < 2) {
+            throw new IllegalArgumentException("At least 2 workers are needed, not " + workerCount);
+        }
+        for (int lane = 0; lane < LANE_COUNT; lane++) {
+            mLanes.add(new ArrayDeque<Task>());
+        }
+        mWorkers = new Thread[workerCount];
+        for (int i = 0; i < workerCount; i++) {
+            mWorkers[i] = threadFactory.newThread(mWorkerLoop);
+            mWorkers[i].start();
+        }
+    }
+
+    /**
+     * @return The scheduler shared by every picture, with a background thread per core, 2 to 4 of them
+     */
+    public static synchronized DecodeScheduler getInstance() {
+        if (sInstance == null) {
+            int workerCount = Math.max(2, Math.min(Runtime.getRuntime().availableProcessors(), MAX_WORKER_COUNT));
+            sInstance = new DecodeScheduler(workerCount, new ThreadFactory() {
+                private int mCount = 0;
+
+                @Override
+                public Thread newThread(final Runnable runnable) {
+                    return new Thread(new Runnable() {
+                        @Override
+                        public void run() {
+                            // Below the main and render threads
+                            Process.setThreadPriority(Process.THREAD_PRIORITY_BACKGROUND);
+                            runnable.run();
+                        }
+                    }, "LookDecode-" + ++mCount);
+                }
+            });
+        }
+        return sInstance;
+    }
+
+    /**
+     * Stop the workers once they are done with their task, the queued tasks are dropped. Used by the tests, the shared
+     * scheduler lives as long as the app.
+     */
+    public void shutdown() throws InterruptedException {
+        synchronized (this) {
+            mShutdown = true;
+            for (ArrayDeque<Task> lane : mLanes) {
+                lane.clear();
+            }
+            notifyAll();
+        }
+        for (Thread worker : mWorkers) {
+            worker.join();
+        }
+    }
+
+    // endregion
+
+
+    // region Scheduling
+
+    /**
+     * Queue a task at the end of a lane. A task can be queued again once it ran or was canceled.
+     *
+     * @param lane  Lane of the task, for example {@link #LANE_VISIBLE}
+     * @param owner Owner of the task, whose tasks run one at a time
+     */
+    public synchronized void submit(Task task, int lane, Object owner) {
+        if (task.mLane >= 0) {
+            throw new IllegalStateException("The task is already queued");
+        }
+        task.mQueuedNanos = System.nanoTime();
+        task.mOwner = owner;
+        task.mLane = lane;
+        mLanes.get(lane).addLast(task);
+        mMaxQueueDepths[lane] = Math.max(mMaxQueueDepths[lane], mLanes.get(lane).size());
+        notifyAll();
+    }
+
+    /**
+     * Move the task to the end of another lane if it didn't start yet, for example when a tile prefetched ahead of a
+     * transition is drawn.
+     *
+     * @return True if the task was queued
+     */
+    public synchronized boolean move(Task task, int lane) {
+        if (task.mLane < 0) {
+            return false;
+        }
+        if (task.mLane != lane) {
+            mLanes.get(task.mLane).remove(task);
+            task.mLane = lane;
+            mLanes.get(lane).addLast(task);
+            mMaxQueueDepths[lane] = Math.max(mMaxQueueDepths[lane], mLanes.get(lane).size());
+            notifyAll();
+        }
+        return true;
+    }
+
+    /**
+     * Remove the task from its lane if it didn't start yet.
+     *
+     * @return True if the task was queued
+     */
+    public synchronized boolean cancel(Task task) {
+        if (task.mLane < 0) {
+            return false;
+        }
+        mLanes.get(task.mLane).remove(task);
+        dequeued(task, true);
+        return true;
+    }
+
+    /**
+     * Remove every queued task of the owner, for example when the picture it decodes isn't displayed anymore.
+     *
+     * @return Number of tasks removed
+     */
+    public synchronized int cancelAll(Object owner) {
+        int count = 0;
+        for (ArrayDeque<Task> lane : mLanes) {
+            Iterator<Task> iterator = lane.iterator();
+            while (iterator.hasNext()) {
+                Task task = iterator.next();
+                if (task.mOwner == owner) {
+                    iterator.remove();
+                    dequeued(task, true);
+                    count++;
+                }
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Move every queued task of the owner to the given lane, keeping their order, for example when the picture it
+     * decodes becomes the visible one.
+     */
+    public synchronized void moveAll(Object owner, int lane) {
+        ArrayDeque<Task> targetLane = mLanes.get(lane);
+        for (int otherLane = 0; otherLane < LANE_COUNT; otherLane++) {
+            if (otherLane == lane) {
+                continue;
+            }
+            Iterator<Task> iterator = mLanes.get(otherLane).iterator();
+            while (iterator.hasNext()) {
+                Task task = iterator.next();
+                if (task.mOwner == owner) {
+                    iterator.remove();
+                    task.mLane = lane;
+                    targetLane.addLast(task);
+                }
+            }
+        }
+        mMaxQueueDepths[lane] = Math.max(mMaxQueueDepths[lane], targetLane.size());
+        notifyAll();
+    }
+
+    /**
+     * @return True if the task is queued, neither started nor canceled
+     */
+    public synchronized boolean isQueued(Task task) {
+        return task.mLane >= 0;
+    }
+
+    /**
+     * Take the task of the highest lane the next free worker can run, if any. Called with the lock.
+     */
+    private Task poll() {
+        for (int lane = 0; lane < LANE_COUNT; lane++) {
+            if (lane > RESERVED_LANE_LIMIT && mRunningSpeculativeCount >= mWorkers.length - 1) {
+                // The last worker is kept for the visible content
+                return null;
+            }
+            for (Task task : mLanes.get(lane)) {
+                if (!mRunningOwners.contains(task.mOwner)) {
+                    mLanes.get(lane).remove(task);
+                    return task;
+                }
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Record a task leaving its lane. Called with the lock.
+     */
+    private void dequeued(Task task, boolean canceled) {
+        int lane = task.mLane;
+        task.mLane = -1;
+        task.mOwner = null;
+        if (canceled) {
+            mCanceledCounts[lane]++;
+        } else {
+            long waitNanos = System.nanoTime() - task.mQueuedNanos;
+            mTotalWaitNanos[lane] += waitNanos;
+            mMaxWaitNanos[lane] = Math.max(mMaxWaitNanos[lane], waitNanos);
+        }
+    }
+
+    private static void reportFailure(Task task, Throwable error) {
+        try {
+            task.onFailed(error);
+        } catch (Throwable reportError) {
+            // Nothing more to do with the failure, the worker goes on
+        }
+    }
+
+    private final Runnable mWorkerLoop = new Runnable() {
+        @Override
+        public void run() {
+            while (true) {
+                Task task;
+                Object owner;
+                int lane;
+                synchronized (DecodeScheduler.this) {
+                    while ((task = poll()) == null) {
+                        if (mShutdown) {
+                            return;
+                        }
+                        try {
+                            DecodeScheduler.this.wait();
+                        } catch (InterruptedException e) {
+                            return;
+                        }
+                    }
+                    owner = task.mOwner;
+                    lane = task.mLane;
+                    dequeued(task, false);
+                    mRunningOwners.add(owner);
+                    if (lane > RESERVED_LANE_LIMIT) {
+                        mRunningSpeculativeCount++;
+                    }
+                }
+
+                long startNanos = System.nanoTime();
+                boolean failed = false;
+                try {
+                    task.run();
+                } catch (Throwable error) {
+                    // The workers are shared by the whole app, a task mustn't take its worker down with it
+                    failed = true;
+                    reportFailure(task, error);
+                }
+                long runNanos = System.nanoTime() - startNanos;
+                synchronized (DecodeScheduler.this) {
+                    mRunningOwners.remove(owner);
+                    if (lane > RESERVED_LANE_LIMIT) {
+                        mRunningSpeculativeCount--;
+                    }
+                    if (failed) {
+                        mFailedCounts[lane]++;
+                    } else {
+                        mCompletedCounts[lane]++;
+                    }
+                    mTotalRunNanos[lane] += runNanos;
+                    mMaxRunNanos[lane] = Math.max(mMaxRunNanos[lane], runNanos);
+                    DecodeScheduler.this.notifyAll();
+                }
+            }
+        }
+    };
+
+    // endregion
+
+
+    // region Metrics
+
+    public int getWorkerCount() {
+        return mWorkers.length;
+    }
+
+    /**
+     * @return Number of tasks queued in the lane right now
+     */
+    public synchronized int getQueueDepth(int lane) {
+        return mLanes.get(lane).size();
+    }
+
+    public synchronized int getMaxQueueDepth(int lane) {
+        return mMaxQueueDepths[lane];
+    }
+
+    /**
+     * @return Number of tasks of the lane run to their end
+     */
+    public synchronized long getCompletedCount(int lane) {
+        return mCompletedCounts[lane];
+    }
+
+    public synchronized long getCanceledCount(int lane) {
+        return mCanceledCounts[lane];
+    }
+
+    /**
+     * @return Number of tasks of the lane which threw
+     */
+    public synchronized long getFailedCount(int lane) {
+        return mFailedCounts[lane];
+    }
+
+    /**
+     * @return Longest time a task of the lane waited before it started, in ns
+     */
+    public synchronized long getMaxWaitNanos(int lane) {
+        return mMaxWaitNanos[lane];
+    }
+
+    /**
+     * @return Longest time a task of the lane ran, in ns
+     */
+    public synchronized long getMaxRunNanos(int lane) {
+        return mMaxRunNanos[lane];
+    }
+
+    /**
+     * Print the queue depth and latencies of each lane.
+     */
+    public synchronized void dump(String prefix, PrintWriter writer) {
+        writer.print(prefix);
+        writer.println("Decode lanes (" + mWorkers.length + " workers):");
+        for (int lane = 0; lane < LANE_COUNT; lane++) {
+            // The failed tasks waited and ran too
+            long startedCount = mCompletedCounts[lane] + mFailedCounts[lane];
+            writer.print(prefix);
+            writer.println(String.format(Locale.US, "  %s: %d queued (max %d), %d decoded, %d canceled, %d failed, "
+                            + "wait %.1f ms (max %.1f), run %.1f ms (max %.1f)",
+                    LANE_NAMES[lane], mLanes.get(lane).size(), mMaxQueueDepths[lane], mCompletedCounts[lane],
+                    mCanceledCounts[lane], mFailedCounts[lane], toMillis(mTotalWaitNanos[lane], startedCount),
+                    toMillis(mMaxWaitNanos[lane], 1), toMillis(mTotalRunNanos[lane], startedCount),
+                    toMillis(mMaxRunNanos[lane], 1)));
+        }
+    }
+
+    /**
+     * @return The average of the total duration, in ms
+     */
+    private static double toMillis(long totalNanos, long count) {
+        return count > 0 ? totalNanos / (double) count / TimeUnit.MILLISECONDS.toNanos(1) : 0;
+    }
+
+    // endregion
+
+}
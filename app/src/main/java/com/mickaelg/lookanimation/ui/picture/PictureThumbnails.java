@@ -0,0 +1,99 @@
+package com.mickaelg.lookanimation.ui.picture;
+
+import android.content.res.Resources;
+import android.graphics.Bitmap;
+import android.graphics.BitmapFactory;
+import android.graphics.drawable.BitmapDrawable;
+import android.graphics.drawable.Drawable;
+import android.support.annotation.DrawableRes;
+import android.support.annotation.Nullable;
+import android.util.LruCache;
+import android.util.SparseIntArray;
+
+/**
+ * Tiny thumbnails of the look pictures, shown on the first frame while the picture itself is decoded. The thumbnail of
+ * a picture is the drawable named like it followed by {@link #THUMBNAIL_SUFFIX}, a few dozen px wide and stored in
+ * drawable-nodpi so it isn't scaled: decoding it takes far less than a frame.
+ * <p/>
+ * The decoded thumbnails are kept in memory, each one weighs a dozen kilobytes. A picture without thumbnail simply
+ * shows nothing until it is decoded. Only used on the main thread.
+ */
+public final class PictureThumbnails {
+
+    // region Properties
+
+    public static final String THUMBNAIL_SUFFIX = "_thumb";
+    private static final String DRAWABLE_TYPE = "drawable";
+    /**
+     * Thumbnails kept decoded at most.
+     */
+    private static final int MAX_THUMBNAILS = 64;
+
+    private final Resources mResources;
+    /**
+     * Resource id of the thumbnail of each picture, 0 if it has none.
+     */
+    private final SparseIntArray mThumbnailResIds = new SparseIntArray();
+    private final LruCache<Integer, Bitmap> mBitmaps = new LruCache<>(MAX_THUMBNAILS);
+
+    // endregion
+
+
+    // region Constructors
+
+    public PictureThumbnails(Resources resources) {
+        mResources = resources;
+    }
+
+    // endregion
+
+
+    // region Thumbnails
+
+    /**
+     * @return A new drawable of the thumbnail of the picture, decoded the first time, or null if the picture has none
+     */
+    @Nullable
+    public Drawable getThumbnail(@DrawableRes int pictureResId) {
+        Bitmap bitmap = mBitmaps.get(pictureResId);
+        if (bitmap == null) {
+            int thumbnailResId = getThumbnailResId(pictureResId);
+            if (thumbnailResId == 0) {
+                return null;
+            }
+            bitmap = BitmapFactory.decodeResource(mResources, thumbnailResId, null);
+            if (bitmap == null) {
+                return null;
+            }
+            mBitmaps.put(pictureResId, bitmap);
+        }
+        // The bounds and the alpha of a drawable are its own, each view gets its own drawable of the shared bitmap
+        return new BitmapDrawable(mResources, bitmap);
+    }
+
+    @DrawableRes
+    private int getThumbnailResId(@DrawableRes int pictureResId) {
+        int thumbnailResId = mThumbnailResIds.get(pictureResId, -1);
+        if (thumbnailResId == -1) {
+            try {
+                thumbnailResId = mResources.getIdentifier(
+                        mResources.getResourceEntryName(pictureResId) + THUMBNAIL_SUFFIX, DRAWABLE_TYPE,
+                        mResources.getResourcePackageName(pictureResId));
+            } catch (Resources.NotFoundException e) {
+                thumbnailResId = 0;
+            }
+            mThumbnailResIds.put(pictureResId, thumbnailResId);
+        }
+        return thumbnailResId;
+    }
+
+    /**
+     * Drop the decoded thumbnails, when the app is asked to free its memory.
+     */
+    public void clear() {
+        mBitmaps.evictAll();
+    }
+
+    // endregion
+
+}
@@ -0,0 +1,69 @@
+package com.mickaelg.lookanimation.ui.picture;
+
+import android.graphics.Bitmap;
+import android.graphics.Rect;
+
+/**
+ * Square part of the full resolution picture, decoded at a given sample size. Tiles are allocated once per picture
+ * and reused: only their bitmap comes and goes, and they link themselves in the {@link TileCache} LRU list so
+ * tracking their use doesn't allocate.
+ */
+final class Tile {
+
+    // region Properties
+
+    static final int STATE_EMPTY = 0;
+    static final int STATE_DECODING = 1;
+    static final int STATE_READY = 2;
+    /**
+     * The region can't be decoded, it is not requested again: the base layer is drawn under it.
+     */
+    static final int STATE_FAILED = 3;
+
+    /**
+     * Part of the full resolution picture covered by the tile.
+     */
+    final Rect mRegion = new Rect();
+    /**
+     * Power of two the picture is downsampled by in this tile.
+     */
+    final int mSampleSize;
+
+    /**
+     * Only changed on the main thread.
+     */
+    int mState = STATE_EMPTY;
+    /**
+     * Incremented on the main thread on each decode request or cancelation, so a stale decode is dropped.
+     */
+    volatile int mRequest = 0;
+    /**
+     * Task of the current decode request, so it can be removed from its lane. Only used on the main thread.
+     */
+    DecodeScheduler.Task mDecodeTask;
+    /**
+     * Written by the decoding thread, read on the main thread once the tile is handed back.
+     */
+    Bitmap mBitmap;
+    int mByteCount;
+
+    /**
+     * Frame the tile was last drawn in.
+     */
+    long mLastDrawnFrame = -1;
+    Tile mNewer;
+    Tile mOlder;
+
+    // endregion
+
+
+    // region Constructors
+
+    Tile(int sampleSize, int left, int top, int right, int bottom) {
+        mSampleSize = sampleSize;
+        mRegion.set(left, top, right, bottom);
+    }
+
+    // endregion
+
+}
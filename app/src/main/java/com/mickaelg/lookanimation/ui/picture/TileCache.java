@@ -0,0 +1,148 @@
+package com.mickaelg.lookanimation.ui.picture;
+
+import android.app.ActivityManager;
+import android.content.Context;
+
+/**
+ * Decoded {@link Tile}s, kept within a fixed memory budget. When a new tile doesn't fit, the tiles drawn the least
+ * recently lose their bitmap, except the ones drawn in the current frame: a tile that doesn't fit then is dropped, the
+ * base layer of the picture shows instead.
+ * <p/>
+ * The LRU list goes through the tiles themselves, so tracking their use on each frame doesn't allocate.
+ */
+final class TileCache {
+
+    // region Properties
+
+    /**
+     * Largest budget of the cache, in bytes.
+     */
+    private static final long MAX_BYTES = 16 * 1024 * 1024;
+    /**
+     * Part of the memory available to the app the cache can use at most.
+     */
+    private static final int MEMORY_CLASS_DIVIDER = 8;
+
+    private final long mMaxBytes;
+    private long mBytes = 0;
+    /**
+     * Ends of the LRU list, from the tile drawn the most recently to the one drawn the least recently.
+     */
+    private Tile mNewest;
+    private Tile mOldest;
+
+    // endregion
+
+
+    // region Constructors
+
+    TileCache(long maxBytes) {
+        mMaxBytes = maxBytes;
+    }
+
+    /**
+     * @return Budget of the tiles on this device: an eighth of the memory available to the app, 16 MB at most
+     */
+    static long getDefaultMaxBytes(Context context) {
+        ActivityManager activityManager = (ActivityManager) context.getSystemService(Context.ACTIVITY_SERVICE);
+        long memoryClassBytes = (long) activityManager.getMemoryClass() * 1024 * 1024;
+        return Math.min(MAX_BYTES, memoryClassBytes / MEMORY_CLASS_DIVIDER);
+    }
+
+    // endregion
+
+
+    // region Cache
+
+    /**
+     * Mark a tile as drawn in the given frame.
+     */
+    void touch(Tile tile, long frame) {
+        tile.mLastDrawnFrame = frame;
+        if (tile != mNewest) {
+            unlink(tile);
+            link(tile);
+        }
+    }
+
+    /**
+     * Add a decoded tile, making room for it.
+     *
+     * @param frame Current frame, whose tiles are not evicted
+     * @return True if the tile was added, false if it didn't fit and lost its bitmap
+     */
+    boolean put(Tile tile, long frame) {
+        tile.mState = Tile.STATE_READY;
+        mBytes += tile.mByteCount;
+        link(tile);
+        while (mBytes > mMaxBytes && mOldest != tile && mOldest.mLastDrawnFrame < frame) {
+            evict(mOldest);
+        }
+        if (mBytes > mMaxBytes) {
+            evict(tile);
+            return false;
+        }
+        return true;
+    }
+
+    /**
+     * Drop the bitmap of every tile.
+     */
+    void clear() {
+        while (mOldest != null) {
+            evict(mOldest);
+        }
+    }
+
+    private void evict(Tile tile) {
+        unlink(tile);
+        mBytes -= tile.mByteCount;
+        // Not recycled: the bitmap may still be referenced by the last frame drawn
+        tile.mBitmap = null;
+        tile.mByteCount = 0;
+        tile.mState = Tile.STATE_EMPTY;
+    }
+
+    private void link(Tile tile) {
+        tile.mOlder = mNewest;
+        tile.mNewer = null;
+        if (mNewest != null) {
+            mNewest.mNewer = tile;
+        }
+        mNewest = tile;
+        if (mOldest == null) {
+            mOldest = tile;
+        }
+    }
+
+    private void unlink(Tile tile) {
+        if (tile.mNewer != null) {
+            tile.mNewer.mOlder = tile.mOlder;
+        } else if (mNewest == tile) {
+            mNewest = tile.mOlder;
+        }
+        if (tile.mOlder != null) {
+            tile.mOlder.mNewer = tile.mNewer;
+        } else if (mOldest == tile) {
+            mOldest = tile.mNewer;
+        }
+        tile.mNewer = null;
+        tile.mOlder = null;
+    }
+
+    // endregion
+
+
+    // region Getters
+
+    long getSize() {
+        return mBytes;
+    }
+
+    long getMaxSize() {
+        return mMaxBytes;
+    }
+
+    // endregion
+
+}
@@ -0,0 +1,267 @@
+package com.mickaelg.lookanimation.ui.picture;
+
+import android.content.res.Resources;
+import android.graphics.Bitmap;
+import android.graphics.BitmapFactory;
+import android.graphics.BitmapRegionDecoder;
+import android.os.Handler;
+import android.os.Looper;
+import android.util.Log;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * Decode {@link Tile}s of a picture with a {@link BitmapRegionDecoder} on the threads of a {@link DecodeScheduler},
+ * handing them back on the main thread. A tile whose request was canceled before its turn is removed from its lane.
+ * <p/>
+ * The tiles drawn are decoded first, then the ones of the region a gesture zooms on. The tiles of a picture that isn't
+ * the visible one, like the pictures of the pages next to the current one, wait for the speculative lane.
+ */
+final class TileDecoder {
+
+    // region Properties
+
+    private static final String TAG = TileDecoder.class.getSimpleName();
+
+    interface Callback {
+
+        /**
+         * Called on the main thread once the size of the full resolution picture is known. Never called if the picture
+         * can't be opened: the view then only displays its base layer.
+         */
+        void onPictureOpened(int width, int height);
+
+        /**
+         * Called on the main thread with the bitmap of a tile still requested.
+         */
+        void onTileDecoded(Tile tile, Bitmap bitmap);
+
+    }
+
+    private final Callback mCallback;
+    /**
+     * The tasks of a decoder run one at a time: a region decoder decodes one region at a time anyway.
+     */
+    private final DecodeScheduler mScheduler;
+    private final Handler mMainHandler = new Handler(Looper.getMainLooper());
+    /**
+     * Only used by the tasks of the decoder.
+     */
+    private final BitmapFactory.Options mOptions = new BitmapFactory.Options();
+    private BitmapRegionDecoder mDecoder;
+
+    /**
+     * Only used on the main thread.
+     */
+    private boolean mClosed = false;
+    private boolean mVisible = true;
+
+    // endregion
+
+
+    // region Constructors
+
+    TileDecoder(Callback callback, DecodeScheduler scheduler) {
+        mCallback = callback;
+        mScheduler = scheduler;
+        // The look pictures are opaque photos, half the memory of ARGB_8888 per tile
+        mOptions.inPreferredConfig = Bitmap.Config.RGB_565;
+    }
+
+    // endregion
+
+
+    // region Decoding
+
+    /**
+     * Open the full resolution picture in the background.
+     */
+    void open(final Resources resources, final int pictureResId) {
+        mScheduler.submit(new DecodeScheduler.Task() {
+            @Override
+            public void run() {
+                InputStream inputStream = null;
+                try {
+                    inputStream = resources.openRawResource(pictureResId);
+                    mDecoder = BitmapRegionDecoder.newInstance(inputStream, false);
+                } catch (IOException | RuntimeException e) {
+                    // A missing resource or a format the region decoder doesn't support
+                    onFailed(e);
+                    return;
+                } finally {
+                    if (inputStream != null) {
+                        closeQuietly(inputStream);
+                    }
+                }
+
+                final int width = mDecoder.getWidth();
+                final int height = mDecoder.getHeight();
+                mMainHandler.post(new Runnable() {
+                    @Override
+                    public void run() {
+                        if (!mClosed) {
+                            mCallback.onPictureOpened(width, height);
+                        }
+                    }
+                });
+            }
+
+            @Override
+            protected void onFailed(Throwable error) {
+                // The picture is never reported opened, no tile is requested
+                Log.e(TAG, "Can't open the picture, only its base layer will be displayed", error);
+            }
+        }, getLane(DecodeScheduler.LANE_VISIBLE), this);
+    }
+
+    /**
+     * Tell whether the picture is the visible one, moving its queued tiles to the matching lane. Must be called on the
+     * main thread.
+     */
+    void setVisible(boolean visible) {
+        if (mVisible != visible) {
+            mVisible = visible;
+            mScheduler.moveAll(this, visible ? DecodeScheduler.LANE_VISIBLE : DecodeScheduler.LANE_PREFETCH);
+        }
+    }
+
+    /**
+     * Decode the given tile, unless it is canceled before its turn. Must be called on the main thread.
+     *
+     * @param prefetch True if the tile isn't drawn yet, only about to be
+     */
+    void decode(Tile tile, boolean prefetch) {
+        tile.mState = Tile.STATE_DECODING;
+        DecodeTask task = new DecodeTask(tile, ++tile.mRequest, prefetch);
+        tile.mDecodeTask = task;
+        mScheduler.submit(task, getLane(prefetch ? DecodeScheduler.LANE_ZOOM_TILE : DecodeScheduler.LANE_VISIBLE),
+                this);
+    }
+
+    /**
+     * Decode the given tile before the speculative ones if it was prefetched, now that it is drawn. Must be called on
+     * the main thread.
+     */
+    void promote(Tile tile) {
+        DecodeTask task = (DecodeTask) tile.mDecodeTask;
+        if (task != null && task.mPrefetch) {
+            task.mPrefetch = false;
+            mScheduler.move(task, getLane(DecodeScheduler.LANE_VISIBLE));
+        }
+    }
+
+    /**
+     * @return The given lane if the picture is the visible one, the speculative lane otherwise
+     */
+    private int getLane(int visibleLane) {
+        return mVisible ? visibleLane : DecodeScheduler.LANE_PREFETCH;
+    }
+
+    /**
+     * Cancel the decoding of the given tile if it didn't start yet. Must be called on the main thread.
+     */
+    void cancel(Tile tile) {
+        if (tile.mState == Tile.STATE_DECODING) {
+            tile.mRequest++;
+            tile.mState = Tile.STATE_EMPTY;
+            mScheduler.cancel(tile.mDecodeTask);
+            tile.mDecodeTask = null;
+        }
+    }
+
+    /**
+     * Stop decoding and release the picture. Must be called on the main thread.
+     */
+    void close() {
+        mClosed = true;
+        mScheduler.cancelAll(this);
+        // Run after the task of the decoder running now, if any
+        mScheduler.submit(new DecodeScheduler.Task() {
+            @Override
+            public void run() {
+                if (mDecoder != null) {
+                    mDecoder.recycle();
+                    mDecoder = null;
+                }
+            }
+
+            @Override
+            protected void onFailed(Throwable error) {
+                Log.e(TAG, "Can't release the picture", error);
+            }
+        }, DecodeScheduler.LANE_VISIBLE, this);
+    }
+
+    private static void closeQuietly(InputStream inputStream) {
+        try {
+            inputStream.close();
+        } catch (IOException e) {
+            // Nothing more to do with the stream
+        }
+    }
+
+    /**
+     * Decode a tile on a decoding thread, then hand it back on the main thread. A tile which can't be decoded is
+     * marked as failed, so it isn't requested again on each frame.
+     */
+    private final class DecodeTask extends DecodeScheduler.Task {
+
+        private final Tile mTile;
+        private final int mRequest;
+        /**
+         * Only used on the main thread.
+         */
+        private boolean mPrefetch;
+        private Bitmap mBitmap;
+        private boolean mDecoded = false;
+
+        DecodeTask(Tile tile, int request, boolean prefetch) {
+            mTile = tile;
+            mRequest = request;
+            mPrefetch = prefetch;
+        }
+
+        @Override
+        public void run() {
+            if (!mDecoded) {
+                if (mDecoder == null || mTile.mRequest != mRequest) {
+                    return;
+                }
+                mOptions.inSampleSize = mTile.mSampleSize;
+                mBitmap = mDecoder.decodeRegion(mTile.mRegion, mOptions);
+                mDecoded = true;
+                mMainHandler.post(this);
+                return;
+            }
+
+            if (mTile.mDecodeTask == this) {
+                mTile.mDecodeTask = null;
+            }
+            if (mTile.mRequest != mRequest) {
+                return;
+            }
+            if (mBitmap == null) {
+                mTile.mState = Tile.STATE_FAILED;
+            } else if (!mClosed) {
+                mCallback.onTileDecoded(mTile, mBitmap);
+            } else {
+                mTile.mState = Tile.STATE_EMPTY;
+            }
+        }
+
+        @Override
+        protected void onFailed(Throwable error) {
+            // An OutOfMemoryError for a large region, or a corrupt picture
+            Log.e(TAG, "Can't decode the tile " + mTile.mRegion + ", only the base layer will be displayed there",
+                    error);
+            mBitmap = null;
+            mDecoded = true;
+            mMainHandler.post(this);
+        }
+
+    }
+
+    // endregion
+
+}
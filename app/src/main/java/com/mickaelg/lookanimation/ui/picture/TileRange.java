@@ -0,0 +1,56 @@
+package com.mickaelg.lookanimation.ui.picture;
+
+/**
+ * Rectangle of {@link Tile}s in a level of the picture, from the column and row of its top left tile to the ones of its
+ * bottom right tile included. Ranges are allocated once and set again on each frame.
+ */
+final class TileRange {
+
+    // region Properties
+
+    /**
+     * Level of the tiles, -1 if the range is empty.
+     */
+    int mLevel = -1;
+    int mLeft;
+    int mTop;
+    int mRight;
+    int mBottom;
+
+    // endregion
+
+
+    // region Range
+
+    void set(int level, int left, int top, int right, int bottom) {
+        mLevel = level;
+        mLeft = left;
+        mTop = top;
+        mRight = right;
+        mBottom = bottom;
+    }
+
+    void set(TileRange range) {
+        set(range.mLevel, range.mLeft, range.mTop, range.mRight, range.mBottom);
+    }
+
+    void setEmpty() {
+        mLevel = -1;
+    }
+
+    boolean isEmpty() {
+        return mLevel < 0;
+    }
+
+    boolean contains(int level, int column, int row) {
+        return level == mLevel && column >= mLeft && column <= mRight && row >= mTop && row <= mBottom;
+    }
+
+    boolean isSame(TileRange range) {
+        return mLevel == range.mLevel && (mLevel < 0 || mLeft == range.mLeft && mTop == range.mTop
+                && mRight == range.mRight && mBottom == range.mBottom);
+    }
+
+    // endregion
+
+}
@@ -0,0 +1,480 @@
+package com.mickaelg.lookanimation.ui.picture;
+
+import android.content.Context;
+import android.graphics.Bitmap;
+import android.graphics.Canvas;
+import android.graphics.Matrix;
+import android.graphics.Paint;
+import android.graphics.RectF;
+import android.graphics.drawable.Drawable;
+import android.support.annotation.DrawableRes;
+import android.support.annotation.Nullable;
+import android.util.AttributeSet;
+import android.widget.ImageView;
+
+/**
+ * {@link ImageView} drawing its picture in two layers. The drawable set on the view, downsampled to the size of the
+ * screen, is the base layer. When the picture is zoomed in further than the base layer can show, the visible part of
+ * the full resolution picture is decoded in {@link Tile}s at the sample size the zoom needs, and drawn over it.
+ * <p/>
+ * Only the tiles of the visible region are decoded, the ones leaving it before their turn are canceled, and the
+ * decoded ones are kept in a {@link TileCache} with a fixed memory budget. A tile not decoded yet shows the base layer.
+ * The tiles of the next transform can also be prefetched before its transition starts. While the drawable is only a
+ * placeholder of the picture, such as a tiny thumbnail, no tile is decoded. The decoded tiles can be handed over to
+ * the view of the next configuration, see {@link #retainTiles()}.
+ */
+public class TiledPictureView extends ImageView implements TileDecoder.Callback {
+
+    // region Properties
+
+    /**
+     * Decoded tiles of a picture, handed over from a view to the view of the next configuration.
+     */
+    public static final class RetainedTiles {
+
+        @DrawableRes
+        private final int mPictureResId;
+        private final int mPictureWidth;
+        private final int mPictureHeight;
+        private final Tile[][] mLevels;
+        private final int[] mLevelColumns;
+        private final TileCache mCache;
+        /**
+         * Frame counter of the view, the cache compares it with the frames the tiles were last drawn in.
+         */
+        private final long mFrame;
+
+        private RetainedTiles(int pictureResId, int pictureWidth, int pictureHeight, Tile[][] levels,
+                              int[] levelColumns, TileCache cache, long frame) {
+            mPictureResId = pictureResId;
+            mPictureWidth = pictureWidth;
+            mPictureHeight = pictureHeight;
+            mLevels = levels;
+            mLevelColumns = levelColumns;
+            mCache = cache;
+            mFrame = frame;
+        }
+
+    }
+
+    /**
+     * Listener of the frames drawing the picture, to measure how long it takes to show.
+     */
+    public interface OnPictureDrawnListener {
+
+        /**
+         * Called after each frame drawing a drawable in the view.
+         */
+        void onPictureDrawn(TiledPictureView view);
+
+    }
+
+    /**
+     * Size of a decoded tile, in px.
+     */
+    private static final int TILE_SIZE = 256;
+
+    private TileCache mCache;
+    private final Paint mPaint = new Paint(Paint.FILTER_BITMAP_FLAG);
+    /**
+     * Copy of the image matrix, so reading it on each frame doesn't allocate.
+     */
+    private final Matrix mMatrix = new Matrix();
+    private final Matrix mInverseMatrix = new Matrix();
+    private final RectF mVisibleRect = new RectF();
+    private final float[] mMatrixValues = new float[9];
+
+    @DrawableRes
+    private int mPictureResId = 0;
+    private TileDecoder mDecoder;
+    /**
+     * Size of the full resolution picture, 0 until it is opened.
+     */
+    private int mPictureWidth = 0;
+    private int mPictureHeight = 0;
+    /**
+     * Tiles of each level, row by row. The level l is downsampled by 2^l.
+     */
+    private Tile[][] mLevels;
+    private int[] mLevelColumns;
+
+    /**
+     * Tiles drawn in the last frame, and tiles decoded ahead of a transition. Their decoding is not canceled.
+     */
+    private final TileRange mDrawnRange = new TileRange();
+    private final TileRange mPrefetchRange = new TileRange();
+    private final TileRange mRange = new TileRange();
+    private final TileRange mStaleRange = new TileRange();
+    private long mFrame = 0;
+    /**
+     * True if a tile of the drawn range didn't fit in the cache: no more tiles are requested until the range changes,
+     * instead of decoding the same tiles again and again.
+     */
+    private boolean mCacheFull = false;
+    /**
+     * True while the drawable only stands for the picture, the tiles would be decoded for nothing.
+     */
+    private boolean mPlaceholderShown = false;
+    /**
+     * True if the picture is the one the user looks at, its tiles are then decoded before the ones of other pictures.
+     */
+    private boolean mPrimary = true;
+    private OnPictureDrawnListener mOnPictureDrawnListener;
+
+    // endregion
+
+
+    // region Constructors
+
+    public TiledPictureView(Context context) {
+        this(context, null);
+    }
+
+    public TiledPictureView(Context context, AttributeSet attrs) {
+        super(context, attrs);
+        mCache = new TileCache(TileCache.getDefaultMaxBytes(context));
+    }
+
+    // endregion
+
+
+    // region Picture
+
+    /**
+     * Set the full resolution picture the tiles are decoded from. The base layer is still set as the drawable of the
+     * view, the same picture downsampled.
+     */
+    public void setTiledPicture(@DrawableRes int pictureResId) {
+        setTiledPicture(pictureResId, null);
+    }
+
+    /**
+     * Set the full resolution picture, starting with the tiles decoded by the view of the previous configuration if
+     * they are tiles of the same picture: they are drawn from the first frame instead of being decoded again.
+     */
+    public void setTiledPicture(@DrawableRes int pictureResId, @Nullable RetainedTiles retainedTiles) {
+        mPictureResId = pictureResId;
+        closeDecoder();
+        if (retainedTiles != null && retainedTiles.mPictureResId == pictureResId) {
+            mCache = retainedTiles.mCache;
+            mLevels = retainedTiles.mLevels;
+            mLevelColumns = retainedTiles.mLevelColumns;
+            mPictureWidth = retainedTiles.mPictureWidth;
+            mPictureHeight = retainedTiles.mPictureHeight;
+            mFrame = retainedTiles.mFrame;
+        }
+        openDecoder();
+    }
+
+    /**
+     * Hand the decoded tiles over to the view of the next configuration, before this one is detached. The view forgets
+     * them and starts over with an empty cache.
+     *
+     * @return The tiles of the picture, or null if it isn't opened yet
+     */
+    @Nullable
+    public RetainedTiles retainTiles() {
+        if (mLevels == null) {
+            return null;
+        }
+        // The decoder is closed with this view, the tiles it didn't decode yet are requested again by the next one
+        for (Tile[] tiles : mLevels) {
+            for (Tile tile : tiles) {
+                if (tile.mState == Tile.STATE_DECODING) {
+                    tile.mRequest++;
+                    tile.mState = Tile.STATE_EMPTY;
+                    tile.mDecodeTask = null;
+                }
+            }
+        }
+        RetainedTiles retainedTiles = new RetainedTiles(mPictureResId, mPictureWidth, mPictureHeight, mLevels,
+                mLevelColumns, mCache, mFrame);
+        mCache = new TileCache(mCache.getMaxSize());
+        mLevels = null;
+        mLevelColumns = null;
+        mDrawnRange.setEmpty();
+        mPrefetchRange.setEmpty();
+        return retainedTiles;
+    }
+
+    /**
+     * Tell whether the drawable set is only a placeholder of the picture. No tile is decoded until the picture itself
+     * is set.
+     */
+    public void setPlaceholderShown(boolean placeholderShown) {
+        if (mPlaceholderShown != placeholderShown) {
+            mPlaceholderShown = placeholderShown;
+            invalidate();
+        }
+    }
+
+    /**
+     * Tell whether the picture is the one the user looks at, for example the current page of a pager. The tiles of
+     * the other pictures are only decoded when no visible content waits.
+     */
+    public void setPrimary(boolean primary) {
+        if (mPrimary != primary) {
+            mPrimary = primary;
+            if (mDecoder != null) {
+                mDecoder.setVisible(primary);
+            }
+        }
+    }
+
+    public void setOnPictureDrawnListener(OnPictureDrawnListener listener) {
+        mOnPictureDrawnListener = listener;
+    }
+
+    private void openDecoder() {
+        if (mPictureResId != 0) {
+            mDecoder = new TileDecoder(this, DecodeScheduler.getInstance());
+            mDecoder.setVisible(mPrimary);
+            mDecoder.open(getResources(), mPictureResId);
+        }
+    }
+
+    private void closeDecoder() {
+        if (mDecoder != null) {
+            mDecoder.close();
+            mDecoder = null;
+        }
+        mCache.clear();
+        mLevels = null;
+        mLevelColumns = null;
+        mPictureWidth = 0;
+        mPictureHeight = 0;
+        mDrawnRange.setEmpty();
+        mPrefetchRange.setEmpty();
+    }
+
+    @Override
+    public void onPictureOpened(int width, int height) {
+        if (mLevels != null && width == mPictureWidth && height == mPictureHeight) {
+            // Tiles handed over by the view of the previous configuration
+            return;
+        }
+        mPictureWidth = width;
+        mPictureHeight = height;
+
+        // Down to the level where the whole picture fits in one tile
+        int levelCount = 1;
+        while (Math.max(width, height) > TILE_SIZE << levelCount - 1) {
+            levelCount++;
+        }
+        mLevels = new Tile[levelCount][];
+        mLevelColumns = new int[levelCount];
+        for (int level = 0; level < levelCount; level++) {
+            int sampleSize = 1 << level;
+            int tileSize = TILE_SIZE * sampleSize;
+            int columns = (width + tileSize - 1) / tileSize;
+            int rows = (height + tileSize - 1) / tileSize;
+            Tile[] tiles = new Tile[columns * rows];
+            for (int row = 0; row < rows; row++) {
+                for (int column = 0; column < columns; column++) {
+                    int left = column * tileSize;
+                    int top = row * tileSize;
+                    tiles[row * columns + column] = new Tile(sampleSize, left, top,
+                            Math.min(width, left + tileSize), Math.min(height, top + tileSize));
+                }
+            }
+            mLevels[level] = tiles;
+            mLevelColumns[level] = columns;
+        }
+        invalidate();
+    }
+
+    @Override
+    public void onTileDecoded(Tile tile, Bitmap bitmap) {
+        tile.mBitmap = bitmap;
+        tile.mByteCount = bitmap.getByteCount();
+        if (mCache.put(tile, mFrame)) {
+            invalidate();
+        } else {
+            mCacheFull = true;
+        }
+    }
+
+    // endregion
+
+
+    // region Drawing
+
+    @Override
+    public void setImageMatrix(Matrix matrix) {
+        super.setImageMatrix(matrix);
+        if (matrix != null) {
+            mMatrix.set(matrix);
+        } else {
+            mMatrix.reset();
+        }
+    }
+
+    @Override
+    protected void onDraw(Canvas canvas) {
+        super.onDraw(canvas);
+        mFrame++;
+        if (mOnPictureDrawnListener != null && getDrawable() != null) {
+            mOnPictureDrawnListener.onPictureDrawn(this);
+        }
+
+        computeRange(mMatrix, mRange);
+        if (!mRange.isSame(mDrawnRange)) {
+            mStaleRange.set(mDrawnRange);
+            mDrawnRange.set(mRange);
+            cancelTiles(mStaleRange);
+            mCacheFull = false;
+        }
+        if (mDrawnRange.isEmpty()) {
+            return;
+        }
+
+        Drawable drawable = getDrawable();
+        int level = mDrawnRange.mLevel;
+        int columns = mLevelColumns[level];
+        canvas.save();
+        canvas.translate(getPaddingLeft(), getPaddingTop());
+        canvas.concat(mMatrix);
+        canvas.scale(drawable.getIntrinsicWidth() / (float) mPictureWidth,
+                drawable.getIntrinsicHeight() / (float) mPictureHeight);
+        Tile[] tiles = mLevels[level];
+        for (int row = mDrawnRange.mTop; row <= mDrawnRange.mBottom; row++) {
+            for (int column = mDrawnRange.mLeft; column <= mDrawnRange.mRight; column++) {
+                Tile tile = tiles[row * columns + column];
+                if (tile.mState == Tile.STATE_READY) {
+                    canvas.drawBitmap(tile.mBitmap, null, tile.mRegion, mPaint);
+                    mCache.touch(tile, mFrame);
+                } else if (tile.mState == Tile.STATE_EMPTY && !mCacheFull) {
+                    mDecoder.decode(tile, false);
+                } else if (tile.mState == Tile.STATE_DECODING) {
+                    mDecoder.promote(tile);
+                }
+            }
+        }
+        canvas.restore();
+    }
+
+    /**
+     * Compute the tiles visible through the given image matrix, at the level needed by its scale.
+     *
+     * @param range Range set to the result, empty if the base layer shows as much as the scale needs
+     */
+    private void computeRange(Matrix matrix, TileRange range) {
+        range.setEmpty();
+        Drawable drawable = getDrawable();
+        int drawableWidth = drawable != null ? drawable.getIntrinsicWidth() : 0;
+        if (mLevels == null || mPlaceholderShown || drawableWidth <= 0 || drawable.getIntrinsicHeight() <= 0) {
+            return;
+        }
+
+        // Largest sample size whose px are not bigger than the px of the screen
+        matrix.getValues(mMatrixValues);
+        float pictureToDrawable = drawableWidth / (float) mPictureWidth;
+        float pictureToScreen = mMatrixValues[Matrix.MSCALE_X] * pictureToDrawable;
+        int level = 0;
+        while (level < mLevels.length - 1 && (2 << level) * pictureToScreen <= 1f) {
+            level++;
+        }
+        if ((1 << level) * pictureToDrawable >= 1f || !matrix.invert(mInverseMatrix)) {
+            return;
+        }
+
+        // Visible part of the full resolution picture
+        mVisibleRect.set(-getPaddingLeft(), -getPaddingTop(),
+                getWidth() - getPaddingLeft(), getHeight() - getPaddingTop());
+        mInverseMatrix.mapRect(mVisibleRect);
+        int tileSize = TILE_SIZE << level;
+        int columns = mLevelColumns[level];
+        int rows = mLevels[level].length / columns;
+        range.set(level,
+                clamp((int) (mVisibleRect.left / pictureToDrawable) / tileSize, columns),
+                clamp((int) (mVisibleRect.top / pictureToDrawable) / tileSize, rows),
+                clamp((int) (mVisibleRect.right / pictureToDrawable) / tileSize, columns),
+                clamp((int) (mVisibleRect.bottom / pictureToDrawable) / tileSize, rows));
+    }
+
+    /**
+     * Cancel the decoding of the tiles of the given range which are neither drawn nor prefetched anymore.
+     */
+    private void cancelTiles(TileRange range) {
+        if (range.isEmpty()) {
+            return;
+        }
+        Tile[] tiles = mLevels[range.mLevel];
+        int columns = mLevelColumns[range.mLevel];
+        for (int row = range.mTop; row <= range.mBottom; row++) {
+            for (int column = range.mLeft; column <= range.mRight; column++) {
+                if (!mDrawnRange.contains(range.mLevel, column, row)
+                        && !mPrefetchRange.contains(range.mLevel, column, row)) {
+                    mDecoder.cancel(tiles[row * columns + column]);
+                }
+            }
+        }
+    }
+
+    private static int clamp(int index, int count) {
+        return Math.max(0, Math.min(count - 1, index));
+    }
+
+    // endregion
+
+
+    // region Prefetch
+
+    /**
+     * Start decoding the tiles the picture will show through the given image matrix, ahead of the transition bringing
+     * it there. The previous prefetch is canceled.
+     */
+    public void prefetch(Matrix matrix) {
+        computeRange(matrix, mRange);
+        if (!mRange.isSame(mPrefetchRange)) {
+            mStaleRange.set(mPrefetchRange);
+            mPrefetchRange.set(mRange);
+            cancelTiles(mStaleRange);
+        }
+        if (mPrefetchRange.isEmpty()) {
+            return;
+        }
+
+        Tile[] tiles = mLevels[mPrefetchRange.mLevel];
+        int columns = mLevelColumns[mPrefetchRange.mLevel];
+        for (int row = mPrefetchRange.mTop; row <= mPrefetchRange.mBottom; row++) {
+            for (int column = mPrefetchRange.mLeft; column <= mPrefetchRange.mRight; column++) {
+                Tile tile = tiles[row * columns + column];
+                if (tile.mState == Tile.STATE_EMPTY) {
+                    mDecoder.decode(tile, true);
+                }
+            }
+        }
+    }
+
+    /**
+     * Cancel the decoding of the prefetched tiles not drawn yet, the picture won't show them after all.
+     */
+    public void cancelPrefetch() {
+        mStaleRange.set(mPrefetchRange);
+        mPrefetchRange.setEmpty();
+        cancelTiles(mStaleRange);
+    }
+
+    // endregion
+
+
+    // region Lifecycle
+
+    @Override
+    protected void onAttachedToWindow() {
+        super.onAttachedToWindow();
+        if (mDecoder == null) {
+            openDecoder();
+        }
+    }
+
+    @Override
+    protected void onDetachedFromWindow() {
+        super.onDetachedFromWindow();
+        closeDecoder();
+    }
+
+    // endregion
+
+}
@@ -0,0 +1,299 @@
+package com.mickaelg.lookanimation.ui.product;
+
+import android.content.Context;
+import android.graphics.Canvas;
+import android.graphics.Paint;
+import android.graphics.Rect;
+import android.os.Build;
+import android.os.Bundle;
+import android.support.annotation.Nullable;
+import android.support.v4.view.MotionEventCompat;
+import android.support.v4.view.ViewCompat;
+import android.support.v4.view.accessibility.AccessibilityNodeInfoCompat;
+import android.support.v4.widget.ExploreByTouchHelper;
+import android.util.AttributeSet;
+import android.view.MotionEvent;
+import android.view.View;
+import android.view.accessibility.AccessibilityEvent;
+
+import com.mickaelg.lookanimation.R;
+import com.mickaelg.lookanimation.model.ProductModel;
+
+import java.util.List;
+
+/**
+ * Strip of the products worn in a region of the look, stacked from top to bottom. The whole strip is a single view
+ * drawing every product in one pass: the bounds and colors of the products are computed once when they are set, so
+ * the strip costs the same to animate whatever its number of products.
+ * <p/>
+ * Each product can still be touched, and is exposed to the accessibility services as a virtual view.
+ */
+public class ProductStripView extends View {
+
+    // region Properties
+
+    /**
+     * Listener notified when the user clicks on a product of the strip.
+     */
+    public interface OnProductClickListener {
+
+        /**
+         * @param position Position of the product in the strip
+         */
+        void onProductClick(ProductStripView stripView, int position);
+
+    }
+
+    private final int mItemSize;
+    private final int mItemMarginTop;
+    private final Paint mPaint = new Paint();
+    private final ProductAccessibilityHelper mAccessibilityHelper;
+
+    /**
+     * Resolved color and bounds of each product, in the view.
+     */
+    private int[] mItemColors = new int[0];
+    private Rect[] mItemBounds = new Rect[0];
+    private int mItemCount = 0;
+
+    @Nullable
+    private OnProductClickListener mOnProductClickListener;
+    /**
+     * Product under the finger since the touch went down, or -1.
+     */
+    private int mPressedPosition = -1;
+
+    // endregion
+
+
+    // region Constructors
+
+    public ProductStripView(Context context) {
+        this(context, null);
+    }
+
+    public ProductStripView(Context context, AttributeSet attrs) {
+        super(context, attrs);
+        mItemSize = getResources().getDimensionPixelSize(R.dimen.product_strip_item_size);
+        mItemMarginTop = getResources().getDimensionPixelSize(R.dimen.product_strip_item_margin_top);
+        mAccessibilityHelper = new ProductAccessibilityHelper(this);
+        ViewCompat.setAccessibilityDelegate(this, mAccessibilityHelper);
+    }
+
+    // endregion
+
+
+    // region Products
+
+    /**
+     * Set the products displayed by the strip. Their colors are resolved now, not on each frame. While the strip is
+     * not attached, it can be called on a background thread.
+     */
+    public void setProducts(List<ProductModel> productList) {
+        setProductColors(resolveColors(getContext(), productList));
+    }
+
+    /**
+     * Set the colors of the products displayed by the strip, already resolved. While the strip is not attached, it can
+     * be called on a background thread.
+     */
+    public void setProductColors(int[] productColors) {
+        mItemCount = productColors.length;
+        if (mItemColors.length < mItemCount) {
+            mItemColors = new int[mItemCount];
+            Rect[] itemBounds = new Rect[mItemCount];
+            System.arraycopy(mItemBounds, 0, itemBounds, 0, mItemBounds.length);
+            for (int i = mItemBounds.length; i < mItemCount; i++) {
+                itemBounds[i] = new Rect();
+            }
+            mItemBounds = itemBounds;
+        }
+        System.arraycopy(productColors, 0, mItemColors, 0, mItemCount);
+        updateItemBounds();
+        mAccessibilityHelper.invalidateRoot();
+        requestLayout();
+        invalidate();
+    }
+
+    /**
+     * @return Color of each product, in the same order
+     */
+    public static int[] resolveColors(Context context, List<ProductModel> productList) {
+        int[] colors = new int[productList.size()];
+        for (int i = 0; i < colors.length; i++) {
+            int colorResId = productList.get(i).getProductColorResId();
+            if (android.os.Build.VERSION.SDK_INT >= Build.VERSION_CODES.M) {
+                colors[i] = context.getResources().getColor(colorResId, context.getTheme());
+            } else {
+                colors[i] = context.getResources().getColor(colorResId);
+            }
+        }
+        return colors;
+    }
+
+    public void setOnProductClickListener(@Nullable OnProductClickListener onProductClickListener) {
+        mOnProductClickListener = onProductClickListener;
+    }
+
+    public int getProductCount() {
+        return mItemCount;
+    }
+
+    /**
+     * @return Position of the product under the given point of the view, or -1 if there is none. Doesn't depend on
+     * the number of products.
+     */
+    public int getProductAt(float x, float y) {
+        int position = (int) ((y - getPaddingTop()) / (mItemMarginTop + mItemSize));
+        if (y < getPaddingTop() || position >= mItemCount) {
+            return -1;
+        }
+        Rect bounds = mItemBounds[position];
+        return x >= bounds.left && x < bounds.right && y >= bounds.top && y < bounds.bottom ? position : -1;
+    }
+
+    private void performProductClick(int position) {
+        if (mOnProductClickListener != null) {
+            mOnProductClickListener.onProductClick(this, position);
+        }
+        mAccessibilityHelper.sendEventForVirtualView(position, AccessibilityEvent.TYPE_VIEW_CLICKED);
+    }
+
+    // endregion
+
+
+    // region Layout and drawing
+
+    @Override
+    protected void onMeasure(int widthMeasureSpec, int heightMeasureSpec) {
+        int width = getPaddingLeft() + mItemSize + getPaddingRight();
+        int height = getPaddingTop() + mItemCount * (mItemMarginTop + mItemSize) + getPaddingBottom();
+        setMeasuredDimension(resolveSize(width, widthMeasureSpec), resolveSize(height, heightMeasureSpec));
+    }
+
+    @Override
+    protected void onSizeChanged(int w, int h, int oldw, int oldh) {
+        super.onSizeChanged(w, h, oldw, oldh);
+        updateItemBounds();
+    }
+
+    /**
+     * Stack the products from the top of the strip, each one below its margin.
+     */
+    private void updateItemBounds() {
+        int top = getPaddingTop();
+        for (int i = 0; i < mItemCount; i++) {
+            top += mItemMarginTop;
+            mItemBounds[i].set(getPaddingLeft(), top, getPaddingLeft() + mItemSize, top + mItemSize);
+            top += mItemSize;
+        }
+    }
+
+    @Override
+    protected void onDraw(Canvas canvas) {
+        for (int i = 0; i < mItemCount; i++) {
+            mPaint.setColor(mItemColors[i]);
+            canvas.drawRect(mItemBounds[i], mPaint);
+        }
+    }
+
+    // endregion
+
+
+    // region Touch
+
+    @Override
+    public boolean onTouchEvent(MotionEvent event) {
+        if (mOnProductClickListener == null) {
+            // Touches go through the strip to the look behind it
+            return false;
+        }
+
+        switch (MotionEventCompat.getActionMasked(event)) {
+            case MotionEvent.ACTION_DOWN:
+                mPressedPosition = getProductAt(event.getX(), event.getY());
+                return mPressedPosition >= 0;
+            case MotionEvent.ACTION_MOVE:
+                if (mPressedPosition >= 0 && getProductAt(event.getX(), event.getY()) != mPressedPosition) {
+                    mPressedPosition = -1;
+                }
+                return true;
+            case MotionEvent.ACTION_UP:
+                if (mPressedPosition >= 0) {
+                    performProductClick(mPressedPosition);
+                }
+                mPressedPosition = -1;
+                return true;
+            case MotionEvent.ACTION_CANCEL:
+                mPressedPosition = -1;
+                return true;
+            default:
+                return true;
+        }
+    }
+
+    @Override
+    protected boolean dispatchHoverEvent(MotionEvent event) {
+        return mAccessibilityHelper.dispatchHoverEvent(event) || super.dispatchHoverEvent(event);
+    }
+
+    // endregion
+
+
+    // region ProductAccessibilityHelper
+
+    /**
+     * Expose each product of the strip as a virtual view.
+     */
+    private class ProductAccessibilityHelper extends ExploreByTouchHelper {
+
+        ProductAccessibilityHelper(View host) {
+            super(host);
+        }
+
+        @Override
+        protected int getVirtualViewAt(float x, float y) {
+            int position = getProductAt(x, y);
+            return position >= 0 ? position : INVALID_ID;
+        }
+
+        @Override
+        protected void getVisibleVirtualViews(List<Integer> virtualViewIds) {
+            for (int i = 0; i < mItemCount; i++) {
+                virtualViewIds.add(i);
+            }
+        }
+
+        @Override
+        protected void onPopulateEventForVirtualView(int virtualViewId, AccessibilityEvent event) {
+            event.setContentDescription(getDescription(virtualViewId));
+        }
+
+        @Override
+        protected void onPopulateNodeForVirtualView(int virtualViewId, AccessibilityNodeInfoCompat node) {
+            node.setContentDescription(getDescription(virtualViewId));
+            node.setBoundsInParent(mItemBounds[virtualViewId]);
+            if (mOnProductClickListener != null) {
+                node.setClickable(true);
+                node.addAction(AccessibilityNodeInfoCompat.ACTION_CLICK);
+            }
+        }
+
+        @Override
+        protected boolean onPerformActionForVirtualView(int virtualViewId, int action, Bundle arguments) {
+            if (action == AccessibilityNodeInfoCompat.ACTION_CLICK && mOnProductClickListener != null) {
+                performProductClick(virtualViewId);
+                return true;
+            }
+            return false;
+        }
+
+        private String getDescription(int virtualViewId) {
+            return getResources().getString(R.string.product_strip_item_accessibility, virtualViewId + 1, mItemCount);
+        }
+
+    }
+
+    // endregion
+
+}
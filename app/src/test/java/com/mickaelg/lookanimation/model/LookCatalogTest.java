@@ -0,0 +1,118 @@
+package com.mickaelg.lookanimation.model;
+
+import org.junit.Test;
+
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Check that the catalog gives back the looks it was built with, in a few bytes per look.
+ */
+public class LookCatalogTest {
+
+    private static final int LARGE_LOOK_COUNT = 100000;
+
+    @Test
+    public void catalog_readsLooksThroughModelAccessors() throws Exception {
+        LookCatalog catalog = new LookCatalog.Builder()
+                .addLook(10)
+                .addRegion("upper_body", 0.1f, 0.1f, 0.6f, 0.6f)
+                .addProduct(100)
+                .addProduct(101)
+                .addRegion("lower_body", 0.1f, 0.4f, 0.6f, 0.9f)
+                .addProduct(102)
+                .addLook(20)
+                .addRegion("shoes", 0.2f, 0.8f, 0.5f, 1f)
+                .addLook(30)
+                .build();
+
+        assertEquals(3, catalog.getLookCount());
+        List<LookModel> lookList = catalog.asList();
+        assertEquals(3, lookList.size());
+
+        LookModel look = lookList.get(0);
+        assertEquals(10, look.getLookPictureResId());
+        assertEquals(2, look.getRegionList().size());
+        LookRegion upperBody = look.getRegionList().get(0);
+        assertEquals("upper_body", upperBody.getName());
+        assertEquals(0.6f, upperBody.getZoomBottom(), 0f);
+        assertEquals(2, look.getUpperBodyProductList().size());
+        assertEquals(101, look.getUpperBodyProductList().get(1).getProductColorResId());
+        assertEquals(102, look.getLowerBodyProductList().get(0).getProductColorResId());
+        // The flyweights of a look are kept once read
+        assertSame(look.getRegionList(), look.getRegionList());
+        assertSame(upperBody, look.getRegionList().get(0));
+        assertSame(upperBody.getProductList(), upperBody.getProductList());
+        assertSame(upperBody.getProductList().get(1), upperBody.getProductList().get(1));
+
+        LookModel shoesLook = lookList.get(1);
+        assertEquals(20, shoesLook.getLookPictureResId());
+        assertEquals("shoes", shoesLook.getRegionList().get(0).getName());
+        assertEquals(0.8f, shoesLook.getRegionList().get(0).getZoomTop(), 0f);
+        assertTrue(shoesLook.getRegionList().get(0).getProductList().isEmpty());
+
+        assertEquals(30, lookList.get(2).getLookPictureResId());
+        assertTrue(lookList.get(2).getRegionList().isEmpty());
+    }
+
+    @Test
+    public void catalog_copiesModelLooks() throws Exception {
+        LookModel model = LookModel.createLookModel();
+        LookModel look = new LookCatalog.Builder().addLook(model).build().getLook(0);
+
+        assertEquals(model.getLookPictureResId(), look.getLookPictureResId());
+        assertEquals(model.getRegionList().size(), look.getRegionList().size());
+        for (int i = 0; i < model.getRegionList().size(); i++) {
+            LookRegion modelRegion = model.getRegionList().get(i);
+            LookRegion region = look.getRegionList().get(i);
+            assertEquals(modelRegion.getName(), region.getName());
+            assertEquals(modelRegion.getZoomLeft(), region.getZoomLeft(), 0f);
+            assertEquals(modelRegion.getZoomTop(), region.getZoomTop(), 0f);
+            assertEquals(modelRegion.getZoomRight(), region.getZoomRight(), 0f);
+            assertEquals(modelRegion.getZoomBottom(), region.getZoomBottom(), 0f);
+            assertEquals(modelRegion.getProductList().size(), region.getProductList().size());
+            for (int j = 0; j < modelRegion.getProductList().size(); j++) {
+                assertEquals(modelRegion.getProductList().get(j).getProductColorResId(),
+                        region.getProductList().get(j).getProductColorResId());
+            }
+        }
+    }
+
+    @Test(expected = UnsupportedOperationException.class)
+    public void catalog_looksAreReadOnly() throws Exception {
+        LookCatalog.createTestCatalog(1).getLook(0).setLookPictureResId(0);
+    }
+
+    @Test
+    public void catalog_largeCatalogFitsInFewMegabytes() throws Exception {
+        LookCatalog catalog = LookCatalog.createTestCatalog(LARGE_LOOK_COUNT);
+
+        // Two regions of three and two products: two ints per look and per region, one per product
+        assertEquals(LARGE_LOOK_COUNT, catalog.getLookCount());
+        assertTrue(catalog.getByteCount() < 5L * 1024 * 1024);
+
+        // Every look is reachable from the columns only
+        long colorSum = 0;
+        for (int lookIndex = 0; lookIndex < catalog.getLookCount(); lookIndex++) {
+            int firstRegion = catalog.getFirstRegion(lookIndex);
+            for (int region = firstRegion; region < firstRegion + catalog.getRegionCount(lookIndex); region++) {
+                int firstProduct = catalog.getFirstProduct(region);
+                for (int product = firstProduct; product < firstProduct + catalog.getProductCount(region);
+                     product++) {
+                    colorSum += catalog.getProductColorResId(product);
+                }
+            }
+        }
+        long lookColorSum = 0;
+        for (LookRegion region : LookModel.createLookModel().getRegionList()) {
+            for (ProductModel product : region.getProductList()) {
+                lookColorSum += product.getProductColorResId();
+            }
+        }
+        assertEquals(lookColorSum * LARGE_LOOK_COUNT, colorSum);
+    }
+
+}
@@ -0,0 +1,136 @@
+package com.mickaelg.lookanimation.model;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Check that the disk tier of the look cache gives back the looks stored, and evicts the least recently used ones.
+ */
+public class LookDiskCacheTest {
+
+    private File mDirectory;
+
+    @Before
+    public void setUp() throws Exception {
+        mDirectory = File.createTempFile("looks", "");
+        assertTrue(mDirectory.delete());
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        File[] files = mDirectory.listFiles();
+        if (files != null) {
+            for (File file : files) {
+                assertTrue(file.delete());
+            }
+        }
+        assertTrue(mDirectory.delete());
+    }
+
+    private static LookModel createLook(int lookPictureResId) {
+        List<ProductModel> productList = new ArrayList<>();
+        productList.add(new ProductModel(lookPictureResId + 1));
+        productList.add(new ProductModel(lookPictureResId + 2));
+        List<LookRegion> regionList = new ArrayList<>();
+        regionList.add(new LookRegion("upper_body", 0.1f, 0.2f, 0.6f, 0.7f, productList));
+        regionList.add(new LookRegion("shoes", 0.2f, 0.8f, 0.5f, 1f, new ArrayList<ProductModel>()));
+        return new LookModel(lookPictureResId, regionList);
+    }
+
+    /**
+     * @return Size of the file of a look created by {@link #createLook(int)}
+     */
+    private long getLookSize() throws IOException {
+        LookDiskCache cache = new LookDiskCache(mDirectory, Long.MAX_VALUE);
+        cache.put(-1, createLook(0));
+        long size = cache.getSize();
+        cache.clear();
+        return size;
+    }
+
+    @Test
+    public void cache_readsStoredLooks() throws Exception {
+        LookDiskCache cache = new LookDiskCache(mDirectory, 1024);
+        cache.put(3, createLook(100));
+
+        LookModel look = cache.get(3);
+        assertEquals(100, look.getLookPictureResId());
+        assertEquals(2, look.getRegionList().size());
+        LookRegion region = look.getRegionList().get(0);
+        assertEquals("upper_body", region.getName());
+        assertEquals(0.2f, region.getZoomTop(), 0f);
+        assertEquals(0.7f, region.getZoomBottom(), 0f);
+        assertEquals(102, region.getProductList().get(1).getProductColorResId());
+        assertEquals("shoes", look.getRegionList().get(1).getName());
+        assertTrue(look.getRegionList().get(1).getProductList().isEmpty());
+
+        assertNull(cache.get(4));
+        assertEquals(1, cache.getHitCount());
+        assertEquals(1, cache.getMissCount());
+    }
+
+    @Test
+    public void cache_evictsLeastRecentlyUsedLooks() throws Exception {
+        long lookSize = getLookSize();
+        LookDiskCache cache = new LookDiskCache(mDirectory, 3 * lookSize);
+        cache.put(0, createLook(0));
+        cache.put(1, createLook(10));
+        cache.put(2, createLook(20));
+        // 0 becomes the most recently used, 1 is evicted by the next look
+        cache.get(0);
+        cache.put(3, createLook(30));
+
+        assertEquals(3 * lookSize, cache.getSize());
+        assertEquals(1, cache.getEvictionCount());
+        assertFalse(cache.contains(1));
+        assertTrue(cache.contains(0));
+        assertTrue(cache.contains(2));
+        assertEquals(30, cache.get(3).getLookPictureResId());
+        assertEquals(3, mDirectory.listFiles().length);
+
+        cache.trimToSize(lookSize);
+        assertEquals(lookSize, cache.getSize());
+        assertEquals(3, cache.getEvictionCount());
+        assertTrue(cache.contains(3));
+    }
+
+    @Test
+    public void cache_reopensStoredLooks() throws Exception {
+        LookDiskCache cache = new LookDiskCache(mDirectory, 1024);
+        cache.put(7, createLook(70));
+        cache.put(7, createLook(71));
+        // Left by a write that didn't complete
+        new FileOutputStream(new File(mDirectory, "8.tmp")).close();
+
+        LookDiskCache reopenedCache = new LookDiskCache(mDirectory, 1024);
+        assertEquals(cache.getSize(), reopenedCache.getSize());
+        assertEquals(71, reopenedCache.get(7).getLookPictureResId());
+        assertEquals(1, mDirectory.listFiles().length);
+    }
+
+    @Test
+    public void cache_dropsCorruptedLooks() throws Exception {
+        LookDiskCache cache = new LookDiskCache(mDirectory, 1024);
+        cache.put(5, createLook(50));
+        FileOutputStream output = new FileOutputStream(new File(mDirectory, "5.look"));
+        output.write(new byte[]{0, 0, 0, 1, 0, 0});
+        output.close();
+
+        assertNull(cache.get(5));
+        assertFalse(cache.contains(5));
+        assertEquals(0, cache.getSize());
+    }
+
+}
@@ -0,0 +1,193 @@
+package com.mickaelg.lookanimation.model;
+
+import org.junit.Test;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Reader;
+import java.io.StringReader;
+import java.io.Writer;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Check that the looks of a feed are parsed one by one as the document is read, whatever its size.
+ */
+public class LookFeedParserTest {
+
+    /**
+     * Resolve the pictures and colors to the length of their names.
+     */
+    private static final MappedLookCatalog.ResourceResolver RESOLVER = new MappedLookCatalog.ResourceResolver() {
+        @Override
+        public int getDrawableResId(String name) {
+            return name.length();
+        }
+
+        @Override
+        public int getColorResId(String name) {
+            return 100 + name.length();
+        }
+    };
+
+    /**
+     * Document of looks generated as it is read, so the test doesn't hold it either. Counts the characters read.
+     */
+    private static class GeneratedFeedReader extends Reader {
+
+        private final int mLookCount;
+        private final StringBuilder mChunk = new StringBuilder();
+        private int mChunkPosition = 0;
+        private int mNextLook = 0;
+        private boolean mEnded = false;
+        private long mReadCount = 0;
+        /**
+         * Characters before the end of each look.
+         */
+        private final long[] mLookEnds;
+
+        GeneratedFeedReader(int lookCount) {
+            mLookCount = lookCount;
+            mLookEnds = new long[lookCount];
+            mChunk.append("{\"version\": 2, \"looks\": [");
+        }
+
+        @Override
+        public int read(char[] buffer, int offset, int count) {
+            if (mChunkPosition == mChunk.length() && !nextChunk()) {
+                return -1;
+            }
+            int read = Math.min(count, mChunk.length() - mChunkPosition);
+            mChunk.getChars(mChunkPosition, mChunkPosition + read, buffer, offset);
+            mChunkPosition += read;
+            mReadCount += read;
+            return read;
+        }
+
+        private boolean nextChunk() {
+            if (mEnded) {
+                return false;
+            }
+            long chunkStart = mReadCount;
+            mChunk.setLength(0);
+            mChunkPosition = 0;
+            if (mNextLook == mLookCount) {
+                mChunk.append("], \"next\": {\"cursor\": \"abc\", \"pages\": [1, 2]}}");
+                mEnded = true;
+                return true;
+            }
+
+            int look = mNextLook++;
+            mChunk.append(look == 0 ? "" : ",\n").append("{\"id\": ").append(look)
+                    .append(", \"picture\": \"").append(look % 2 == 0 ? "suit" : "dress").append("\", \"regions\": [")
+                    .append("{\"name\": \"upper_body\", \"zoom\": [0.0714, 0.1, 0.6429, 0.6714], \"products\": [")
+                    .append("{\"color\": \"red\", \"price\": 19.99}, {\"color\": \"purple\"}, ")
+                    .append("{\"color\": \"indigo\"}]},")
+                    .append("{\"name\": \"lower_body\", \"zoom\": [0.0714, 0.3286, 0.6429, 0.9], \"products\": [")
+                    .append("{\"color\": \"green\"}, {\"color\": \"amber\", \"tags\": [\"new\", null, true]}]}]}");
+            mLookEnds[look] = chunkStart + mChunk.length();
+            return true;
+        }
+
+        @Override
+        public void close() {
+        }
+
+    }
+
+    @Test
+    public void parser_readsLooksWithTheirRegions() throws Exception {
+        LookFeedParser parser = new LookFeedParser(new GeneratedFeedReader(2), RESOLVER);
+
+        LookModel look = parser.nextLook();
+        assertEquals(4, look.getLookPictureResId());
+        assertEquals(2, look.getRegionList().size());
+        assertEquals("upper_body", look.getRegionList().get(0).getName());
+        assertEquals(0.6714f, look.getRegionList().get(0).getZoomBottom(), 0f);
+        assertEquals(3, look.getUpperBodyProductList().size());
+        assertEquals(103, look.getUpperBodyProductList().get(0).getProductColorResId());
+        assertEquals(106, look.getUpperBodyProductList().get(2).getProductColorResId());
+        assertEquals(0.3286f, look.getRegionList().get(1).getZoomTop(), 0f);
+        assertEquals(105, look.getLowerBodyProductList().get(1).getProductColorResId());
+
+        assertEquals(5, parser.nextLook().getLookPictureResId());
+        assertNull(parser.nextLook());
+        assertNull(parser.nextLook());
+        assertEquals(2, parser.getLookCount());
+    }
+
+    @Test
+    public void parser_readsDocumentsWithoutLooks() throws Exception {
+        assertNull(new LookFeedParser(new StringReader("{\"version\": 2}"), RESOLVER).nextLook());
+        assertNull(new LookFeedParser(new StringReader(" {\"looks\": []} "), RESOLVER).nextLook());
+    }
+
+    @Test
+    public void parser_emitsEachLookAfterReadingIt() throws Exception {
+        int lookCount = 25000;
+        GeneratedFeedReader reader = new GeneratedFeedReader(lookCount);
+        LookFeedParser parser = new LookFeedParser(reader, RESOLVER);
+
+        for (int i = 0; i < lookCount; i++) {
+            LookModel look = parser.nextLook();
+            assertEquals(i % 2 == 0 ? 4 : 5, look.getLookPictureResId());
+            // The parser never reads more than its buffer past the look it returns
+            assertTrue(reader.mReadCount <= reader.mLookEnds[i] + 8192);
+        }
+        assertNull(parser.nextLook());
+        // Several megabytes went through
+        assertTrue(reader.mReadCount > 8 * 1024 * 1024);
+    }
+
+    @Test
+    public void parser_readsLargeLocalFileIntoCatalog() throws Exception {
+        int lookCount = 50000;
+        File file = File.createTempFile("look_updates", ".json");
+        try {
+            Writer writer = new OutputStreamWriter(new FileOutputStream(file), "UTF-8");
+            try {
+                Reader reader = new GeneratedFeedReader(lookCount);
+                char[] buffer = new char[4096];
+                int read;
+                while ((read = reader.read(buffer, 0, buffer.length)) >= 0) {
+                    writer.write(buffer, 0, read);
+                }
+            } finally {
+                writer.close();
+            }
+            assertTrue(file.length() > 16 * 1024 * 1024);
+
+            LookFeedSource.LocalFile source = new LookFeedSource.LocalFile(file);
+            assertTrue(source.exists());
+            LookFeedParser parser = new LookFeedParser(source.open(), RESOLVER);
+            LookCatalog.Builder builder = new LookCatalog.Builder();
+            try {
+                assertEquals(lookCount, parser.readInto(builder));
+            } finally {
+                parser.close();
+            }
+
+            LookCatalog catalog = builder.build();
+            assertEquals(lookCount, catalog.getLookCount());
+            assertEquals(5, catalog.getLook(lookCount - 1).getLookPictureResId());
+            assertEquals(105, catalog.getLook(lookCount - 1).getLowerBodyProductList().get(1).getProductColorResId());
+            // The compact store is much smaller than the document
+            assertTrue(catalog.getByteCount() < file.length() / 5);
+        } finally {
+            assertTrue(file.delete());
+        }
+    }
+
+    @Test(expected = IOException.class)
+    public void parser_rejectsTruncatedDocuments() throws Exception {
+        LookFeedParser parser = new LookFeedParser(new StringReader("{\"looks\": [{\"picture\": \"suit\"}, "),
+                RESOLVER);
+        assertEquals(4, parser.nextLook().getLookPictureResId());
+        parser.nextLook();
+    }
+
+}
@@ -0,0 +1,146 @@
+package com.mickaelg.lookanimation.model;
+
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.StringReader;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Check that the looks of a JSON catalog are read back from its binary conversion.
+ */
+public class MappedLookCatalogTest {
+
+    private static final String JSON_CATALOG = "{\"version\": 3, \"looks\": [\n"
+            + "  {\"picture\": \"suit\", \"regions\": [\n"
+            + "    {\"name\": \"upper_body\", \"zoom\": [0.1, 0.1, 0.6, 0.6], \"products\": [\n"
+            + "      {\"color\": \"red\", \"sku\": {\"id\": 12, \"tags\": [true, null]}}, {\"color\": \"purple\"}]},\n"
+            + "    {\"name\": \"lower_\\u0062ody\", \"zoom\": [0.1, 0.4, 0.6, 0.9], \"products\": []}]},\n"
+            + "  {\"regions\": [], \"picture\": \"dress\"}\n"
+            + "]}";
+
+    /**
+     * Resolve the names to fake ids, counting the lookups.
+     */
+    private static class CountingResolver implements MappedLookCatalog.ResourceResolver {
+
+        private final List<String> mNames = Arrays.asList("suit", "dress", "red", "purple");
+        private int mLookupCount = 0;
+
+        @Override
+        public int getDrawableResId(String name) {
+            mLookupCount++;
+            return 100 + mNames.indexOf(name);
+        }
+
+        @Override
+        public int getColorResId(String name) {
+            mLookupCount++;
+            return 200 + mNames.indexOf(name);
+        }
+
+    }
+
+    private static ByteBuffer convert(String json) throws IOException {
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        LookCatalogConverter.convert(new StringReader(json), output);
+        return ByteBuffer.wrap(output.toByteArray());
+    }
+
+    @Test
+    public void catalog_readsConvertedLooks() throws Exception {
+        MappedLookCatalog catalog = MappedLookCatalog.wrap(convert(JSON_CATALOG), new CountingResolver());
+
+        List<LookModel> lookList = catalog.asList();
+        assertEquals(2, lookList.size());
+
+        LookModel look = lookList.get(0);
+        assertEquals(100, look.getLookPictureResId());
+        assertEquals(2, look.getRegionList().size());
+        LookRegion upperBody = look.getRegionList().get(0);
+        assertEquals("upper_body", upperBody.getName());
+        assertEquals(0.1f, upperBody.getZoomLeft(), 0f);
+        assertEquals(0.6f, upperBody.getZoomBottom(), 0f);
+        assertEquals(2, upperBody.getProductList().size());
+        assertEquals(202, upperBody.getProductList().get(0).getProductColorResId());
+        assertEquals(203, upperBody.getProductList().get(1).getProductColorResId());
+        LookRegion lowerBody = look.getRegionList().get(1);
+        assertEquals("lower_body", lowerBody.getName());
+        assertEquals(0.4f, lowerBody.getZoomTop(), 0f);
+        assertTrue(lowerBody.getProductList().isEmpty());
+
+        LookModel dressLook = lookList.get(1);
+        assertEquals(101, dressLook.getLookPictureResId());
+        assertTrue(dressLook.getRegionList().isEmpty());
+    }
+
+    @Test
+    public void catalog_readsAnyLookOfLargeFile() throws Exception {
+        int lookCount = 100000;
+        StringBuilder json = new StringBuilder("{\"looks\": [");
+        for (int i = 0; i < lookCount; i++) {
+            json.append(i == 0 ? "" : ",").append("{\"picture\": \"").append(i % 2 == 0 ? "suit" : "dress")
+                    .append("\", \"regions\": [{\"name\": \"region").append(i).append("\", \"zoom\": [0, 0, 1, ")
+                    .append(i % 10 / 10f).append("], \"products\": [{\"color\": \"red\"}]}]}");
+        }
+        json.append("]}");
+
+        File file = File.createTempFile("looks", ".lkc");
+        try {
+            FileOutputStream output = new FileOutputStream(file);
+            try {
+                LookCatalogConverter.convert(new StringReader(json.toString()), output);
+            } finally {
+                output.close();
+            }
+
+            CountingResolver resolver = new CountingResolver();
+            MappedLookCatalog catalog = MappedLookCatalog.open(file, resolver);
+            assertEquals(lookCount, catalog.getLookCount());
+
+            // Straight to the last looks through the index
+            LookModel look = catalog.getLook(lookCount - 1);
+            assertEquals(101, look.getLookPictureResId());
+            assertEquals("region" + (lookCount - 1), look.getRegionList().get(0).getName());
+            assertEquals(0.9f, look.getRegionList().get(0).getZoomBottom(), 0f);
+            assertEquals(200 + 2, look.getRegionList().get(0).getProductList().get(0).getProductColorResId());
+            assertEquals(100, catalog.getLook(lookCount - 2).getLookPictureResId());
+
+            // Each name is only resolved once
+            assertEquals(3, resolver.mLookupCount);
+        } finally {
+            assertTrue(file.delete());
+        }
+    }
+
+    @Test(expected = IOException.class)
+    public void catalog_rejectsOtherFiles() throws Exception {
+        MappedLookCatalog.wrap(ByteBuffer.wrap(JSON_CATALOG.getBytes("UTF-8")), new CountingResolver());
+    }
+
+    @Test(expected = IOException.class)
+    public void catalog_rejectsTruncatedFiles() throws Exception {
+        ByteBuffer buffer = convert(JSON_CATALOG);
+        buffer.limit(buffer.capacity() - 1);
+        MappedLookCatalog.wrap(buffer, new CountingResolver());
+    }
+
+    @Test(expected = IOException.class)
+    public void converter_rejectsLooksWithoutPicture() throws Exception {
+        convert("{\"looks\": [{\"regions\": []}]}");
+    }
+
+    @Test(expected = IOException.class)
+    public void converter_rejectsInvalidJson() throws Exception {
+        convert("{\"looks\": [{\"picture\": \"suit\" \"regions\": []}]}");
+    }
+
+}
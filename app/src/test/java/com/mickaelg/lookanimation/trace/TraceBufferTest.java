@@ -0,0 +1,67 @@
+package com.mickaelg.lookanimation.trace;
+
+import org.junit.Test;
+
+import java.io.PrintWriter;
+import java.io.StringWriter;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Check that the trace buffer keeps the most recent events in order and prints them from the oldest one.
+ */
+public class TraceBufferTest {
+
+    private static final String[] EVENT_NAMES = {"TAP", "FLING"};
+
+    @Test
+    public void record_keepsMostRecentEvents() throws Exception {
+        TraceBuffer buffer = new TraceBuffer(4);
+        assertEquals(0, buffer.size());
+        for (int i = 0; i < 6; i++) {
+            buffer.record(i * 10L, i % 2, i, -i);
+        }
+
+        assertEquals(4, buffer.size());
+        assertEquals(6, buffer.getRecordedCount());
+        for (int i = 0; i < 4; i++) {
+            // The two oldest events were overwritten
+            assertEquals((i + 2) * 10L, buffer.getTimeNanos(i));
+            assertEquals(i % 2, buffer.getEvent(i));
+            assertEquals(i + 2, buffer.getFirstArg(i));
+            assertEquals(-(i + 2), buffer.getSecondArg(i));
+        }
+
+        buffer.reset();
+        assertEquals(0, buffer.size());
+        buffer.record(70L, 1, 7, 0);
+        assertEquals(1, buffer.size());
+        assertEquals(70L, buffer.getTimeNanos(0));
+    }
+
+    @Test(expected = IndexOutOfBoundsException.class)
+    public void getEvent_rejectsEventsNotKept() throws Exception {
+        TraceBuffer buffer = new TraceBuffer(4);
+        buffer.record(0L, 0, 0, 0);
+        buffer.getEvent(1);
+    }
+
+    @Test
+    public void dump_printsEventsFromOldest() throws Exception {
+        TraceBuffer buffer = new TraceBuffer(2);
+        buffer.record(TimeUnit.MILLISECONDS.toNanos(100), 0, 0, 1);
+        buffer.record(TimeUnit.MILLISECONDS.toNanos(105), 1, 1, 2);
+        buffer.record(TimeUnit.MILLISECONDS.toNanos(112) + TimeUnit.MICROSECONDS.toNanos(50), 2, 2, 1);
+
+        StringWriter dump = new StringWriter();
+        buffer.dump("", new PrintWriter(dump), EVENT_NAMES);
+        String[] lines = dump.toString().split("\n");
+        assertEquals(3, lines.length);
+        assertEquals("Trace events: 2 kept, 1 overwritten", lines[0].trim());
+        assertEquals("+0.000 ms FLING 1 2", lines[1].trim());
+        // Events without a name are printed by kind
+        assertEquals("+7.050 ms EVENT_2 2 1", lines[2].trim());
+    }
+
+}
@@ -0,0 +1,45 @@
+package com.mickaelg.lookanimation.ui.animation;
+
+import org.junit.Assume;
+
+import java.lang.management.ManagementFactory;
+
+/**
+ * Count the bytes allocated by the current thread while running some code, on the JVMs supporting it.
+ */
+final class AllocationCounter {
+
+    private static final int ROUNDS = 3;
+
+    private AllocationCounter() {
+    }
+
+    /**
+     * Run the task once to warm it up, then measure it a few times. The lowest count is returned: the counter itself
+     * can allocate when it gets compiled, while code allocating on each run allocates on every round.
+     * Skip the test if the JVM can't count allocations.
+     */
+    static long measure(Runnable task) {
+        java.lang.management.ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+        Assume.assumeTrue(bean instanceof com.sun.management.ThreadMXBean);
+        com.sun.management.ThreadMXBean allocationBean = (com.sun.management.ThreadMXBean) bean;
+        Assume.assumeTrue(allocationBean.isThreadAllocatedMemorySupported());
+        allocationBean.setThreadAllocatedMemoryEnabled(true);
+        long threadId = Thread.currentThread().getId();
+
+        // Warm up, so class loading and compilation are not measured
+        task.run();
+
+        long lowest = Long.MAX_VALUE;
+        for (int round = 0; round < ROUNDS; round++) {
+            long emptyBefore = allocationBean.getThreadAllocatedBytes(threadId);
+            long emptyAfter = allocationBean.getThreadAllocatedBytes(threadId);
+            long before = allocationBean.getThreadAllocatedBytes(threadId);
+            task.run();
+            long after = allocationBean.getThreadAllocatedBytes(threadId);
+            lowest = Math.min(lowest, (after - before) - (emptyAfter - emptyBefore));
+        }
+        return lowest;
+    }
+
+}
@@ -0,0 +1,183 @@
+package com.mickaelg.lookanimation.ui.animation;
+
+import com.mickaelg.lookanimation.model.LookRegion;
+import com.mickaelg.lookanimation.model.ProductModel;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static com.mickaelg.lookanimation.ui.LookAnimationDelegate.STATE_LOWER_BODY;
+import static com.mickaelg.lookanimation.ui.LookAnimationDelegate.STATE_NOT_ZOOMED;
+import static com.mickaelg.lookanimation.ui.LookAnimationDelegate.STATE_UPPER_BODY;
+import static com.mickaelg.lookanimation.ui.animation.KeyframeTrack.PROPERTY_ALPHA;
+import static com.mickaelg.lookanimation.ui.animation.KeyframeTrack.PROPERTY_TRANSLATION_Y;
+import static com.mickaelg.lookanimation.ui.animation.KeyframeTrack.TARGET_PICTURE;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Check that only the views taking part in a transition get a layer, for its duration, and that the strips
+ * transparent or out of the view are not drawn.
+ */
+public class LayerPolicyTest {
+
+    private static final int FRAMES_PER_TRANSITION = 24;
+    private static final float PARENT_HEIGHT = 1920f;
+    private static final float[] STRIP_HEIGHTS = {300f, 200f};
+
+    private final LookTransitionTable mTable = new LookTransitionTable(createRegions(), 400);
+    private final LookGeometry mGeometry = new LookGeometry(mTable);
+    private final LookTimeline mTimeline = new LookTimeline(KeyframeTrack.getTargetCount(2));
+    private final LayerPolicy mPolicy = new LayerPolicy(KeyframeTrack.getTargetCount(2));
+
+    private final int mUpperStrip = KeyframeTrack.getStripTarget(0);
+    private final int mLowerStrip = KeyframeTrack.getStripTarget(1);
+
+    @Before
+    public void setUp() throws Exception {
+        mGeometry.update(1080f, PARENT_HEIGHT, STRIP_HEIGHTS);
+        for (int target = 0; target < KeyframeTrack.getTargetCount(2); target++) {
+            mPolicy.init(target, false, true);
+        }
+        // Both strips parked below the view
+        for (int regionIndex = 0; regionIndex < STRIP_HEIGHTS.length; regionIndex++) {
+            int target = KeyframeTrack.getStripTarget(regionIndex);
+            mTimeline.setValue(LookTimeline.getChannel(target, PROPERTY_TRANSLATION_Y),
+                    mGeometry.getHiddenStripTranslationY(regionIndex, false));
+            mTimeline.setValue(LookTimeline.getChannel(target, PROPERTY_ALPHA), 0f);
+            updateVisibility(regionIndex);
+            mPolicy.takeVisibilityChange(target);
+        }
+    }
+
+    @Test
+    public void zoomIn_promotesEnteringStripOnly() throws Exception {
+        mTimeline.begin(mTable.getTransition(STATE_UPPER_BODY), mGeometry.getKeyframeValues(STATE_UPPER_BODY));
+        mPolicy.begin(mTimeline);
+
+        // The picture moves its content, a layer would be drawn again on every frame
+        assertFalse(mPolicy.isLayered(TARGET_PICTURE));
+        assertTrue(mPolicy.isLayered(mUpperStrip));
+        assertFalse(mPolicy.isLayered(mLowerStrip));
+        assertTrue(mPolicy.takeLayerChange(mUpperStrip));
+        assertFalse(mPolicy.takeLayerChange(mUpperStrip));
+        assertFalse(mPolicy.takeLayerChange(TARGET_PICTURE));
+
+        playFrames();
+        // The entering strip shows, the parked one stays hidden
+        assertTrue(mPolicy.isVisible(mUpperStrip));
+        assertFalse(mPolicy.isVisible(mLowerStrip));
+        assertTrue(mPolicy.takeVisibilityChange(mUpperStrip));
+        assertFalse(mPolicy.takeVisibilityChange(mLowerStrip));
+
+        assertTrue(mPolicy.end());
+        assertFalse(mPolicy.end());
+        assertFalse(mPolicy.isLayered(mUpperStrip));
+        assertTrue(mPolicy.takeLayerChange(mUpperStrip));
+
+        LayerPolicy.Usage usage = mPolicy.getLastUsage();
+        assertEquals(1, usage.getLayerCount());
+        assertEquals(FRAMES_PER_TRANSITION, usage.getFrameCount());
+        // Transparent on the first frame only
+        assertEquals(1, usage.getHiddenFrameCount());
+        assertEquals(FRAMES_PER_TRANSITION - 1, usage.getLayerFrameCount());
+    }
+
+    @Test
+    public void fling_promotesLeavingAndEnteringStrips() throws Exception {
+        zoomIn_promotesEnteringStripOnly();
+
+        mTimeline.begin(mTable.getTransition(STATE_LOWER_BODY), mGeometry.getKeyframeValues(STATE_LOWER_BODY));
+        // The strip of the region displayed before leaves the view by the top, as the animator does
+        mTimeline.animateTo(LookTimeline.getChannel(mUpperStrip, PROPERTY_TRANSLATION_Y),
+                mGeometry.getHiddenStripTranslationY(0, true));
+        mTimeline.animateTo(LookTimeline.getChannel(mUpperStrip, PROPERTY_ALPHA), 0f);
+        mPolicy.begin(mTimeline);
+        assertFalse(mPolicy.isLayered(TARGET_PICTURE));
+        assertTrue(mPolicy.isLayered(mUpperStrip));
+        assertTrue(mPolicy.isLayered(mLowerStrip));
+
+        playFrames();
+        assertFalse(mPolicy.isVisible(mUpperStrip));
+        assertTrue(mPolicy.isVisible(mLowerStrip));
+        mPolicy.end();
+
+        LayerPolicy.Usage usage = mPolicy.getLastUsage();
+        assertEquals(2, usage.getLayerCount());
+        assertEquals(FRAMES_PER_TRANSITION, usage.getFrameCount());
+        // Each strip is transparent on one frame, at the start or at the end
+        assertEquals(2, usage.getHiddenFrameCount());
+        assertEquals(2 * FRAMES_PER_TRANSITION - 2, usage.getLayerFrameCount());
+    }
+
+    @Test
+    public void drag_promotesMovedStripsOnly() throws Exception {
+        mPolicy.begin();
+        mPolicy.addTarget(TARGET_PICTURE);
+        mPolicy.addTarget(mLowerStrip);
+        mPolicy.addTarget(mLowerStrip);
+        assertFalse(mPolicy.isLayered(TARGET_PICTURE));
+        assertFalse(mPolicy.isLayered(mUpperStrip));
+        assertTrue(mPolicy.isLayered(mLowerStrip));
+        assertEquals(1, mPolicy.getUsage().getLayerCount());
+
+        // Retargeting keeps the layer of the views still animated
+        mTimeline.begin(mTable.getTransition(STATE_NOT_ZOOMED), mGeometry.getKeyframeValues(STATE_NOT_ZOOMED));
+        mTimeline.setValue(LookTimeline.getChannel(mLowerStrip, PROPERTY_ALPHA), 1f);
+        mTimeline.animateTo(LookTimeline.getChannel(mLowerStrip, PROPERTY_ALPHA), 0f);
+        assertTrue(mPolicy.takeLayerChange(mLowerStrip));
+        mPolicy.begin(mTimeline);
+        assertTrue(mPolicy.isLayered(mLowerStrip));
+        assertFalse(mPolicy.takeLayerChange(mLowerStrip));
+    }
+
+    @Test
+    public void visibility_hidesTransparentAndOffscreenViews() throws Exception {
+        assertFalse(mPolicy.updateVisibility(mUpperStrip, 0f, 100f, 400f, PARENT_HEIGHT));
+        assertTrue(mPolicy.updateVisibility(mUpperStrip, 0.5f, 100f, 400f, PARENT_HEIGHT));
+        assertFalse(mPolicy.updateVisibility(mUpperStrip, 1f, PARENT_HEIGHT, PARENT_HEIGHT + 300f, PARENT_HEIGHT));
+        assertFalse(mPolicy.updateVisibility(mUpperStrip, 1f, -300f, 0f, PARENT_HEIGHT));
+        assertTrue(mPolicy.updateVisibility(mUpperStrip, 1f, -299f, 1f, PARENT_HEIGHT));
+        // Not measured yet, only the alpha is known
+        assertTrue(mPolicy.updateVisibility(mUpperStrip, 1f, -300f, 0f, 0f));
+    }
+
+    /**
+     * Play the current transition of the timeline to its end, updating the visibility of the strips on each frame.
+     */
+    private void playFrames() {
+        for (int frame = 1; frame <= FRAMES_PER_TRANSITION; frame++) {
+            for (int regionIndex = 0; regionIndex < STRIP_HEIGHTS.length; regionIndex++) {
+                updateVisibility(regionIndex);
+            }
+            mPolicy.onFrame();
+            mTimeline.setFraction(frame / (float) FRAMES_PER_TRANSITION);
+        }
+        for (int regionIndex = 0; regionIndex < STRIP_HEIGHTS.length; regionIndex++) {
+            updateVisibility(regionIndex);
+        }
+    }
+
+    /**
+     * Update the visibility of a strip laid out at the bottom of the view.
+     */
+    private void updateVisibility(int regionIndex) {
+        int target = KeyframeTrack.getStripTarget(regionIndex);
+        float translationY = mTimeline.getValue(LookTimeline.getChannel(target, PROPERTY_TRANSLATION_Y));
+        mPolicy.updateVisibility(target, mTimeline.getValue(LookTimeline.getChannel(target, PROPERTY_ALPHA)),
+                PARENT_HEIGHT - STRIP_HEIGHTS[regionIndex] + translationY, PARENT_HEIGHT + translationY,
+                PARENT_HEIGHT);
+    }
+
+    private static List<LookRegion> createRegions() {
+        List<LookRegion> regionList = new ArrayList<>();
+        regionList.add(new LookRegion("upper_body", 0.0714f, 0.1f, 0.6429f, 0.6714f, new ArrayList<ProductModel>()));
+        regionList.add(new LookRegion("lower_body", 0.0714f, 0.3286f, 0.6429f, 0.9f, new ArrayList<ProductModel>()));
+        return regionList;
+    }
+
+}
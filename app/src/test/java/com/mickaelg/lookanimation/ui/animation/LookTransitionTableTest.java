@@ -0,0 +1,234 @@
+package com.mickaelg.lookanimation.ui.animation;
+
+import com.mickaelg.lookanimation.model.LookRegion;
+import com.mickaelg.lookanimation.model.ProductModel;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static com.mickaelg.lookanimation.ui.LookAnimationDelegate.STATE_LOWER_BODY;
+import static com.mickaelg.lookanimation.ui.LookAnimationDelegate.STATE_NOT_ZOOMED;
+import static com.mickaelg.lookanimation.ui.LookAnimationDelegate.STATE_UPPER_BODY;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Check the transitions reached by the gestures, and that going through them does not allocate once warmed up.
+ */
+public class LookTransitionTableTest {
+
+    private static final int FRAMES_PER_TRANSITION = 24;
+    private static final int ITERATIONS = 10000;
+
+    private final LookTransitionTable mTable = new LookTransitionTable(createRegions(2), 400);
+    private final LookTimeline mTimeline = new LookTimeline(KeyframeTrack.getTargetCount(2));
+    private final LookGeometry mGeometry = new LookGeometry(mTable);
+
+    /**
+     * Sum of values computed by the gestures, so they can't be optimized away.
+     */
+    private float mChecksum = 0f;
+
+    @Before
+    public void setUp() throws Exception {
+        mGeometry.update(1080f, 1920f, new float[]{300f, 200f});
+    }
+
+    @Test
+    public void tapTransitions_toggleZoom() throws Exception {
+        assertEquals(STATE_UPPER_BODY, mTable.getTapTransition(STATE_NOT_ZOOMED).getToState());
+        assertEquals(STATE_NOT_ZOOMED, mTable.getTapTransition(STATE_UPPER_BODY).getToState());
+        assertEquals(STATE_NOT_ZOOMED, mTable.getTapTransition(STATE_LOWER_BODY).getToState());
+    }
+
+    @Test
+    public void flingTransitions_onlyChangeBodyPart() throws Exception {
+        assertNull(mTable.getFlingTransition(STATE_NOT_ZOOMED, true));
+        assertNull(mTable.getFlingTransition(STATE_NOT_ZOOMED, false));
+        assertNull(mTable.getFlingTransition(STATE_UPPER_BODY, false));
+        assertNull(mTable.getFlingTransition(STATE_LOWER_BODY, true));
+        assertEquals(STATE_LOWER_BODY, mTable.getFlingTransition(STATE_UPPER_BODY, true).getToState());
+        assertEquals(STATE_UPPER_BODY, mTable.getFlingTransition(STATE_LOWER_BODY, false).getToState());
+    }
+
+    @Test
+    public void transitions_areShared() throws Exception {
+        assertSame(mTable.getTapTransition(STATE_NOT_ZOOMED), mTable.getTapTransition(STATE_NOT_ZOOMED));
+        assertSame(LookInterpolator.FAST_OUT_SLOW_IN, mTable.getTapTransition(STATE_NOT_ZOOMED).getInterpolator());
+    }
+
+    @Test
+    public void interpolator_matchesCurveBounds() throws Exception {
+        LookInterpolator interpolator = LookInterpolator.FAST_OUT_SLOW_IN;
+        assertEquals(0f, interpolator.getInterpolation(0f), 0f);
+        assertEquals(1f, interpolator.getInterpolation(1f), 0f);
+        float previous = 0f;
+        for (int i = 1; i <= 100; i++) {
+            float value = interpolator.getInterpolation(i / 100f);
+            assertTrue(value >= previous);
+            previous = value;
+        }
+    }
+
+    @Test
+    public void geometry_onlyUpdatesOnSizeChange() throws Exception {
+        assertFalse(mGeometry.update(1080f, 1920f, new float[]{300f, 200f}));
+        assertEquals(96f, mGeometry.getFlingThreshold(), 0.001f);
+        assertTrue(mGeometry.update(1080f, 1920f, new float[]{300f, 250f}));
+        assertEquals(250f, mGeometry.getHiddenStripTranslationY(1, false), 0.001f);
+        assertEquals(-300f, mGeometry.getHiddenStripTranslationY(0, true), 0.001f);
+        assertTrue(mGeometry.update(1080f, 1000f, new float[]{300f, 250f}));
+        assertEquals(50f, mGeometry.getFlingThreshold(), 0.001f);
+    }
+
+    @Test
+    public void timeline_reachesZoomedPicture() throws Exception {
+        resetValues();
+        begin(mTable.getTapTransition(STATE_NOT_ZOOMED));
+        mTimeline.setFraction(1f);
+
+        int pictureOffset = KeyframeTrack.TARGET_PICTURE * KeyframeTrack.PROPERTY_COUNT;
+        assertEquals(1.75f, mTimeline.getValue(pictureOffset + KeyframeTrack.PROPERTY_SCALE_X), 0.001f);
+        assertEquals(270f, mTimeline.getValue(pictureOffset + KeyframeTrack.PROPERTY_TRANSLATION_X), 0.1f);
+        assertEquals(384f, mTimeline.getValue(pictureOffset + KeyframeTrack.PROPERTY_TRANSLATION_Y), 0.1f);
+        int upperOffset = KeyframeTrack.getStripTarget(0) * KeyframeTrack.PROPERTY_COUNT;
+        assertEquals(0f, mTimeline.getValue(upperOffset + KeyframeTrack.PROPERTY_TRANSLATION_Y), 0.001f);
+        assertEquals(1f, mTimeline.getValue(upperOffset + KeyframeTrack.PROPERTY_ALPHA), 0.001f);
+    }
+
+    @Test
+    public void timeline_retargetKeepsValueAndVelocity() throws Exception {
+        resetValues();
+        int translationY = LookTimeline.getChannel(KeyframeTrack.TARGET_PICTURE, KeyframeTrack.PROPERTY_TRANSLATION_Y);
+        begin(mTable.getTransition(STATE_UPPER_BODY));
+        mTimeline.setPlayTime(120);
+        float value = mTimeline.getValue(translationY);
+        float velocity = mTimeline.getVelocity(translationY);
+
+        // Tap again in the middle of the zoom in
+        begin(mTable.getTapTransition(STATE_UPPER_BODY));
+        mTimeline.setPlayTime(0);
+        assertEquals(value, mTimeline.getValue(translationY), 0.001f);
+        assertEquals(velocity, mTimeline.getVelocity(translationY), Math.abs(velocity) * 0.05f);
+    }
+
+    @Test
+    public void timeline_interruptionsDoNotDrift() throws Exception {
+        resetValues();
+        int state = STATE_NOT_ZOOMED;
+        for (int i = 0; i < 50; i++) {
+            LookTransition transition = (i % 2 == 0)
+                    ? mTable.getTapTransition(state)
+                    : mTable.getFlingTransition(state, state == STATE_UPPER_BODY);
+            if (transition == null) {
+                continue;
+            }
+            begin(transition);
+            mTimeline.setPlayTime(30 + (i * 37) % 300);
+            state = transition.getToState();
+        }
+        begin(mTable.getTransition(STATE_LOWER_BODY));
+        mTimeline.setPlayTime(400);
+
+        int pictureOffset = KeyframeTrack.TARGET_PICTURE * KeyframeTrack.PROPERTY_COUNT;
+        assertEquals(270f, mTimeline.getValue(pictureOffset + KeyframeTrack.PROPERTY_TRANSLATION_X), 0.1f);
+        assertEquals(-384f, mTimeline.getValue(pictureOffset + KeyframeTrack.PROPERTY_TRANSLATION_Y), 0.1f);
+        int lowerOffset = KeyframeTrack.getStripTarget(1) * KeyframeTrack.PROPERTY_COUNT;
+        assertEquals(0f, mTimeline.getValue(lowerOffset + KeyframeTrack.PROPERTY_TRANSLATION_Y), 0.001f);
+        assertEquals(1f, mTimeline.getValue(lowerOffset + KeyframeTrack.PROPERTY_ALPHA), 0.001f);
+    }
+
+    @Test
+    public void table_costDoesNotGrowWithRegions() throws Exception {
+        int regionCount = 40;
+        LookTransitionTable table = new LookTransitionTable(createRegions(regionCount), 400);
+        LookTimeline timeline = new LookTimeline(KeyframeTrack.getTargetCount(regionCount));
+        LookGeometry geometry = new LookGeometry(table);
+        geometry.update(1080f, 1920f, new float[regionCount]);
+
+        assertEquals(regionCount + 1, table.getStateCount());
+        int state = STATE_NOT_ZOOMED;
+        // Zoom on the first region, go down to the last one and back up
+        for (int i = 0; i < regionCount * 2 - 1; i++) {
+            LookTransition transition = i == 0
+                    ? table.getTapTransition(state)
+                    : table.getFlingTransition(state, i < regionCount);
+            assertTrue(transition.getTrackCount() <= 2 * KeyframeTrack.PROPERTY_COUNT);
+            timeline.begin(transition, geometry.getKeyframeValues(transition.getToState()));
+            timeline.setFraction(0.5f);
+            assertTrue(timeline.getActiveChannelCount() <= 2 * KeyframeTrack.PROPERTY_COUNT);
+            state = transition.getToState();
+        }
+        assertEquals(LookTransitionTable.getState(0), state);
+    }
+
+    @Test
+    public void transitions_doNotAllocateAfterWarmUp() throws Exception {
+        long allocated = AllocationCounter.measure(new Runnable() {
+            @Override
+            public void run() {
+                mChecksum += runGestures(ITERATIONS);
+            }
+        });
+        assertEquals("Bytes allocated by " + ITERATIONS + " gestures, checksum " + mChecksum, 0, allocated);
+    }
+
+    /**
+     * Replay taps and flings through every state, and compute each frame of the transitions as the animator would.
+     */
+    private float runGestures(int iterations) {
+        float checksum = 0f;
+        int state = STATE_NOT_ZOOMED;
+        for (int i = 0; i < iterations; i++) {
+            LookTransition transition = (i % 3 == 1)
+                    ? mTable.getFlingTransition(state, state == STATE_UPPER_BODY)
+                    : mTable.getTapTransition(state);
+            if (transition == null) {
+                continue;
+            }
+            begin(transition);
+            for (int frame = 0; frame <= FRAMES_PER_TRANSITION; frame++) {
+                mTimeline.setFraction(frame / (float) FRAMES_PER_TRANSITION);
+            }
+            checksum += mTimeline.getValue(mTimeline.getChannelCount() - 1);
+            state = transition.getToState();
+        }
+        return checksum;
+    }
+
+    private void begin(LookTransition transition) {
+        mTimeline.begin(transition, mGeometry.getKeyframeValues(transition.getToState()));
+    }
+
+    private void resetValues() {
+        for (int channel = 0; channel < mTimeline.getChannelCount(); channel++) {
+            int property = channel % KeyframeTrack.PROPERTY_COUNT;
+            boolean unit = property == KeyframeTrack.PROPERTY_SCALE_X || property == KeyframeTrack.PROPERTY_SCALE_Y
+                    || property == KeyframeTrack.PROPERTY_ALPHA;
+            mTimeline.setValue(channel, unit ? 1f : 0f);
+        }
+    }
+
+    /**
+     * Create regions of the same height, from the top to the bottom of the picture. With two regions, they are the
+     * upper and lower body of the default looks.
+     */
+    private static List<LookRegion> createRegions(int regionCount) {
+        List<LookRegion> regionList = new ArrayList<>(regionCount);
+        float height = 0.5714f;
+        float step = regionCount > 1 ? (0.8f - height) / (regionCount - 1) : 0f;
+        for (int i = 0; i < regionCount; i++) {
+            float top = 0.1f + i * step;
+            regionList.add(new LookRegion("region_" + i, 0.0714f, top, 0.6429f, top + height,
+                    new ArrayList<ProductModel>()));
+        }
+        return regionList;
+    }
+
+}
@@ -0,0 +1,158 @@
+package com.mickaelg.lookanimation.ui.animation;
+
+import com.mickaelg.lookanimation.model.LookRegion;
+import com.mickaelg.lookanimation.model.ProductModel;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Check that the views follow the finger between the regions and settle on a region, without allocating.
+ */
+public class RegionScrollerTest {
+
+    private static final float FRAME = 1f / 60f;
+    private static final int ITERATIONS = 10000;
+
+    private final LookTransitionTable mTable = new LookTransitionTable(createRegions(), 400);
+    private final LookGeometry mGeometry = new LookGeometry(mTable);
+    private final LookTimeline mTimeline = new LookTimeline(KeyframeTrack.getTargetCount(2));
+    private final RegionScroller mScroller = new RegionScroller(mGeometry, 2);
+
+    private final int mPictureTranslationY =
+            LookTimeline.getChannel(KeyframeTrack.TARGET_PICTURE, KeyframeTrack.PROPERTY_TRANSLATION_Y);
+    private final int mUpperAlpha =
+            LookTimeline.getChannel(KeyframeTrack.getStripTarget(0), KeyframeTrack.PROPERTY_ALPHA);
+    private final int mLowerAlpha =
+            LookTimeline.getChannel(KeyframeTrack.getStripTarget(1), KeyframeTrack.PROPERTY_ALPHA);
+
+    /**
+     * Sum of values computed by the gestures, so they can't be optimized away.
+     */
+    private float mChecksum = 0f;
+
+    @Before
+    public void setUp() throws Exception {
+        mGeometry.update(1080f, 1920f, new float[]{300f, 200f});
+    }
+
+    @Test
+    public void drag_followsFinger() throws Exception {
+        float distance = mGeometry.getRegionDistance(0);
+        assertEquals(768f, distance, 0.5f);
+
+        mScroller.startDrag(0);
+        mScroller.drag(-distance / 2f);
+        mScroller.writeValues(mTimeline);
+        assertEquals(0.5f, mScroller.getPosition(), 0.001f);
+        assertEquals(0f, mTimeline.getValue(mPictureTranslationY), 0.5f);
+        assertEquals(0.5f, mTimeline.getValue(mUpperAlpha), 0.001f);
+        assertEquals(0.5f, mTimeline.getValue(mLowerAlpha), 0.001f);
+
+        mScroller.drag(-distance / 2f);
+        mScroller.writeValues(mTimeline);
+        assertEquals(-384f, mTimeline.getValue(mPictureTranslationY), 0.5f);
+        assertEquals(0f, mTimeline.getValue(mUpperAlpha), 0.001f);
+        assertEquals(1f, mTimeline.getValue(mLowerAlpha), 0.001f);
+    }
+
+    @Test
+    public void drag_resistsBeyondLastRegion() throws Exception {
+        mScroller.startDrag(1);
+        mScroller.drag(-10000f);
+        assertTrue(mScroller.getPosition() <= 1.2f + 0.001f);
+    }
+
+    @Test
+    public void release_settlesOnClosestRegion() throws Exception {
+        mScroller.startDrag(0);
+        mScroller.drag(-mGeometry.getRegionDistance(0) * 0.3f);
+        assertEquals(0, mScroller.release(0f));
+        assertEquals(0f, settle(), 0f);
+    }
+
+    @Test
+    public void release_flingReachesNextRegion() throws Exception {
+        mScroller.startDrag(0);
+        mScroller.drag(-mGeometry.getRegionDistance(0) * 0.1f);
+        assertEquals(1, mScroller.release(-4000f));
+        assertEquals(1f, settle(), 0f);
+        assertEquals(1f, mTimeline.getValue(mLowerAlpha), 0.001f);
+    }
+
+    @Test
+    public void drag_catchesSettlingViews() throws Exception {
+        mScroller.startDrag(0);
+        mScroller.drag(-mGeometry.getRegionDistance(0) * 0.4f);
+        mScroller.release(-4000f);
+        mScroller.step(FRAME);
+        float position = mScroller.getPosition();
+
+        mScroller.startDrag(1);
+        assertFalse(mScroller.isSettling());
+        assertEquals(position, mScroller.getPosition(), 0f);
+    }
+
+    @Test
+    public void gestures_doNotAllocateAfterWarmUp() throws Exception {
+        long allocated = AllocationCounter.measure(new Runnable() {
+            @Override
+            public void run() {
+                mChecksum += runGestures(ITERATIONS);
+            }
+        });
+        assertEquals("Bytes allocated by " + ITERATIONS + " gestures, checksum " + mChecksum, 0, allocated);
+    }
+
+    /**
+     * Drag up and down between the regions, as the move events would, then let the views settle.
+     */
+    private float runGestures(int iterations) {
+        float checksum = 0f;
+        for (int i = 0; i < iterations; i++) {
+            mScroller.startDrag(mScroller.getClosestRegion());
+            float deltaY = (i % 2 == 0) ? -40f : 40f;
+            for (int event = 0; event < 10; event++) {
+                mScroller.drag(deltaY);
+                mScroller.writeValues(mTimeline);
+            }
+            mScroller.release(deltaY * 60f);
+            for (int frame = 0; frame < 5; frame++) {
+                mScroller.step(FRAME);
+                mScroller.writeValues(mTimeline);
+            }
+            checksum += mTimeline.getValue(mPictureTranslationY);
+        }
+        return checksum;
+    }
+
+    /**
+     * Step the scroller frame by frame until it rests.
+     *
+     * @return Position the scroller rests on
+     */
+    private float settle() {
+        int frameCount = 0;
+        while (mScroller.step(FRAME)) {
+            mScroller.writeValues(mTimeline);
+            assertTrue("Still settling after " + frameCount + " frames", ++frameCount < 120);
+        }
+        mScroller.writeValues(mTimeline);
+        return mScroller.getPosition();
+    }
+
+    private static List<LookRegion> createRegions() {
+        List<LookRegion> regionList = new ArrayList<>(2);
+        regionList.add(new LookRegion("upper_body", 0.0714f, 0.1f, 0.6429f, 0.6714f, new ArrayList<ProductModel>()));
+        regionList.add(new LookRegion("lower_body", 0.0714f, 0.3286f, 0.6429f, 0.9f, new ArrayList<ProductModel>()));
+        return regionList;
+    }
+
+}
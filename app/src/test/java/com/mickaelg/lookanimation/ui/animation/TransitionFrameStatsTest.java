@@ -0,0 +1,130 @@
+package com.mickaelg.lookanimation.ui.animation;
+
+import org.junit.Test;
+
+import java.io.PrintWriter;
+import java.io.StringWriter;
+import java.util.concurrent.TimeUnit;
+
+import static com.mickaelg.lookanimation.ui.LookAnimationDelegate.STATE_LOWER_BODY;
+import static com.mickaelg.lookanimation.ui.LookAnimationDelegate.STATE_NOT_ZOOMED;
+import static com.mickaelg.lookanimation.ui.LookAnimationDelegate.STATE_UPPER_BODY;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Check that the frames of the transitions are counted in the histograms of their kind, from any number of threads.
+ */
+public class TransitionFrameStatsTest {
+
+    private static final long FRAME_INTERVAL_NANOS = TimeUnit.SECONDS.toNanos(1) / 60;
+
+    @Test
+    public void histogram_countsDroppedFrames() throws Exception {
+        FrameHistogram histogram = new FrameHistogram();
+        assertEquals(0, histogram.recordFrame(FRAME_INTERVAL_NANOS, FRAME_INTERVAL_NANOS));
+        // A bit late, still the next vsync
+        assertEquals(0, histogram.recordFrame(FRAME_INTERVAL_NANOS + TimeUnit.MILLISECONDS.toNanos(3),
+                FRAME_INTERVAL_NANOS));
+        assertEquals(1, histogram.recordFrame(2 * FRAME_INTERVAL_NANOS, FRAME_INTERVAL_NANOS));
+        assertEquals(5, histogram.recordFrame(6 * FRAME_INTERVAL_NANOS, FRAME_INTERVAL_NANOS));
+        assertEquals(29, histogram.recordFrame(TimeUnit.MILLISECONDS.toNanos(500), FRAME_INTERVAL_NANOS));
+
+        assertEquals(5, histogram.getFrameCount());
+        assertEquals(35, histogram.getDroppedFrameCount());
+        assertEquals(1, histogram.getFrameTimeCount(16));
+        assertEquals(1, histogram.getFrameTimeCount(19));
+        assertEquals(1, histogram.getFrameTimeCount(33));
+        // Longer frames all fall in the last bucket
+        assertEquals(1, histogram.getFrameTimeCount(FrameHistogram.FRAME_TIME_BUCKET_COUNT - 1));
+        assertEquals(2, histogram.getDroppedFramesCount(0));
+        assertEquals(1, histogram.getDroppedFramesCount(5));
+        assertEquals(1, histogram.getDroppedFramesCount(FrameHistogram.DROPPED_FRAMES_BUCKET_COUNT - 1));
+        assertEquals(TimeUnit.MILLISECONDS.toNanos(500), histogram.getMaxFrameNanos());
+        assertEquals(16, histogram.getFrameTimePercentile(20));
+        assertEquals(33, histogram.getFrameTimePercentile(60));
+
+        histogram.reset();
+        assertEquals(0, histogram.getFrameCount());
+        assertEquals(0, histogram.getFrameTimeCount(16));
+        assertEquals(0, histogram.getMaxFrameNanos());
+    }
+
+    @Test
+    public void histogram_countsFramesOfEveryThread() throws Exception {
+        final FrameHistogram histogram = new FrameHistogram();
+        final int framesPerThread = 20000;
+        Thread[] threads = new Thread[4];
+        for (int i = 0; i < threads.length; i++) {
+            final long frameNanos = (i + 1) * FRAME_INTERVAL_NANOS;
+            threads[i] = new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    for (int frame = 0; frame < framesPerThread; frame++) {
+                        histogram.recordFrame(frameNanos, FRAME_INTERVAL_NANOS);
+                    }
+                }
+            });
+            threads[i].start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+
+        assertEquals(threads.length * framesPerThread, histogram.getFrameCount());
+        // 0 + 1 + 2 + 3 frames dropped by the frames of each thread
+        assertEquals(6 * framesPerThread, histogram.getDroppedFrameCount());
+        assertEquals(framesPerThread, histogram.getDroppedFramesCount(3));
+        assertEquals(4 * FRAME_INTERVAL_NANOS, histogram.getMaxFrameNanos());
+    }
+
+    @Test
+    public void stats_attributeFramesToTransitions() throws Exception {
+        TransitionFrameStats stats = new TransitionFrameStats();
+        final int[] lastTransition = new int[5];
+        stats.addListener(new TransitionFrameStats.Listener() {
+            @Override
+            public void onTransitionFrames(int fromState, int toState, int frameCount, int droppedFrames,
+                                           long maxFrameNanos) {
+                lastTransition[0] = fromState;
+                lastTransition[1] = toState;
+                lastTransition[2] = frameCount;
+                lastTransition[3] = droppedFrames;
+                lastTransition[4] = (int) TimeUnit.NANOSECONDS.toMillis(maxFrameNanos);
+            }
+        });
+
+        FrameHistogram zoomIn = stats.getHistogram(STATE_NOT_ZOOMED, STATE_UPPER_BODY);
+        assertSame(zoomIn, stats.getHistogram(STATE_NOT_ZOOMED, STATE_UPPER_BODY));
+        assertNotSame(zoomIn, stats.getHistogram(STATE_UPPER_BODY, STATE_NOT_ZOOMED));
+        zoomIn.recordFrame(FRAME_INTERVAL_NANOS, FRAME_INTERVAL_NANOS);
+        zoomIn.recordFrame(3 * FRAME_INTERVAL_NANOS, FRAME_INTERVAL_NANOS);
+        stats.recordTransition(STATE_NOT_ZOOMED, STATE_UPPER_BODY, 2, 2, 3 * FRAME_INTERVAL_NANOS);
+
+        assertEquals(1, zoomIn.getTransitionCount());
+        assertEquals(STATE_NOT_ZOOMED, lastTransition[0]);
+        assertEquals(STATE_UPPER_BODY, lastTransition[1]);
+        assertEquals(2, lastTransition[2]);
+        assertEquals(2, lastTransition[3]);
+        assertEquals(49, lastTransition[4]);
+        // However many regions, each state has its own histograms
+        FrameHistogram toRegion = stats.getHistogram(STATE_LOWER_BODY, STATE_LOWER_BODY + 8);
+        assertNotSame(toRegion, stats.getHistogram(STATE_LOWER_BODY, STATE_LOWER_BODY + 9));
+        assertSame(toRegion, stats.getHistogram(STATE_LOWER_BODY, STATE_LOWER_BODY + 8));
+        assertSame(zoomIn, stats.getHistogram(STATE_NOT_ZOOMED, STATE_UPPER_BODY));
+        toRegion.recordFrame(FRAME_INTERVAL_NANOS, FRAME_INTERVAL_NANOS);
+
+        StringWriter dump = new StringWriter();
+        stats.dump("", new PrintWriter(dump));
+        assertTrue(dump.toString().contains("NOT_ZOOMED -> UPPER_BODY: 1 transitions, 2 frames, 2 dropped"));
+        assertTrue(dump.toString().contains("dropped frames: 0=1 2=1"));
+        assertTrue(dump.toString().contains("LOWER_BODY -> " + TransitionFrameStats.getStateName(STATE_LOWER_BODY + 8)
+                + ": 0 transitions, 1 frames"));
+        // Kinds of transitions without frames are left out
+        assertFalse(dump.toString().contains("UPPER_BODY -> NOT_ZOOMED"));
+    }
+
+}
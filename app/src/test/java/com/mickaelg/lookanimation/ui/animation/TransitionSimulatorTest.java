@@ -0,0 +1,165 @@
+package com.mickaelg.lookanimation.ui.animation;
+
+import com.mickaelg.lookanimation.model.LookRegion;
+import com.mickaelg.lookanimation.model.ProductModel;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static com.mickaelg.lookanimation.ui.LookAnimationDelegate.STATE_LOWER_BODY;
+import static com.mickaelg.lookanimation.ui.LookAnimationDelegate.STATE_NOT_ZOOMED;
+import static com.mickaelg.lookanimation.ui.LookAnimationDelegate.STATE_UPPER_BODY;
+import static com.mickaelg.lookanimation.ui.animation.KeyframeTrack.PROPERTY_ALPHA;
+import static com.mickaelg.lookanimation.ui.animation.KeyframeTrack.PROPERTY_SCALE_X;
+import static com.mickaelg.lookanimation.ui.animation.KeyframeTrack.PROPERTY_SCALE_Y;
+import static com.mickaelg.lookanimation.ui.animation.KeyframeTrack.PROPERTY_TRANSLATION_X;
+import static com.mickaelg.lookanimation.ui.animation.KeyframeTrack.PROPERTY_TRANSLATION_Y;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Play every transition between the states of a look frame by frame, checking where the views end, how many view
+ * properties are written on each frame and that nothing is allocated.
+ */
+public class TransitionSimulatorTest {
+
+    private static final long DURATION = 400;
+    private static final float VIEW_WIDTH = 1080f;
+    private static final float VIEW_HEIGHT = 1920f;
+    /**
+     * Frames of a transition after its first one.
+     */
+    private static final int FRAMES_PER_TRANSITION = (int) ((DURATION + TransitionSimulator.FRAME_INTERVAL - 1)
+            / TransitionSimulator.FRAME_INTERVAL);
+    /**
+     * Most view properties written on a frame: the alpha and transform of the picture, every property of the strips
+     * entering and leaving the view, and the parking of a strip at the end.
+     */
+    private static final int MAX_WRITES_PER_FRAME = 2 + 2 * KeyframeTrack.PROPERTY_COUNT + 2;
+    private static final int ITERATIONS = 100;
+
+    @Test
+    public void play_reachesEveryState() throws Exception {
+        TransitionSimulator simulator = createSimulator(2);
+        for (int fromState = 0; fromState < 3; fromState++) {
+            for (int toState = 0; toState < 3; toState++) {
+                simulator.jumpTo(fromState);
+                assertEquals(FRAMES_PER_TRANSITION, simulator.play(toState));
+                assertFalse(simulator.isRunning());
+                assertState(simulator, toState);
+            }
+        }
+    }
+
+    @Test
+    public void start_retargetsRunningTransition() throws Exception {
+        TransitionSimulator simulator = createSimulator(2);
+        simulator.jumpTo(STATE_NOT_ZOOMED);
+        simulator.start(STATE_UPPER_BODY, FRAMES_PER_TRANSITION / 2);
+        assertTrue(simulator.isRunning());
+
+        simulator.play(STATE_LOWER_BODY);
+        assertState(simulator, STATE_LOWER_BODY);
+    }
+
+    @Test
+    public void release_settlesOnNextRegion() throws Exception {
+        TransitionSimulator simulator = createSimulator(2);
+        simulator.jumpTo(STATE_UPPER_BODY);
+        float distance = simulator.getGeometry().getRegionDistance(0);
+
+        simulator.drag(-distance / 10f, 8);
+        assertEquals(STATE_LOWER_BODY, simulator.release(0f));
+        assertFalse(simulator.isRunning());
+        assertState(simulator, STATE_LOWER_BODY);
+    }
+
+    @Test
+    public void play_writesSamePropertiesWhateverRegionCount() throws Exception {
+        TransitionSimulator fewRegions = createSimulator(2);
+        TransitionSimulator manyRegions = createSimulator(30);
+        for (int state = 0; state < 3; state++) {
+            for (TransitionSimulator simulator : new TransitionSimulator[]{fewRegions, manyRegions}) {
+                simulator.jumpTo(STATE_NOT_ZOOMED);
+                simulator.play(STATE_UPPER_BODY);
+                simulator.resetCounters();
+                simulator.play(state);
+                assertTrue(simulator.getMaxWritesPerFrame() <= MAX_WRITES_PER_FRAME);
+            }
+            // The parked strips are left alone
+            assertEquals(fewRegions.getTotalWrites(), manyRegions.getTotalWrites());
+            assertEquals(fewRegions.getMaxWritesPerFrame(), manyRegions.getMaxWritesPerFrame());
+        }
+    }
+
+    @Test
+    public void play_doesNotAllocate() throws Exception {
+        final TransitionSimulator simulator = createSimulator(2);
+        simulator.jumpTo(STATE_NOT_ZOOMED);
+        long allocatedBytes = AllocationCounter.measure(new Runnable() {
+            @Override
+            public void run() {
+                for (int i = 0; i < ITERATIONS; i++) {
+                    simulator.play(STATE_UPPER_BODY);
+                    simulator.play(STATE_LOWER_BODY);
+                    simulator.start(STATE_UPPER_BODY, FRAMES_PER_TRANSITION / 2);
+                    simulator.play(STATE_NOT_ZOOMED);
+                }
+            }
+        });
+        assertEquals(0, allocatedBytes);
+    }
+
+    /**
+     * Check that the views are where they are in the given state, the strips not displayed being parked and hidden,
+     * and that no layer is left.
+     */
+    private static void assertState(TransitionSimulator simulator, int state) {
+        LookGeometry geometry = simulator.getGeometry();
+        assertEquals(state, simulator.getState());
+        assertEquals(geometry.getPictureValue(state, PROPERTY_SCALE_X),
+                simulator.getPictureTransform(PROPERTY_SCALE_X), 0.001f);
+        assertEquals(geometry.getPictureValue(state, PROPERTY_SCALE_Y),
+                simulator.getPictureTransform(PROPERTY_SCALE_Y), 0.001f);
+        assertEquals(geometry.getPictureValue(state, PROPERTY_TRANSLATION_X),
+                simulator.getPictureTransform(PROPERTY_TRANSLATION_X), 0.5f);
+        assertEquals(geometry.getPictureValue(state, PROPERTY_TRANSLATION_Y),
+                simulator.getPictureTransform(PROPERTY_TRANSLATION_Y), 0.5f);
+
+        int displayedRegionIndex = LookTransitionTable.getRegionIndex(state);
+        for (int regionIndex = 0; regionIndex < simulator.getTransitionTable().getRegionCount(); regionIndex++) {
+            int target = KeyframeTrack.getStripTarget(regionIndex);
+            assertFalse(simulator.isLayered(target));
+            if (regionIndex == displayedRegionIndex) {
+                assertEquals(1f, simulator.getValue(target, PROPERTY_ALPHA), 0.001f);
+                assertTrue(simulator.isVisible(target));
+            } else {
+                assertEquals(0f, simulator.getValue(target, PROPERTY_ALPHA), 0.001f);
+                assertEquals(geometry.getHiddenStripTranslationY(regionIndex, false),
+                        simulator.getValue(target, PROPERTY_TRANSLATION_Y), 0.5f);
+                assertFalse(simulator.isVisible(target));
+            }
+        }
+        assertFalse(simulator.isLayered(KeyframeTrack.TARGET_PICTURE));
+    }
+
+    private static TransitionSimulator createSimulator(int regionCount) {
+        List<LookRegion> regionList = new ArrayList<>();
+        regionList.add(new LookRegion("upper_body", 0.0714f, 0.1f, 0.6429f, 0.6714f, new ArrayList<ProductModel>()));
+        regionList.add(new LookRegion("lower_body", 0.0714f, 0.3286f, 0.6429f, 0.9f, new ArrayList<ProductModel>()));
+        float[] stripHeights = new float[regionCount];
+        stripHeights[0] = 300f;
+        stripHeights[1] = 200f;
+        for (int regionIndex = 2; regionIndex < regionCount; regionIndex++) {
+            float top = 0.9f * regionIndex / regionCount;
+            regionList.add(new LookRegion("region_" + regionIndex, 0.1f, top, 0.6f, top + 0.1f,
+                    new ArrayList<ProductModel>()));
+            stripHeights[regionIndex] = 250f;
+        }
+        return new TransitionSimulator(regionList, DURATION, VIEW_WIDTH, VIEW_HEIGHT, stripHeights);
+    }
+
+}
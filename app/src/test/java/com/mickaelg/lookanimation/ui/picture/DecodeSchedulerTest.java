@@ -0,0 +1,254 @@
+package com.mickaelg.lookanimation.ui.picture;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Check that the decode scheduler runs the tasks by lane, keeps a worker for the visible content, runs the tasks of
+ * an owner one at a time, removes the canceled ones and outlives the failing ones.
+ */
+public class DecodeSchedulerTest {
+
+    private static final long TIMEOUT_SECONDS = 5;
+
+    private final List<String> mRunOrder = Collections.synchronizedList(new ArrayList<String>());
+    private DecodeScheduler mScheduler;
+
+    @Before
+    public void setUp() throws Exception {
+        mScheduler = new DecodeScheduler(2, Executors.defaultThreadFactory());
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        mScheduler.shutdown();
+    }
+
+    @Test
+    public void submit_runsHighestLaneFirst() throws Exception {
+        BlockingTask first = submitStarted("first", DecodeScheduler.LANE_VISIBLE);
+        BlockingTask second = submitStarted("second", DecodeScheduler.LANE_VISIBLE);
+        BlockingTask prefetch = new BlockingTask("prefetch");
+        BlockingTask thumbnail = new BlockingTask("thumbnail");
+        BlockingTask zoomTile = new BlockingTask("zoomTile");
+        BlockingTask visible = new BlockingTask("visible");
+        mScheduler.submit(prefetch, DecodeScheduler.LANE_PREFETCH, prefetch);
+        mScheduler.submit(thumbnail, DecodeScheduler.LANE_THUMBNAIL, thumbnail);
+        mScheduler.submit(zoomTile, DecodeScheduler.LANE_ZOOM_TILE, zoomTile);
+        mScheduler.submit(visible, DecodeScheduler.LANE_VISIBLE, visible);
+        for (BlockingTask task : Arrays.asList(visible, zoomTile, thumbnail, prefetch)) {
+            task.mRelease.countDown();
+        }
+
+        // A single worker runs the queued tasks, one after the other
+        second.finish();
+        prefetch.awaitDone();
+        first.finish();
+        assertEquals(Arrays.asList("first", "second", "visible", "zoomTile", "thumbnail", "prefetch"), mRunOrder);
+    }
+
+    @Test
+    public void submit_keepsWorkerForVisibleContent() throws Exception {
+        BlockingTask prefetch = submitStarted("prefetch", DecodeScheduler.LANE_PREFETCH);
+        BlockingTask thumbnail = new BlockingTask("thumbnail");
+        mScheduler.submit(thumbnail, DecodeScheduler.LANE_THUMBNAIL, thumbnail);
+        BlockingTask visible = new BlockingTask("visible");
+        visible.mRelease.countDown();
+        mScheduler.submit(visible, DecodeScheduler.LANE_VISIBLE, visible);
+
+        // The speculative tasks don't take the last worker, the visible one doesn't wait for them
+        visible.awaitDone();
+        assertTrue(mScheduler.isQueued(thumbnail));
+        assertEquals(1, mScheduler.getQueueDepth(DecodeScheduler.LANE_THUMBNAIL));
+
+        prefetch.finish();
+        thumbnail.finish();
+        assertEquals(Arrays.asList("prefetch", "visible", "thumbnail"), mRunOrder);
+    }
+
+    @Test
+    public void submit_runsTasksOfOwnerOneAtATime() throws Exception {
+        Object owner = new Object();
+        BlockingTask first = new BlockingTask("first");
+        mScheduler.submit(first, DecodeScheduler.LANE_VISIBLE, owner);
+        first.awaitStarted();
+        BlockingTask second = new BlockingTask("second");
+        second.mRelease.countDown();
+        mScheduler.submit(second, DecodeScheduler.LANE_VISIBLE, owner);
+        BlockingTask other = new BlockingTask("other");
+        other.mRelease.countDown();
+        mScheduler.submit(other, DecodeScheduler.LANE_PREFETCH, other);
+
+        // The free worker skips the task of the running owner
+        other.awaitDone();
+        assertTrue(mScheduler.isQueued(second));
+
+        first.finish();
+        second.awaitDone();
+        assertEquals(Arrays.asList("first", "other", "second"), mRunOrder);
+    }
+
+    @Test
+    public void cancel_removesQueuedTasks() throws Exception {
+        BlockingTask first = submitStarted("first", DecodeScheduler.LANE_VISIBLE);
+        BlockingTask second = submitStarted("second", DecodeScheduler.LANE_VISIBLE);
+        assertFalse(mScheduler.cancel(first));
+
+        Object owner = new Object();
+        BlockingTask[] tasks = new BlockingTask[4];
+        for (int i = 0; i < tasks.length; i++) {
+            tasks[i] = new BlockingTask("task" + i);
+            tasks[i].mRelease.countDown();
+            mScheduler.submit(tasks[i], DecodeScheduler.LANE_ZOOM_TILE, i < 3 ? owner : tasks[i]);
+        }
+        assertEquals(4, mScheduler.getQueueDepth(DecodeScheduler.LANE_ZOOM_TILE));
+        assertTrue(mScheduler.cancel(tasks[0]));
+        assertFalse(mScheduler.cancel(tasks[0]));
+        mScheduler.moveAll(owner, DecodeScheduler.LANE_PREFETCH);
+        assertEquals(1, mScheduler.getQueueDepth(DecodeScheduler.LANE_ZOOM_TILE));
+        assertEquals(2, mScheduler.getQueueDepth(DecodeScheduler.LANE_PREFETCH));
+        assertEquals(2, mScheduler.cancelAll(owner));
+        assertEquals(0, mScheduler.getQueueDepth(DecodeScheduler.LANE_PREFETCH));
+
+        first.finish();
+        tasks[3].awaitDone();
+        second.finish();
+        assertEquals(Arrays.asList("first", "second", "task3"), mRunOrder);
+        // The runs are recorded once the tasks return
+        mScheduler.shutdown();
+        assertEquals(4, mScheduler.getMaxQueueDepth(DecodeScheduler.LANE_ZOOM_TILE));
+        assertEquals(1, mScheduler.getCanceledCount(DecodeScheduler.LANE_ZOOM_TILE));
+        assertEquals(2, mScheduler.getCanceledCount(DecodeScheduler.LANE_PREFETCH));
+        assertEquals(1, mScheduler.getCompletedCount(DecodeScheduler.LANE_ZOOM_TILE));
+        assertEquals(0, mScheduler.getCompletedCount(DecodeScheduler.LANE_PREFETCH));
+    }
+
+    @Test
+    public void move_promotesQueuedTask() throws Exception {
+        BlockingTask first = submitStarted("first", DecodeScheduler.LANE_VISIBLE);
+        BlockingTask second = submitStarted("second", DecodeScheduler.LANE_VISIBLE);
+        BlockingTask zoomTile = new BlockingTask("zoomTile");
+        BlockingTask prefetch = new BlockingTask("prefetch");
+        zoomTile.mRelease.countDown();
+        prefetch.mRelease.countDown();
+        mScheduler.submit(zoomTile, DecodeScheduler.LANE_ZOOM_TILE, zoomTile);
+        mScheduler.submit(prefetch, DecodeScheduler.LANE_PREFETCH, prefetch);
+        assertTrue(mScheduler.move(prefetch, DecodeScheduler.LANE_VISIBLE));
+
+        first.finish();
+        zoomTile.awaitDone();
+        second.finish();
+        assertFalse(mScheduler.move(prefetch, DecodeScheduler.LANE_VISIBLE));
+        assertEquals(Arrays.asList("first", "second", "prefetch", "zoomTile"), mRunOrder);
+    }
+
+    @Test
+    public void submit_keepsWorkersAfterFailedTasks() throws Exception {
+        // One failure per worker, each of them would be gone if it didn't catch it
+        final List<Throwable> errors = Collections.synchronizedList(new ArrayList<Throwable>());
+        Throwable[] thrownErrors = {new IllegalStateException("Corrupt picture"), new OutOfMemoryError("Large tile")};
+        for (final Throwable thrownError : thrownErrors) {
+            DecodeScheduler.Task task = new DecodeScheduler.Task() {
+                @Override
+                public void run() {
+                    if (thrownError instanceof Error) {
+                        throw (Error) thrownError;
+                    }
+                    throw (RuntimeException) thrownError;
+                }
+
+                @Override
+                protected void onFailed(Throwable error) {
+                    errors.add(error);
+                }
+            };
+            mScheduler.submit(task, DecodeScheduler.LANE_VISIBLE, task);
+        }
+
+        BlockingTask visible = submitStarted("visible", DecodeScheduler.LANE_VISIBLE);
+        BlockingTask prefetch = new BlockingTask("prefetch");
+        prefetch.mRelease.countDown();
+        mScheduler.submit(prefetch, DecodeScheduler.LANE_PREFETCH, prefetch);
+        prefetch.awaitDone();
+        visible.finish();
+        mScheduler.shutdown();
+
+        assertEquals(Arrays.asList(thrownErrors), errors);
+        assertEquals(Arrays.asList("visible", "prefetch"), mRunOrder);
+        assertEquals(2, mScheduler.getFailedCount(DecodeScheduler.LANE_VISIBLE));
+        assertEquals(1, mScheduler.getCompletedCount(DecodeScheduler.LANE_VISIBLE));
+    }
+
+    /**
+     * Submit a task with its own owner and wait for a worker to start it.
+     */
+    private BlockingTask submitStarted(String name, int lane) throws InterruptedException {
+        BlockingTask task = new BlockingTask(name);
+        mScheduler.submit(task, lane, task);
+        task.awaitStarted();
+        return task;
+    }
+
+    /**
+     * Task recording its run, which doesn't end until it is released.
+     */
+    private final class BlockingTask extends DecodeScheduler.Task {
+
+        private final String mName;
+        private final CountDownLatch mStarted = new CountDownLatch(1);
+        private final CountDownLatch mRelease = new CountDownLatch(1);
+        private final CountDownLatch mDone = new CountDownLatch(1);
+
+        BlockingTask(String name) {
+            mName = name;
+        }
+
+        @Override
+        public void run() {
+            mRunOrder.add(mName);
+            mStarted.countDown();
+            try {
+                mRelease.await(TIMEOUT_SECONDS, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            mDone.countDown();
+        }
+
+        @Override
+        protected void onFailed(Throwable error) {
+            mRunOrder.add(mName + " failed");
+        }
+
+        void awaitStarted() throws InterruptedException {
+            assertTrue(mStarted.await(TIMEOUT_SECONDS, TimeUnit.SECONDS));
+        }
+
+        void awaitDone() throws InterruptedException {
+            assertTrue(mDone.await(TIMEOUT_SECONDS, TimeUnit.SECONDS));
+        }
+
+        /**
+         * Release the task and wait for its end.
+         */
+        void finish() throws InterruptedException {
+            mRelease.countDown();
+            awaitDone();
+        }
+
+    }
+
+}
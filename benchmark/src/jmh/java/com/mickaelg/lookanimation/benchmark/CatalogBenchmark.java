@@ -0,0 +1,83 @@
+package com.mickaelg.lookanimation.benchmark;
+
+import com.mickaelg.lookanimation.R;
+import com.mickaelg.lookanimation.model.LookCatalog;
+import com.mickaelg.lookanimation.model.LookModel;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of building the looks: the test look, and catalogs of synthetic looks growing in number of looks and of
+ * products per look.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 10, time = 1)
+@Fork(1)
+public class CatalogBenchmark {
+
+    private static final int[] PRODUCT_COLORS = {R.color.red, R.color.purple, R.color.indigo, R.color.green,
+            R.color.amber};
+
+    @State(Scope.Benchmark)
+    public static class Catalog {
+
+        @Param({"100", "1000", "10000"})
+        public int mLookCount;
+
+    }
+
+    /**
+     * Only taken by the benchmarks of synthetic looks, so the test catalog isn't run once per product count.
+     */
+    @State(Scope.Benchmark)
+    public static class Products {
+
+        /**
+         * Products of each look, split between its upper body and its lower body.
+         */
+        @Param({"3", "30", "300"})
+        public int mProductCount;
+
+    }
+
+    @Benchmark
+    public LookModel createLookModel() {
+        return LookModel.createLookModel();
+    }
+
+    @Benchmark
+    public LookCatalog createTestCatalog(Catalog catalog) {
+        return LookCatalog.createTestCatalog(catalog.mLookCount);
+    }
+
+    @Benchmark
+    public LookCatalog buildCatalog(Catalog catalog, Products products) {
+        LookCatalog.Builder builder = new LookCatalog.Builder();
+        int upperBodyProductCount = (products.mProductCount + 1) / 2;
+        for (int lookIndex = 0; lookIndex < catalog.mLookCount; lookIndex++) {
+            builder.addLook(R.drawable.suit);
+            builder.addRegion("upper_body", 0.0714f, 0.1f, 0.6429f, 0.6714f);
+            for (int i = 0; i < products.mProductCount; i++) {
+                if (i == upperBodyProductCount) {
+                    builder.addRegion("lower_body", 0.0714f, 0.3286f, 0.6429f, 0.9f);
+                }
+                builder.addProduct(PRODUCT_COLORS[(lookIndex + i) % PRODUCT_COLORS.length]);
+            }
+        }
+        return builder.build();
+    }
+
+}
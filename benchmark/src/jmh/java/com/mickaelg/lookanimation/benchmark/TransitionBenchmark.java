@@ -0,0 +1,106 @@
+package com.mickaelg.lookanimation.benchmark;
+
+import com.mickaelg.lookanimation.model.LookRegion;
+import com.mickaelg.lookanimation.model.ProductModel;
+import com.mickaelg.lookanimation.ui.animation.TransitionSimulator;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static com.mickaelg.lookanimation.ui.LookAnimationDelegate.STATE_LOWER_BODY;
+import static com.mickaelg.lookanimation.ui.LookAnimationDelegate.STATE_NOT_ZOOMED;
+import static com.mickaelg.lookanimation.ui.LookAnimationDelegate.STATE_UPPER_BODY;
+
+/**
+ * Cost of computing every frame of the transitions of a look, without any view, played by a
+ * {@link TransitionSimulator}. The views are placed in the state the transition starts from before each one.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 10, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class TransitionBenchmark {
+
+    private static final long DURATION = 400;
+    private static final float VIEW_WIDTH = 1080f;
+    private static final float VIEW_HEIGHT = 1920f;
+
+    /**
+     * Regions of the look: the cost of a transition must not depend on it.
+     */
+    @Param({"2", "30"})
+    public int mRegionCount;
+
+    private TransitionSimulator mSimulator;
+    private float mRegionDistance;
+
+    @Setup
+    public void setUp() {
+        List<LookRegion> regionList = new ArrayList<>(mRegionCount);
+        float[] stripHeights = new float[mRegionCount];
+        // Regions stacked from the top to the bottom of the picture
+        float regionHeight = 0.9f / mRegionCount;
+        for (int regionIndex = 0; regionIndex < mRegionCount; regionIndex++) {
+            float top = 0.1f + regionHeight * regionIndex;
+            regionList.add(new LookRegion("region_" + regionIndex, 0.0714f, top, 0.6429f, top + regionHeight,
+                    new ArrayList<ProductModel>()));
+            stripHeights[regionIndex] = 250f;
+        }
+        mSimulator = new TransitionSimulator(regionList, DURATION, VIEW_WIDTH, VIEW_HEIGHT, stripHeights);
+        mRegionDistance = mSimulator.getGeometry().getRegionDistance(0);
+    }
+
+    @Benchmark
+    public int zoomIn() {
+        mSimulator.jumpTo(STATE_NOT_ZOOMED);
+        return mSimulator.play(STATE_UPPER_BODY);
+    }
+
+    @Benchmark
+    public int fling() {
+        mSimulator.jumpTo(STATE_UPPER_BODY);
+        return mSimulator.play(STATE_LOWER_BODY);
+    }
+
+    @Benchmark
+    public int zoomOut() {
+        mSimulator.jumpTo(STATE_LOWER_BODY);
+        return mSimulator.play(STATE_NOT_ZOOMED);
+    }
+
+    /**
+     * A zoom interrupted halfway by a fling to the next region.
+     */
+    @Benchmark
+    public int retarget() {
+        mSimulator.jumpTo(STATE_NOT_ZOOMED);
+        mSimulator.start(STATE_UPPER_BODY, (int) (DURATION / TransitionSimulator.FRAME_INTERVAL / 2));
+        return mSimulator.play(STATE_LOWER_BODY);
+    }
+
+    /**
+     * The views following the finger toward the next region, then settling on it.
+     */
+    @Benchmark
+    public int dragAndSettle() {
+        mSimulator.jumpTo(STATE_UPPER_BODY);
+        mSimulator.drag(-mRegionDistance / 10f, 8);
+        return mSimulator.release(0f);
+    }
+
+}
@@ -0,0 +1,153 @@
+package com.mickaelg.lookanimation.benchmark;
+
+import org.junit.Test;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.lang.reflect.Method;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Time tasks run on the main thread of Robolectric, and export the timings as JSON in the format of the results of
+ * JMH, so the macrobenchmarks and the microbenchmarks can be tracked by the same tools. The file of each benchmark
+ * class is written to the directory given by the {@code benchmark.resultsDir} system property.
+ * <p/>
+ * A benchmark class keeps a single instance in a static field, so the file holds the results of all its tests. The
+ * file is written again after each test: Robolectric runs the {@code @AfterClass} methods outside of its class loader,
+ * where the static field of the tests isn't visible. They only check the file, see {@link #checkResults(Class)}.
+ * <p/>
+ * The timings are taken on the JVM with the framework of Robolectric, not on a device: they are only meant to be
+ * compared with each other, from one run to the next.
+ */
+public final class MacroBenchmark {
+
+    /**
+     * Task measured many times, put back in its initial state between two runs.
+     */
+    public interface Task {
+
+        /**
+         * The measured part.
+         */
+        void run();
+
+        /**
+         * Undo the measured part, not measured.
+         */
+        void reset();
+
+    }
+
+    private static final int WARMUP_ITERATIONS = 50;
+    private static final int MEASURED_ITERATIONS = 200;
+    private static final double[] PERCENTILES = {50.0, 90.0, 99.0, 100.0};
+
+    private final Class<?> mBenchmarkClass;
+    private final List<String> mResults = new ArrayList<>();
+
+    public MacroBenchmark(Class<?> benchmarkClass) {
+        mBenchmarkClass = benchmarkClass;
+    }
+
+    /**
+     * Run the task a few times to warm it up, then time each of the next runs.
+     *
+     * @param name       Name of the benchmark, in its class
+     * @param paramName  Name of the parameter the task is run with
+     * @param paramValue Value of the parameter
+     * @return Mean time of a run, in us
+     */
+    public double measure(String name, String paramName, Object paramValue, Task task) {
+        for (int i = 0; i < WARMUP_ITERATIONS; i++) {
+            task.run();
+            task.reset();
+        }
+        long[] times = new long[MEASURED_ITERATIONS];
+        long totalTime = 0;
+        for (int i = 0; i < MEASURED_ITERATIONS; i++) {
+            long start = System.nanoTime();
+            task.run();
+            times[i] = System.nanoTime() - start;
+            totalTime += times[i];
+            task.reset();
+        }
+        Arrays.sort(times);
+
+        double score = toMicros(totalTime) / MEASURED_ITERATIONS;
+        StringBuilder percentiles = new StringBuilder();
+        for (double percentile : PERCENTILES) {
+            int index = Math.min(MEASURED_ITERATIONS - 1, (int) Math.ceil(percentile / 100 * MEASURED_ITERATIONS) - 1);
+            if (percentiles.length() > 0) {
+                percentiles.append(", ");
+            }
+            percentiles.append(String.format(Locale.US, "\"%.1f\": %.3f", percentile, toMicros(times[index])));
+        }
+        mResults.add(String.format(Locale.US, "    {\n"
+                        + "        \"benchmark\": \"%s.%s\",\n"
+                        + "        \"mode\": \"sample\",\n"
+                        + "        \"measurementIterations\": %d,\n"
+                        + "        \"params\": {\"%s\": \"%s\"},\n"
+                        + "        \"primaryMetric\": {\n"
+                        + "            \"score\": %.3f,\n"
+                        + "            \"scoreUnit\": \"us/op\",\n"
+                        + "            \"scorePercentiles\": {%s}\n"
+                        + "        }\n"
+                        + "    }",
+                mBenchmarkClass.getName(), name, MEASURED_ITERATIONS, paramName, paramValue, score, percentiles));
+        return score;
+    }
+
+    private static double toMicros(long nanos) {
+        return nanos / 1000.0;
+    }
+
+    private static File getResultsDirectory() {
+        return new File(System.getProperty("benchmark.resultsDir", "build/reports/benchmarks"));
+    }
+
+    /**
+     * Write the results of the benchmarks measured so far to the JSON file of the benchmark class.
+     */
+    public void writeResults() throws IOException {
+        File directory = getResultsDirectory();
+        if (!directory.isDirectory() && !directory.mkdirs()) {
+            throw new IOException("Can't create " + directory);
+        }
+        File file = new File(directory, mBenchmarkClass.getSimpleName() + ".json");
+        PrintWriter writer = new PrintWriter(new OutputStreamWriter(new FileOutputStream(file), "UTF-8"));
+        try {
+            writer.println("[");
+            for (int i = 0; i < mResults.size(); i++) {
+                writer.print(mResults.get(i));
+                writer.println(i < mResults.size() - 1 ? "," : "");
+            }
+            writer.println("]");
+        } finally {
+            writer.close();
+        }
+    }
+
+    /**
+     * Check that the JSON file of the benchmark class holds the results of every test of the class, each test
+     * measuring the benchmark of its name.
+     */
+    public static void checkResults(Class<?> benchmarkClass) throws IOException {
+        File file = new File(getResultsDirectory(), benchmarkClass.getSimpleName() + ".json");
+        String json = new String(Files.readAllBytes(file.toPath()), Charset.forName("UTF-8"));
+        for (Method method : benchmarkClass.getMethods()) {
+            if (method.isAnnotationPresent(Test.class)
+                    && !json.contains("\"" + benchmarkClass.getName() + "." + method.getName() + "\"")) {
+                throw new AssertionError("No results of " + method.getName() + " in " + file);
+            }
+        }
+    }
+
+}
@@ -0,0 +1,187 @@
+package com.mickaelg.lookanimation.ui;
+
+import android.app.Activity;
+import android.view.Gravity;
+import android.view.LayoutInflater;
+import android.view.MotionEvent;
+import android.view.View;
+import android.view.ViewGroup;
+import android.widget.FrameLayout;
+
+import com.mickaelg.lookanimation.BuildConfig;
+import com.mickaelg.lookanimation.R;
+import com.mickaelg.lookanimation.benchmark.MacroBenchmark;
+import com.mickaelg.lookanimation.model.LookModel;
+import com.mickaelg.lookanimation.model.LookRegion;
+import com.mickaelg.lookanimation.ui.picture.TiledPictureView;
+import com.mickaelg.lookanimation.ui.product.ProductStripView;
+
+import org.junit.After;
+import org.junit.AfterClass;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.Robolectric;
+import org.robolectric.RobolectricGradleTestRunner;
+import org.robolectric.annotation.Config;
+import org.robolectric.shadows.ShadowLooper;
+
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Time the handling of the touch events of each kind of gesture by a {@link LookAnimationDelegate}: the detectors
+ * classifying the gesture, then the transition, drag or settling it starts.
+ * <p/>
+ * The main looper is paused, so the transitions never run: each gesture starts from the same state. No frame runs
+ * either: the moves of a gesture are merged by the {@link TouchCoalescer} of the delegate until the finger leaves the
+ * screen, as if they all came within a frame.
+ */
+@RunWith(RobolectricGradleTestRunner.class)
+@Config(constants = BuildConfig.class, sdk = 21)
+public class GestureBenchmark {
+
+    private static final int VIEW_WIDTH = 1080;
+    private static final int VIEW_HEIGHT = 1920;
+    private static final int STRIP_HEIGHT = 300;
+    /**
+     * Time between two touch events, in ms.
+     */
+    private static final long EVENT_INTERVAL = 8;
+    private static final int MOVE_COUNT = 20;
+
+    /**
+     * Results of every test, see {@link MacroBenchmark}.
+     */
+    private static final MacroBenchmark sBenchmark = new MacroBenchmark(GestureBenchmark.class);
+    private LookAnimationDelegate mDelegate;
+
+    @Before
+    public void setUp() throws Exception {
+        Activity activity = Robolectric.setupActivity(Activity.class);
+        FrameLayout container = new FrameLayout(activity);
+        activity.setContentView(container);
+        ShadowLooper.pauseMainLooper();
+
+        TiledPictureView picture = new TiledPictureView(activity);
+        container.addView(picture, new FrameLayout.LayoutParams(ViewGroup.LayoutParams.MATCH_PARENT,
+                ViewGroup.LayoutParams.MATCH_PARENT));
+        LookModel look = LookModel.createLookModel();
+        List<LookRegion> regionList = look.getRegionList();
+        View[] strips = new View[regionList.size()];
+        LayoutInflater inflater = LayoutInflater.from(activity);
+        for (int i = 0; i < strips.length; i++) {
+            ProductStripView strip = (ProductStripView) inflater.inflate(R.layout.layout_product_strip, container,
+                    false);
+            strip.setProducts(regionList.get(i).getProductList());
+            container.addView(strip, new FrameLayout.LayoutParams(ViewGroup.LayoutParams.MATCH_PARENT, STRIP_HEIGHT,
+                    Gravity.BOTTOM));
+            strips[i] = strip;
+        }
+        mDelegate = new LookAnimationDelegate(picture, regionList, strips);
+
+        // The delegate is ready once the views are laid out
+        container.measure(View.MeasureSpec.makeMeasureSpec(VIEW_WIDTH, View.MeasureSpec.EXACTLY),
+                View.MeasureSpec.makeMeasureSpec(VIEW_HEIGHT, View.MeasureSpec.EXACTLY));
+        container.layout(0, 0, VIEW_WIDTH, VIEW_HEIGHT);
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        mDelegate.release();
+        sBenchmark.writeResults();
+    }
+
+    @AfterClass
+    public static void checkResults() throws Exception {
+        MacroBenchmark.checkResults(GestureBenchmark.class);
+    }
+
+    /**
+     * A tap zooming on the upper body.
+     */
+    @Test
+    public void tap() throws Exception {
+        MotionEvent[] events = {
+                obtain(0, MotionEvent.ACTION_DOWN, VIEW_HEIGHT / 2f),
+                obtain(EVENT_INTERVAL, MotionEvent.ACTION_UP, VIEW_HEIGHT / 2f)};
+        assertEquals(LookAnimationDelegate.STATE_UPPER_BODY,
+                playGesture(LookAnimationDelegate.STATE_NOT_ZOOMED, events));
+        measureGesture("tap", LookAnimationDelegate.STATE_NOT_ZOOMED, events);
+    }
+
+    /**
+     * A quick move of the finger up, from the upper body to the lower body.
+     */
+    @Test
+    public void fling() throws Exception {
+        MotionEvent[] events = createSwipe(VIEW_HEIGHT / 2f / MOVE_COUNT);
+        assertEquals(LookAnimationDelegate.STATE_LOWER_BODY,
+                playGesture(LookAnimationDelegate.STATE_UPPER_BODY, events));
+        measureGesture("fling", LookAnimationDelegate.STATE_UPPER_BODY, events);
+    }
+
+    /**
+     * A slow move of the finger up, the views following it, then settling on a region once released.
+     */
+    @Test
+    public void drag() throws Exception {
+        measureGesture("drag", LookAnimationDelegate.STATE_UPPER_BODY, createSwipe(4f));
+    }
+
+    /**
+     * @param events Events of the gesture, from the down event to the up one
+     * @return State the gesture brought the look to
+     */
+    private int playGesture(int fromState, MotionEvent[] events) {
+        mDelegate.restorePictureState(fromState);
+        for (MotionEvent event : events) {
+            mDelegate.onTouchEvent(event);
+        }
+        return mDelegate.getPictureState();
+    }
+
+    /**
+     * @param events Events of the gesture, from the down event to the up one
+     */
+    private void measureGesture(String name, final int fromState, final MotionEvent[] events) {
+        sBenchmark.measure(name, "events", events.length, new MacroBenchmark.Task() {
+            @Override
+            public void run() {
+                for (MotionEvent event : events) {
+                    mDelegate.onTouchEvent(event);
+                }
+            }
+
+            @Override
+            public void reset() {
+                mDelegate.restorePictureState(fromState);
+                ShadowLooper.idleMainLooper();
+            }
+        });
+        for (MotionEvent event : events) {
+            event.recycle();
+        }
+    }
+
+    /**
+     * @param step Move of the finger up between two events, in px
+     */
+    private static MotionEvent[] createSwipe(float step) {
+        MotionEvent[] events = new MotionEvent[MOVE_COUNT + 2];
+        float y = VIEW_HEIGHT * 0.75f;
+        events[0] = obtain(0, MotionEvent.ACTION_DOWN, y);
+        for (int i = 1; i <= MOVE_COUNT; i++) {
+            y -= step;
+            events[i] = obtain(i * EVENT_INTERVAL, MotionEvent.ACTION_MOVE, y);
+        }
+        events[MOVE_COUNT + 1] = obtain((MOVE_COUNT + 1) * EVENT_INTERVAL, MotionEvent.ACTION_UP, y);
+        return events;
+    }
+
+    private static MotionEvent obtain(long eventTime, int action, float y) {
+        return MotionEvent.obtain(0, eventTime, action, VIEW_WIDTH / 2f, y, 0);
+    }
+
+}
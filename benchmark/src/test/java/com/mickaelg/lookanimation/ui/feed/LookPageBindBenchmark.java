@@ -0,0 +1,139 @@
+package com.mickaelg.lookanimation.ui.feed;
+
+import android.app.Activity;
+import android.view.LayoutInflater;
+import android.view.View;
+import android.widget.FrameLayout;
+
+import com.bumptech.glide.Glide;
+import com.mickaelg.lookanimation.BuildConfig;
+import com.mickaelg.lookanimation.R;
+import com.mickaelg.lookanimation.benchmark.MacroBenchmark;
+import com.mickaelg.lookanimation.model.LookModel;
+import com.mickaelg.lookanimation.model.ProductModel;
+import com.mickaelg.lookanimation.ui.LookAnimationDelegate;
+import com.mickaelg.lookanimation.ui.picture.PictureThumbnails;
+
+import org.junit.After;
+import org.junit.AfterClass;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.Robolectric;
+import org.robolectric.RobolectricGradleTestRunner;
+import org.robolectric.annotation.Config;
+import org.robolectric.shadows.ShadowLooper;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Time the display of a look in a page of the feed, with 3, 30 and 300 products: everything done on the main thread
+ * when a page is bound to a look for the first time.
+ * <p/>
+ * The main looper is paused, so only the main thread is measured: the strips built in the background and the picture
+ * loaded by Glide are handed back between two runs.
+ */
+@RunWith(RobolectricGradleTestRunner.class)
+@Config(constants = BuildConfig.class, sdk = 21)
+public class LookPageBindBenchmark {
+
+    private static final int[] PRODUCT_COUNTS = {3, 30, 300};
+    private static final int[] PRODUCT_COLORS = {R.color.red, R.color.purple, R.color.indigo, R.color.green,
+            R.color.amber};
+    private static final int PAGE_WIDTH = 1080;
+    private static final int PAGE_HEIGHT = 1920;
+
+    /**
+     * Results of every test, see {@link MacroBenchmark}.
+     */
+    private static final MacroBenchmark sBenchmark = new MacroBenchmark(LookPageBindBenchmark.class);
+    private ProductStripBuilder mStripBuilder;
+    private LookPageHolder mHolder;
+
+    @Before
+    public void setUp() throws Exception {
+        Activity activity = Robolectric.setupActivity(Activity.class);
+        FrameLayout container = new FrameLayout(activity);
+        activity.setContentView(container);
+        ShadowLooper.pauseMainLooper();
+
+        LayoutInflater inflater = LayoutInflater.from(activity);
+        ProductStripPool stripPool = new ProductStripPool();
+        mStripBuilder = new ProductStripBuilder(inflater, stripPool);
+        mHolder = new LookPageHolder(inflater, container, Glide.with(activity),
+                new PictureThumbnails(activity.getResources()), new PictureLoadStats(), stripPool, mStripBuilder);
+        container.addView(mHolder.getView());
+        container.measure(View.MeasureSpec.makeMeasureSpec(PAGE_WIDTH, View.MeasureSpec.EXACTLY),
+                View.MeasureSpec.makeMeasureSpec(PAGE_HEIGHT, View.MeasureSpec.EXACTLY));
+        container.layout(0, 0, PAGE_WIDTH, PAGE_HEIGHT);
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        mStripBuilder.shutdown();
+        sBenchmark.writeResults();
+    }
+
+    @AfterClass
+    public static void checkResults() throws Exception {
+        MacroBenchmark.checkResults(LookPageBindBenchmark.class);
+    }
+
+    /**
+     * A new page: the strips are built in the background.
+     */
+    @Test
+    public void bind() throws Exception {
+        for (int productCount : PRODUCT_COUNTS) {
+            measureBind("bind", productCount, LookAnimationDelegate.STATE_NOT_ZOOMED);
+        }
+    }
+
+    /**
+     * A page restored zoomed after a configuration change: the strips are built on the main thread, for its first
+     * frame.
+     */
+    @Test
+    public void bindRestored() throws Exception {
+        for (int productCount : PRODUCT_COUNTS) {
+            measureBind("bindRestored", productCount, LookAnimationDelegate.STATE_UPPER_BODY);
+        }
+    }
+
+    private void measureBind(String name, int productCount, final int pictureState) {
+        final LookModel look = createLook(productCount);
+        assertEquals(productCount, look.getUpperBodyProductList().size() + look.getLowerBodyProductList().size());
+        sBenchmark.measure(name, "productCount", productCount, new MacroBenchmark.Task() {
+            @Override
+            public void run() {
+                // A look bound for the first time, not in the cache yet
+                mHolder.bind(new LookCache.Entry(look), pictureState, null);
+            }
+
+            @Override
+            public void reset() {
+                mHolder.unbind();
+                ShadowLooper.idleMainLooper();
+            }
+        });
+    }
+
+    private static LookModel createLook(int productCount) {
+        int upperBodyProductCount = (productCount + 1) / 2;
+        List<ProductModel> upperBodyProductList = new ArrayList<>(upperBodyProductCount);
+        List<ProductModel> lowerBodyProductList = new ArrayList<>(productCount - upperBodyProductCount);
+        for (int i = 0; i < productCount; i++) {
+            ProductModel product = new ProductModel(PRODUCT_COLORS[i % PRODUCT_COLORS.length]);
+            if (i < upperBodyProductCount) {
+                upperBodyProductList.add(product);
+            } else {
+                lowerBodyProductList.add(product);
+            }
+        }
+        return new LookModel(R.drawable.suit, upperBodyProductList, lowerBodyProductList);
+    }
+
+}